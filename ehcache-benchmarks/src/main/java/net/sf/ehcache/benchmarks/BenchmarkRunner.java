@@ -0,0 +1,83 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks;
+
+import java.util.Locale;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count, writing the results of each run to a machine readable file.
+ * <p>
+ * Accepts the JMH command line options.  Unless {@code -t} is given, the benchmarks are run with each of the thread
+ * counts of the {@code ehcache.benchmarks.threads} system property, a comma separated list defaulting to
+ * {@value #DEFAULT_THREADS}.  The results are written as JSON unless {@code -rf} gives another format, and unless
+ * {@code -rff} is given those of the run with {@code n} threads go to {@code ehcache-benchmarks-n.json}.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The thread counts the benchmarks are run with by default.
+     */
+    public static final String DEFAULT_THREADS = "1,4,16";
+
+    private BenchmarkRunner() {
+        // no instances
+    }
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args the JMH command line options
+     * @throws CommandLineOptionException if the options cannot be parsed
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        if (commandLine.getThreads().hasValue()) {
+            run(commandLine, commandLine.getThreads().get());
+        } else {
+            for (String threads : System.getProperty("ehcache.benchmarks.threads", DEFAULT_THREADS).split(",")) {
+                run(commandLine, Integer.parseInt(threads.trim()));
+            }
+        }
+    }
+
+    private static void run(CommandLineOptions commandLine, int threads) throws RunnerException {
+        ResultFormatType format = commandLine.getResultFormat().orElse(ResultFormatType.JSON);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).threads(threads).resultFormat(format);
+        if (!commandLine.getResult().hasValue()) {
+            options.result("ehcache-benchmarks-" + threads + "." + format.name().toLowerCase(Locale.ENGLISH));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the cache operations on a heap only cache shared by all the benchmark threads.
+ * <p>
+ * Every key read is mapped, so that the read benchmarks measure hits, and the cache is big enough to hold every key,
+ * so that the write benchmarks do not evict.  Run with {@code -t} to vary the contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    /**
+     * The number of mapped keys.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+
+    /**
+     * The eviction policy of the cache.
+     */
+    @Param({"LRU", "TINYLFU"})
+    public String policy;
+
+    /**
+     * The number of keys read by each bulk read.
+     */
+    @Param({"16"})
+    public int batchSize;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+
+    /**
+     * Create the cache and map every key.
+     */
+    @Setup
+    public void setUp() {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("benchmark", size)
+                .memoryStoreEvictionPolicy(policy).eternal(true);
+        cacheManager = new CacheManager(new Configuration().name("CacheBenchmark").cache(cacheConfiguration));
+        cache = cacheManager.getCache("benchmark");
+        for (int i = 0; i < size; i++) {
+            cache.put(new Element(i, "value-" + i));
+        }
+    }
+
+    /**
+     * Shut the cache manager down.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    /**
+     * Read a mapped key.
+     *
+     * @return the element read
+     */
+    @Benchmark
+    public Element get() {
+        return cache.get(randomKey());
+    }
+
+    /**
+     * Replace the value of a mapped key.
+     */
+    @Benchmark
+    public void put() {
+        Integer key = randomKey();
+        cache.put(new Element(key, "value-" + key));
+    }
+
+    /**
+     * Read a batch of mapped keys.
+     *
+     * @return the elements read
+     */
+    @Benchmark
+    public Map<Object, Element> getAll() {
+        List<Integer> keys = new ArrayList<Integer>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            keys.add(randomKey());
+        }
+        return cache.getAll(keys);
+    }
+
+    /**
+     * Read a mapped key, concurrently with writers.
+     *
+     * @return the element read
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Element readWriteGet() {
+        return get();
+    }
+
+    /**
+     * Replace the value of a mapped key, concurrently with readers.
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWritePut() {
+        put();
+    }
+
+    private Integer randomKey() {
+        return ThreadLocalRandom.current().nextInt(size);
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.event;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.event.AsynchronousEventDispatcher;
+import net.sf.ehcache.event.AsynchronousEventDispatcher.OverflowPolicy;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+import net.sf.ehcache.event.NotificationScope;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures writes to a cache with an event listener, delivered either on the writing thread or by an asynchronous
+ * dispatcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+    /**
+     * The number of keys written.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+
+    /**
+     * The number of dispatcher threads, events being delivered on the writing thread if 0.
+     */
+    @Param({"0", "1", "4"})
+    public int dispatchThreads;
+
+    /**
+     * What the dispatcher does with an event dispatched to a full queue.
+     */
+    @Param({"BLOCK", "DROP", "COALESCE"})
+    public String overflowPolicy;
+
+    /**
+     * The maximum number of pending events per dispatcher thread.
+     */
+    @Param({"1000"})
+    public int queueSize;
+
+    /**
+     * The amount of work done by the listener for each event, in {@link Blackhole#consumeCPU(long)} tokens.
+     */
+    @Param({"0", "1000"})
+    public long listenerWork;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+
+    /**
+     * Create the cache and register the listener.
+     */
+    @Setup
+    public void setUp() {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("events", size).eternal(true);
+        cacheManager = new CacheManager(new Configuration().name("EventDispatchBenchmark").cache(cacheConfiguration));
+        cache = cacheManager.getCache("events");
+        AsynchronousEventDispatcher dispatcher = null;
+        if (dispatchThreads > 0) {
+            dispatcher = new AsynchronousEventDispatcher("events-dispatcher", dispatchThreads, queueSize,
+                    OverflowPolicy.valueOf(overflowPolicy));
+        }
+        cache.getCacheEventNotificationService().registerListener(new WorkingListener(listenerWork),
+                NotificationScope.ALL, dispatcher);
+    }
+
+    /**
+     * Shut the cache manager down, delivering the pending events.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    /**
+     * Write a key, notifying the listener of a put or an update.
+     */
+    @Benchmark
+    public void put() {
+        Integer key = ThreadLocalRandom.current().nextInt(size);
+        cache.put(new Element(key, "value-" + key));
+    }
+
+    /**
+     * A listener consuming a fixed amount of CPU for each put or update.
+     */
+    private static final class WorkingListener extends CacheEventListenerAdapter {
+
+        private final long work;
+
+        WorkingListener(long work) {
+            this.work = work;
+        }
+
+        @Override
+        public void notifyElementPut(Ehcache cache, Element element) {
+            Blackhole.consumeCPU(work);
+        }
+
+        @Override
+        public void notifyElementUpdated(Ehcache cache, Element element) {
+            Blackhole.consumeCPU(work);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.pool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.pool.SizeOfEngine;
+import net.sf.ehcache.pool.impl.DefaultSizeOfEngine;
+import net.sf.ehcache.pool.impl.SampledSizeOfEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of sizing an element, as done on every write to a cache bounded in bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SizeOfEngineBenchmark {
+
+    private static final int MAX_DEPTH = 1000;
+
+    /**
+     * The engine under test, either {@code default} or {@code sampled}.
+     */
+    @Param({"default", "sampled"})
+    public String engine;
+
+    /**
+     * The shape of the values sized: a {@code string}, a {@code list} of strings or a {@code map} of lists.
+     */
+    @Param({"string", "list", "map"})
+    public String shape;
+
+    /**
+     * The number of strings in a list, and of lists in a map.
+     */
+    @Param({"10", "100"})
+    public int width;
+
+    /**
+     * One element in {@code sampleInterval} of each value class is fully sized by the sampled engine.
+     */
+    @Param({"32"})
+    public int sampleInterval;
+
+    private SizeOfEngine sizeOfEngine;
+    private Element element;
+
+    /**
+     * Build the element and the engine under test.
+     */
+    @Setup
+    public void setUp() {
+        SizeOfEngine defaultEngine = new DefaultSizeOfEngine(MAX_DEPTH, false, true);
+        if ("sampled".equals(engine)) {
+            sizeOfEngine = new SampledSizeOfEngine(defaultEngine, sampleInterval);
+        } else {
+            sizeOfEngine = defaultEngine;
+        }
+        element = new Element("key", value());
+    }
+
+    private Object value() {
+        if ("string".equals(shape)) {
+            return string(width);
+        } else if ("list".equals(shape)) {
+            return list(width);
+        } else {
+            Map<String, List<String>> map = new HashMap<String, List<String>>();
+            for (int i = 0; i < width; i++) {
+                map.put(string(i), list(width));
+            }
+            return map;
+        }
+    }
+
+    private static List<String> list(int size) {
+        List<String> list = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(string(i));
+        }
+        return list;
+    }
+
+    private static String string(int index) {
+        return "value-" + index;
+    }
+
+    /**
+     * Size the element.
+     *
+     * @return the calculated size
+     */
+    @Benchmark
+    public long sizeOf() {
+        return sizeOfEngine.sizeOf(element.getObjectKey(), element, null).getCalculated();
+    }
+}
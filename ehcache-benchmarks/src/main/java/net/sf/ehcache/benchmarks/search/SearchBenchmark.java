@@ -0,0 +1,213 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.search;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.Searchable;
+import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.search.Direction;
+import net.sf.ehcache.search.Results;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures queries against a searchable heap cache, with and without attribute indexes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int AGES = 100;
+    private static final int DEPARTMENTS = 50;
+
+    /**
+     * The number of searchable elements.
+     */
+    @Param({"10000", "100000"})
+    public int size;
+
+    /**
+     * Whether the attributes are indexed, either {@code none} or {@code indexed}.
+     */
+    @Param({"none", "indexed"})
+    public String index;
+
+    /**
+     * The number of results of the ordered queries.
+     */
+    @Param({"10"})
+    public int limit;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private Attribute<Integer> age;
+    private Attribute<String> department;
+
+    /**
+     * Create the cache and fill it.
+     */
+    @Setup
+    public void setUp() {
+        boolean indexed = "indexed".equals(index);
+        Searchable searchable = new Searchable()
+                .searchAttribute(new SearchAttribute().name("age").expression("value.getAge()")
+                        .index(indexed ? "sorted" : "none"))
+                .searchAttribute(new SearchAttribute().name("department").expression("value.getDepartment()")
+                        .index(indexed ? "hash" : "none"));
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("search", 0).eternal(true).searchable(searchable);
+        cacheManager = new CacheManager(new Configuration().name("SearchBenchmark").cache(cacheConfiguration));
+        cache = cacheManager.getCache("search");
+        age = cache.getSearchAttribute("age");
+        department = cache.getSearchAttribute("department");
+        for (int i = 0; i < size; i++) {
+            cache.put(new Element(i, new Employee(i % AGES, "department-" + (i % DEPARTMENTS))));
+        }
+    }
+
+    /**
+     * Shut the cache manager down.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    /**
+     * Find the keys of the elements with a given attribute value.
+     *
+     * @return the number of results
+     */
+    @Benchmark
+    public int equalTo() {
+        Results results = cache.createQuery().includeKeys()
+                .addCriteria(department.eq("department-" + ThreadLocalRandom.current().nextInt(DEPARTMENTS))).execute();
+        try {
+            return results.size();
+        } finally {
+            results.discard();
+        }
+    }
+
+    /**
+     * Find the keys of the elements with an attribute value in a narrow range.
+     *
+     * @return the number of results
+     */
+    @Benchmark
+    public int range() {
+        int from = ThreadLocalRandom.current().nextInt(AGES - 2);
+        Results results = cache.createQuery().includeKeys().addCriteria(age.between(from, from + 2)).execute();
+        try {
+            return results.size();
+        } finally {
+            results.discard();
+        }
+    }
+
+    /**
+     * Find the oldest employees of a department.
+     *
+     * @return the number of results
+     */
+    @Benchmark
+    public int topResults() {
+        Results results = cache.createQuery().includeKeys().includeAttribute(age)
+                .addCriteria(department.eq("department-" + ThreadLocalRandom.current().nextInt(DEPARTMENTS)))
+                .addOrderBy(age, Direction.DESCENDING).maxResults(limit).execute();
+        try {
+            return results.size();
+        } finally {
+            results.discard();
+        }
+    }
+
+    /**
+     * Compute the average age over the whole cache.
+     *
+     * @return the number of results
+     */
+    @Benchmark
+    public int aggregate() {
+        Results results = cache.createQuery().includeAggregator(age.average()).execute();
+        try {
+            return results.size();
+        } finally {
+            results.discard();
+        }
+    }
+
+    /**
+     * A searchable value.
+     */
+    public static final class Employee {
+
+        private final int age;
+        private final String department;
+
+        /**
+         * Create an employee.
+         *
+         * @param age the age
+         * @param department the department name
+         */
+        public Employee(int age, String department) {
+            this.age = age;
+            this.department = department;
+        }
+
+        /**
+         * Return the age.
+         *
+         * @return the age
+         */
+        public int getAge() {
+            return age;
+        }
+
+        /**
+         * Return the department name.
+         *
+         * @return the department name
+         */
+        public String getDepartment() {
+            return department;
+        }
+    }
+}
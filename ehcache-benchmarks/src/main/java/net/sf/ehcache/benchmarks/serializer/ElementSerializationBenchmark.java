@@ -0,0 +1,163 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.serializer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.serializer.CompactSerializer;
+import net.sf.ehcache.serializer.ElementSerialization;
+import net.sf.ehcache.serializer.JavaSerializer;
+import net.sf.ehcache.serializer.Serializer;
+import net.sf.ehcache.store.compound.ReadWriteSerializationCopyStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the Java and compact serializers when writing whole elements, as done by the disk store, and when copying
+ * elements through the serialization copy strategy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementSerializationBenchmark {
+
+    /**
+     * The serializer under test, either {@code java} or {@code compact}.
+     */
+    @Param({"java", "compact"})
+    public String serializer;
+
+    /**
+     * The type of the keys and values written.
+     */
+    @Param({"string", "long", "bytes"})
+    public String type;
+
+    /**
+     * The size of string and byte array values.
+     */
+    @Param({"16", "1024"})
+    public int valueSize;
+
+    private Serializer elementSerializer;
+    private ReadWriteSerializationCopyStrategy copyStrategy;
+    private Element element;
+    private byte[] serialized;
+    private Element copiedForWrite;
+    private ClassLoader loader;
+
+    /**
+     * Build the element and the serializer under test.
+     *
+     * @throws IOException if the element cannot be serialized
+     */
+    @Setup
+    public void setUp() throws IOException {
+        if ("java".equals(serializer)) {
+            elementSerializer = new JavaSerializer();
+        } else {
+            elementSerializer = new CompactSerializer();
+        }
+        copyStrategy = new ReadWriteSerializationCopyStrategy(elementSerializer);
+        loader = getClass().getClassLoader();
+        element = new Element(key(), value());
+        serialized = ElementSerialization.serialize(element, elementSerializer).getBytes();
+        copiedForWrite = copyStrategy.copyForWrite(element, loader);
+    }
+
+    private Object key() {
+        if ("long".equals(type)) {
+            return Long.valueOf(42L);
+        }
+        return "key-42";
+    }
+
+    private Object value() {
+        if ("long".equals(type)) {
+            return Long.valueOf(valueSize);
+        } else if ("bytes".equals(type)) {
+            byte[] bytes = new byte[valueSize];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            return bytes;
+        } else {
+            StringBuilder sb = new StringBuilder(valueSize);
+            for (int i = 0; i < valueSize; i++) {
+                sb.append((char) ('a' + i % 26));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Serialize an element as the disk store does.
+     *
+     * @return the serialized bytes
+     * @throws IOException if the element cannot be serialized
+     */
+    @Benchmark
+    public byte[] serializeElement() throws IOException {
+        return ElementSerialization.serialize(element, elementSerializer).getBytes();
+    }
+
+    /**
+     * Deserialize an element as the disk store does.
+     *
+     * @return the element
+     * @throws Exception if the element cannot be deserialized
+     */
+    @Benchmark
+    public Element deserializeElement() throws Exception {
+        return ElementSerialization.deserialize(serialized, elementSerializer, loader);
+    }
+
+    /**
+     * Copy an element on write through the serialization copy strategy.
+     *
+     * @return the copied element
+     */
+    @Benchmark
+    public Element copyForWrite() {
+        return copyStrategy.copyForWrite(element, loader);
+    }
+
+    /**
+     * Copy an element on read through the serialization copy strategy.
+     *
+     * @return the copied element
+     */
+    @Benchmark
+    public Element copyForRead() {
+        return copyStrategy.copyForRead(copiedForWrite, loader);
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.DiskStoreConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration.Strategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a cache overflowing to disk, with a heap tier holding a small fraction of the keys so that most reads fault
+ * elements in from disk and most writes spool elements out to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskTierBenchmark {
+
+    /**
+     * The number of mapped keys.
+     */
+    @Param({"10000", "100000"})
+    public int size;
+
+    /**
+     * The maximum number of elements held by the heap tier.
+     */
+    @Param({"1000"})
+    public int heapSize;
+
+    /**
+     * The size of the values written, in bytes.
+     */
+    @Param({"128", "4096"})
+    public int valueSize;
+
+    private File directory;
+    private CacheManager cacheManager;
+    private Cache cache;
+    private byte[] value;
+
+    /**
+     * Create the cache and map every key.
+     *
+     * @throws IOException if the disk store directory cannot be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ehcache-benchmark").toFile();
+        value = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("disk", heapSize).eternal(true)
+                .persistence(new PersistenceConfiguration().strategy(Strategy.LOCALTEMPSWAP));
+        cacheManager = new CacheManager(new Configuration().name("DiskTierBenchmark")
+                .diskStore(new DiskStoreConfiguration().path(directory.getAbsolutePath()))
+                .cache(cacheConfiguration));
+        cache = cacheManager.getCache("disk");
+        for (int i = 0; i < size; i++) {
+            cache.put(new Element(i, value));
+        }
+    }
+
+    /**
+     * Shut the cache manager down and delete the disk store files.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Read a mapped key, most likely faulting it in from disk.
+     *
+     * @return the element read
+     */
+    @Benchmark
+    public Element fault() {
+        return cache.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * Replace the value of a mapped key, most likely spooling another element to disk.
+     */
+    @Benchmark
+    public void spool() {
+        cache.put(new Element(ThreadLocalRandom.current().nextInt(size), value));
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.store;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap store under eviction pressure, with a key space a number of times larger than the store.
+ * <p>
+ * Keys are read from a skewed distribution and loaded on a miss, so that the throughput of {@link #get()} reflects how
+ * well the eviction policy keeps the hot keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapEvictionBenchmark {
+
+    /**
+     * The maximum number of elements held by the store.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+
+    /**
+     * The number of keys in the key space per element held by the store.
+     */
+    @Param({"4"})
+    public int keySpaceFactor;
+
+    /**
+     * The eviction policy under test.
+     */
+    @Param({"LRU", "LFU", "FIFO", "CLOCK", "TINYLFU"})
+    public String policy;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private int keySpace;
+
+    /**
+     * Create the cache and fill it.
+     */
+    @Setup
+    public void setUp() {
+        keySpace = size * keySpaceFactor;
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("eviction", size)
+                .memoryStoreEvictionPolicy(policy).eternal(true);
+        cacheManager = new CacheManager(new Configuration().name("HeapEvictionBenchmark").cache(cacheConfiguration));
+        cache = cacheManager.getCache("eviction");
+        for (int i = 0; i < keySpace; i++) {
+            cache.put(new Element(i, "value-" + i));
+        }
+    }
+
+    /**
+     * Shut the cache manager down.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    /**
+     * Read a key, loading it into the store on a miss as a cache-aside caller would.
+     *
+     * @return the element read or loaded
+     */
+    @Benchmark
+    public Element get() {
+        Integer key = skewedKey();
+        Element element = cache.get(key);
+        if (element == null) {
+            element = new Element(key, "value-" + key);
+            cache.put(element);
+        }
+        return element;
+    }
+
+    /**
+     * Write a key, evicting an element once the store is full.
+     */
+    @Benchmark
+    public void put() {
+        Integer key = ThreadLocalRandom.current().nextInt(keySpace);
+        cache.put(new Element(key, "value-" + key));
+    }
+
+    private Integer skewedKey() {
+        // squaring a uniform draw makes the lowest keys the most frequently read
+        double draw = ThreadLocalRandom.current().nextDouble();
+        return (int) (draw * draw * keySpace);
+    }
+}
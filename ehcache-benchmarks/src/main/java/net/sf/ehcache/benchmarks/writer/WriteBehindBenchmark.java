@@ -0,0 +1,160 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.benchmarks.writer;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheEntry;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.CacheWriterConfiguration;
+import net.sf.ehcache.config.CacheWriterConfiguration.WriteMode;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.writer.AbstractCacheWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writes to a write-behind cache, whose queue is bounded so that the writers are held back to the pace of
+ * the cache writer once it fills up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    /**
+     * The number of keys written.
+     */
+    @Param({"1000", "100000"})
+    public int size;
+
+    /**
+     * The number of write-behind queues.
+     */
+    @Param({"1", "4"})
+    public int concurrency;
+
+    /**
+     * The number of operations handed to the cache writer at once, batching being disabled if 1.
+     */
+    @Param({"1", "100"})
+    public int batchSize;
+
+    /**
+     * Whether operations on the same key are coalesced.
+     */
+    @Param({"false", "true"})
+    public boolean coalescing;
+
+    /**
+     * The maximum number of operations held by each write-behind queue.
+     */
+    @Param({"10000"})
+    public int maxQueueSize;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+
+    /**
+     * Create the cache and register a cache writer doing no work.
+     */
+    @Setup
+    public void setUp() {
+        CacheWriterConfiguration writerConfiguration = new CacheWriterConfiguration().writeMode(WriteMode.WRITE_BEHIND)
+                .minWriteDelay(0).maxWriteDelay(1).writeBehindConcurrency(concurrency)
+                .writeBehindMaxQueueSize(maxQueueSize).writeBatching(batchSize > 1).writeBatchSize(batchSize)
+                .writeCoalescing(coalescing);
+        CacheConfiguration cacheConfiguration = new CacheConfiguration("writeBehind", size).eternal(true)
+                .cacheWriter(writerConfiguration);
+        cacheManager = new CacheManager(new Configuration().name("WriteBehindBenchmark").cache(cacheConfiguration));
+        cache = cacheManager.getCache("writeBehind");
+        cache.registerCacheWriter(new CountingCacheWriter());
+    }
+
+    /**
+     * Shut the cache manager down.
+     */
+    @TearDown
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    /**
+     * Write a key through the cache writer.
+     */
+    @Benchmark
+    public void putWithWriter() {
+        Integer key = ThreadLocalRandom.current().nextInt(size);
+        cache.putWithWriter(new Element(key, "value-" + key));
+    }
+
+    /**
+     * Remove a key through the cache writer.
+     */
+    @Benchmark
+    public void removeWithWriter() {
+        cache.removeWithWriter(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * A cache writer counting the operations it is handed.
+     */
+    private static final class CountingCacheWriter extends AbstractCacheWriter {
+
+        private final AtomicLong operations = new AtomicLong();
+
+        @Override
+        public void write(Element element) {
+            operations.incrementAndGet();
+        }
+
+        @Override
+        public void writeAll(Collection<Element> elements) {
+            operations.addAndGet(elements.size());
+        }
+
+        @Override
+        public void delete(CacheEntry entry) {
+            operations.incrementAndGet();
+        }
+
+        @Override
+        public void deleteAll(Collection<CacheEntry> entries) {
+            operations.addAndGet(entries.size());
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads many keys into a cache through its registered cache loaders.
+ * <p>
+ * The keys are split into batches of at most {@link net.sf.ehcache.config.CacheConfiguration#getCacheLoaderBatchSize()}
+ * keys, each batch being passed to the loaders' {@code loadAll} methods on the cache's loader pool.  While a key is
+ * being loaded any other bulk load of the same key waits for that load instead of loading the key again.
+ */
+final class BulkLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkLoader.class);
+
+    private final Cache cache;
+    private final ConcurrentMap<Object, LoadBatch> inFlight = new ConcurrentHashMap<Object, LoadBatch>();
+
+    /**
+     * Create a bulk loader for the given cache.
+     *
+     * @param cache the cache loaded into
+     */
+    BulkLoader(Cache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Load the given keys, waiting for the loads to complete.
+     * <p>
+     * Loaded values are put into the cache and returned directly.  With no timeout the last batch is loaded on the
+     * calling thread.  A batch failing to load is logged, and its keys hold {@code null}, as if no loader returned a
+     * value for them.
+     *
+     * @param keys the keys to load
+     * @param argument the loader argument
+     * @param timeoutMillis the maximum time to wait for the loads, 0 to wait indefinitely
+     * @return the loaded values, holding {@code null} for keys no loader returned a value for
+     * @throws CacheException if the loads are interrupted
+     * @throws LoaderTimeoutException if the loads did not complete in time
+     */
+    Map<Object, Object> load(Collection<?> keys, Object argument, long timeoutMillis) throws CacheException {
+        Map<Object, LoadBatch> assignments = new LinkedHashMap<Object, LoadBatch>();
+        List<LoadBatch> batches = claim(keys, argument, false, assignments);
+        if (timeoutMillis > 0) {
+            submit(batches);
+        } else if (!batches.isEmpty()) {
+            submit(batches.subList(0, batches.size() - 1));
+            batches.get(batches.size() - 1).run();
+        }
+
+        Map<LoadBatch, Map<Object, Object>> results = new IdentityHashMap<LoadBatch, Map<Object, Object>>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Object key = null;
+        try {
+            for (Entry<Object, LoadBatch> assignment : assignments.entrySet()) {
+                key = assignment.getKey();
+                LoadBatch batch = assignment.getValue();
+                if (!results.containsKey(batch)) {
+                    results.put(batch, loaded(batch, timeoutMillis, deadline));
+                }
+            }
+        } catch (TimeoutException e) {
+            throw new LoaderTimeoutException("Timeout on load for key " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException(e.getMessage() + " for key " + key, e);
+        }
+
+        Map<Object, Object> values = new HashMap<Object, Object>(assignments.size());
+        for (Entry<Object, LoadBatch> assignment : assignments.entrySet()) {
+            values.put(assignment.getKey(), results.get(assignment.getValue()).get(assignment.getKey()));
+        }
+        return values;
+    }
+
+    /**
+     * Wait for the values loaded by the given batch, a failed batch, already logged, having loaded none.
+     */
+    private static Map<Object, Object> loaded(LoadBatch batch, long timeoutMillis, long deadline)
+            throws InterruptedException, TimeoutException {
+        try {
+            if (timeoutMillis > 0) {
+                return batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } else {
+                return batch.get();
+            }
+        } catch (ExecutionException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Load the given keys on the loader pool, skipping keys already in the cache.
+     * <p>
+     * Load failures are logged rather than reported through the returned future.
+     *
+     * @param keys the keys to load
+     * @param argument the loader argument
+     * @return a future completing once every key has been loaded
+     */
+    Future<?> loadAsynchronously(Collection<?> keys, Object argument) {
+        Map<Object, LoadBatch> assignments = new HashMap<Object, LoadBatch>();
+        submit(claim(keys, argument, true, assignments));
+        Set<LoadBatch> batches = Collections.newSetFromMap(new IdentityHashMap<LoadBatch, Boolean>());
+        batches.addAll(assignments.values());
+        return new BatchesFuture(batches);
+    }
+
+    /**
+     * Assign each key either to a new batch loaded by this caller, or to the batch already loading it.
+     */
+    private List<LoadBatch> claim(Collection<?> keys, Object argument, boolean skipCachedKeys, Map<Object, LoadBatch> assignments) {
+        int batchSize = cache.getCacheConfiguration().getCacheLoaderBatchSize();
+        if (batchSize <= 0) {
+            batchSize = Integer.MAX_VALUE;
+        }
+
+        List<LoadBatch> batches = new ArrayList<LoadBatch>();
+        LoadBatch batch = null;
+        for (Object key : keys) {
+            if (assignments.containsKey(key)) {
+                continue;
+            }
+            if (batch == null) {
+                batch = newBatch(argument, skipCachedKeys);
+            }
+            LoadBatch loading = inFlight.putIfAbsent(key, batch);
+            if (loading == null) {
+                batch.keys.add(key);
+                assignments.put(key, batch);
+                if (batch.keys.size() >= batchSize) {
+                    batches.add(batch);
+                    batch = null;
+                }
+            } else {
+                assignments.put(key, loading);
+            }
+        }
+        if (batch != null && !batch.keys.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private void submit(List<LoadBatch> batches) {
+        for (LoadBatch batch : batches) {
+            try {
+                cache.getExecutorService().execute(batch);
+            } catch (RejectedExecutionException e) {
+                // the loader pool has been shut down, others may be waiting for this batch so load it here
+                batch.run();
+            }
+        }
+    }
+
+    private LoadBatch newBatch(final Object argument, final boolean skipCachedKeys) {
+        final List<Object> keys = new ArrayList<Object>();
+        return new LoadBatch(keys, new Callable<Map<Object, Object>>() {
+            public Map<Object, Object> call() {
+                try {
+                    return loadBatch(keys, argument, skipCachedKeys);
+                } catch (RuntimeException e) {
+                    LOG.error("Problem during load. Load will not be completed. Cause was " + e.getCause(), e);
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private Map<Object, Object> loadBatch(List<Object> keys, Object argument, boolean skipCachedKeys) {
+        Map<Object, Object> values = new HashMap<Object, Object>(keys.size());
+        Set<Object> nonLoadedKeys = new HashSet<Object>(keys);
+        if (skipCachedKeys) {
+            for (Object key : keys) {
+                Element element = cache.getQuiet(key);
+                if (element != null) {
+                    nonLoadedKeys.remove(key);
+                    values.put(key, element.getObjectValue());
+                }
+            }
+        }
+        Map<?, ?> loaded = cache.loadWithRegisteredLoaders(argument, nonLoadedKeys);
+        for (Entry<?, ?> e : loaded.entrySet()) {
+            cache.put(new Element(e.getKey(), e.getValue()));
+            values.put(e.getKey(), e.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * A batch of keys loaded together, releasing its keys once done.
+     */
+    private final class LoadBatch extends FutureTask<Map<Object, Object>> {
+
+        private final List<Object> keys;
+
+        LoadBatch(List<Object> keys, Callable<Map<Object, Object>> load) {
+            super(load);
+            this.keys = keys;
+        }
+
+        @Override
+        protected void done() {
+            for (Object key : keys) {
+                inFlight.remove(key, this);
+            }
+        }
+    }
+
+    /**
+     * A future over a set of batches, completing once all of them have.
+     */
+    private static final class BatchesFuture implements Future<Object> {
+
+        private final Collection<LoadBatch> batches;
+
+        BatchesFuture(Collection<LoadBatch> batches) {
+            this.batches = batches;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+            for (LoadBatch batch : batches) {
+                if (!batch.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Object get() throws InterruptedException {
+            for (LoadBatch batch : batches) {
+                try {
+                    batch.get();
+                } catch (ExecutionException e) {
+                    // already logged by the batch
+                }
+            }
+            return null;
+        }
+
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (LoadBatch batch : batches) {
+                try {
+                    batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    // already logged by the batch
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -43,10 +43,12 @@ import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.config.PersistenceConfiguration.Strategy;
 import net.sf.ehcache.config.PinningConfiguration;
 import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.SizeOfPolicyConfiguration;
 import net.sf.ehcache.config.TerracottaConfiguration;
 import net.sf.ehcache.config.TerracottaConfiguration.Consistency;
 import net.sf.ehcache.config.AbstractCacheConfigurationListener;
 import net.sf.ehcache.constructs.nonstop.concurrency.LockOperationTimedOutNonstopException;
+import net.sf.ehcache.event.AsynchronousEventDispatcher;
 import net.sf.ehcache.event.CacheEventListener;
 import net.sf.ehcache.event.CacheEventListenerFactory;
 import net.sf.ehcache.event.RegisteredEventListeners;
@@ -60,6 +62,7 @@ import net.sf.ehcache.pool.PoolEvictor;
 import net.sf.ehcache.pool.SizeOfEngine;
 import net.sf.ehcache.pool.impl.BoundedPool;
 import net.sf.ehcache.pool.impl.FromLargestCachePoolEvictor;
+import net.sf.ehcache.pool.impl.SampledSizeOfEngine;
 import net.sf.ehcache.pool.impl.UnboundedPool;
 import net.sf.ehcache.search.Attribute;
 import net.sf.ehcache.search.Query;
@@ -88,6 +91,7 @@ import net.sf.ehcache.store.TxCopyingCacheStore;
 import net.sf.ehcache.store.compound.ReadWriteSerializationCopyStrategy;
 import net.sf.ehcache.store.disk.DiskStore;
 import net.sf.ehcache.store.disk.StoreUpdateException;
+import net.sf.ehcache.store.offheap.OffHeapStore;
 import net.sf.ehcache.terracotta.InternalEhcache;
 import net.sf.ehcache.terracotta.TerracottaNotRunningException;
 import net.sf.ehcache.transaction.AbstractTransactionStore;
@@ -129,11 +133,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -212,8 +216,6 @@ public class Cache implements InternalEhcache, StoreListener {
     private static final int BACK_OFF_TIME_MILLIS = 50;
 
     private static final int EXECUTOR_KEEP_ALIVE_TIME = 60000;
-    private static final int EXECUTOR_MAXIMUM_POOL_SIZE = Math.min(10, Runtime.getRuntime().availableProcessors());
-    private static final int EXECUTOR_CORE_POOL_SIZE = 1;
     private static final String EHCACHE_CLUSTERREDSTORE_MAX_CONCURRENCY_PROP = "ehcache.clusteredStore.maxConcurrency";
     private static final int DEFAULT_EHCACHE_CLUSTERREDSTORE_MAX_CONCURRENCY = 4096;
 
@@ -287,8 +289,9 @@ public class Cache implements InternalEhcache, StoreListener {
     /**
      * A ThreadPoolExecutor which uses a thread pool to schedule loads in the order in which they are requested.
      * <p>
-     * Each cache can have its own executor service, if required. The keep alive time is 60 seconds, after which,
-     * if the thread is not required it will be stopped and collected, as core threads are allowed to time out.
+     * Each cache has its own executor service, sized by {@link CacheConfiguration#getCacheLoaderThreads()}. The keep alive
+     * time is 60 seconds, after which, if the thread is not required it will be stopped and collected, as core threads are
+     * allowed to time out.
      * <p>
      * The executorService is only used for cache loading, and is created lazily on demand to avoid unnecessary resource
      * usage.
@@ -297,6 +300,8 @@ public class Cache implements InternalEhcache, StoreListener {
      */
     private volatile ExecutorService executorService;
 
+    private final BulkLoader bulkLoader = new BulkLoader(this);
+
     private volatile TransactionManagerLookup transactionManagerLookup;
 
     private volatile boolean allowDisable = true;
@@ -311,6 +316,8 @@ public class Cache implements InternalEhcache, StoreListener {
 
     private AbstractCacheConfigurationListener configListener;
 
+    private TimerTask sizeReconciliationTask;
+
     /**
      * 2.0 and higher Constructor
      * <p>
@@ -870,7 +877,14 @@ public class Cache implements InternalEhcache, StoreListener {
             CacheConfiguration.CacheEventListenerFactoryConfiguration factoryConfiguration =
                     (CacheConfiguration.CacheEventListenerFactoryConfiguration) cacheEventListenerConfiguration;
             CacheEventListener cacheEventListener = createCacheEventListener(factoryConfiguration, loader);
-            registeredEventListeners.registerListener(cacheEventListener, factoryConfiguration.getListenFor());
+            AsynchronousEventDispatcher dispatcher = null;
+            if (cacheEventListener != null && factoryConfiguration.getDispatchThreads() > 0) {
+                dispatcher = new AsynchronousEventDispatcher(cacheConfiguration.getName() + " "
+                        + cacheEventListener.getClass().getSimpleName() + " Event Dispatcher",
+                        factoryConfiguration.getDispatchThreads(), factoryConfiguration.getDispatchQueueSize(),
+                        factoryConfiguration.getDispatchOverflowPolicy());
+            }
+            registeredEventListeners.registerListener(cacheEventListener, factoryConfiguration.getListenFor(), dispatcher);
         }
     }
 
@@ -1119,6 +1133,17 @@ public class Cache implements InternalEhcache, StoreListener {
             } else {
                 onDiskPool = new UnboundedPool();
             }
+
+            // off-heap pool configuration
+            final Pool offHeapPool;
+            if (configuration.getMaxBytesLocalOffHeap() > 0) {
+                PoolEvictor evictor = new FromLargestCachePoolEvictor();
+                offHeapPool = new BoundedPool(configuration.getMaxBytesLocalOffHeap(), evictor, null);
+            } else if (getCacheManager() != null && getCacheManager().getConfiguration().isMaxBytesLocalOffHeapSet()) {
+                offHeapPool = getCacheManager().getOnOffHeapPool();
+            } else {
+                offHeapPool = new UnboundedPool();
+            }
             /*We don't have to worry about the old value as when we are called the CacheConfiguration should
              have validated and resized the Cachemanager Pool as CacheConfiguration adds itself as first listener.
               so we just handle heap and disk pools resizing.*/
@@ -1197,10 +1222,10 @@ public class Cache implements InternalEhcache, StoreListener {
             } else {
                 FeaturesManager featuresManager = cacheManager.getFeaturesManager();
                 if (featuresManager == null) {
-                    if (configuration.isOverflowToOffHeap()) {
+                    if (configuration.isOverflowToOffHeap() && configuration.isOverflowToDisk()) {
                         throw new CacheException("Cache " + configuration.getName()
                                 + " cannot be configured because the enterprise features manager could not be found. "
-                                + "You must use an enterprise version of Ehcache to successfully enable overflowToOffHeap.");
+                                + "You must use an enterprise version of Ehcache to overflow to both off-heap and disk.");
                     }
                     PersistenceConfiguration persistence = configuration.getPersistenceConfiguration();
                     if (persistence != null && Strategy.LOCALRESTARTABLE.equals(persistence.getStrategy())) {
@@ -1209,7 +1234,9 @@ public class Cache implements InternalEhcache, StoreListener {
                                 + "You must use an enterprise version of Ehcache to successfully enable enterprise persistence.");
                     }
 
-                    if (useClassicLru && configuration.getMemoryStoreEvictionPolicy().equals(MemoryStoreEvictionPolicy.LRU)) {
+                    if (configuration.isOverflowToOffHeap()) {
+                        store = OffHeapStore.createCacheStore(this, onHeapPool, offHeapPool);
+                    } else if (useClassicLru && configuration.getMemoryStoreEvictionPolicy().equals(MemoryStoreEvictionPolicy.LRU)) {
                         Store disk = createDiskStore();
                         store = new LegacyStoreWrapper(new LruMemoryStore(this, disk), disk, registeredEventListeners, configuration);
                     } else {
@@ -1261,6 +1288,7 @@ public class Cache implements InternalEhcache, StoreListener {
 
         if (!isTerracottaClustered()) {
             compoundStore.addStoreListener(this);
+            scheduleSizeReconciliation();
         }
 
         if (LOG.isDebugEnabled()) {
@@ -1273,6 +1301,50 @@ public class Cache implements InternalEhcache, StoreListener {
         }
     }
 
+    /**
+     * When the heap pool of this cache only sizes a sample of its elements, periodically sizes all of the elements held
+     * on heap so that the pool accounts for their actual sizes.
+     */
+    private void scheduleSizeReconciliation() {
+        if (cacheManager == null) {
+            return;
+        }
+        SizeOfPolicyConfiguration sizeOfPolicy = null;
+        if (configuration.getMaxBytesLocalHeap() > 0) {
+            sizeOfPolicy = configuration.getSizeOfPolicyConfiguration();
+            if (sizeOfPolicy == null) {
+                sizeOfPolicy = cacheManager.getConfiguration().getSizeOfPolicyConfiguration();
+            }
+        } else if (cacheManager.getConfiguration().isMaxBytesLocalHeapSet()) {
+            sizeOfPolicy = cacheManager.getConfiguration().getSizeOfPolicyConfiguration();
+        }
+        if (sizeOfPolicy == null || sizeOfPolicy.getSampleInterval() <= 1 || sizeOfPolicy.getReconcileIntervalSeconds() == 0
+                || cacheManager.getTimer() == null) {
+            return;
+        }
+
+        long period = TimeUnit.SECONDS.toMillis(sizeOfPolicy.getReconcileIntervalSeconds());
+        sizeReconciliationTask = new TimerTask() {
+            @Override
+            public void run() {
+                SampledSizeOfEngine.sizeFully(new Runnable() {
+                    public void run() {
+                        Store store = compoundStore;
+                        if (store == null || !cacheStatus.isAlive()) {
+                            return;
+                        }
+                        for (Object key : store.getKeys()) {
+                            if (store.containsKeyInMemory(key)) {
+                                store.recalculateSize(key);
+                            }
+                        }
+                    }
+                });
+            }
+        };
+        cacheManager.getTimer().schedule(sizeReconciliationTask, period, period);
+    }
+
     private Store handleTransactionalAndCopy(Store store, ClassLoader loader) {
         Store wrappedStore;
 
@@ -1548,9 +1620,18 @@ public class Cache implements InternalEhcache, StoreListener {
     }
 
     /**
-     * {@inheritDoc}
+     * Puts a collection of elements in to the cache.
+     * <p>
+     * This is used by cache peers bootstrapping this cache, which must not notify the cache replicators of the elements
+     * they put.
+     *
+     * @param elements                    a collection of elements with non null keys
+     * @param doNotNotifyCacheReplicators whether the elements come from a cache peer, in which case the cache replicators
+     *                                    are not notified of them
+     * @throws IllegalStateException if the cache is not {@link Status#STATUS_ALIVE}
+     * @throws CacheException in case of error
      */
-    private void putAll(Collection<Element> elements, boolean doNotNotifyCacheReplicators) throws IllegalArgumentException,
+    public final void putAll(Collection<Element> elements, boolean doNotNotifyCacheReplicators) throws IllegalArgumentException,
             IllegalStateException, CacheException {
         putAllInternal(elements, doNotNotifyCacheReplicators);
     }
@@ -1915,7 +1996,8 @@ public class Cache implements InternalEhcache, StoreListener {
     /**
      * The getAll method will return, from the cache, a Map of the objects associated with the Collection of keys in argument "keys".
      * If the objects are not in the cache, the associated cache loader will be called. If no loader is associated with an object,
-     * a null is returned. If a problem is encountered during the retrieving or loading of the objects, an exception will be thrown.
+     * a null is returned. A loader failing to load objects is logged, and null is returned for the objects it was loading. If the
+     * loading does not complete within the cache loader timeout, a {@link LoaderTimeoutException} is thrown.
      * If the "arg" argument is set, the arg object will be passed to the CacheLoader.loadAll method. The cache will not dereference
      * the object. If no "arg" value is provided a null will be passed to the loadAll method. The storing of null values in the cache
      * is permitted, however, the get method will not distinguish returning a null stored in the cache and not finding the object in
@@ -1939,64 +2021,23 @@ public class Cache implements InternalEhcache, StoreListener {
             return new HashMap(0);
         }
         Map<Object, Object> map = new HashMap<Object, Object>(keys.size());
+        List<Object> missingKeys = new ArrayList<Object>();
 
-        List<Object> missingKeys = new ArrayList<Object>(keys.size());
-
-        if (registeredCacheLoaders.size() > 0) {
-            Object key = null;
-            try {
-                map = new HashMap<Object, Object>(keys.size());
-
-                for (Object key1 : keys) {
-                    key = key1;
-                    Element element = get(key);
-
-                    if (element == null) {
-                        missingKeys.add(key);
-                    } else {
-                        map.put(key, element.getObjectValue());
-                    }
-                }
-
-                //now load everything that's missing.
-                Future future = asynchronousLoadAll(missingKeys, loaderArgument);
-
-                //wait for result
-                long cacheLoaderTimeoutMillis = configuration.getCacheLoaderTimeoutMillis();
-                if (cacheLoaderTimeoutMillis > 0) {
-                    try {
-                        future.get(cacheLoaderTimeoutMillis, TimeUnit.MILLISECONDS);
-                    } catch (TimeoutException e) {
-                        throw new LoaderTimeoutException("Timeout on load for key " + key, e);
-                    }
-                } else {
-                    future.get();
-                }
-
-
-                for (Object missingKey : missingKeys) {
-                    key = missingKey;
-                    Element element = get(key);
-                    if (element != null) {
-                        map.put(key, element.getObjectValue());
-                    } else {
-                        map.put(key, null);
-                    }
-                }
-
-            } catch (InterruptedException e) {
-                throw new CacheException(e.getMessage() + " for key " + key, e);
-            } catch (ExecutionException e) {
-                throw new CacheException(e.getMessage() + " for key " + key, e);
+        Map<Object, Element> elements = getAll(keys);
+        for (Object key : keys) {
+            Element element = elements == null ? null : elements.get(key);
+            if (element == null) {
+                missingKeys.add(key);
+            } else {
+                map.put(key, element.getObjectValue());
             }
+        }
+
+        if (registeredCacheLoaders.size() > 0 && !missingKeys.isEmpty()) {
+            map.putAll(bulkLoader.load(missingKeys, loaderArgument, configuration.getCacheLoaderTimeoutMillis()));
         } else {
-            for (Object key : keys) {
-                Element element = get(key);
-                if (element != null) {
-                    map.put(key, element.getObjectValue());
-                } else {
-                    map.put(key, null);
-                }
+            for (Object key : missingKeys) {
+                map.put(key, null);
             }
         }
         return map;
@@ -2563,6 +2604,11 @@ public class Cache implements InternalEhcache, StoreListener {
             executorService.shutdown();
         }
 
+        if (sizeReconciliationTask != null) {
+            sizeReconciliationTask.cancel();
+            sizeReconciliationTask = null;
+        }
+
         disposeRegisteredCacheExtensions();
         disposeRegisteredCacheLoaders();
 
@@ -3422,29 +3468,7 @@ public class Cache implements InternalEhcache, StoreListener {
      * @return a Future which can be used to monitor execution
      */
     Future asynchronousLoadAll(final Collection keys, final Object argument) {
-        return getExecutorService().submit(new Runnable() {
-            /**
-             * Calls the CacheLoader and puts the result in the Cache
-             */
-            public void run() {
-                try {
-                    Set<Object> nonLoadedKeys = new HashSet<Object>();
-                    for (Object key : keys) {
-                        if (!isKeyInCache(key)) {
-                            nonLoadedKeys.add(key);
-                        }
-                    }
-                    Map<?, ?> map = loadWithRegisteredLoaders(argument, nonLoadedKeys);
-                    for (Entry<?, ?> e : map.entrySet()) {
-                        put(new Element(e.getKey(), e.getValue()));
-                    }
-                } catch (Throwable e) {
-                    if (LOG.isErrorEnabled()) {
-                        LOG.error("Problem during load. Load will not be completed. Cause was " + e.getCause(), e);
-                    }
-                }
-            }
-        });
+        return bulkLoader.loadAsynchronously(keys, argument);
     }
 
     /**
@@ -3481,6 +3505,9 @@ public class Cache implements InternalEhcache, StoreListener {
     ExecutorService getExecutorService() {
         if (executorService == null) {
             synchronized (this) {
+                if (executorService != null) {
+                    return executorService;
+                }
                 if (VmUtils.isInGoogleAppEngine()) {
                     // no Thread support. Run all tasks on the caller thread
                     executorService = new AbstractExecutorService() {
@@ -3515,7 +3542,8 @@ public class Cache implements InternalEhcache, StoreListener {
                     };
                 } else {
                     // we can create Threads
-                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(EXECUTOR_CORE_POOL_SIZE, EXECUTOR_MAXIMUM_POOL_SIZE,
+                    int threads = configuration.getCacheLoaderThreads();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
                             EXECUTOR_KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
                             new NamedThreadFactory("Cache Executor Service", true));
                     threadPoolExecutor.allowCoreThreadTimeOut(true);
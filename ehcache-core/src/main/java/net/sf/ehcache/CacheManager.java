@@ -48,6 +48,7 @@ import net.sf.ehcache.pool.SizeOfEngine;
 import net.sf.ehcache.pool.SizeOfEngineLoader;
 import net.sf.ehcache.pool.impl.BalancedAccessEvictor;
 import net.sf.ehcache.pool.impl.BoundedPool;
+import net.sf.ehcache.pool.impl.SampledSizeOfEngine;
 import net.sf.ehcache.store.Store;
 import net.sf.ehcache.terracotta.ClusteredInstanceFactory;
 import net.sf.ehcache.terracotta.TerracottaClient;
@@ -72,6 +73,7 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -80,11 +82,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -200,6 +209,16 @@ public class CacheManager {
 
     private final Map<String, Ehcache> initializingCaches = new ConcurrentHashMap<String, Ehcache>();
 
+    /**
+     * Configured caches still initialising in the background, by name.
+     */
+    private final ConcurrentMap<String, Future<?>> pendingCaches = new ConcurrentHashMap<String, Future<?>>();
+
+    private final ConcurrentMap<String, Long> cacheInitialisationTimes = new ConcurrentHashMap<String, Long>();
+
+    private volatile ExecutorService cacheInitialisationExecutor;
+
+    private volatile boolean cacheInitialisationStopped;
 
     /**
      * Default cache cache.
@@ -231,6 +250,8 @@ public class CacheManager {
 
     private volatile Pool onDiskPool;
 
+    private volatile Pool onOffHeapPool;
+
     private volatile Configuration.RuntimeCfg runtimeCfg;
 
     private volatile DelegatingTransactionIDFactory transactionIDFactory;
@@ -244,6 +265,11 @@ public class CacheManager {
      */
     private ScheduledExecutorService statisticsExecutor;
 
+    /**
+     * Expiry thread, only started if an expiry thread interval is configured.
+     */
+    private ScheduledExecutorService expiryExecutor;
+
    /**
      * An constructor for CacheManager, which takes a configuration object, rather than one created by parsing
      * an ehcache.xml file. This constructor gives complete control over the creation of the CacheManager.
@@ -405,6 +431,21 @@ public class CacheManager {
                 statisticsExecutor.shutdown();
             }
 
+            if (expiryExecutor != null) {
+                expiryExecutor.shutdownNow();
+            }
+
+            // the caches still initialising wait for the monitor held here, and will find the initialisation stopped
+            stopCacheInitialisation(false);
+
+            // the caches added before the failure are out of reach
+            for (Ehcache cache : ehcaches.values()) {
+                if (cache != null) {
+                    cache.dispose();
+                }
+            }
+            ehcaches.clear();
+
             if (featuresManager != null) {
                 featuresManager.dispose();
             }
@@ -460,6 +501,10 @@ public class CacheManager {
             PoolEvictor evictor = new BalancedAccessEvictor();
             this.onDiskPool = new BoundedPool(configuration.getMaxBytesLocalDisk(), evictor, null);
         }
+        if (configuration.isMaxBytesLocalOffHeapSet()) {
+            PoolEvictor evictor = new BalancedAccessEvictor();
+            this.onOffHeapPool = new BoundedPool(configuration.getMaxBytesLocalOffHeap(), evictor, null);
+        }
 
         boolean clustered = false;
         terracottaClient = new TerracottaClient(this, configuration.getTerracottaConfiguration());
@@ -486,6 +531,7 @@ public class CacheManager {
         addShutdownHookIfRequired();
 
         cacheManagerTimer = new FailSafeTimer(getName());
+        startExpiryThread(configuration.getExpiryThreadIntervalSeconds());
 
         mbeanRegistrationProvider = MBEAN_REGISTRATION_PROVIDER_FACTORY.createMBeanRegistrationProvider(configuration);
         
@@ -660,6 +706,15 @@ public class CacheManager {
         return onDiskPool;
     }
 
+    /**
+     * Return this cache manager's shared off-heap pool
+     *
+     * @return this cache manager's shared off-heap pool
+     */
+    public Pool getOnOffHeapPool() {
+        return onOffHeapPool;
+    }
+
     /**
      * Returns unique cluster-wide id for this cache-manager. Only applicable when running in "cluster" mode, e.g. when this cache-manager
      * contains caches clustered with Terracotta. Otherwise returns blank string.
@@ -819,15 +874,206 @@ public class CacheManager {
 
     private void addConfiguredCaches(ConfigurationHelper configurationHelper) {
         Set unitialisedCaches = configurationHelper.createCaches();
+        int threads = Math.min(runtimeCfg.getConfiguration().getCacheInitialisationThreads(), unitialisedCaches.size());
+        List<Ehcache> parallelCaches = new ArrayList<Ehcache>();
+        List<Ehcache> asynchronousCaches = new ArrayList<Ehcache>();
         for (Iterator iterator = unitialisedCaches.iterator(); iterator.hasNext();) {
             Ehcache unitialisedCache = (Ehcache) iterator.next();
-            addCacheNoCheck(unitialisedCache, true);
+            CacheConfiguration cacheConfiguration = unitialisedCache.getCacheConfiguration();
+            if (cacheConfiguration.isTerracottaClustered()) {
+                // clustered caches link to the cluster as they initialise, which is done for one cache at a time
+                addCacheNoCheck(unitialisedCache, true);
+                addCacheDecorators(configurationHelper, unitialisedCache);
+            } else if (cacheConfiguration.isInitialisedAsynchronously()) {
+                asynchronousCaches.add(unitialisedCache);
+            } else if (threads > 1) {
+                parallelCaches.add(unitialisedCache);
+            } else {
+                addCacheNoCheck(unitialisedCache, true);
+                addCacheDecorators(configurationHelper, unitialisedCache);
+            }
+        }
+        if (parallelCaches.isEmpty() && asynchronousCaches.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = createCacheInitialisationExecutor(Math.max(1, threads));
+        cacheInitialisationExecutor = executor;
+
+        // The configuration and the pools are not thread safe, so each cache is set up here before being initialised on
+        // the executor.  The caches the CacheManager waits for are queued first, so that none of them ever waits for a
+        // thread taken by an asynchronous cache.
+        List<Future<?>> initialisations = new ArrayList<Future<?>>();
+        for (final Ehcache cache : parallelCaches) {
+            prepareConfiguredCache(cache);
+            initialisations.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    startEhcache(cache, true);
+                    return null;
+                }
+            }));
+        }
+        for (Ehcache cache : asynchronousCaches) {
+            prepareConfiguredCache(cache);
+            FutureTask<Void> initialisation = new FutureTask<Void>(new AsynchronousCacheInitialisation(configurationHelper, cache));
+            pendingCaches.put(cache.getName(), initialisation);
+            executor.execute(initialisation);
+        }
+        executor.shutdown();
 
-            // add the cache decorators for the cache, if any
-            List<Ehcache> cacheDecorators = configurationHelper.createCacheDecorators(unitialisedCache);
-            for (Ehcache decoratedCache : cacheDecorators) {
-                addOrReplaceDecoratedCache(unitialisedCache, decoratedCache);
+        // the caches are registered in configuration order, as they would have been had they been initialised serially
+        for (int i = 0; i < parallelCaches.size(); i++) {
+            Ehcache cache = parallelCaches.get(i);
+            try {
+                initialisations.get(i).get();
+            } catch (InterruptedException e) {
+                abandonCacheInitialisation(parallelCaches.subList(i, parallelCaches.size()),
+                        initialisations.subList(i, initialisations.size()));
+                Thread.currentThread().interrupt();
+                throw new CacheException("Interrupted while initialising cache " + cache.getName(), e);
+            } catch (ExecutionException e) {
+                initializingCaches.remove(cache.getName());
+                abandonCacheInitialisation(parallelCaches.subList(i + 1, parallelCaches.size()),
+                        initialisations.subList(i + 1, initialisations.size()));
+                if (e.getCause() instanceof CacheException) {
+                    throw (CacheException) e.getCause();
+                }
+                throw new CacheException("Cache " + cache.getName() + " failed to initialise", e.getCause());
             }
+            registerInitialisedCache(cache);
+            addCacheDecorators(configurationHelper, cache);
+        }
+    }
+
+    /**
+     * Stops the initialisation of the configured caches once one of those the CacheManager waits for failed.  The given
+     * caches, waited for but not to be registered, are waited for once more, and disposed of if they got initialised.
+     *
+     * @param caches the caches not to be registered
+     * @param initialisations the initialisations of these caches
+     */
+    private void abandonCacheInitialisation(List<Ehcache> caches, List<Future<?>> initialisations) {
+        stopCacheInitialisation(false);
+        boolean interrupted = false;
+        for (int i = 0; i < caches.size(); i++) {
+            Ehcache cache = caches.get(i);
+            try {
+                while (true) {
+                    try {
+                        initialisations.get(i).get();
+                        cache.dispose();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (CancellationException e) {
+                // never started
+            } catch (ExecutionException e) {
+                LOG.debug("Cache " + cache.getName() + " failed to initialise", e.getCause());
+            } finally {
+                initializingCaches.remove(cache.getName());
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addCacheDecorators(final ConfigurationHelper configurationHelper, final Ehcache cache) {
+        List<Ehcache> cacheDecorators = configurationHelper.createCacheDecorators(cache);
+        for (Ehcache decoratedCache : cacheDecorators) {
+            addOrReplaceDecoratedCache(cache, decoratedCache);
+        }
+    }
+
+    private ExecutorService createCacheInitialisationExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Cache Initialisation Thread-" + getName() + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    private void prepareConfiguredCache(final Ehcache cache) {
+        checkNewCache(cache, true);
+        initializingCaches.put(cache.getName(), cache);
+        setupEhcache(cache, true);
+    }
+
+    /**
+     * Stops the initialisation of the configured caches still initialising in the background.  The caches already
+     * being initialised are disposed of once done rather than added.
+     *
+     * @param wait whether to wait for the caches already being initialised
+     */
+    private void stopCacheInitialisation(boolean wait) {
+        ExecutorService executor = cacheInitialisationExecutor;
+        if (executor == null) {
+            return;
+        }
+        cacheInitialisationStopped = true;
+        for (Runnable queued : executor.shutdownNow()) {
+            ((Future<?>) queued).cancel(false);
+        }
+        try {
+            if (wait && !executor.awaitTermination(POOL_SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+                LOG.warn("Caches of CacheManager {} still initialising after {} seconds", getName(), POOL_SHUTDOWN_TIMEOUT_SECS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pendingCaches.clear();
+    }
+
+    /**
+     * Initialises a configured cache in the background and adds it to the CacheManager once done.
+     */
+    private final class AsynchronousCacheInitialisation implements Callable<Void> {
+
+        private final ConfigurationHelper configurationHelper;
+        private final Ehcache cache;
+
+        private AsynchronousCacheInitialisation(ConfigurationHelper configurationHelper, Ehcache cache) {
+            this.configurationHelper = configurationHelper;
+            this.cache = cache;
+        }
+
+        @Override
+        public Void call() {
+            RuntimeException failure = null;
+            try {
+                startEhcache(cache, true);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            synchronized (CacheManager.this) {
+                try {
+                    if (failure != null) {
+                        initializingCaches.remove(cache.getName());
+                        LOG.error("Cache " + cache.getName() + " failed to initialise", failure);
+                        throw failure;
+                    }
+                    if (cacheInitialisationStopped) {
+                        initializingCaches.remove(cache.getName());
+                        cache.dispose();
+                        return null;
+                    }
+                    registerInitialisedCache(cache);
+                    addCacheDecorators(configurationHelper, cache);
+                } finally {
+                    pendingCaches.remove(cache.getName());
+                    CacheManager.this.notifyAll();
+                }
+            }
+            return null;
         }
     }
 
@@ -1162,6 +1408,52 @@ public class CacheManager {
         return ehcaches.get(name);
     }
 
+    /**
+     * Checks whether a configured cache is still being initialised in the background.
+     *
+     * @param name the name of the cache
+     * @return true if the cache is initialised asynchronously and has not been added to the CacheManager yet
+     * @see CacheConfiguration#setInitialisedAsynchronously(boolean)
+     */
+    public boolean isCacheInitialising(String name) {
+        return pendingCaches.containsKey(name);
+    }
+
+    /**
+     * Gets an Ehcache, waiting for it if it is still being initialised in the background.
+     *
+     * @param name the name of the cache
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return the cache, or null if no cache exists by that name, including when it failed to initialise
+     * @throws InterruptedException if interrupted while waiting
+     * @throws TimeoutException if the cache is still initialising once the timeout has elapsed
+     * @throws IllegalStateException if the cache manager is not {@link Status#STATUS_ALIVE}
+     */
+    public Ehcache awaitCache(String name, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        checkStatus();
+        Future<?> initialisation = pendingCaches.get(name);
+        if (initialisation != null) {
+            try {
+                initialisation.get(timeout, unit);
+            } catch (ExecutionException e) {
+                return null;
+            } catch (CancellationException e) {
+                return null;
+            }
+        }
+        return getEhcache(name);
+    }
+
+    /**
+     * Returns how long each cache of this CacheManager took to initialise, including bootstrapping.
+     *
+     * @return the initialisation times in milliseconds, by cache name
+     */
+    public Map<String, Long> getCacheInitialisationTimes() {
+        return Collections.unmodifiableMap(cacheInitialisationTimes);
+    }
+
     /**
      * Some caches might be persistent, so we want to add a shutdown hook if that is the
      * case, so that the data and index can be written to disk.
@@ -1351,6 +1643,14 @@ public class CacheManager {
      * @param registerCacheConfig
      */
     void initializeEhcache(final Ehcache cache, final boolean registerCacheConfig) {
+        setupEhcache(cache, registerCacheConfig);
+        startEhcache(cache, registerCacheConfig);
+    }
+
+    /**
+     * Registers the configuration of the given {@link Ehcache}, which must be done by one thread at a time.
+     */
+    private void setupEhcache(final Ehcache cache, final boolean registerCacheConfig) {
         if (!registerCacheConfig) {
             cache.getCacheConfiguration().setupFor(this, registerCacheConfig, getParentCacheName(cache));
         } else {
@@ -1358,7 +1658,13 @@ public class CacheManager {
         }
         cache.setCacheManager(this);
         cache.setTransactionManagerLookup(transactionManagerLookup);
+    }
 
+    /**
+     * Initialises and bootstraps the given, set up, {@link Ehcache}, which may be done for several caches at once.
+     */
+    private void startEhcache(final Ehcache cache, final boolean registerCacheConfig) {
+        long start = System.nanoTime();
         cache.initialise();
 
         if (!runtimeCfg.allowsDynamicCacheConfig()) {
@@ -1374,6 +1680,10 @@ public class CacheManager {
         } catch (CacheException e) {
             LOG.warn("Cache " + cache.getName() + "requested bootstrap but a CacheException occured. " + e.getMessage(), e);
         }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        cacheInitialisationTimes.put(cache.getName(), millis);
+        LOG.debug("Initialised cache {} in {} ms", cache.getName(), millis);
     }
 
     private void associateShadowCache(Ehcache shadow) {
@@ -1403,6 +1713,29 @@ public class CacheManager {
     private Ehcache addCacheNoCheck(final Ehcache cache, final boolean strict) throws IllegalStateException, ObjectExistsException,
             CacheException {
 
+        Ehcache ehcache = checkNewCache(cache, strict);
+        if (ehcache != null) {
+            return ehcache;
+        }
+
+        initializingCaches.put(cache.getName(), cache);
+        boolean initialised = false;
+        try {
+            initializeEhcache(cache, true);
+            initialised = true;
+        } finally {
+            if (!initialised) {
+                initializingCaches.remove(cache.getName());
+            }
+        }
+        registerInitialisedCache(cache);
+        return cache;
+    }
+
+    /**
+     * Checks that the given cache can be added, returning the cache already added by that name, if any and not strict.
+     */
+    private Ehcache checkNewCache(final Ehcache cache, final boolean strict) throws ObjectExistsException, CacheException {
         if (cache.getStatus() != Status.STATUS_UNINITIALISED) {
             throw new CacheException("Trying to add an already initialized cache." + " If you are adding a decorated cache, "
                     + "use CacheManager.addDecoratedCache" + "(Ehcache decoratedCache) instead.");
@@ -1414,6 +1747,21 @@ public class CacheManager {
                                                     cache.getName(), getName()));
         }
 
+        if (pendingCaches.containsKey(cache.getName())) {
+            if (strict) {
+                throw new ObjectExistsException("Cache " + cache.getName() + " already exists and is initialising");
+            }
+            // the callers hold the monitor, which the initialisation needs to complete
+            while (pendingCaches.containsKey(cache.getName())) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CacheException("Interrupted while waiting for cache " + cache.getName() + " to initialise", e);
+                }
+            }
+        }
+
         Ehcache ehcache = ehcaches.get(cache.getName());
         if (ehcache != null) {
             if (strict) {
@@ -1422,12 +1770,12 @@ public class CacheManager {
                 return ehcache;
             }
         }
+        return null;
+    }
 
-        initializingCaches.put(cache.getName(), cache);
+    private void registerInitialisedCache(final Ehcache cache) {
         try {
-            initializeEhcache(cache, true);
-
-            ehcache = ehcaches.putIfAbsent(cache.getName(), cache);
+            Ehcache ehcache = ehcaches.putIfAbsent(cache.getName(), cache);
             if (ehcache != null) {
                 throw new AssertionError();
             }
@@ -1439,8 +1787,6 @@ public class CacheManager {
         if (status.equals(Status.STATUS_ALIVE)) {
             cacheManagerEventListenerRegistry.notifyCacheAdded(cache.getName());
         }
-
-        return cache;
     }
 
     /**
@@ -1492,6 +1838,7 @@ public class CacheManager {
             return;
         }
         Ehcache cache = ehcaches.remove(cacheName);
+        cacheInitialisationTimes.remove(cacheName);
         if (cache != null && cache.getStatus().equals(Status.STATUS_ALIVE)) {
             cache.dispose();
             runtimeCfg.removeCache(cache.getCacheConfiguration());
@@ -1510,6 +1857,8 @@ public class CacheManager {
      * Set the system property net.sf.ehcache.enableShutdownHook=true to turn it on.
      */
     public void shutdown() {
+        // the caches still initialising need the monitor to complete
+        stopCacheInitialisation(true);
         synchronized (this) {
             if (localTransactionsRecoveryThread != null && localTransactionsRecoveryThread.isAlive()) {
                 localTransactionsRecoveryThread.interrupt();
@@ -1543,6 +1892,10 @@ public class CacheManager {
                 cacheManagerTimer.purge();
             }
 
+            if (expiryExecutor != null) {
+                expiryExecutor.shutdownNow();
+            }
+
             cacheManagerEventListenerRegistry.dispose();
 
             ALL_CACHE_MANAGERS.remove(this);
@@ -2071,8 +2424,56 @@ public class CacheManager {
             if (sizeOfPolicyConfiguration == null) {
                 sizeOfPolicyConfiguration = getConfiguration().getSizeOfPolicyConfiguration();
             }
-            return SizeOfEngineLoader.newSizeOfEngine(sizeOfPolicyConfiguration.getMaxDepth(),
+            SizeOfEngine engine = SizeOfEngineLoader.newSizeOfEngine(sizeOfPolicyConfiguration.getMaxDepth(),
                 sizeOfPolicyConfiguration.getMaxDepthExceededBehavior().isAbort(), false);
+            if (sizeOfPolicyConfiguration.getSampleInterval() > 1) {
+                return new SampledSizeOfEngine(engine, sizeOfPolicyConfiguration.getSampleInterval());
+            }
+            return engine;
+        }
+    }
+
+    /**
+     * Starts the thread periodically expiring the elements of the heap-only caches, if an interval is given.
+     */
+    private void startExpiryThread(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        expiryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Expiry Thread-" + getName());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        expiryExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                expireHeapOnlyCaches();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Expires the elements of the caches whose elements are all held on heap.  The disk and off-heap tiers of the other
+     * caches are expired by their own threads.
+     */
+    private void expireHeapOnlyCaches() {
+        for (Ehcache ehcache : ehcaches.values()) {
+            if (!(ehcache instanceof Cache) || ehcache.getStatus() != Status.STATUS_ALIVE) {
+                continue;
+            }
+            CacheConfiguration config = ehcache.getCacheConfiguration();
+            if (config.isEternal() || config.isTerracottaClustered() || config.isOverflowToDisk() || config.isOverflowToOffHeap()) {
+                continue;
+            }
+            try {
+                ((Cache) ehcache).evictExpiredElements();
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to expire the elements of cache " + ehcache.getName(), e);
+            }
         }
     }
 
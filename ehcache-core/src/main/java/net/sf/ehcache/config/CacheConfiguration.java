@@ -24,8 +24,10 @@ import net.sf.ehcache.Element;
 import net.sf.ehcache.config.PersistenceConfiguration.Strategy;
 import net.sf.ehcache.config.PinningConfiguration.Store;
 import net.sf.ehcache.config.TerracottaConfiguration.Consistency;
+import net.sf.ehcache.event.AsynchronousEventDispatcher.OverflowPolicy;
 import net.sf.ehcache.event.NotificationScope;
 import net.sf.ehcache.search.attribute.DynamicAttributesExtractor;
+import net.sf.ehcache.serializer.Serializer;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 import net.sf.ehcache.store.compound.ReadWriteCopyStrategy;
 
@@ -115,6 +117,56 @@ public class CacheConfiguration implements Cloneable {
      */
     public static final int DEFAULT_DISK_ACCESS_STRIPES = 1;
 
+    /**
+     * Default number of diskWriterThreads.
+     */
+    public static final int DEFAULT_DISK_WRITER_THREADS = 1;
+
+    /**
+     * Default diskCompactionThreshold, the disk data file not being compacted.
+     */
+    public static final int DEFAULT_DISK_COMPACTION_THRESHOLD = 0;
+
+    /**
+     * Default diskCompactionBatchSizeMB.
+     */
+    public static final int DEFAULT_DISK_COMPACTION_BATCH_SIZE_MB = 8;
+
+    /**
+     * Default diskCompression, elements being written to disk uncompressed.
+     */
+    public static final boolean DEFAULT_DISK_COMPRESSION = false;
+
+    /**
+     * Default diskCompressionThreshold, in bytes.
+     */
+    public static final int DEFAULT_DISK_COMPRESSION_THRESHOLD = 512;
+
+    /**
+     * The disk data file is accessed through RandomAccessFile stripes by default.
+     */
+    public static final boolean DEFAULT_DISK_ACCESS_MEMORY_MAPPED = false;
+
+    /**
+     * Persistent disk store indexes are fully loaded before the cache becomes available by default.
+     */
+    public static final boolean DEFAULT_DISK_INDEX_LOADED_LAZILY = false;
+
+    /**
+     * Configured caches are available once the CacheManager has been created by default.
+     */
+    public static final boolean DEFAULT_INITIALISED_ASYNCHRONOUSLY = false;
+
+    /**
+     * Missing keys of a bulk load are passed to the cache loaders in a single batch by default.
+     */
+    public static final int DEFAULT_CACHE_LOADER_BATCH_SIZE = 0;
+
+    /**
+     * Loads are run on a single thread by default.
+     */
+    public static final int DEFAULT_CACHE_LOADER_THREADS = 1;
+
     /**
      * Logging is off by default.
      */
@@ -183,6 +235,11 @@ public class CacheConfiguration implements Cloneable {
      */
     public static final CopyStrategyConfiguration DEFAULT_COPY_STRATEGY_CONFIGURATION = new CopyStrategyConfiguration();
 
+    /**
+     * Default serializerConfiguration
+     */
+    public static final SerializerConfiguration DEFAULT_SERIALIZER_CONFIGURATION = new SerializerConfiguration();
+
     /**
      * Default maxBytesOnHeap value
      *
@@ -221,6 +278,16 @@ public class CacheConfiguration implements Cloneable {
      */
     protected volatile long cacheLoaderTimeoutMillis;
 
+    /**
+     * The maximum number of keys passed to the cache loaders in one bulk load call, 0 meaning no limit.
+     */
+    protected volatile int cacheLoaderBatchSize = DEFAULT_CACHE_LOADER_BATCH_SIZE;
+
+    /**
+     * The number of threads used to run cache loads.
+     */
+    protected volatile int cacheLoaderThreads = DEFAULT_CACHE_LOADER_THREADS;
+
     /**
      * the maximum objects to be held in the {@link net.sf.ehcache.store.MemoryStore}.
      * <p>
@@ -306,6 +373,46 @@ public class CacheConfiguration implements Cloneable {
      */
     protected volatile int diskAccessStripes = DEFAULT_DISK_ACCESS_STRIPES;
 
+    /**
+     * The number of threads writing the spooled elements to disk.
+     */
+    protected volatile int diskWriterThreads = DEFAULT_DISK_WRITER_THREADS;
+
+    /**
+     * The percentage of the disk data file that must be free space for the file to be compacted.
+     */
+    protected volatile int diskCompactionThreshold = DEFAULT_DISK_COMPACTION_THRESHOLD;
+
+    /**
+     * The maximum amount of data relocated by each compaction of the disk data file.
+     */
+    protected volatile int diskCompactionBatchSizeMB = DEFAULT_DISK_COMPACTION_BATCH_SIZE_MB;
+
+    /**
+     * Whether the serialized elements are compressed when written to disk.
+     */
+    protected volatile boolean diskCompression = DEFAULT_DISK_COMPRESSION;
+
+    /**
+     * The size in bytes below which serialized elements are written to disk uncompressed.
+     */
+    protected volatile int diskCompressionThreshold = DEFAULT_DISK_COMPRESSION_THRESHOLD;
+
+    /**
+     * Whether the disk data file is accessed through memory mapped buffers.
+     */
+    protected volatile boolean diskAccessMemoryMapped = DEFAULT_DISK_ACCESS_MEMORY_MAPPED;
+
+    /**
+     * Whether the index of a persistent disk store is loaded in the background.
+     */
+    protected volatile boolean diskIndexLoadedLazily = DEFAULT_DISK_INDEX_LOADED_LAZILY;
+
+    /**
+     * Whether the cache may still be initialising once its CacheManager has been created.
+     */
+    protected volatile boolean initialisedAsynchronously = DEFAULT_INITIALISED_ASYNCHRONOUSLY;
+
     /**
      * The interval in seconds between runs of the disk expiry thread.
      * <p>
@@ -387,6 +494,7 @@ public class CacheConfiguration implements Cloneable {
     private volatile TransactionalMode transactionalMode;
     private volatile boolean statistics = DEFAULT_STATISTICS;
     private volatile CopyStrategyConfiguration copyStrategyConfiguration = DEFAULT_COPY_STRATEGY_CONFIGURATION.copy();
+    private volatile SerializerConfiguration serializerConfiguration = DEFAULT_SERIALIZER_CONFIGURATION.copy();
     private volatile SizeOfPolicyConfiguration sizeOfPolicyConfiguration;
     private volatile PersistenceConfiguration persistenceConfiguration;
     private volatile ElementValueComparatorConfiguration elementValueComparatorConfiguration =
@@ -775,6 +883,63 @@ public class CacheConfiguration implements Cloneable {
         return this;
     }
 
+    /**
+     * Sets the maximum number of keys passed to the cache loaders in one loadAll call (0 = no limit).
+     * <p>
+     * Bulk loads through {@link net.sf.ehcache.Cache#getAllWithLoader(java.util.Collection, Object)} and
+     * {@link net.sf.ehcache.Cache#loadAll(java.util.Collection, Object)} split the missing keys into batches of this size,
+     * which are loaded concurrently on up to {@link #getCacheLoaderThreads()} threads.
+     *
+     * @param cacheLoaderBatchSize the maximum number of keys per batch
+     */
+    public final void setCacheLoaderBatchSize(int cacheLoaderBatchSize) {
+        checkDynamicChange();
+        if (cacheLoaderBatchSize < 0) {
+            throw new IllegalArgumentException("Cache loader batch size must be a non-negative number");
+        }
+        this.cacheLoaderBatchSize = cacheLoaderBatchSize;
+    }
+
+    /**
+     * Builder that sets the maximum number of keys passed to the cache loaders in one loadAll call (0 = no limit).
+     *
+     * @param cacheLoaderBatchSize the maximum number of keys per batch
+     * @return this configuration instance
+     * @see #setCacheLoaderBatchSize(int)
+     */
+    public final CacheConfiguration cacheLoaderBatchSize(int cacheLoaderBatchSize) {
+        setCacheLoaderBatchSize(cacheLoaderBatchSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads of the cache's loader pool.
+     * <p>
+     * The pool runs asynchronous loads and the batches of bulk loads. Registered cache loaders must be thread safe when
+     * more than one thread is used.
+     *
+     * @param cacheLoaderThreads the number of loader threads
+     */
+    public final void setCacheLoaderThreads(int cacheLoaderThreads) {
+        checkDynamicChange();
+        if (cacheLoaderThreads < 1) {
+            throw new IllegalArgumentException("Cache loader threads must be a positive number");
+        }
+        this.cacheLoaderThreads = cacheLoaderThreads;
+    }
+
+    /**
+     * Builder that sets the number of threads of the cache's loader pool.
+     *
+     * @param cacheLoaderThreads the number of loader threads
+     * @return this configuration instance
+     * @see #setCacheLoaderThreads(int)
+     */
+    public final CacheConfiguration cacheLoaderThreads(int cacheLoaderThreads) {
+        setCacheLoaderThreads(cacheLoaderThreads);
+        return this;
+    }
+
     /**
      * Sets the eviction policy. An invalid argument will set it to LRU.
      *
@@ -1071,6 +1236,213 @@ public class CacheConfiguration implements Cloneable {
         return this;
     }
 
+    /**
+     * Sets the number of threads writing the spooled elements to disk. The elements are spread over the threads by
+     * key, so the writes for a given key keep their order. By default there is one thread.
+     *
+     * @param threads number of disk writer threads
+     */
+    public void setDiskWriterThreads(int threads) {
+        checkDynamicChange();
+        if (threads <= 0) {
+            this.diskWriterThreads = DEFAULT_DISK_WRITER_THREADS;
+        } else {
+            this.diskWriterThreads = threads;
+        }
+    }
+
+    /**
+     * Builder which sets the number of threads writing the spooled elements to disk. By default there is one thread.
+     *
+     * @param threads number of disk writer threads
+     * @return this configuration instance
+     * @see #setDiskWriterThreads(int)
+     */
+    public final CacheConfiguration diskWriterThreads(int threads) {
+        setDiskWriterThreads(threads);
+        return this;
+    }
+
+    /**
+     * Sets the percentage of the disk data file that must be free space, left by removed and updated elements, for the
+     * file to be compacted. Compaction runs every diskExpiryThreadIntervalSeconds, moving the elements at the end of the
+     * file into the free space before them and truncating the file. By default, 0, the file is not compacted.
+     *
+     * @param threshold percentage of free space, between 0 and 100
+     */
+    public void setDiskCompactionThreshold(int threshold) {
+        checkDynamicChange();
+        if (threshold < 0 || threshold > 100) {
+            throw new IllegalArgumentException("diskCompactionThreshold must be between 0 and 100: " + threshold);
+        }
+        this.diskCompactionThreshold = threshold;
+    }
+
+    /**
+     * Builder which sets the percentage of the disk data file that must be free space for the file to be compacted.
+     *
+     * @param threshold percentage of free space, between 0 and 100
+     * @return this configuration instance
+     * @see #setDiskCompactionThreshold(int)
+     */
+    public final CacheConfiguration diskCompactionThreshold(int threshold) {
+        setDiskCompactionThreshold(threshold);
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of data moved by each compaction of the disk data file, which bounds the disk traffic
+     * compaction adds to that of the cache. By default 8MB are moved at most.
+     *
+     * @param batchSizeMB maximum size of the moved data in megabytes
+     */
+    public void setDiskCompactionBatchSizeMB(int batchSizeMB) {
+        checkDynamicChange();
+        if (batchSizeMB <= 0) {
+            this.diskCompactionBatchSizeMB = DEFAULT_DISK_COMPACTION_BATCH_SIZE_MB;
+        } else {
+            this.diskCompactionBatchSizeMB = batchSizeMB;
+        }
+    }
+
+    /**
+     * Builder which sets the maximum amount of data moved by each compaction of the disk data file.
+     *
+     * @param batchSizeMB maximum size of the moved data in megabytes
+     * @return this configuration instance
+     * @see #setDiskCompactionBatchSizeMB(int)
+     */
+    public final CacheConfiguration diskCompactionBatchSizeMB(int batchSizeMB) {
+        setDiskCompactionBatchSizeMB(batchSizeMB);
+        return this;
+    }
+
+    /**
+     * Sets whether the serialized elements are compressed when written to disk, trading the CPU time of the codec for
+     * a smaller data file and less disk traffic. Elements compressed are decompressed when read back, whatever this
+     * setting is then. By default elements are written uncompressed.
+     *
+     * @param diskCompression true to compress the elements written to disk
+     */
+    public void setDiskCompression(boolean diskCompression) {
+        checkDynamicChange();
+        this.diskCompression = diskCompression;
+    }
+
+    /**
+     * Builder which sets whether the serialized elements are compressed when written to disk.
+     *
+     * @param diskCompression true to compress the elements written to disk
+     * @return this configuration instance
+     * @see #setDiskCompression(boolean)
+     */
+    public final CacheConfiguration diskCompression(boolean diskCompression) {
+        setDiskCompression(diskCompression);
+        return this;
+    }
+
+    /**
+     * Sets the size in bytes below which serialized elements are written to disk uncompressed, small elements seldom
+     * being worth the codec time. By default elements smaller than 512 bytes are not compressed.
+     *
+     * @param thresholdBytes minimum size of the compressed elements in bytes
+     */
+    public void setDiskCompressionThreshold(int thresholdBytes) {
+        checkDynamicChange();
+        if (thresholdBytes < 0) {
+            this.diskCompressionThreshold = DEFAULT_DISK_COMPRESSION_THRESHOLD;
+        } else {
+            this.diskCompressionThreshold = thresholdBytes;
+        }
+    }
+
+    /**
+     * Builder which sets the size in bytes below which serialized elements are written to disk uncompressed.
+     *
+     * @param thresholdBytes minimum size of the compressed elements in bytes
+     * @return this configuration instance
+     * @see #setDiskCompressionThreshold(int)
+     */
+    public final CacheConfiguration diskCompressionThreshold(int thresholdBytes) {
+        setDiskCompressionThreshold(thresholdBytes);
+        return this;
+    }
+
+    /**
+     * Sets whether the disk data file is accessed through memory mapped buffers instead of RandomAccessFile stripes.
+     * When enabled, faulting an element from disk is a copy from the page cache rather than a seek and read on a
+     * shared file handle, and the diskAccessStripes setting is ignored. By default the data file is not mapped.
+     *
+     * @param memoryMapped true to memory map the disk data file
+     */
+    public void setDiskAccessMemoryMapped(boolean memoryMapped) {
+        checkDynamicChange();
+        this.diskAccessMemoryMapped = memoryMapped;
+    }
+
+    /**
+     * Builder which sets whether the disk data file is accessed through memory mapped buffers.
+     *
+     * @param memoryMapped true to memory map the disk data file
+     * @return this configuration instance
+     * @see #setDiskAccessMemoryMapped(boolean)
+     */
+    public final CacheConfiguration diskAccessMemoryMapped(boolean memoryMapped) {
+        setDiskAccessMemoryMapped(memoryMapped);
+        return this;
+    }
+
+    /**
+     * Sets whether the index of a persistent disk store is loaded in the background once the cache has started.
+     * While the index is loading, operations on a key that has not been loaded yet first load that key's entry, but
+     * the size and key set of the cache only reflect the entries loaded so far. By default the index is fully loaded
+     * before the cache becomes available.
+     *
+     * @param lazily true to load the disk index in the background
+     */
+    public void setDiskIndexLoadedLazily(boolean lazily) {
+        checkDynamicChange();
+        this.diskIndexLoadedLazily = lazily;
+    }
+
+    /**
+     * Builder which sets whether the index of a persistent disk store is loaded in the background.
+     *
+     * @param lazily true to load the disk index in the background
+     * @return this configuration instance
+     * @see #setDiskIndexLoadedLazily(boolean)
+     */
+    public final CacheConfiguration diskIndexLoadedLazily(boolean lazily) {
+        setDiskIndexLoadedLazily(lazily);
+        return this;
+    }
+
+    /**
+     * Sets whether a configured cache is initialised in the background, the CacheManager being created without waiting
+     * for it.  Until it has been initialised the cache is not returned by the CacheManager, which reports it as
+     * initialising instead.  This suits caches that are slow to start, such as ones loading a large disk store or
+     * bootstrapping from peers, and that the application can do without for a while.
+     *
+     * @param asynchronously true to initialise the cache in the background
+     * @see net.sf.ehcache.CacheManager#awaitCache(String, long, java.util.concurrent.TimeUnit)
+     */
+    public void setInitialisedAsynchronously(boolean asynchronously) {
+        checkDynamicChange();
+        this.initialisedAsynchronously = asynchronously;
+    }
+
+    /**
+     * Builder which sets whether a configured cache is initialised in the background.
+     *
+     * @param asynchronously true to initialise the cache in the background
+     * @return this configuration instance
+     * @see #setInitialisedAsynchronously(boolean)
+     */
+    public final CacheConfiguration initialisedAsynchronously(boolean asynchronously) {
+        setInitialisedAsynchronously(asynchronously);
+        return this;
+    }
+
     /**
      * Sets the maximum number elements on Disk. 0 means unlimited.
      * <p>
@@ -1243,7 +1615,17 @@ public class CacheConfiguration implements Cloneable {
      */
     public ReadWriteCopyStrategy<Element> getCopyStrategy() {
         // todo really make this pluggable through config!
-        return copyStrategyConfiguration.getCopyStrategyInstance(getClassLoader());
+        return copyStrategyConfiguration.getCopyStrategyInstance(getClassLoader(), getSerializer());
+    }
+
+    /**
+     * Getter to the configured Serializer.
+     * This will always return the same unique instance per cache
+     *
+     * @return the {@link Serializer} instance for this cache
+     */
+    public Serializer getSerializer() {
+        return serializerConfiguration.getSerializerInstance(getClassLoader());
     }
 
     /**
@@ -1313,6 +1695,16 @@ public class CacheConfiguration implements Cloneable {
         this.copyStrategyConfiguration = copyStrategyConfiguration;
     }
 
+    /**
+     * Sets the SerializerConfiguration for this cache
+     * The default configuration will setup a {@link net.sf.ehcache.serializer.JavaSerializer}
+     *
+     * @param serializerConfiguration the Serializer Configuration
+     */
+    public void addSerializer(SerializerConfiguration serializerConfiguration) {
+        this.serializerConfiguration = serializerConfiguration;
+    }
+
     /**
      * Sets the ElementValueComparatorConfiguration for this cache
      * The default configuration will setup a {@link net.sf.ehcache.store.DefaultElementValueComparator}
@@ -1661,6 +2053,15 @@ public class CacheConfiguration implements Cloneable {
         return this.copyStrategyConfiguration;
     }
 
+    /**
+     * Returns the serializerConfiguration
+     *
+     * @return the serializerConfiguration
+     */
+    public SerializerConfiguration getSerializerConfiguration() {
+        return this.serializerConfiguration;
+    }
+
     /**
      * Returns the elementComparatorConfiguration
      *
@@ -1895,6 +2296,9 @@ public class CacheConfiguration implements Cloneable {
         if (cacheManager.getOnDiskPool() != null) {
             cacheManager.getOnDiskPool().setMaxSize(cacheManager.getOnDiskPool().getMaxSize() - getMaxBytesLocalDisk());
         }
+        if (cacheManager.getOnOffHeapPool() != null) {
+            cacheManager.getOnOffHeapPool().setMaxSize(cacheManager.getOnOffHeapPool().getMaxSize() - getMaxBytesLocalOffHeap());
+        }
     }
 
     /**
@@ -2128,7 +2532,26 @@ public class CacheConfiguration implements Cloneable {
      * Configuration for the CacheEventListenerFactory.
      */
     public static final class CacheEventListenerFactoryConfiguration extends FactoryConfiguration<CacheEventListenerFactoryConfiguration> {
+
+        /**
+         * Default number of event dispatch threads, events being delivered synchronously
+         */
+        public static final int DEFAULT_DISPATCH_THREADS = 0;
+
+        /**
+         * Default maximum number of events pending delivery per dispatch thread
+         */
+        public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1000;
+
+        /**
+         * Default event dispatch overflow policy
+         */
+        public static final OverflowPolicy DEFAULT_DISPATCH_OVERFLOW_POLICY = OverflowPolicy.BLOCK;
+
         private NotificationScope notificationScope = NotificationScope.ALL;
+        private int dispatchThreads = DEFAULT_DISPATCH_THREADS;
+        private int dispatchQueueSize = DEFAULT_DISPATCH_QUEUE_SIZE;
+        private OverflowPolicy dispatchOverflowPolicy = DEFAULT_DISPATCH_OVERFLOW_POLICY;
 
         /**
          * Used by BeanHandler to set the mode during parsing. Convert listenFor string to uppercase and
@@ -2156,6 +2579,98 @@ public class CacheConfiguration implements Cloneable {
         public NotificationScope getListenFor() {
             return this.notificationScope;
         }
+
+        /**
+         * Sets the number of threads delivering events to the listener, each thread delivering the events of a share of
+         * the keys in order.  0, the default, delivers events on the thread causing them.
+         *
+         * @param dispatchThreads the number of dispatch threads
+         */
+        public void setDispatchThreads(int dispatchThreads) {
+            if (dispatchThreads < 0) {
+                throw new IllegalArgumentException("dispatchThreads must be non-negative: " + dispatchThreads);
+            }
+            this.dispatchThreads = dispatchThreads;
+        }
+
+        /**
+         * @return this factory configuration instance
+         * @see #setDispatchThreads(int)
+         */
+        public final CacheEventListenerFactoryConfiguration dispatchThreads(int dispatchThreads) {
+            setDispatchThreads(dispatchThreads);
+            return this;
+        }
+
+        /**
+         * Gets the number of threads delivering events to the listener
+         *
+         * @return the number of dispatch threads, 0 if events are delivered synchronously
+         */
+        public int getDispatchThreads() {
+            return dispatchThreads;
+        }
+
+        /**
+         * Sets the maximum number of events pending delivery per dispatch thread.
+         *
+         * @param dispatchQueueSize the maximum number of pending events per thread
+         */
+        public void setDispatchQueueSize(int dispatchQueueSize) {
+            if (dispatchQueueSize < 1) {
+                throw new IllegalArgumentException("dispatchQueueSize must be positive: " + dispatchQueueSize);
+            }
+            this.dispatchQueueSize = dispatchQueueSize;
+        }
+
+        /**
+         * @return this factory configuration instance
+         * @see #setDispatchQueueSize(int)
+         */
+        public final CacheEventListenerFactoryConfiguration dispatchQueueSize(int dispatchQueueSize) {
+            setDispatchQueueSize(dispatchQueueSize);
+            return this;
+        }
+
+        /**
+         * Gets the maximum number of events pending delivery per dispatch thread
+         *
+         * @return the maximum number of pending events per thread
+         */
+        public int getDispatchQueueSize() {
+            return dispatchQueueSize;
+        }
+
+        /**
+         * Sets what happens to an event when the events pending delivery by its thread reach the queue size: one of
+         * block, drop or coalesce.
+         *
+         * @param dispatchOverflowPolicy the overflow policy
+         */
+        public void setDispatchOverflowPolicy(String dispatchOverflowPolicy) {
+            if (dispatchOverflowPolicy == null) {
+                throw new IllegalArgumentException("dispatchOverflowPolicy must be non-null");
+            }
+            this.dispatchOverflowPolicy = OverflowPolicy.valueOf(dispatchOverflowPolicy.toUpperCase());
+        }
+
+        /**
+         * @return this factory configuration instance
+         * @see #setDispatchOverflowPolicy(String)
+         */
+        public final CacheEventListenerFactoryConfiguration dispatchOverflowPolicy(String dispatchOverflowPolicy) {
+            setDispatchOverflowPolicy(dispatchOverflowPolicy);
+            return this;
+        }
+
+        /**
+         * Gets what happens to an event when the events pending delivery by its thread reach the queue size
+         *
+         * @return the overflow policy
+         */
+        public OverflowPolicy getDispatchOverflowPolicy() {
+            return dispatchOverflowPolicy;
+        }
     }
 
     /**
@@ -2525,6 +3040,20 @@ public class CacheConfiguration implements Cloneable {
         return cacheLoaderTimeoutMillis;
     }
 
+    /**
+     * Accessor
+     */
+    public int getCacheLoaderBatchSize() {
+        return cacheLoaderBatchSize;
+    }
+
+    /**
+     * Accessor
+     */
+    public int getCacheLoaderThreads() {
+        return cacheLoaderThreads;
+    }
+
     /**
      * Accessor
      * @deprecated use {@link #getMaxEntriesLocalDisk()} for unclustered caches and {@link #getMaxEntriesInCache()} for clustered caches.
@@ -2639,6 +3168,62 @@ public class CacheConfiguration implements Cloneable {
         return diskAccessStripes;
     }
 
+    /**
+     * Accessor
+     */
+    public int getDiskWriterThreads() {
+        return diskWriterThreads;
+    }
+
+    /**
+     * Accessor
+     */
+    public int getDiskCompactionThreshold() {
+        return diskCompactionThreshold;
+    }
+
+    /**
+     * Accessor
+     */
+    public int getDiskCompactionBatchSizeMB() {
+        return diskCompactionBatchSizeMB;
+    }
+
+    /**
+     * Accessor
+     */
+    public boolean isDiskCompression() {
+        return diskCompression;
+    }
+
+    /**
+     * Accessor
+     */
+    public int getDiskCompressionThreshold() {
+        return diskCompressionThreshold;
+    }
+
+    /**
+     * Accessor
+     */
+    public boolean isDiskAccessMemoryMapped() {
+        return diskAccessMemoryMapped;
+    }
+
+    /**
+     * Accessor
+     */
+    public boolean isDiskIndexLoadedLazily() {
+        return diskIndexLoadedLazily;
+    }
+
+    /**
+     * Accessor
+     */
+    public boolean isInitialisedAsynchronously() {
+        return initialisedAsynchronously;
+    }
+
     /**
      * Accessor
      */
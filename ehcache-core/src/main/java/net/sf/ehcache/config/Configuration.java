@@ -62,6 +62,14 @@ public final class Configuration {
      * Default value for defaultTransactionTimeoutInSeconds
      */
     public static final int  DEFAULT_TRANSACTION_TIMEOUT = 15;
+    /**
+     * Default value for expiryThreadIntervalSeconds, no expiry thread being started
+     */
+    public static final int DEFAULT_EXPIRY_THREAD_INTERVAL_SECONDS = 0;
+    /**
+     * Default value for cacheInitialisationThreads, the caches being initialised one after the other
+     */
+    public static final int DEFAULT_CACHE_INITIALISATION_THREADS = 1;
     /**
      * Default value for maxBytesLocalHeap when not explicitly set
      *
@@ -184,6 +192,8 @@ public final class Configuration {
 
     private String cacheManagerName;
     private int defaultTransactionTimeoutInSeconds = DEFAULT_TRANSACTION_TIMEOUT;
+    private int expiryThreadIntervalSeconds = DEFAULT_EXPIRY_THREAD_INTERVAL_SECONDS;
+    private int cacheInitialisationThreads = DEFAULT_CACHE_INITIALISATION_THREADS;
     private Monitoring monitoring = DEFAULT_MONITORING;
     private DiskStoreConfiguration diskStoreConfiguration;
     private CacheConfiguration defaultCacheConfiguration;
@@ -416,6 +426,71 @@ public final class Configuration {
         return defaultTransactionTimeoutInSeconds;
     }
 
+    /**
+     * Builder to set the interval between the runs of the expiry thread, which expires the elements of the heap-only
+     * caches of the CacheManager.
+     *
+     * @param expiryThreadIntervalSeconds the interval in seconds, 0 for no expiry thread
+     * @return this configuration instance
+     */
+    public final Configuration expiryThreadIntervalSeconds(int expiryThreadIntervalSeconds) {
+        setExpiryThreadIntervalSeconds(expiryThreadIntervalSeconds);
+        return this;
+    }
+
+    /**
+     * Allows BeanHandler to set the interval between the runs of the expiry thread.
+     */
+    public final void setExpiryThreadIntervalSeconds(int expiryThreadIntervalSeconds) {
+        if (expiryThreadIntervalSeconds < 0) {
+            throw new IllegalArgumentException("expiryThreadIntervalSeconds must be non-negative");
+        }
+        final String prop = "expiryThreadIntervalSeconds";
+        final boolean publish = checkDynChange(prop);
+        final int oldValue = this.expiryThreadIntervalSeconds;
+        this.expiryThreadIntervalSeconds = expiryThreadIntervalSeconds;
+        if (publish) {
+            firePropertyChange(prop, oldValue, expiryThreadIntervalSeconds);
+        }
+    }
+
+    /**
+     * Get the interval between the runs of the expiry thread
+     * @return the interval in seconds, 0 if there is no expiry thread
+     */
+    public final int getExpiryThreadIntervalSeconds() {
+        return expiryThreadIntervalSeconds;
+    }
+
+    /**
+     * Builder to set the number of threads the configured caches of the CacheManager are initialised on.
+     *
+     * @param cacheInitialisationThreads the number of threads, 1 to initialise the caches one after the other
+     * @return this configuration instance
+     */
+    public final Configuration cacheInitialisationThreads(int cacheInitialisationThreads) {
+        setCacheInitialisationThreads(cacheInitialisationThreads);
+        return this;
+    }
+
+    /**
+     * Allows BeanHandler to set the number of threads the configured caches are initialised on.
+     */
+    public final void setCacheInitialisationThreads(int cacheInitialisationThreads) {
+        if (cacheInitialisationThreads < 1) {
+            throw new IllegalArgumentException("cacheInitialisationThreads must be at least 1");
+        }
+        this.cacheInitialisationThreads = cacheInitialisationThreads;
+    }
+
+    /**
+     * Get the number of threads the configured caches are initialised on
+     * @return the number of threads, 1 if the caches are initialised one after the other
+     */
+    public final int getCacheInitialisationThreads() {
+        return cacheInitialisationThreads;
+    }
+
     /**
      * Builder to set the monitoring approach
      *
@@ -648,9 +723,9 @@ public final class Configuration {
                                          + FeaturesManager.ENTERPRISE_FM_CLASSNAME, e);
             }
         } catch (ClassNotFoundException e) {
-            throw new CacheException("Cache " + getName()
-                                     + " cannot be configured because the off-heap store class could not be found. "
-                                     + "You must use an enterprise version of Ehcache to successfully enable overflowToOffHeap.");
+            // the open source off-heap store is bounded by the direct memory of the VM, which defaults to the maximum heap
+            // size unless -XX:MaxDirectMemorySize is set
+            return Runtime.getRuntime().maxMemory();
         }
     }
 
@@ -1327,6 +1402,10 @@ public final class Configuration {
                 cacheManager.getOnDiskPool().setMaxSize(cacheManager.getOnDiskPool()
                                                             .getMaxSize() + cacheConfiguration.getMaxBytesLocalDisk());
             }
+            if (cacheManager.getOnOffHeapPool() != null) {
+                cacheManager.getOnOffHeapPool().setMaxSize(cacheManager.getOnOffHeapPool()
+                                                            .getMaxSize() + cacheConfiguration.getMaxBytesLocalOffHeap());
+            }
             getConfiguration().getCacheConfigurations().remove(cacheConfiguration.getName());
         }
 
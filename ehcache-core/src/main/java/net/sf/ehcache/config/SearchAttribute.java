@@ -46,6 +46,27 @@ public class SearchAttribute {
     private String propertySeparator;
     private String typeName;
     private Class<?> type; 
+    private IndexType index = IndexType.NONE;
+
+    /**
+     * The secondary index kept for an attribute of an unclustered cache
+     */
+    public static enum IndexType {
+        /**
+         * No index, queries on the attribute scan the whole cache
+         */
+        NONE,
+
+        /**
+         * A hash index, used by equality and collection membership criteria
+         */
+        HASH,
+
+        /**
+         * A sorted index, used by equality, collection membership and range criteria
+         */
+        SORTED
+    }
 
     /**
      * Set the attribute name
@@ -98,6 +119,29 @@ public class SearchAttribute {
         this.type = type;
     }
     
+    /**
+     * Set the secondary index kept for this attribute: none (the default), hash or sorted
+     *
+     * @param index
+     */
+    public void setIndex(String index) {
+        if (index == null) {
+            throw new InvalidConfigurationException("search attribute index must be non-null");
+        }
+        try {
+            this.index = IndexType.valueOf(index.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException(String.format("Unsupported index type %s for search attribute %s", index, name));
+        }
+    }
+
+    /**
+     * Get the secondary index kept for this attribute
+     */
+    public IndexType getIndex() {
+        return index;
+    }
+
     /**
      * Get the extractor class name
      */
@@ -217,6 +261,18 @@ public class SearchAttribute {
         return this;
     }
     
+    /**
+     * Set the secondary index kept for this attribute
+     *
+     * @param index
+     *            none, hash or sorted
+     * @return this
+     */
+    public SearchAttribute index(String index) {
+        setIndex(index);
+        return this;
+    }
+
     /**
      * Set the extractor properties
      *
@@ -282,6 +338,9 @@ public class SearchAttribute {
         if (typeName != null) {
             rv.addAttribute(new SimpleNodeAttribute("type", typeName));
         }
+        if (index != IndexType.NONE) {
+            rv.addAttribute(new SimpleNodeAttribute("index", index));
+        }
 
         return rv;
     }
@@ -0,0 +1,137 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.ehcache.config;
+
+import net.sf.ehcache.serializer.JavaSerializer;
+import net.sf.ehcache.serializer.Serializer;
+
+/**
+ * Configuration of the {@link Serializer} used by a cache's disk store, serialization based copy strategy and RMI
+ * replication.
+ */
+public class SerializerConfiguration {
+
+    private static final String DEFAULT_IMPL = "net.sf.ehcache.serializer.JavaSerializer";
+
+    private volatile String className = DEFAULT_IMPL;
+    private Serializer serializer;
+
+    /**
+     * Returns the fully qualified class name for the Serializer to use
+     *
+     * @return FQCN to the Serializer implementation to use
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Sets the fully qualified class name for the Serializer to use
+     *
+     * @param className
+     *            FQCN
+     */
+    public void setClass(final String className) {
+        this.className = className;
+    }
+
+    /**
+     * Sets the Serializer instance to use
+     *
+     * @param serializer the serializer
+     */
+    public synchronized void setSerializerInstance(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Get (and potentially) instantiate the instance
+     *
+     * @param loader the class loader used to load the serializer class
+     * @return the instance
+     */
+    public synchronized Serializer getSerializerInstance(ClassLoader loader) {
+        if (serializer == null) {
+            if (DEFAULT_IMPL.equals(className)) {
+                serializer = new JavaSerializer();
+                return serializer;
+            }
+
+            Class serializerClass = null;
+            try {
+                serializerClass = loader.loadClass(className);
+                serializer = (Serializer) serializerClass.newInstance();
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Couldn't find the Serializer class!", e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException("Couldn't instantiate the Serializer instance!", e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Couldn't instantiate the Serializer instance!", e);
+            } catch (ClassCastException e) {
+                throw new RuntimeException(serializerClass != null ? serializerClass.getSimpleName()
+                        + " doesn't implement net.sf.ehcache.serializer.Serializer" : "Error with Serializer", e);
+            }
+        }
+        return serializer;
+    }
+
+    /**
+     * Make copy of this configuration
+     * @return a copy of this configuration
+     */
+    protected SerializerConfiguration copy() {
+        SerializerConfiguration clone = new SerializerConfiguration();
+        clone.setClass(getClassName());
+        return clone;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((className == null) ? 0 : className.hashCode());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        SerializerConfiguration other = (SerializerConfiguration) obj;
+        if (className == null) {
+            if (other.className != null) {
+                return false;
+            }
+        } else if (!className.equals(other.className)) {
+            return false;
+        }
+        return true;
+    }
+
+}
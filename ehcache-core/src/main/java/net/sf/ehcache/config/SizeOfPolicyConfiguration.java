@@ -33,6 +33,14 @@ public class SizeOfPolicyConfiguration implements Cloneable {
      * Default max traversal depth exceeded behavior
      */
     public static final MaxDepthExceededBehavior DEFAULT_MAX_DEPTH_EXCEEDED_BEHAVIOR = MaxDepthExceededBehavior.CONTINUE;
+    /**
+     * Default sample interval, every element being fully sized
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 1;
+    /**
+     * Default interval between the reconciliations of sampled sizes, in seconds
+     */
+    public static final int DEFAULT_RECONCILE_INTERVAL_SECONDS = 60;
 
     /**
      * Enum of the possible behaviors of the SizeOf engine when the max depth is exceeded
@@ -69,6 +77,8 @@ public class SizeOfPolicyConfiguration implements Cloneable {
 
     private volatile int maxDepth = DEFAULT_MAX_SIZEOF_DEPTH;
     private volatile MaxDepthExceededBehavior maxDepthExceededBehavior = DEFAULT_MAX_DEPTH_EXCEEDED_BEHAVIOR;
+    private volatile int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private volatile int reconcileIntervalSeconds = DEFAULT_RECONCILE_INTERVAL_SECONDS;
 
 
     /**
@@ -143,6 +153,75 @@ public class SizeOfPolicyConfiguration implements Cloneable {
         return this;
     }
 
+    /**
+     * Gets the sample interval: one element in this many of each value class is fully sized, the others being given
+     * the average size of the sized ones
+     *
+     * @return the sample interval
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets the sample interval: one element in this many of each value class is fully sized, the others being given
+     * the average size of the sized ones. 1, the default, sizes every element.
+     *
+     * @param sampleInterval the sample interval
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("sampleInterval must be at least 1");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Builder method to set the sample interval
+     *
+     * @param sampleInterval the sample interval
+     * @return this SizeOfPolicyConfiguration object
+     * @see #setSampleInterval(int)
+     */
+    public SizeOfPolicyConfiguration sampleInterval(int sampleInterval) {
+        setSampleInterval(sampleInterval);
+        return this;
+    }
+
+    /**
+     * Gets the interval between the full sizings of the elements of a cache, when sampling
+     *
+     * @return the reconcile interval in seconds
+     */
+    public int getReconcileIntervalSeconds() {
+        return reconcileIntervalSeconds;
+    }
+
+    /**
+     * Sets the interval between the full sizings of the elements of a cache, when sampling.
+     * These correct the pool for the difference between the estimated and the actual sizes. 0 disables them.
+     *
+     * @param reconcileIntervalSeconds the reconcile interval in seconds
+     */
+    public void setReconcileIntervalSeconds(int reconcileIntervalSeconds) {
+        if (reconcileIntervalSeconds < 0) {
+            throw new IllegalArgumentException("reconcileIntervalSeconds must be non-negative");
+        }
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+    }
+
+    /**
+     * Builder method to set the interval between the full sizings of the elements of a cache, when sampling
+     *
+     * @param reconcileIntervalSeconds the reconcile interval in seconds
+     * @return this SizeOfPolicyConfiguration object
+     * @see #setReconcileIntervalSeconds(int)
+     */
+    public SizeOfPolicyConfiguration reconcileIntervalSeconds(int reconcileIntervalSeconds) {
+        setReconcileIntervalSeconds(reconcileIntervalSeconds);
+        return this;
+    }
+
     /**
      * Helper method which resolves the max depth of a cache, using the cache manager's one if none was configured
      * on the cache itself.
@@ -199,6 +278,8 @@ public class SizeOfPolicyConfiguration implements Cloneable {
         int result = 1;
         result = prime * result + maxDepth;
         result = prime * result + ((maxDepthExceededBehavior == null) ? 0 : maxDepthExceededBehavior.hashCode());
+        result = prime * result + sampleInterval;
+        result = prime * result + reconcileIntervalSeconds;
         return result;
     }
 
@@ -210,6 +291,7 @@ public class SizeOfPolicyConfiguration implements Cloneable {
             return false;
         }
         SizeOfPolicyConfiguration other = (SizeOfPolicyConfiguration) obj;
-        return (maxDepth == other.maxDepth && maxDepthExceededBehavior == other.maxDepthExceededBehavior);
+        return (maxDepth == other.maxDepth && maxDepthExceededBehavior == other.maxDepthExceededBehavior
+                && sampleInterval == other.sampleInterval && reconcileIntervalSeconds == other.reconcileIntervalSeconds);
     }
 }
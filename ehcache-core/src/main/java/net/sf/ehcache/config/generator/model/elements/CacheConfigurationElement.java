@@ -25,6 +25,7 @@ import net.sf.ehcache.config.CopyStrategyConfiguration;
 import net.sf.ehcache.config.ElementValueComparatorConfiguration;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.config.PinningConfiguration;
+import net.sf.ehcache.config.SerializerConfiguration;
 import net.sf.ehcache.config.SizeOfPolicyConfiguration;
 import net.sf.ehcache.config.TerracottaConfiguration;
 import net.sf.ehcache.config.generator.model.NodeElement;
@@ -97,6 +98,22 @@ public class CacheConfigurationElement extends SimpleNodeElement {
                 String.valueOf(CacheConfiguration.DEFAULT_CLEAR_ON_FLUSH)));
         element.addAttribute(new SimpleNodeAttribute("diskAccessStripes", cacheConfiguration.getDiskAccessStripes()).optional(true)
                 .defaultValue(CacheConfiguration.DEFAULT_DISK_ACCESS_STRIPES));
+        element.addAttribute(new SimpleNodeAttribute("diskWriterThreads", cacheConfiguration.getDiskWriterThreads()).optional(true)
+                .defaultValue(CacheConfiguration.DEFAULT_DISK_WRITER_THREADS));
+        element.addAttribute(new SimpleNodeAttribute("diskCompactionThreshold", cacheConfiguration.getDiskCompactionThreshold())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_COMPACTION_THRESHOLD));
+        element.addAttribute(new SimpleNodeAttribute("diskCompactionBatchSizeMB", cacheConfiguration.getDiskCompactionBatchSizeMB())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_COMPACTION_BATCH_SIZE_MB));
+        element.addAttribute(new SimpleNodeAttribute("diskCompression", cacheConfiguration.isDiskCompression())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_COMPRESSION));
+        element.addAttribute(new SimpleNodeAttribute("diskCompressionThreshold", cacheConfiguration.getDiskCompressionThreshold())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_COMPRESSION_THRESHOLD));
+        element.addAttribute(new SimpleNodeAttribute("diskAccessMemoryMapped", cacheConfiguration.isDiskAccessMemoryMapped())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_ACCESS_MEMORY_MAPPED));
+        element.addAttribute(new SimpleNodeAttribute("diskIndexLoadedLazily", cacheConfiguration.isDiskIndexLoadedLazily())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_DISK_INDEX_LOADED_LAZILY));
+        element.addAttribute(new SimpleNodeAttribute("initialisedAsynchronously", cacheConfiguration.isInitialisedAsynchronously())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_INITIALISED_ASYNCHRONOUSLY));
         element.addAttribute(new SimpleNodeAttribute("diskSpoolBufferSizeMB", cacheConfiguration.getDiskSpoolBufferSizeMB()).optional(true)
                 .defaultValue(CacheConfiguration.DEFAULT_SPOOL_BUFFER_SIZE));
         element
@@ -124,6 +141,10 @@ public class CacheConfigurationElement extends SimpleNodeElement {
         }
         element.addAttribute(new SimpleNodeAttribute("cacheLoaderTimeoutMillis", cacheConfiguration.getCacheLoaderTimeoutMillis())
                 .optional(true).defaultValue(0L));
+        element.addAttribute(new SimpleNodeAttribute("cacheLoaderBatchSize", cacheConfiguration.getCacheLoaderBatchSize())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_CACHE_LOADER_BATCH_SIZE));
+        element.addAttribute(new SimpleNodeAttribute("cacheLoaderThreads", cacheConfiguration.getCacheLoaderThreads())
+                .optional(true).defaultValue(CacheConfiguration.DEFAULT_CACHE_LOADER_THREADS));
         element.addAttribute(new SimpleNodeAttribute("transactionalMode", cacheConfiguration.getTransactionalMode()).optional(true)
                 .defaultValue(CacheConfiguration.DEFAULT_TRANSACTIONAL_MODE));
         element.addAttribute(new SimpleNodeAttribute("memoryStoreEvictionPolicy", cacheConfiguration.getMemoryStoreEvictionPolicy()
@@ -147,6 +168,12 @@ public class CacheConfigurationElement extends SimpleNodeElement {
             CacheEventListenerFactoryConfiguration factoryConfiguration = (CacheEventListenerFactoryConfiguration) child
                     .getFactoryConfiguration();
             child.addAttribute(new SimpleNodeAttribute("listenFor", factoryConfiguration.getListenFor()));
+            child.addAttribute(new SimpleNodeAttribute("dispatchThreads", factoryConfiguration.getDispatchThreads()).optional(true)
+                    .defaultValue(CacheEventListenerFactoryConfiguration.DEFAULT_DISPATCH_THREADS));
+            child.addAttribute(new SimpleNodeAttribute("dispatchQueueSize", factoryConfiguration.getDispatchQueueSize()).optional(true)
+                    .defaultValue(CacheEventListenerFactoryConfiguration.DEFAULT_DISPATCH_QUEUE_SIZE));
+            child.addAttribute(new SimpleNodeAttribute("dispatchOverflowPolicy", factoryConfiguration.getDispatchOverflowPolicy())
+                    .optional(true).defaultValue(CacheEventListenerFactoryConfiguration.DEFAULT_DISPATCH_OVERFLOW_POLICY));
             element.addChildElement(child);
         }
         addAllFactoryConfigsAsChildElements(element, "cacheExtensionFactory", cacheConfiguration.getCacheExtensionConfigurations());
@@ -158,6 +185,7 @@ public class CacheConfigurationElement extends SimpleNodeElement {
             addPersistenceConfigurationElement(element, cacheConfiguration);
         }
         addCopyStrategyConfigurationElement(element, cacheConfiguration);
+        addSerializerConfigurationElement(element, cacheConfiguration);
         addElementValueComparatorConfigurationElement(element, cacheConfiguration);
         addCacheWriterConfigurationElement(element, cacheConfiguration);
         addAllFactoryConfigsAsChildElements(element, "cacheDecoratorFactory", cacheConfiguration.getCacheDecoratorConfigurations());
@@ -207,6 +235,14 @@ public class CacheConfigurationElement extends SimpleNodeElement {
         }
     }
 
+    private static void addSerializerConfigurationElement(NodeElement element, CacheConfiguration cacheConfiguration) {
+        SerializerConfiguration serializerConfiguration = cacheConfiguration.getSerializerConfiguration();
+        if (serializerConfiguration != null &&
+                !serializerConfiguration.equals(CacheConfiguration.DEFAULT_SERIALIZER_CONFIGURATION)) {
+            element.addChildElement(new SerializerConfigurationElement(element, serializerConfiguration));
+        }
+    }
+
     private static void addElementValueComparatorConfigurationElement(NodeElement element, CacheConfiguration cacheConfiguration) {
         ElementValueComparatorConfiguration elementValueComparatorConfiguration = cacheConfiguration
                 .getElementValueComparatorConfiguration();
@@ -77,6 +77,10 @@ public class ConfigurationElement extends SimpleNodeElement {
                 String.valueOf(Configuration.DEFAULT_DYNAMIC_CONFIG)));
         addAttribute(new SimpleNodeAttribute("defaultTransactionTimeoutInSeconds", configuration.getDefaultTransactionTimeoutInSeconds())
                 .optional(true).defaultValue(String.valueOf(Configuration.DEFAULT_TRANSACTION_TIMEOUT)));
+        addAttribute(new SimpleNodeAttribute("expiryThreadIntervalSeconds", configuration.getExpiryThreadIntervalSeconds())
+                .optional(true).defaultValue(String.valueOf(Configuration.DEFAULT_EXPIRY_THREAD_INTERVAL_SECONDS)));
+        addAttribute(new SimpleNodeAttribute("cacheInitialisationThreads", configuration.getCacheInitialisationThreads())
+                .optional(true).defaultValue(String.valueOf(Configuration.DEFAULT_CACHE_INITIALISATION_THREADS)));
         testAddMaxBytesLocalHeapAttribute();
         testAddMaxBytesLocalOffHeapAttribute();
         testAddMaxBytesLocalDiskAttribute();
@@ -0,0 +1,50 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.config.generator.model.elements;
+
+import net.sf.ehcache.config.SerializerConfiguration;
+import net.sf.ehcache.config.generator.model.NodeElement;
+import net.sf.ehcache.config.generator.model.SimpleNodeAttribute;
+import net.sf.ehcache.config.generator.model.SimpleNodeElement;
+
+/**
+ * {@link NodeElement} representing the {@link SerializerConfiguration}
+ */
+public class SerializerConfigurationElement extends SimpleNodeElement {
+
+    private final SerializerConfiguration serializerConfiguration;
+
+    /**
+     * Constructor accepting the parent and the {@link SerializerConfiguration}
+     *
+     * @param parent
+     * @param serializerConfiguration
+     */
+    public SerializerConfigurationElement(NodeElement parent, SerializerConfiguration serializerConfiguration) {
+        super(parent, "serializer");
+        this.serializerConfiguration = serializerConfiguration;
+        init();
+    }
+
+    private void init() {
+        if (serializerConfiguration == null) {
+            return;
+        }
+        addAttribute(new SimpleNodeAttribute("class", serializerConfiguration.getClassName()).optional(false));
+    }
+
+}
@@ -62,6 +62,10 @@ public class SizeOfPolicyConfigurationElement extends SimpleNodeElement {
             .optional(true).defaultValue(SizeOfPolicyConfiguration.DEFAULT_MAX_SIZEOF_DEPTH));
         addAttribute(new SimpleNodeAttribute("maxDepthExceededBehavior", sizeOfPolicyConfiguration.getMaxDepthExceededBehavior())
             .optional(true).defaultValue(SizeOfPolicyConfiguration.DEFAULT_MAX_DEPTH_EXCEEDED_BEHAVIOR));
+        addAttribute(new SimpleNodeAttribute("sampleInterval", sizeOfPolicyConfiguration.getSampleInterval())
+            .optional(true).defaultValue(SizeOfPolicyConfiguration.DEFAULT_SAMPLE_INTERVAL));
+        addAttribute(new SimpleNodeAttribute("reconcileIntervalSeconds", sizeOfPolicyConfiguration.getReconcileIntervalSeconds())
+            .optional(true).defaultValue(SizeOfPolicyConfiguration.DEFAULT_RECONCILE_INTERVAL_SECONDS));
     }
 
 }
@@ -0,0 +1,217 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.constructs.async;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.loader.CacheLoader;
+
+/**
+ * A non blocking view of a cache.
+ * <p>
+ * Operations that can be answered from the heap are run on the calling thread and return an already completed future.
+ * Operations that may block, on faulting an element from disk, calling a cache loader or going to the cluster, are run on
+ * the executor given to this view, the returned future completing once they are done.
+ * <p>
+ * Failures are reported through the returned futures, no operation of this view throws.
+ */
+public class AsyncEhcache {
+
+    private final Ehcache cache;
+    private final Executor executor;
+
+    /**
+     * Create an asynchronous view of the given cache.
+     *
+     * @param cache the underlying cache
+     * @param executor the executor running the operations that may block
+     */
+    public AsyncEhcache(Ehcache cache, Executor executor) {
+        if (cache == null || executor == null) {
+            throw new NullPointerException();
+        }
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    /**
+     * Return the underlying cache.
+     *
+     * @return the underlying cache
+     */
+    public Ehcache getCache() {
+        return cache;
+    }
+
+    /**
+     * Get an element from the cache.
+     *
+     * @param key the key of the element
+     * @return a future of the element, or of {@code null} if it is not in the cache
+     * @see Ehcache#get(Object)
+     */
+    public CompletableFuture<Element> getAsync(final Object key) {
+        boolean local;
+        try {
+            local = isLocal(key);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return call(local, new Supplier<Element>() {
+            public Element get() {
+                return cache.get(key);
+            }
+        });
+    }
+
+    /**
+     * Get the elements for the given keys from the cache.
+     * <p>
+     * Elements on the heap are looked up on the calling thread, the others on the executor.
+     *
+     * @param keys the keys of the elements
+     * @return a future of the elements found, by key
+     * @see Ehcache#getAll(Collection)
+     */
+    public CompletableFuture<Map<Object, Element>> getAllAsync(Collection<?> keys) {
+        final List<Object> localKeys = new ArrayList<Object>();
+        final List<Object> remoteKeys = new ArrayList<Object>();
+        try {
+            for (Object key : keys) {
+                if (isLocal(key)) {
+                    localKeys.add(key);
+                } else {
+                    remoteKeys.add(key);
+                }
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+
+        CompletableFuture<Map<Object, Element>> local = call(true, getAll(localKeys));
+        if (remoteKeys.isEmpty()) {
+            return local;
+        }
+        return local.thenCombine(call(false, getAll(remoteKeys)), new BiFunction<Map<Object, Element>, Map<Object, Element>,
+                Map<Object, Element>>() {
+            public Map<Object, Element> apply(Map<Object, Element> localElements, Map<Object, Element> remoteElements) {
+                Map<Object, Element> elements = new HashMap<Object, Element>(localElements);
+                elements.putAll(remoteElements);
+                return elements;
+            }
+        });
+    }
+
+    /**
+     * Put an element in the cache.
+     * <p>
+     * Puts are run on the calling thread, unless the cache is clustered.
+     *
+     * @param element the element to put
+     * @return a future completing once the element has been put
+     * @see Ehcache#put(Element)
+     */
+    public CompletableFuture<Void> putAsync(final Element element) {
+        boolean clustered;
+        try {
+            clustered = isClustered();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return call(!clustered, new Supplier<Void>() {
+            public Void get() {
+                cache.put(element);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Get an element from the cache, loading it if it is not in the cache.
+     *
+     * @param key the key of the element
+     * @param loader the loader to use, or {@code null} for the cache's registered loaders
+     * @param loaderArgument an argument passed to the loader
+     * @return a future of the element, or of {@code null} if it could not be loaded
+     * @see Ehcache#getWithLoader(Object, CacheLoader, Object)
+     */
+    public CompletableFuture<Element> getWithLoaderAsync(final Object key, final CacheLoader loader, final Object loaderArgument) {
+        boolean onHeap;
+        try {
+            onHeap = !isClustered() && cache.isElementInMemory(key);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return call(onHeap, new Supplier<Element>() {
+            public Element get() {
+                return cache.getWithLoader(key, loader, loaderArgument);
+            }
+        });
+    }
+
+    /**
+     * Return {@code true} if looking up the given key will not block, either because its element is on the heap or
+     * because it is nowhere in the cache.
+     */
+    private boolean isLocal(Object key) {
+        return !isClustered() && (cache.isElementInMemory(key) || !cache.isElementOnDisk(key));
+    }
+
+    private boolean isClustered() {
+        return cache.getCacheConfiguration().isTerracottaClustered();
+    }
+
+    private Supplier<Map<Object, Element>> getAll(final Collection<Object> keys) {
+        return new Supplier<Map<Object, Element>>() {
+            public Map<Object, Element> get() {
+                if (keys.isEmpty()) {
+                    return new HashMap<Object, Element>();
+                }
+                Map<Object, Element> elements = cache.getAll(keys);
+                return elements == null ? new HashMap<Object, Element>() : elements;
+            }
+        };
+    }
+
+    private <T> CompletableFuture<T> call(boolean inline, Supplier<T> operation) {
+        try {
+            if (inline) {
+                return CompletableFuture.completedFuture(operation.get());
+            } else {
+                return CompletableFuture.supplyAsync(operation, executor);
+            }
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+}
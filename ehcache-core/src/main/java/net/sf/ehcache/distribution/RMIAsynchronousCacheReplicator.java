@@ -21,13 +21,17 @@ import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.Status;
 
-import java.lang.ref.SoftReference;
 import java.rmi.UnmarshalException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import net.sf.ehcache.distribution.RmiEventMessage.RmiEventType;
+import net.sf.ehcache.util.NamedThreadFactory;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
@@ -51,6 +55,9 @@ import org.slf4j.Logger;
  * of SoftReferences is that the VM (JDK1.5 anyway) will do that rather than grow the heap size to the maximum.
  * The workaround is to either set minimum heap size to the maximum heap size to force heap allocation at start
  * up, or put up with a few lost messages while the heap grows.
+ * <p>
+ * Each batch of messages is sent to all peers in parallel.  The queue can be bounded, in which case notifying threads
+ * wait for room in the queue, and can coalesce messages so that only the latest put or remove of each key is sent.
  *
  * @author Greg Luck
  * @version $Id$
@@ -77,10 +84,25 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
      */
     private final int maximumBatchSize;
 
+    /**
+     * The maximum number of queued messages, 0 for no limit.
+     */
+    private final int maximumQueueSize;
+
+    /**
+     * Whether queued messages are coalesced by key.
+     */
+    private final boolean coalescing;
+
     /**
      * A queue of updates.
      */
-    private final Queue<Object> replicationQueue = new ConcurrentLinkedQueue<Object>();
+    private final ReplicationQueue replicationQueue;
+
+    /**
+     * Sends batches to all but one of the peers, the replication thread sending to the last one.
+     */
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("Replication Sender", true));
 
     /**
      * Constructor for internal and subclass use
@@ -93,6 +115,33 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
             boolean replicateRemovals,
             int replicationInterval,
             int maximumBatchSize) {
+        this(replicatePuts,
+                replicatePutsViaCopy,
+                replicateUpdates,
+                replicateUpdatesViaCopy,
+                replicateRemovals,
+                replicationInterval,
+                maximumBatchSize,
+                0,
+                false);
+    }
+
+    /**
+     * Constructor for internal and subclass use
+     *
+     * @param maximumQueueSize the maximum number of queued messages, 0 for no limit
+     * @param coalescing whether to only replicate the latest put or remove of each key still in the queue
+     */
+    public RMIAsynchronousCacheReplicator(
+            boolean replicatePuts,
+            boolean replicatePutsViaCopy,
+            boolean replicateUpdates,
+            boolean replicateUpdatesViaCopy,
+            boolean replicateRemovals,
+            int replicationInterval,
+            int maximumBatchSize,
+            int maximumQueueSize,
+            boolean coalescing) {
         super(replicatePuts,
                 replicatePutsViaCopy,
                 replicateUpdates,
@@ -100,6 +149,9 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
                 replicateRemovals);
         this.replicationInterval = replicationInterval;
         this.maximumBatchSize = maximumBatchSize;
+        this.maximumQueueSize = maximumQueueSize;
+        this.coalescing = coalescing;
+        this.replicationQueue = new ReplicationQueue(maximumQueueSize, coalescing);
         status = Status.STATUS_ALIVE;
         replicationThread.start();
     }
@@ -273,6 +325,8 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
      * <p>
      * This method checks the state of the replication thread and warns
      * if it has stopped and then discards the message.
+     * <p>
+     * If the queue is bounded and full this waits for the replication thread to make room.
      *
      * @param eventMessage
      */
@@ -280,13 +334,11 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
         if (!replicationThread.isAlive()) {
             LOG.error("CacheEventMessages cannot be added to the replication queue because the replication thread has died.");
         } else {
-            switch (eventMessage.getType()) {
-                case PUT:
-                    replicationQueue.add(new SoftReference(eventMessage));
-                    break;
-                default:
-                    replicationQueue.add(eventMessage);
-                    break;
+            try {
+                replicationQueue.add(eventMessage);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted while waiting for room in the replication queue. The message was discarded.");
             }
         }
     }
@@ -306,26 +358,73 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
      * This method issues warnings for problems that can be fixed with configuration changes.
      */
     private void writeReplicationQueue() {
-        List<EventMessage> eventMessages = extractEventMessages(maximumBatchSize);
+        List<EventMessage> eventMessages = replicationQueue.poll(maximumBatchSize);
 
         if (!eventMessages.isEmpty()) {
-            for (CachePeer cachePeer : listRemoteCachePeers(eventMessages.get(0).getEhcache())) {
+            List<CachePeer> cachePeers = listRemoteCachePeers(eventMessages.get(0).getEhcache());
+            List<Future<?>> sends = new ArrayList<Future<?>>(cachePeers.size());
+            for (int i = 0; i < cachePeers.size() - 1; i++) {
+                sends.add(submitSend(cachePeers.get(i), eventMessages));
+            }
+            if (!cachePeers.isEmpty()) {
+                send(cachePeers.get(cachePeers.size() - 1), eventMessages);
+            }
+            waitFor(sends);
+        }
+    }
+
+    private Future<?> submitSend(final CachePeer cachePeer, final List<EventMessage> eventMessages) {
+        Runnable send = new Runnable() {
+            public void run() {
+                send(cachePeer, eventMessages);
+            }
+        };
+        try {
+            return sendExecutor.submit(send);
+        } catch (RejectedExecutionException e) {
+            send.run();
+            return null;
+        }
+    }
+
+    private static void send(CachePeer cachePeer, List<EventMessage> eventMessages) {
+        try {
+            cachePeer.send(eventMessages);
+        } catch (UnmarshalException e) {
+            String message = e.getMessage();
+            if (message.contains("Read time out") || message.contains("Read timed out")) {
+                LOG.warn("Unable to send message to remote peer due to socket read timeout. Consider increasing" +
+                        " the socketTimeoutMillis setting in the cacheManagerPeerListenerFactory. " +
+                        "Message was: " + message);
+            } else {
+                LOG.debug("Unable to send message to remote peer.  Message was: " + message);
+            }
+        } catch (Throwable t) {
+            LOG.warn("Unable to send message to remote peer.  Message was: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * Waits for the sends to the other peers, so that each peer receives the batches in order.
+     */
+    private static void waitFor(List<Future<?>> sends) {
+        boolean interrupted = false;
+        for (Future<?> send : sends) {
+            while (send != null) {
                 try {
-                    cachePeer.send(eventMessages);
-                } catch (UnmarshalException e) {
-                    String message = e.getMessage();
-                    if (message.contains("Read time out") || message.contains("Read timed out")) {
-                        LOG.warn("Unable to send message to remote peer due to socket read timeout. Consider increasing" +
-                                " the socketTimeoutMillis setting in the cacheManagerPeerListenerFactory. " +
-                                "Message was: " + message);
-                    } else {
-                        LOG.debug("Unable to send message to remote peer.  Message was: " + message);
-                    }
-                } catch (Throwable t) {
-                    LOG.warn("Unable to send message to remote peer.  Message was: " + t.getMessage(), t);
+                    send.get();
+                    send = null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // send failures are logged by the send itself
+                    send = null;
                 }
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void flushReplicationQueue() {
@@ -335,41 +434,39 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
     }
 
     /**
-     * Extracts CacheEventMessages and attempts to get a hard reference to the underlying EventMessage
-     * <p>
-     * If an EventMessage has been invalidated due to SoftReference collection of the Element, it is not
-     * propagated. This only affects puts and updates via copy.
+     * Returns the number of messages awaiting replication.
      *
-     * @param replicationQueueCopy
-     * @return a list of EventMessages which were able to be resolved
+     * @return the replication queue size
      */
-    private List<EventMessage> extractEventMessages(int limit) {
-        List<EventMessage> list = new ArrayList(Math.min(replicationQueue.size(), limit));
-
-        int droppedMessages = 0;
-        
-        while (list.size() < limit) {
-            Object polled = replicationQueue.poll();
-            if (polled == null) {
-                break;
-            } else if (polled instanceof EventMessage) {
-                list.add((EventMessage) polled);
-            } else {
-                EventMessage message = ((SoftReference<EventMessage>) polled).get();
-                if (message == null) {
-                    droppedMessages++;
-                } else {
-                    list.add(message);
-                }
-            }
-        }
-        
-        if (droppedMessages > 0) {
-            LOG.warn(droppedMessages + " messages were discarded on replicate due to reclamation of " +
-                    "SoftReferences by the VM. Consider increasing the maximum heap size and/or setting the " +
-                    "starting heap size to a higher value.");
-        }
-        return list;
+    public int getReplicationQueueSize() {
+        return replicationQueue.size();
+    }
+
+    /**
+     * Returns the number of messages that were not sent because a later message for the same key replaced them.
+     *
+     * @return the number of coalesced messages
+     */
+    public long getCoalescedMessageCount() {
+        return replicationQueue.getCoalescedCount();
+    }
+
+    /**
+     * Returns the number of times a notifying thread had to wait for room in a full replication queue.
+     *
+     * @return the back pressure count
+     */
+    public long getBackPressureCount() {
+        return replicationQueue.getBackPressureCount();
+    }
+
+    /**
+     * Returns the total time notifying threads waited for room in a full replication queue, in milliseconds.
+     *
+     * @return the back pressure time in milliseconds
+     */
+    public long getBackPressureTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(replicationQueue.getBackPressureNanos());
     }
 
     /**
@@ -395,7 +492,9 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
      */
     public final void dispose() {
         status = Status.STATUS_SHUTDOWN;
+        replicationQueue.close();
         flushReplicationQueue();
+        sendExecutor.shutdown();
     }
 
 
@@ -412,7 +511,8 @@ public class RMIAsynchronousCacheReplicator extends RMISynchronousCacheReplicato
         //shutup checkstyle
         super.clone();
         return new RMIAsynchronousCacheReplicator(replicatePuts, replicatePutsViaCopy,
-                replicateUpdates, replicateUpdatesViaCopy, replicateRemovals, replicationInterval, maximumBatchSize);
+                replicateUpdates, replicateUpdatesViaCopy, replicateRemovals, replicationInterval, maximumBatchSize,
+                maximumQueueSize, coalescing);
     }
 
 
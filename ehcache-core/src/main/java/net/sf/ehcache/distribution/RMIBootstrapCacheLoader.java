@@ -16,21 +16,33 @@
 
 package net.sf.ehcache.distribution;
 
+import net.sf.ehcache.Cache;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.bootstrap.BootstrapCacheLoader;
+import net.sf.ehcache.util.NamedThreadFactory;
 
 import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Loads Elements from a random Cache Peer
+ * Loads Elements from Cache Peers.
+ * <p>
+ * The keys are listed by a random peer, then fetched in chunks from up to {@link #getMaximumPeers()} peers in
+ * parallel.  The number of keys in a chunk is adapted to the serialized size of the elements received so far, so that
+ * chunks stay close to the maximum chunk size.
  *
  * @author Greg Luck
  * @version $Id$
@@ -39,6 +51,11 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
 
     private static final int ONE_SECOND = 1000;
 
+    /**
+     * The weight of the latest chunk in the average element size.
+     */
+    private static final double SIZE_SMOOTHING = 0.25;
+
     private static final Logger LOG = LoggerFactory.getLogger(RMIBootstrapCacheLoader.class.getName());
 
     /**
@@ -52,13 +69,30 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
     protected int maximumChunkSizeBytes;
 
     /**
-     * Creates a boostrap cache loader that will work with RMI based distribution
+     * The maximum number of peers to fetch elements from in parallel.
+     */
+    protected int maximumPeers;
+
+    /**
+     * Creates a boostrap cache loader that will work with RMI based distribution, fetching from a single peer
      *
      * @param asynchronous Whether to load asynchronously
      */
     public RMIBootstrapCacheLoader(boolean asynchronous, int maximumChunkSize) {
+        this(asynchronous, maximumChunkSize, 1);
+    }
+
+    /**
+     * Creates a boostrap cache loader that will work with RMI based distribution
+     *
+     * @param asynchronous Whether to load asynchronously
+     * @param maximumChunkSize the maximum serialized size of a chunk of elements
+     * @param maximumPeers the maximum number of peers to fetch elements from in parallel
+     */
+    public RMIBootstrapCacheLoader(boolean asynchronous, int maximumChunkSize, int maximumPeers) {
         this.asynchronous = asynchronous;
         this.maximumChunkSizeBytes = maximumChunkSize;
+        this.maximumPeers = Math.max(1, maximumPeers);
     }
 
 
@@ -117,7 +151,7 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
 
 
     /**
-     * Bootstraps the cache from a random CachePeer. Requests are done in chunks estimated at 5MB Serializable
+     * Bootstraps the cache from the CachePeers. Requests are done in chunks estimated at 5MB Serializable
      * size. This balances memory use on each end and network performance.
      * <p>
      * Bootstrapping requires the establishment of a cluster. This can be instantaneous for manually configued
@@ -134,9 +168,9 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
             LOG.debug("Empty list of cache peers for cache " + cache.getName() + ". No cache peer to bootstrap from.");
             return;
         }
-        Random random = new Random();
-        int randomPeerNumber = random.nextInt(cachePeers.size());
-        CachePeer cachePeer = (CachePeer) cachePeers.get(randomPeerNumber);
+        List<CachePeer> peers = new ArrayList<CachePeer>(cachePeers);
+        Collections.shuffle(peers);
+        CachePeer cachePeer = peers.get(0);
         LOG.debug("Bootstrapping " + cache.getName() + " from " + cachePeer);
 
         try {
@@ -156,27 +190,65 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
                         + cache.getName() + ". Cache peer was " + cachePeer);
                 return;
             }
-            long size = sampleElement.getSerializedSize();
-            int chunkSize = (int) (maximumChunkSizeBytes / size);
 
-            List requestChunk = new ArrayList();
-            for (int i = 0; i < keys.size(); i++) {
-                Serializable serializable = (Serializable) keys.get(i);
-                requestChunk.add(serializable);
-                if (requestChunk.size() == chunkSize) {
-                    fetchAndPutElements(cache, requestChunk, cachePeer);
-                    requestChunk.clear();
-                }
-            }
-            //get leftovers
-            fetchAndPutElements(cache, requestChunk, cachePeer);
-            LOG.debug("Bootstrap of " + cache.getName() + " from " + cachePeer + " finished. "
+            KeyChunks chunks = new KeyChunks(keys, sampleElement.getSerializedSize());
+            fetchFromPeers(cache, peers.subList(0, Math.min(peers.size(), maximumPeers)), chunks);
+            LOG.debug("Bootstrap of " + cache.getName() + " from " + peers.size() + " peers finished. "
                     + keys.size() + " keys requested.");
         } catch (Throwable t) {
             throw new RemoteCacheException("Error bootstrapping from remote peer. Message was: " + t.getMessage(), t);
         }
     }
 
+    /**
+     * Fetches all chunks, one peer per thread.  Chunks that failed on a peer are fetched again from the peers that
+     * did not fail.
+     */
+    private void fetchFromPeers(Ehcache cache, List<CachePeer> peers, KeyChunks chunks) throws Throwable {
+        boolean[] failed = new boolean[peers.size()];
+        Throwable failure = null;
+        ExecutorService executor = null;
+        if (peers.size() > 1) {
+            executor = Executors.newFixedThreadPool(peers.size() - 1,
+                    new NamedThreadFactory("Bootstrap Thread for cache " + cache.getName(), true));
+        }
+        try {
+            List<Future<Void>> fetches = new ArrayList<Future<Void>>();
+            for (CachePeer peer : peers.subList(1, peers.size())) {
+                fetches.add(executor.submit(new ChunkFetcher(cache, peer, chunks)));
+            }
+            try {
+                new ChunkFetcher(cache, peers.get(0), chunks).call();
+            } catch (RemoteException e) {
+                LOG.debug("Bootstrap from " + peers.get(0) + " failed, fetching its chunks from other peers.", e);
+                failed[0] = true;
+                failure = e;
+            }
+            for (int i = 0; i < fetches.size(); i++) {
+                try {
+                    fetches.get(i).get();
+                } catch (ExecutionException e) {
+                    LOG.debug("Bootstrap from " + peers.get(i + 1) + " failed, fetching its chunks from other peers.", e.getCause());
+                    failed[i + 1] = true;
+                    failure = e.getCause();
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+
+        for (int i = 0; i < peers.size() && chunks.hasRemaining(); i++) {
+            if (!failed[i]) {
+                new ChunkFetcher(cache, peers.get(i), chunks).call();
+            }
+        }
+        if (chunks.hasRemaining()) {
+            throw failure;
+        }
+    }
+
     /**
      * Acquires the cache peers for this cache.
      *
@@ -222,14 +294,32 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
      * @throws java.rmi.RemoteException
      */
     protected void fetchAndPutElements(Ehcache cache, List requestChunk, CachePeer cachePeer) throws RemoteException {
+        fetchAndPut(cache, requestChunk, cachePeer);
+    }
+
+    /**
+     * Fetches a chunk of elements and puts them all at once, without notifying the cache replicators.
+     *
+     * @return the elements put
+     */
+    private List<Element> fetchAndPut(Ehcache cache, List requestChunk, CachePeer cachePeer) throws RemoteException {
         List receivedChunk = cachePeer.getElements(requestChunk);
+        List<Element> elements = new ArrayList<Element>(receivedChunk.size());
         for (int i = 0; i < receivedChunk.size(); i++) {
             Element element = (Element) receivedChunk.get(i);
             // element could be expired at the peer
-            if (element != null) {
+            if (element != null && element.getObjectKey() != null) {
+                elements.add(element);
+            }
+        }
+        if (cache instanceof Cache) {
+            ((Cache) cache).putAll(elements, true);
+        } else {
+            for (Element element : elements) {
                 cache.put(element, true);
             }
         }
+        return elements;
     }
 
     /**
@@ -254,13 +344,99 @@ public class RMIBootstrapCacheLoader implements BootstrapCacheLoader, Cloneable
         return maximumChunkSizeBytes;
     }
 
+    /**
+     * Gets the maximum number of peers fetched from in parallel
+     */
+    public int getMaximumPeers() {
+        return maximumPeers;
+    }
+
     /**
      * Clones this loader
      */
     @Override
     public Object clone() throws CloneNotSupportedException {
         //checkstyle
-        return new RMIBootstrapCacheLoader(asynchronous, maximumChunkSizeBytes);
+        return new RMIBootstrapCacheLoader(asynchronous, maximumChunkSizeBytes, maximumPeers);
+    }
+
+    /**
+     * Hands out chunks of keys, sized from the average serialized size of the elements fetched so far.
+     */
+    private final class KeyChunks {
+
+        private final List keys;
+        private final LinkedList<List> failed = new LinkedList<List>();
+        private int next;
+        private double averageSize;
+
+        KeyChunks(List keys, long sampleSize) {
+            this.keys = keys;
+            this.averageSize = Math.max(1, sampleSize);
+        }
+
+        synchronized List next() {
+            if (!failed.isEmpty()) {
+                return failed.removeFirst();
+            }
+            if (next >= keys.size()) {
+                return null;
+            }
+            int chunkSize = (int) Math.max(1, Math.min(keys.size() - next, maximumChunkSizeBytes / averageSize));
+            List chunk = new ArrayList(keys.subList(next, next + chunkSize));
+            next += chunkSize;
+            return chunk;
+        }
+
+        synchronized void observe(long elementSize) {
+            if (elementSize > 0) {
+                averageSize = (1 - SIZE_SMOOTHING) * averageSize + SIZE_SMOOTHING * elementSize;
+            }
+        }
+
+        synchronized void failed(List chunk) {
+            failed.add(chunk);
+        }
+
+        synchronized boolean hasRemaining() {
+            return !failed.isEmpty() || next < keys.size();
+        }
+    }
+
+    /**
+     * Fetches chunks from one peer until there are none left.
+     */
+    private final class ChunkFetcher implements Callable<Void> {
+
+        private final Ehcache cache;
+        private final CachePeer cachePeer;
+        private final KeyChunks chunks;
+
+        ChunkFetcher(Ehcache cache, CachePeer cachePeer, KeyChunks chunks) {
+            this.cache = cache;
+            this.cachePeer = cachePeer;
+            this.chunks = chunks;
+        }
+
+        public Void call() throws RemoteException {
+            for (List chunk = chunks.next(); chunk != null; chunk = chunks.next()) {
+                List<Element> elements;
+                try {
+                    elements = fetchAndPut(cache, chunk, cachePeer);
+                } catch (RemoteException e) {
+                    chunks.failed(chunk);
+                    throw e;
+                } catch (RuntimeException e) {
+                    chunks.failed(chunk);
+                    throw e;
+                }
+                // sampling one element per chunk keeps the size estimate current without serializing every element
+                if (!elements.isEmpty()) {
+                    chunks.observe(elements.get(elements.size() / 2).getSerializedSize());
+                }
+            }
+            return null;
+        }
     }
 
 }
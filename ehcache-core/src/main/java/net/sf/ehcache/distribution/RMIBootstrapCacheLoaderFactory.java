@@ -37,6 +37,16 @@ public class RMIBootstrapCacheLoaderFactory extends BootstrapCacheLoaderFactory<
      */
     public static final String MAXIMUM_CHUNK_SIZE_BYTES = "maximumChunkSizeBytes";
 
+    /**
+     * The property name expected in ehcache.xml for the maximum number of peers to fetch from in parallel
+     */
+    public static final String MAXIMUM_PEERS = "maximumPeers";
+
+    /**
+     * The default maximum number of peers to fetch from in parallel.
+     */
+    protected static final int DEFAULT_MAXIMUM_PEERS = 4;
+
     /**
      * The default maximum serialized size of the elements to request from a remote cache peer during bootstrap.
      */
@@ -65,7 +75,31 @@ public class RMIBootstrapCacheLoaderFactory extends BootstrapCacheLoaderFactory<
     public RMIBootstrapCacheLoader createBootstrapCacheLoader(Properties properties) {
         boolean bootstrapAsynchronously = extractBootstrapAsynchronously(properties);
         int maximumChunkSizeBytes = extractMaximumChunkSizeBytes(properties);
-        return new RMIBootstrapCacheLoader(bootstrapAsynchronously, maximumChunkSizeBytes);
+        int maximumPeers = extractMaximumPeers(properties);
+        return new RMIBootstrapCacheLoader(bootstrapAsynchronously, maximumChunkSizeBytes, maximumPeers);
+    }
+
+    /**
+     *
+     * @param properties the properties passed by the CacheManager, read from the configuration file
+     * @return the maximum number of peers to fetch from in parallel
+     */
+    protected int extractMaximumPeers(Properties properties) {
+        String maximumPeersString = PropertyUtil.extractAndLogProperty(MAXIMUM_PEERS, properties);
+        if (maximumPeersString == null) {
+            return DEFAULT_MAXIMUM_PEERS;
+        }
+        try {
+            int maximumPeers = Integer.parseInt(maximumPeersString);
+            if (maximumPeers < 1) {
+                LOG.warn("Trying to set the maximum number of peers to an unreasonable number. Using the default instead.");
+                return DEFAULT_MAXIMUM_PEERS;
+            }
+            return maximumPeers;
+        } catch (NumberFormatException e) {
+            LOG.warn("Number format exception trying to set the maximum number of peers. Using the default instead.");
+            return DEFAULT_MAXIMUM_PEERS;
+        }
     }
 
     /**
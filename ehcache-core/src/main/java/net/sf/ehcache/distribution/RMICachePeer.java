@@ -218,7 +218,7 @@ public class RMICachePeer extends UnicastRemoteObject implements CachePeer, Remo
         for (int i = 0; i < eventMessages.size(); i++) {
             RmiEventMessage eventMessage = (RmiEventMessage) eventMessages.get(i);
             if (eventMessage.getType() == RmiEventType.PUT) {
-                put(eventMessage.getElement());
+                put(eventMessage.getElement(cache));
             } else if (eventMessage.getType() == RmiEventType.REMOVE) {
                 remove(eventMessage.getSerializableKey());
             } else if (eventMessage.getType() == RmiEventType.REMOVE_ALL) {
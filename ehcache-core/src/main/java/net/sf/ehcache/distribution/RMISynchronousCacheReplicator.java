@@ -20,8 +20,10 @@ import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.Status;
+import net.sf.ehcache.serializer.ElementSerialization;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -143,10 +145,19 @@ public class RMISynchronousCacheReplicator implements CacheReplicator {
      */
     protected static void replicatePutNotification(Ehcache cache, Element element) throws RemoteCacheException {
         List cachePeers = listRemoteCachePeers(cache);
+        // with a cache serializer the element is sent as a message, so that it is only serialized once for all peers
+        List<RmiEventMessage> message = null;
+        if (!ElementSerialization.isJavaSerialization(cache.getCacheConfiguration().getSerializer())) {
+            message = Collections.singletonList(new RmiEventMessage(cache, RmiEventMessage.RmiEventType.PUT, null, element));
+        }
         for (Object cachePeer1 : cachePeers) {
             CachePeer cachePeer = (CachePeer) cachePeer1;
             try {
-                cachePeer.put(element);
+                if (message == null) {
+                    cachePeer.put(element);
+                } else {
+                    cachePeer.send(message);
+                }
             } catch (Throwable t) {
                 LOG.error("Exception on replication of putNotification. " + t.getMessage() + ". Continuing...", t);
             }
@@ -0,0 +1,223 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.distribution;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.ehcache.distribution.RmiEventMessage.RmiEventType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The queue of event messages awaiting asynchronous replication.
+ * <p>
+ * When coalescing, a put or remove message replaces any message for the same key still in the queue, keeping that
+ * message's place in the queue, and a remove all message discards every message queued before it.  Only the latest
+ * event for each key is then sent, which leaves peers in the same state.
+ * <p>
+ * When bounded, adding a message to a full queue blocks until the replication thread has made room for it.  Messages
+ * replacing a queued message never block.
+ * <p>
+ * As in previous versions, put messages are held by {@link SoftReference} so that queued elements can be reclaimed
+ * rather than cause an {@link OutOfMemoryError}.
+ *
+ * @author Ehcache
+ */
+final class ReplicationQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicationQueue.class.getName());
+
+    private final int maximumSize;
+    private final boolean coalescing;
+    private final Map<Object, Object> messages = new LinkedHashMap<Object, Object>();
+
+    private boolean closed;
+    private long coalescedCount;
+    private long backPressureCount;
+    private long backPressureNanos;
+
+    /**
+     * Create a replication queue.
+     *
+     * @param maximumSize the maximum number of queued messages, 0 for no limit
+     * @param coalescing whether to only keep the latest message for each key
+     */
+    ReplicationQueue(int maximumSize, boolean coalescing) {
+        this.maximumSize = maximumSize;
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Add a message to the queue, waiting for room if the queue is full.
+     *
+     * @param message the message
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    synchronized void add(RmiEventMessage message) throws InterruptedException {
+        Object key = coalescingKey(message);
+        if (key != null && messages.containsKey(key)) {
+            coalescedCount++;
+            messages.put(key, reference(message));
+            return;
+        }
+
+        if (isFull()) {
+            backPressureCount++;
+            long start = System.nanoTime();
+            try {
+                while (isFull()) {
+                    wait();
+                }
+            } finally {
+                backPressureNanos += System.nanoTime() - start;
+            }
+        }
+
+        if (message.getType() == RmiEventType.REMOVE_ALL && coalescing) {
+            coalescedCount += messages.size();
+            messages.clear();
+        }
+        messages.put(key == null ? new Object() : key, reference(message));
+    }
+
+    /**
+     * Remove up to {@code limit} messages from the head of the queue.
+     * <p>
+     * Put messages whose element has been reclaimed are dropped, with a warning.
+     *
+     * @param limit the maximum number of messages to remove
+     * @return the messages removed
+     */
+    List<EventMessage> poll(int limit) {
+        List<Object> polled;
+        synchronized (this) {
+            polled = new ArrayList<Object>(Math.min(messages.size(), limit));
+            for (Iterator<Object> it = messages.values().iterator(); it.hasNext() && polled.size() < limit;) {
+                polled.add(it.next());
+                it.remove();
+            }
+            notifyAll();
+        }
+
+        List<EventMessage> list = new ArrayList<EventMessage>(polled.size());
+        int droppedMessages = 0;
+        for (Object o : polled) {
+            if (o instanceof EventMessage) {
+                list.add((EventMessage) o);
+            } else {
+                EventMessage message = ((SoftReference<EventMessage>) o).get();
+                if (message == null) {
+                    droppedMessages++;
+                } else {
+                    list.add(message);
+                }
+            }
+        }
+
+        if (droppedMessages > 0) {
+            LOG.warn(droppedMessages + " messages were discarded on replicate due to reclamation of " +
+                    "SoftReferences by the VM. Consider increasing the maximum heap size and/or setting the " +
+                    "starting heap size to a higher value.");
+        }
+        return list;
+    }
+
+    /**
+     * Stop bounding the queue, releasing any thread waiting for room.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Return {@code true} if no message is queued.
+     *
+     * @return {@code true} if empty
+     */
+    synchronized boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * Return the number of queued messages.
+     *
+     * @return the queue size
+     */
+    synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Return the number of messages that were discarded because a later message replaced them.
+     *
+     * @return the coalesced message count
+     */
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Return the number of times a message had to wait for room in the queue.
+     *
+     * @return the back pressure count
+     */
+    synchronized long getBackPressureCount() {
+        return backPressureCount;
+    }
+
+    /**
+     * Return the total time messages waited for room in the queue, in nanoseconds.
+     *
+     * @return the back pressure time
+     */
+    synchronized long getBackPressureNanos() {
+        return backPressureNanos;
+    }
+
+    private boolean isFull() {
+        return !closed && maximumSize > 0 && messages.size() >= maximumSize;
+    }
+
+    private Object coalescingKey(RmiEventMessage message) {
+        if (!coalescing) {
+            return null;
+        }
+        switch (message.getType()) {
+            case PUT:
+                return message.getElement().getObjectKey();
+            case REMOVE:
+                return message.getSerializableKey();
+            default:
+                return null;
+        }
+    }
+
+    private static Object reference(RmiEventMessage message) {
+        if (message.getType() == RmiEventType.PUT) {
+            return new SoftReference<EventMessage>(message);
+        } else {
+            return message;
+        }
+    }
+}
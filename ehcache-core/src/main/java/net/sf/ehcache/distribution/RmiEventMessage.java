@@ -16,16 +16,30 @@
 
 package net.sf.ehcache.distribution;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+
+import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.serializer.ElementSerialization;
+import net.sf.ehcache.serializer.Serializer;
 
 /**
+ * An event message sent to RMI replication peers.
+ * <p>
+ * When the sending cache is configured with a serializer other than Java serialization, the element of a put event is
+ * written once using that serializer and is decoded by the receiving peer with its own cache's serializer.
  *
  * @author cdennis
  */
 public final class RmiEventMessage extends EventMessage {
 
+    private static final long serialVersionUID = -6838027855576772339L;
+
     /**
      * Enumeration of event types.
      */
@@ -57,6 +71,11 @@ public final class RmiEventMessage extends EventMessage {
      */
     private final Element element;
 
+    /**
+     * The element component as written by the cache's serializer, if that is not Java serialization.
+     */
+    private transient volatile byte[] serializedElement;
+
     /**
      * Full constructor.
      *
@@ -81,9 +100,61 @@ public final class RmiEventMessage extends EventMessage {
     }
 
     /**
-     * @return the element component of the message. null if a REMOVE event
+     * @return the element component of the message. null if a REMOVE event, or if the element was received in the
+     *         form written by a cache serializer
      */
     public final Element getElement() {
         return element;
     }
+
+    /**
+     * Return the element component of the message, decoding it with the given cache's serializer if required.
+     *
+     * @param receiver the cache receiving the message
+     * @return the element component of the message. null if a REMOVE event
+     */
+    Element getElement(Ehcache receiver) {
+        byte[] serialized = serializedElement;
+        if (element != null || serialized == null) {
+            return element;
+        }
+        CacheConfiguration configuration = receiver.getCacheConfiguration();
+        try {
+            return ElementSerialization.deserialize(serialized, configuration.getSerializer(), configuration.getClassLoader());
+        } catch (IOException e) {
+            throw new CacheException("Failed to deserialize replicated element for cache " + receiver.getName(), e);
+        } catch (ClassNotFoundException e) {
+            throw new CacheException("Failed to deserialize replicated element for cache " + receiver.getName(), e);
+        }
+    }
+
+    private byte[] serializeElement() throws IOException {
+        byte[] serialized = serializedElement;
+        if (serialized == null && element != null && getEhcache() != null) {
+            Serializer serializer = getEhcache().getCacheConfiguration().getSerializer();
+            if (!ElementSerialization.isJavaSerialization(serializer)) {
+                serialized = ElementSerialization.serialize(element, serializer).getBytes();
+                serializedElement = serialized;
+            }
+        }
+        return serialized;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        byte[] serialized = serializeElement();
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("type", type);
+        fields.put("element", serialized == null ? element : null);
+        out.writeFields();
+        if (serialized != null) {
+            out.writeObject(serialized);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (type == RmiEventType.PUT && element == null) {
+            serializedElement = (byte[]) in.readObject();
+        }
+    }
 }
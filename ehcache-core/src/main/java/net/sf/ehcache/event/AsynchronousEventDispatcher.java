@@ -0,0 +1,366 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.event;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers event notifications to a listener on background threads.
+ * <p>
+ * Notifications are spread over a number of lanes by key, each lane being served by a single thread, so that the
+ * notifications for a given key are delivered in the order they were dispatched.  Notifications without a key, such
+ * as remove all, are delivered once every notification dispatched before them has been, and before any dispatched
+ * after them.
+ * <p>
+ * Each lane holds a bounded number of pending notifications.  What happens when a lane is full depends on the
+ * {@link OverflowPolicy}.
+ *
+ * @author Ehcache
+ */
+public final class AsynchronousEventDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsynchronousEventDispatcher.class.getName());
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    /**
+     * What to do with a notification dispatched to a full lane.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Wait for room in the lane.
+         */
+        BLOCK,
+
+        /**
+         * Discard the notification.
+         */
+        DROP,
+
+        /**
+         * Replace the latest notification still pending for the same key, if any, otherwise wait for room in the lane.
+         * Notifications are only replaced once the lane is full, so listeners only skip events when falling behind.
+         */
+        COALESCE
+    }
+
+    private final Lane[] lanes;
+    private final int maximumQueueSize;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong listenerNanos = new AtomicLong();
+    private final AtomicLong maximumListenerNanos = new AtomicLong();
+
+    /**
+     * Create a dispatcher and start its threads.
+     *
+     * @param name the prefix of the thread names
+     * @param threads the number of lanes, each served by one thread
+     * @param maximumQueueSize the maximum number of pending notifications per lane
+     * @param overflowPolicy what to do with a notification dispatched to a full lane
+     */
+    public AsynchronousEventDispatcher(String name, int threads, int maximumQueueSize, OverflowPolicy overflowPolicy) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        if (maximumQueueSize < 1) {
+            throw new IllegalArgumentException("maximumQueueSize must be at least 1: " + maximumQueueSize);
+        }
+        this.maximumQueueSize = maximumQueueSize;
+        this.overflowPolicy = overflowPolicy;
+        this.lanes = new Lane[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new Lane();
+            Thread thread = new Thread(lanes[i], name + "-" + i);
+            thread.setDaemon(true);
+            lanes[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Dispatch a notification.
+     *
+     * @param key the key the notification is about, or {@code null} if it is about all keys
+     * @param notification the notification
+     */
+    public void dispatch(Object key, Runnable notification) {
+        try {
+            if (key == null) {
+                Barrier barrier = new Barrier(notification, lanes.length);
+                // lane threads wait on the barriers in the order they're queued, which must be the same on every lane
+                synchronized (lanes) {
+                    for (Lane lane : lanes) {
+                        lane.enqueue(new Pending(barrier));
+                    }
+                }
+            } else {
+                int hash = key.hashCode();
+                hash ^= (hash >>> 16);
+                lanes[(hash & Integer.MAX_VALUE) % lanes.length].enqueue(new Pending(key, notification));
+            }
+        } catch (InterruptedException e) {
+            dropped.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deliver the pending notifications, then stop the threads.
+     */
+    public void dispose() {
+        for (Lane lane : lanes) {
+            lane.close();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Return the number of notifications pending delivery.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Return the number of notifications delivered.
+     *
+     * @return the delivered notification count
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Return the number of notifications discarded because their lane was full.
+     *
+     * @return the dropped notification count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Return the number of notifications replaced by a later notification for the same key.
+     *
+     * @return the coalesced notification count
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Return the number of notifications the listener threw an exception for.
+     *
+     * @return the failed notification count
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Return the average time the listener took to handle a notification, in nanoseconds.
+     *
+     * @return the average listener latency
+     */
+    public long getAverageListenerLatencyNanos() {
+        long count = delivered.get();
+        return count == 0 ? 0 : listenerNanos.get() / count;
+    }
+
+    /**
+     * Return the longest time the listener took to handle a notification, in nanoseconds.
+     *
+     * @return the maximum listener latency
+     */
+    public long getMaximumListenerLatencyNanos() {
+        return maximumListenerNanos.get();
+    }
+
+    private void deliver(Runnable notification) {
+        long start = System.nanoTime();
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            LOG.warn("Cache event listener failed to handle an event", e);
+        } finally {
+            long latency = System.nanoTime() - start;
+            delivered.incrementAndGet();
+            listenerNanos.addAndGet(latency);
+            for (long max = maximumListenerNanos.get(); latency > max; max = maximumListenerNanos.get()) {
+                if (maximumListenerNanos.compareAndSet(max, latency)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * A queue of notifications served by a single thread.
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<Pending> queue = new ArrayDeque<Pending>();
+        private final Map<Object, Pending> latest = new HashMap<Object, Pending>();
+        private Thread thread;
+        private boolean closed;
+
+        synchronized void enqueue(Pending pending) throws InterruptedException {
+            // barriers are never held back, so that they can't wait on a lane held up by another barrier
+            while (pending.barrier == null && !closed && queue.size() >= maximumQueueSize) {
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.COALESCE) {
+                    Pending queued = latest.get(pending.key);
+                    if (queued != null) {
+                        queued.notification = pending.notification;
+                        coalesced.incrementAndGet();
+                        return;
+                    }
+                }
+                wait();
+            }
+
+            queue.add(pending);
+            if (pending.barrier != null) {
+                // nothing queued before a notification about all keys may be replaced by one queued after it
+                latest.clear();
+            } else if (overflowPolicy == OverflowPolicy.COALESCE) {
+                latest.put(pending.key, pending);
+            }
+            notifyAll();
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private synchronized Pending take() throws InterruptedException {
+            while (queue.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                wait();
+            }
+            Pending next = queue.remove();
+            if (next.key != null && latest.get(next.key) == next) {
+                latest.remove(next.key);
+            }
+            notifyAll();
+            return next;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Pending next = take(); next != null; next = take()) {
+                    if (next.barrier != null) {
+                        next.barrier.arrive();
+                    } else {
+                        deliver(next.notification);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A queued notification about a key, or a barrier for a notification about all keys.
+     */
+    private static final class Pending {
+
+        private final Object key;
+        private final Barrier barrier;
+        private Runnable notification;
+
+        Pending(Object key, Runnable notification) {
+            this.key = key;
+            this.barrier = null;
+            this.notification = notification;
+        }
+
+        Pending(Barrier barrier) {
+            this.key = null;
+            this.barrier = barrier;
+            this.notification = null;
+        }
+    }
+
+    /**
+     * A notification delivered once every lane has reached it.
+     */
+    private final class Barrier {
+
+        private final Runnable notification;
+        private final AtomicInteger remaining;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Barrier(Runnable notification, int lanes) {
+            this.notification = notification;
+            this.remaining = new AtomicInteger(lanes);
+        }
+
+        void arrive() throws InterruptedException {
+            if (remaining.decrementAndGet() == 0) {
+                try {
+                    deliver(notification);
+                } finally {
+                    done.countDown();
+                }
+            } else {
+                done.await();
+            }
+        }
+    }
+}
@@ -152,8 +152,7 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                         && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    CacheEventListener listener = listenerWrapper.getListener();
-                    listener.notifyElementRemoved(cache, resolveElement(listener, element, callback));
+                    deliver(listenerWrapper, Event.REMOVED, element, callback);
                 }
             }
         }
@@ -187,9 +186,7 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                         && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    CacheEventListener listener = listenerWrapper.getListener();
-
-                    listener.notifyElementPut(cache, resolveElement(listener, element, callback));
+                    deliver(listenerWrapper, Event.PUT, element, callback);
                 }
             }
         }
@@ -223,9 +220,7 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                         && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    CacheEventListener listener = listenerWrapper.getListener();
-
-                    listener.notifyElementUpdated(cache, resolveElement(listener, element, callback));
+                    deliver(listenerWrapper, Event.UPDATED, element, callback);
                 }
             }
         }
@@ -263,9 +258,7 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                         && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    CacheEventListener listener = listenerWrapper.getListener();
-
-                    listener.notifyElementExpired(cache, resolveElement(listener, element, callback));
+                    deliver(listenerWrapper, Event.EXPIRY, element, callback);
                 }
             }
         }
@@ -310,14 +303,54 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                     && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    CacheEventListener listener = listenerWrapper.getListener();
-
-                    listener.notifyElementEvicted(cache, resolveElement(listener, element, callback));
+                    deliver(listenerWrapper, Event.EVICTED, element, callback);
                 }
             }
         }
      }
 
+    private void deliver(final ListenerWrapper listenerWrapper, final Event event, final Element element,
+                         final ElementCreationCallback callback) {
+        final CacheEventListener listener = listenerWrapper.getListener();
+        AsynchronousEventDispatcher dispatcher = listenerWrapper.getDispatcher();
+        if (dispatcher == null) {
+            deliver(listener, event, resolveElement(listener, element, callback));
+        } else {
+            final Element resolved = resolveElement(listener, element, callback);
+            dispatcher.dispatch(resolved == null ? null : resolved.getObjectKey(), new Runnable() {
+                @Override
+                public void run() {
+                    deliver(listener, event, resolved);
+                }
+            });
+        }
+    }
+
+    private void deliver(CacheEventListener listener, Event event, Element element) {
+        switch (event) {
+            case REMOVED:
+                listener.notifyElementRemoved(cache, element);
+                break;
+            case PUT:
+                listener.notifyElementPut(cache, element);
+                break;
+            case UPDATED:
+                listener.notifyElementUpdated(cache, element);
+                break;
+            case EXPIRY:
+                listener.notifyElementExpired(cache, element);
+                break;
+            case EVICTED:
+                listener.notifyElementEvicted(cache, element);
+                break;
+            case REMOVE_ALL:
+                listener.notifyRemoveAll(cache);
+                break;
+            default:
+                throw new AssertionError(event);
+        }
+    }
+
     private Element resolveElement(final CacheEventListener listener, final Element element, final ElementCreationCallback callback) {
         if (callback != null) {
             return callback.createElement(listener.getClass().getClassLoader());
@@ -338,7 +371,7 @@ public class RegisteredEventListeners {
             for (ListenerWrapper listenerWrapper : cacheEventListeners) {
                 if (listenerWrapper.getScope().shouldDeliver(remoteEvent)
                         && !isCircularNotification(remoteEvent, listenerWrapper.getListener())) {
-                    listenerWrapper.getListener().notifyRemoveAll(cache);
+                    deliver(listenerWrapper, Event.REMOVE_ALL, null, null);
                 }
             }
         }
@@ -382,10 +415,34 @@ public class RegisteredEventListeners {
      * @since 2.0
      */
     public final boolean registerListener(CacheEventListener cacheEventListener, NotificationScope scope) {
+        return registerListener(cacheEventListener, scope, null);
+    }
+
+    /**
+     * Adds a listener to the notification service, its notifications being delivered by the given dispatcher.
+     * <p>
+     * The dispatcher is disposed of when the listener is unregistered or the service disposed.  If the listener was
+     * already added the dispatcher is disposed of straight away.
+     *
+     * @param cacheEventListener The listener to add
+     * @param scope              The notification scope
+     * @param dispatcher         The dispatcher delivering the notifications, {@code null} to deliver them on the
+     *                           thread causing the event
+     * @return true if the listener is being added and was not already added
+     * @since 2.11
+     */
+    public final boolean registerListener(CacheEventListener cacheEventListener, NotificationScope scope,
+                                          AsynchronousEventDispatcher dispatcher) {
         if (cacheEventListener == null) {
+            if (dispatcher != null) {
+                dispatcher.dispose();
+            }
             return false;
         }
-        boolean result = cacheEventListeners.add(new ListenerWrapper(cacheEventListener, scope));
+        boolean result = cacheEventListeners.add(new ListenerWrapper(cacheEventListener, scope, dispatcher));
+        if (!result && dispatcher != null) {
+            dispatcher.dispose();
+        }
         if (result && cacheEventListener instanceof CacheReplicator) {
             this.hasReplicator.set(true);
         }
@@ -425,6 +482,7 @@ public class RegisteredEventListeners {
             ListenerWrapper listenerWrapper = it.next();
             if (listenerWrapper.getListener().equals(cacheEventListener)) {
                 cacheEventListeners.remove(listenerWrapper);
+                listenerWrapper.disposeDispatcher();
                 result = true;
             } else {
                 if (listenerWrapper.getListener() instanceof CacheReplicator) {
@@ -476,6 +534,21 @@ public class RegisteredEventListeners {
         return listenerSet;
     }
 
+    /**
+     * Gets the dispatcher delivering the notifications of the given listener
+     *
+     * @param cacheEventListener the listener
+     * @return the dispatcher, or {@code null} if the listener is not registered or notified synchronously
+     */
+    public final AsynchronousEventDispatcher getEventDispatcher(CacheEventListener cacheEventListener) {
+        for (ListenerWrapper listenerWrapper : cacheEventListeners) {
+            if (listenerWrapper.getListener().equals(cacheEventListener)) {
+                return listenerWrapper.getDispatcher();
+            }
+        }
+        return null;
+    }
+
     /**
      * Tell listeners to dispose themselves.
      * Because this method is only ever called from a synchronized cache method, it does not itself need to be
@@ -483,6 +556,7 @@ public class RegisteredEventListeners {
      */
     public final void dispose() {
         for (ListenerWrapper listenerWrapper : cacheEventListeners) {
+            listenerWrapper.disposeDispatcher();
             listenerWrapper.getListener().dispose();
         }
         cacheEventListeners.clear();
@@ -527,10 +601,12 @@ public class RegisteredEventListeners {
     private static final class ListenerWrapper {
         private final CacheEventListener listener;
         private final NotificationScope scope;
+        private final AsynchronousEventDispatcher dispatcher;
 
-        private ListenerWrapper(CacheEventListener listener, NotificationScope scope) {
+        private ListenerWrapper(CacheEventListener listener, NotificationScope scope, AsynchronousEventDispatcher dispatcher) {
             this.listener = listener;
             this.scope = scope;
+            this.dispatcher = dispatcher;
         }
 
         private CacheEventListener getListener() {
@@ -541,6 +617,16 @@ public class RegisteredEventListeners {
             return this.scope;
         }
 
+        private AsynchronousEventDispatcher getDispatcher() {
+            return this.dispatcher;
+        }
+
+        private void disposeDispatcher() {
+            if (dispatcher != null) {
+                dispatcher.dispose();
+            }
+        }
+
         /**
          * Hash code based on listener
          *
@@ -607,7 +693,7 @@ public class RegisteredEventListeners {
      * Event callback types
      */
     private static enum Event {
-        EVICTED, PUT, EXPIRY, UPDATED, REMOVED;
+        EVICTED, PUT, EXPIRY, UPDATED, REMOVED, REMOVE_ALL;
     }
 
 
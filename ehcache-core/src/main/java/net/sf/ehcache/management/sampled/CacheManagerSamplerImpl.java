@@ -34,6 +34,7 @@ import net.sf.ehcache.search.Results;
 import net.sf.ehcache.search.SearchException;
 import net.sf.ehcache.search.aggregator.Aggregator;
 import net.sf.ehcache.search.expression.Criteria;
+import net.sf.ehcache.search.query.QueryManager;
 import net.sf.ehcache.search.query.QueryManagerBuilder;
 import net.sf.ehcache.statistics.FlatStatistics;
 import net.sf.ehcache.store.StoreQuery;
@@ -52,6 +53,8 @@ public class CacheManagerSamplerImpl implements CacheManagerSampler {
 
     private final CacheManager cacheManager;
 
+    private QueryManager queryManager;
+    private List<Ehcache> queryManagerCaches;
 
     /**
      * Constructor taking the backing {@link CacheManager}
@@ -525,6 +528,21 @@ public class CacheManagerSamplerImpl implements CacheManagerSampler {
         return false;
     }
 
+    /*
+     * The query manager is kept from one query to the next, so that the statements it parsed are reused, and only
+     * rebuilt when the searchable caches change.
+     */
+    private synchronized QueryManager getQueryManager(List<Ehcache> searchableCaches, QueryManagerBuilder qmb) {
+        if (queryManager == null || !searchableCaches.equals(queryManagerCaches)) {
+            for (Ehcache cache : searchableCaches) {
+                qmb.addCache(cache);
+            }
+            queryManager = qmb.build();
+            queryManagerCaches = searchableCaches;
+        }
+        return queryManager;
+    }
+
     /*
      * Ensure limit is not greater than 1000 to avoid OOME's.
      *
@@ -603,25 +621,24 @@ public class CacheManagerSamplerImpl implements CacheManagerSampler {
     * Execute a BMSQL query against the CacheManager and return result grid.
     *
     * @param queryString
-    * @param qmb the QueryManagerBuilder to use for this query
+    * @param qmb the QueryManagerBuilder to use if the searchable caches changed since the last query
     * @return
     * @throws SearchException
     */
     Object[][] executeQuery(String queryString, QueryManagerBuilder qmb) throws SearchException {
-      boolean searchable = false;
+      List<Ehcache> searchableCaches = new ArrayList<Ehcache>();
       for (String cacheName : getCacheNames()) {
             Ehcache cache = cacheManager.getEhcache(cacheName);
             if (cache != null && cache.getCacheConfiguration().getSearchable() != null) {
-                qmb.addCache(cache);
-                searchable = true;
+                searchableCaches.add(cache);
             }
         }
 
-        if (!searchable) {
+        if (searchableCaches.isEmpty()) {
             throw new SearchException("There are no searchable caches");
         }
 
-        Query q = limitResults(qmb.build().createQuery(queryString).end());
+        Query q = limitResults(getQueryManager(searchableCaches, qmb).createQuery(queryString).end());
         StoreQuery sq = (StoreQuery)q;
 
         Set<Attribute<?>> attrs = new HashSet<Attribute<?>>(sq.requestedAttributes());
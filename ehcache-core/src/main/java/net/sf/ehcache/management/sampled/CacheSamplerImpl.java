@@ -29,6 +29,7 @@ import net.sf.ehcache.config.PinningConfiguration;
 import net.sf.ehcache.config.SearchAttribute;
 import net.sf.ehcache.config.TerracottaConfiguration.Consistency;
 import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.statistics.extended.ExtendedStatistics.Statistic;
 import net.sf.ehcache.store.Store;
 import net.sf.ehcache.store.TerracottaStore;
 import net.sf.ehcache.util.CacheTransactionHelper;
@@ -479,6 +480,142 @@ public class CacheSamplerImpl implements CacheSampler, CacheConfigurationListene
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP50GetTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheGetOperation().latency().percentile50());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP90GetTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheGetOperation().latency().percentile90());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP99GetTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheGetOperation().latency().percentile99());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP999GetTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheGetOperation().latency().percentile999());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP50PutTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cachePutOperation().latency().percentile50());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP90PutTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cachePutOperation().latency().percentile90());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP99PutTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cachePutOperation().latency().percentile99());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP999PutTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cachePutOperation().latency().percentile999());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP50RemoveTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheRemoveOperation().latency().percentile50());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP90RemoveTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheRemoveOperation().latency().percentile90());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP99RemoveTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheRemoveOperation().latency().percentile99());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP999RemoveTimeNanos() {
+        return latencyPercentile(cache.getStatistics().cacheRemoveOperation().latency().percentile999());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP50DiskHitTimeNanos() {
+        return latencyPercentile(cache.getStatistics().localDiskHitOperation().latency().percentile50());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP90DiskHitTimeNanos() {
+        return latencyPercentile(cache.getStatistics().localDiskHitOperation().latency().percentile90());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP99DiskHitTimeNanos() {
+        return latencyPercentile(cache.getStatistics().localDiskHitOperation().latency().percentile99());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getP999DiskHitTimeNanos() {
+        return latencyPercentile(cache.getStatistics().localDiskHitOperation().latency().percentile999());
+    }
+
+    private static Long latencyPercentile(Statistic<Long> percentile) {
+        try {
+            return percentile.value();
+        } catch (RuntimeException e) {
+            throw Utils.newPlainException(e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -361,6 +361,118 @@ public interface LegacyCacheStatistics {
      */
     Long getMinGetTimeNanos();
 
+    /**
+     * Return the median of the time taken for a get operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the median of the time taken for a get operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP50GetTimeNanos();
+
+    /**
+     * Return the 90th percentile of the time taken for a get operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 90th percentile of the time taken for a get operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP90GetTimeNanos();
+
+    /**
+     * Return the 99th percentile of the time taken for a get operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99th percentile of the time taken for a get operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP99GetTimeNanos();
+
+    /**
+     * Return the 99.9th percentile of the time taken for a get operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99.9th percentile of the time taken for a get operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP999GetTimeNanos();
+
+    /**
+     * Return the median of the time taken for a put operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the median of the time taken for a put operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP50PutTimeNanos();
+
+    /**
+     * Return the 90th percentile of the time taken for a put operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 90th percentile of the time taken for a put operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP90PutTimeNanos();
+
+    /**
+     * Return the 99th percentile of the time taken for a put operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99th percentile of the time taken for a put operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP99PutTimeNanos();
+
+    /**
+     * Return the 99.9th percentile of the time taken for a put operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99.9th percentile of the time taken for a put operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP999PutTimeNanos();
+
+    /**
+     * Return the median of the time taken for a remove operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the median of the time taken for a remove operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP50RemoveTimeNanos();
+
+    /**
+     * Return the 90th percentile of the time taken for a remove operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 90th percentile of the time taken for a remove operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP90RemoveTimeNanos();
+
+    /**
+     * Return the 99th percentile of the time taken for a remove operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99th percentile of the time taken for a remove operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP99RemoveTimeNanos();
+
+    /**
+     * Return the 99.9th percentile of the time taken for a remove operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99.9th percentile of the time taken for a remove operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP999RemoveTimeNanos();
+
+    /**
+     * Return the median of the time taken for a disk hit (fault) operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the median of the time taken for a disk hit (fault) operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP50DiskHitTimeNanos();
+
+    /**
+     * Return the 90th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 90th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP90DiskHitTimeNanos();
+
+    /**
+     * Return the 99th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP99DiskHitTimeNanos();
+
+    /**
+     * Return the 99.9th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, over the latency window.
+     *
+     * @return the 99.9th percentile of the time taken for a disk hit (fault) operation in the cache in nanoseconds, or {@code null} if no operation was observed
+     */
+    Long getP999DiskHitTimeNanos();
+
     /**
      * Gets the size of the write-behind queue, if any.
      * The value is for all local buckets
@@ -429,6 +429,150 @@ public class SampledCache extends BaseEmitterBean implements SampledCacheMBean,
         return sampledCacheDelegate.getMinGetTimeNanos();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP50GetTimeNanos()
+     */
+    public Long getP50GetTimeNanos() {
+        return sampledCacheDelegate.getP50GetTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP90GetTimeNanos()
+     */
+    public Long getP90GetTimeNanos() {
+        return sampledCacheDelegate.getP90GetTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP99GetTimeNanos()
+     */
+    public Long getP99GetTimeNanos() {
+        return sampledCacheDelegate.getP99GetTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP999GetTimeNanos()
+     */
+    public Long getP999GetTimeNanos() {
+        return sampledCacheDelegate.getP999GetTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP50PutTimeNanos()
+     */
+    public Long getP50PutTimeNanos() {
+        return sampledCacheDelegate.getP50PutTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP90PutTimeNanos()
+     */
+    public Long getP90PutTimeNanos() {
+        return sampledCacheDelegate.getP90PutTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP99PutTimeNanos()
+     */
+    public Long getP99PutTimeNanos() {
+        return sampledCacheDelegate.getP99PutTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP999PutTimeNanos()
+     */
+    public Long getP999PutTimeNanos() {
+        return sampledCacheDelegate.getP999PutTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP50RemoveTimeNanos()
+     */
+    public Long getP50RemoveTimeNanos() {
+        return sampledCacheDelegate.getP50RemoveTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP90RemoveTimeNanos()
+     */
+    public Long getP90RemoveTimeNanos() {
+        return sampledCacheDelegate.getP90RemoveTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP99RemoveTimeNanos()
+     */
+    public Long getP99RemoveTimeNanos() {
+        return sampledCacheDelegate.getP99RemoveTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP999RemoveTimeNanos()
+     */
+    public Long getP999RemoveTimeNanos() {
+        return sampledCacheDelegate.getP999RemoveTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP50DiskHitTimeNanos()
+     */
+    public Long getP50DiskHitTimeNanos() {
+        return sampledCacheDelegate.getP50DiskHitTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP90DiskHitTimeNanos()
+     */
+    public Long getP90DiskHitTimeNanos() {
+        return sampledCacheDelegate.getP90DiskHitTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP99DiskHitTimeNanos()
+     */
+    public Long getP99DiskHitTimeNanos() {
+        return sampledCacheDelegate.getP99DiskHitTimeNanos();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LegacyCacheStatistics#getP999DiskHitTimeNanos()
+     */
+    public Long getP999DiskHitTimeNanos() {
+        return sampledCacheDelegate.getP999DiskHitTimeNanos();
+    }
+
     /**
      * {@inheritDoc}
      *
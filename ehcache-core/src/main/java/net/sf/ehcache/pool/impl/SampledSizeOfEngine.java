@@ -0,0 +1,155 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.pool.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.ehcache.pool.Size;
+import net.sf.ehcache.pool.SizeOfEngine;
+
+/**
+ * A SizeOf engine that only fully sizes a sample of the elements it is asked to size.
+ * <p>
+ * One element in {@code sampleInterval} of each value class is sized by the underlying engine, the others are given the
+ * running average size of the sampled elements of their value class.  The first elements of each class are always
+ * sized, so that the average is meaningful before sampling starts.
+ * <p>
+ * Sizes computed while {@link #sizeFully(Runnable)} runs are always exact, which is how stores reconcile the sizes of
+ * their elements with the pool.
+ *
+ * @author Ehcache
+ */
+public class SampledSizeOfEngine implements SizeOfEngine {
+
+    /**
+     * The number of elements of a class fully sized before sampling starts.
+     */
+    static final int WARMUP_SAMPLES = 16;
+
+    /**
+     * The number of samples the running average is computed over.
+     */
+    private static final int AVERAGE_WINDOW = 256;
+
+    private static final ThreadLocal<Boolean> SIZING_FULLY = new ThreadLocal<Boolean>();
+
+    private final SizeOfEngine delegate;
+    private final int sampleInterval;
+    private final ConcurrentMap<Class<?>, Estimate> estimates = new ConcurrentHashMap<Class<?>, Estimate>();
+
+    /**
+     * Creates a sampling engine over the given engine.
+     *
+     * @param delegate the engine sizing the sampled elements
+     * @param sampleInterval one element in {@code sampleInterval} of each value class is fully sized
+     */
+    public SampledSizeOfEngine(SizeOfEngine delegate, int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1: " + sampleInterval);
+        }
+        this.delegate = delegate;
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Runs the given task, the sampling engines fully sizing every element sized by the task's thread.
+     *
+     * @param task the task
+     */
+    public static void sizeFully(Runnable task) {
+        Boolean previous = SIZING_FULLY.get();
+        SIZING_FULLY.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                SIZING_FULLY.remove();
+            } else {
+                SIZING_FULLY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Size sizeOf(Object key, Object value, Object container) {
+        if (value == null) {
+            return delegate.sizeOf(key, value, container);
+        }
+
+        Estimate estimate = estimates.get(value.getClass());
+        if (estimate == null) {
+            estimate = new Estimate();
+            Estimate racer = estimates.putIfAbsent(value.getClass(), estimate);
+            if (racer != null) {
+                estimate = racer;
+            }
+        }
+
+        if (SIZING_FULLY.get() != null || estimate.shouldSample(sampleInterval)) {
+            Size size = delegate.sizeOf(key, value, container);
+            if (size.isExact()) {
+                estimate.record(size.getCalculated());
+            }
+            return size;
+        } else {
+            return new Size(estimate.average(), true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SizeOfEngine copyWith(int maxDepth, boolean abortWhenMaxDepthExceeded) {
+        return new SampledSizeOfEngine(delegate.copyWith(maxDepth, abortWhenMaxDepthExceeded), sampleInterval);
+    }
+
+    /**
+     * Gets the sample interval
+     *
+     * @return one element in this many of each value class is fully sized
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * The running size estimate of a value class.
+     */
+    private static final class Estimate {
+
+        private final AtomicLong calls = new AtomicLong();
+        private volatile long samples;
+        private volatile double average;
+
+        boolean shouldSample(int interval) {
+            return samples < WARMUP_SAMPLES || calls.incrementAndGet() % interval == 0;
+        }
+
+        synchronized void record(long size) {
+            samples++;
+            average += (size - average) / Math.min(samples, AVERAGE_WINDOW);
+        }
+
+        long average() {
+            return Math.round(average);
+        }
+    }
+}
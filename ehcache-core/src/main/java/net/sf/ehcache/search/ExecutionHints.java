@@ -32,6 +32,9 @@ public class ExecutionHints {
     /**
      * Set desired batch size for search results. This may be used as a safeguard to keep memory overhead fixed,
      * when expecting total number of results to be large.
+     * <p>
+     * For unordered queries without aggregators or group by, local searches then return results evaluated a batch
+     * at a time as they are read, rather than all at once.
      * @param size
      * @return
      */
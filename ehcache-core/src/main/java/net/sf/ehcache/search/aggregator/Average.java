@@ -23,7 +23,7 @@ import net.sf.ehcache.search.Attribute;
  *
  * @author teck
  */
-public class Average implements AggregatorInstance<Double> {
+public class Average implements MergeableAggregatorInstance<Double> {
 
     private final Attribute<?> attribute;
 
@@ -64,6 +64,21 @@ public class Average implements AggregatorInstance<Double> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void merge(AggregatorInstance<Double> partial) throws AggregatorException {
+        Engine other = ((Average) partial).engine;
+        if (other == null) {
+            return;
+        }
+        if (engine == null) {
+            engine = other;
+        } else {
+            engine.merge(other);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -121,6 +136,27 @@ public class Average implements AggregatorInstance<Double> {
          */
         abstract Number result();
 
+        /**
+         * Get the number of values given to this engine.
+         *
+         * @return value count
+         */
+        abstract int count();
+
+        /**
+         * Get the sum of the values given to this engine.
+         *
+         * @return value sum
+         */
+        abstract Number sum();
+
+        /**
+         * Update the engine with the values given to another engine, as their sum and count.
+         *
+         * @param other the other engine
+         */
+        abstract void merge(Engine other);
+
         /**
          * An int based averaging engine.
          */
@@ -145,6 +181,22 @@ public class Average implements AggregatorInstance<Double> {
                 sum += input.intValue();
             }
 
+            @Override
+            int count() {
+                return count;
+            }
+
+            @Override
+            Number sum() {
+                return sum;
+            }
+
+            @Override
+            void merge(Engine other) {
+                count += other.count();
+                sum += other.sum().longValue();
+            }
+
             @Override
             Number result() {
                 return Float.valueOf(((float) sum) / count);
@@ -175,6 +227,22 @@ public class Average implements AggregatorInstance<Double> {
                 sum += input.longValue();
             }
 
+            @Override
+            int count() {
+                return count;
+            }
+
+            @Override
+            Number sum() {
+                return sum;
+            }
+
+            @Override
+            void merge(Engine other) {
+                count += other.count();
+                sum += other.sum().longValue();
+            }
+
             @Override
             Number result() {
                 return Double.valueOf(((double) sum) / count);
@@ -205,6 +273,22 @@ public class Average implements AggregatorInstance<Double> {
                 sum += input.floatValue();
             }
 
+            @Override
+            int count() {
+                return count;
+            }
+
+            @Override
+            Number sum() {
+                return sum;
+            }
+
+            @Override
+            void merge(Engine other) {
+                count += other.count();
+                sum += other.sum().floatValue();
+            }
+
             @Override
             Number result() {
                 return Float.valueOf(sum / count);
@@ -235,6 +319,22 @@ public class Average implements AggregatorInstance<Double> {
                 sum += input.doubleValue();
             }
 
+            @Override
+            int count() {
+                return count;
+            }
+
+            @Override
+            Number sum() {
+                return sum;
+            }
+
+            @Override
+            void merge(Engine other) {
+                count += other.count();
+                sum += other.sum().doubleValue();
+            }
+
             @Override
             Number result() {
                 return Double.valueOf(sum / count);
@@ -24,7 +24,7 @@ import net.sf.ehcache.search.Attribute;
  * @author teck
  * @param <T>
  */
-public class Max<T> implements AggregatorInstance<T> {
+public class Max<T> implements MergeableAggregatorInstance<T> {
 
     private Comparable max;
     private final Attribute<?> attribute;
@@ -71,6 +71,13 @@ public class Max<T> implements AggregatorInstance<T> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void merge(AggregatorInstance<T> partial) throws AggregatorException {
+        accept(((Max<T>) partial).max);
+    }
+
     private static Comparable getComparable(Object o) {
         if (o instanceof Comparable) {
             return (Comparable) o;
@@ -0,0 +1,37 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.aggregator;
+
+/**
+ * An AggregatorInstance whose result can be computed in parts: clones of it, each given some of the inputs, can be merged
+ * back into it.
+ *
+ * @author Ehcache
+ * @param <T>
+ *            the runtime type of aggregation result
+ */
+public interface MergeableAggregatorInstance<T> extends AggregatorInstance<T> {
+
+    /**
+     * Add the inputs given to the given partial aggregator to this aggregator function. The partial aggregator is not to
+     * be used once merged.
+     *
+     * @param partial a clone of this aggregator
+     * @throws AggregatorException if the function cannot be computed, possibly due to unsupported types
+     */
+    void merge(AggregatorInstance<T> partial) throws AggregatorException;
+}
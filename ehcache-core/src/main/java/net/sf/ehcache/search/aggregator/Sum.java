@@ -25,7 +25,7 @@ import net.sf.ehcache.search.Attribute;
  *
  * @author Greg Luck
  */
-public class Sum implements AggregatorInstance<Long> {
+public class Sum implements MergeableAggregatorInstance<Long> {
 
     private final Attribute<?> attribute;
 
@@ -65,6 +65,21 @@ public class Sum implements AggregatorInstance<Long> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void merge(AggregatorInstance<Long> partial) throws AggregatorException {
+        Engine other = ((Sum) partial).engine;
+        if (other == null) {
+            return;
+        }
+        if (engine == null) {
+            engine = other;
+        } else {
+            engine.merge(other);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -120,6 +135,13 @@ public class Sum implements AggregatorInstance<Long> {
          */
         abstract Number result();
 
+        /**
+         * Update the engine with the sum of another engine.
+         *
+         * @param other the other engine
+         */
+        abstract void merge(Engine other);
+
         /**
          * A long based summing engine.
          */
@@ -141,6 +163,11 @@ public class Sum implements AggregatorInstance<Long> {
                 sum += input.longValue();
             }
 
+            @Override
+            void merge(Engine other) {
+                sum += other.result().longValue();
+            }
+
             @Override
             Number result() {
                 return Long.valueOf(sum);
@@ -168,6 +195,11 @@ public class Sum implements AggregatorInstance<Long> {
                 sum += input.floatValue();
             }
 
+            @Override
+            void merge(Engine other) {
+                sum += other.result().floatValue();
+            }
+
             @Override
             Number result() {
                 return Float.valueOf(sum);
@@ -195,6 +227,11 @@ public class Sum implements AggregatorInstance<Long> {
                 sum += input.doubleValue();
             }
 
+            @Override
+            void merge(Engine other) {
+                sum += other.result().doubleValue();
+            }
+
             @Override
             Number result() {
                 return Double.valueOf(sum);
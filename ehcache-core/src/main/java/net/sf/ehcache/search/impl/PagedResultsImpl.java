@@ -0,0 +1,250 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.impl;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.sf.ehcache.search.Result;
+import net.sf.ehcache.search.Results;
+import net.sf.ehcache.search.SearchException;
+
+/**
+ * Results evaluated lazily, a page at a time, so that only one page of results is held in memory at once.
+ * <p>
+ * Each traversal of the results evaluates the query again from the start: iterating over {@link #all()} or calling
+ * {@link #range(int, int)} walks the pages up to the results asked for, and {@link #size()} walks all of them once to
+ * count the results.  Like the iterators of concurrent collections, the results are weakly consistent: changes made to
+ * the cache while they are being read may or may not be seen.
+ *
+ * @author Ehcache
+ */
+public class PagedResultsImpl implements Results {
+
+    private final PageSource source;
+    private final boolean hasKeys;
+    private final boolean hasValues;
+    private final boolean hasAttributes;
+    private volatile int size = -1;
+
+    /**
+     * Constructor
+     *
+     * @param source the source of the pages of results
+     * @param hasKeys whether the results have keys
+     * @param hasValues whether the results have values
+     * @param hasAttributes whether the results have attributes
+     */
+    public PagedResultsImpl(PageSource source, boolean hasKeys, boolean hasValues, boolean hasAttributes) {
+        this.source = source;
+        this.hasKeys = hasKeys;
+        this.hasValues = hasValues;
+        this.hasAttributes = hasAttributes;
+    }
+
+    @Override
+    public String toString() {
+        return "PagedResults(hasKeys=" + hasKeys + ", hasValues=" + hasValues + ", hasAttributes=" + hasAttributes + ")";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void discard() {
+        // nothing held
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The list returned evaluates the query as it is iterated over.  Random access is only efficient in ascending
+     * order.
+     */
+    public List<Result> all() throws SearchException {
+        return new PagedList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Result> range(int start, int length) throws SearchException {
+        if (start < 0) {
+            throw new IllegalArgumentException("start: " + start);
+        }
+
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length);
+        }
+
+        if (length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Result> range = new ArrayList<Result>();
+        int skipped = 0;
+        for (Iterator<List<Result>> pages = source.pages(); pages.hasNext() && range.size() < length;) {
+            List<Result> page = pages.next();
+            if (skipped + page.size() <= start) {
+                skipped += page.size();
+                continue;
+            }
+            int from = Math.max(0, start - skipped);
+            int to = Math.min(page.size(), from + length - range.size());
+            range.addAll(page.subList(from, to));
+            skipped += from;
+        }
+        return Collections.unmodifiableList(range);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The first call evaluates the whole query to count the results.
+     */
+    public int size() {
+        int count = size;
+        if (count < 0) {
+            count = 0;
+            for (Iterator<List<Result>> pages = source.pages(); pages.hasNext();) {
+                count += pages.next().size();
+            }
+            size = count;
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasKeys() {
+        return hasKeys && !isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasValues() {
+        return hasValues && !isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasAttributes() {
+        return hasAttributes && !isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean hasAggregators() {
+        return false;
+    }
+
+    private boolean isEmpty() {
+        int count = size;
+        return count < 0 ? !source.pages().hasNext() : count == 0;
+    }
+
+    /**
+     * A source of results, evaluated a page at a time.
+     */
+    public interface PageSource {
+
+        /**
+         * Evaluate the query from the start.
+         *
+         * @return an iterator over the pages of results, none of which is empty
+         */
+        Iterator<List<Result>> pages();
+    }
+
+    /**
+     * A list view of the results, holding the page last read.
+     */
+    private final class PagedList extends AbstractList<Result> {
+
+        private Iterator<List<Result>> pages;
+        private List<Result> page = Collections.emptyList();
+        private int pageStart;
+
+        @Override
+        public Result get(int index) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            if (pages == null || index < pageStart) {
+                pages = source.pages();
+                page = Collections.emptyList();
+                pageStart = 0;
+            }
+            while (index >= pageStart + page.size()) {
+                if (!pages.hasNext()) {
+                    throw new IndexOutOfBoundsException("index: " + index);
+                }
+                pageStart += page.size();
+                page = pages.next();
+            }
+            return page.get(index - pageStart);
+        }
+
+        @Override
+        public int size() {
+            return PagedResultsImpl.this.size();
+        }
+
+        @Override
+        public Iterator<Result> iterator() {
+            return new ResultIterator(source.pages());
+        }
+    }
+
+    /**
+     * An iterator over the results, reading the pages as it goes.
+     */
+    private static final class ResultIterator implements Iterator<Result> {
+
+        private final Iterator<List<Result>> pages;
+        private Iterator<Result> page = Collections.<Result>emptyList().iterator();
+
+        private ResultIterator(Iterator<List<Result>> pages) {
+            this.pages = pages;
+        }
+
+        public boolean hasNext() {
+            while (!page.hasNext() && pages.hasNext()) {
+                page = pages.next().iterator();
+            }
+            return page.hasNext();
+        }
+
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.query;
+
+import net.sf.ehcache.search.Query;
+import net.sf.ehcache.search.SearchException;
+
+/**
+ * A search statement parsed once, and executed any number of times with different parameter values.
+ * <p>
+ * Parameters stand for literal values in the statement's criteria, either positional, written {@code ?} and
+ * numbered from 1 in the order they appear, or named, written {@code :name}.  For instance
+ * {@code select key from employees where (age > ? and dept = :dept)}.  The values bound are used as they are, so
+ * they should be of the type of the attribute they are compared with.
+ * <p>
+ * A prepared query holds the values bound to it, so it should not be shared between threads.  Preparing the same
+ * statement again is cheap, the parsed statement being cached by the query manager.
+ *
+ * @author Ehcache
+ */
+public interface PreparedQuery {
+
+    /**
+     * Returns the statement this query was prepared from.
+     *
+     * @return the statement
+     */
+    String getStatement();
+
+    /**
+     * Returns the number of positional parameters of the statement.
+     *
+     * @return the positional parameter count
+     */
+    int getParameterCount();
+
+    /**
+     * Binds a value to a positional parameter.
+     *
+     * @param index the position of the parameter, starting at 1
+     * @param value the value
+     * @return this prepared query
+     * @throws SearchException if the statement has no such parameter
+     */
+    PreparedQuery setParameter(int index, Object value) throws SearchException;
+
+    /**
+     * Binds a value to a named parameter.
+     *
+     * @param name the name of the parameter, without the leading colon
+     * @param value the value
+     * @return this prepared query
+     * @throws SearchException if the statement has no such parameter
+     */
+    PreparedQuery setParameter(String name, Object value) throws SearchException;
+
+    /**
+     * Unbinds the values of all the parameters.
+     *
+     * @return this prepared query
+     */
+    PreparedQuery clearParameters();
+
+    /**
+     * Returns a new {@link Query} for the statement, with the values currently bound to its parameters.
+     *
+     * @return a new query, not yet ended
+     * @throws SearchException if a parameter is not bound
+     */
+    Query createQuery() throws SearchException;
+}
@@ -39,4 +39,15 @@ public interface QueryManager {
      * @throws CacheException if the cache could not be found or if a parse error occurs
      */
     Query createQuery(String statement) throws CacheException;
+
+    /**
+     * Parses a {@link java.lang.String String} statement expressing an Ehcache Search query, possibly with parameters,
+     * and returns a {@link net.sf.ehcache.search.query.PreparedQuery PreparedQuery} creating queries for the cache
+     * specified in the statement.
+     *
+     * @param statement a String expressing an Ehcache Search query
+     * @return a {@link net.sf.ehcache.search.query.PreparedQuery PreparedQuery} tied to the cache specified in the statement
+     * @throws CacheException if the cache could not be found or if a parse error occurs
+     */
+    PreparedQuery prepareQuery(String statement) throws CacheException;
 }
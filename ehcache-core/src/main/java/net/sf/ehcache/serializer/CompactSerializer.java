@@ -0,0 +1,225 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A serializer with compact encodings for common key and value types, falling back to Java serialization.
+ * <p>
+ * {@code null}, {@code String}, {@code byte[]} and the boxed primitive types are written as a one byte tag followed by
+ * their raw value.  Further classes can be registered along with a dedicated serializer, instances of a registered
+ * class are then written as the class' registration number followed by the output of its serializer.  Registration
+ * numbers are assigned in registration order, so every party reading the serialized form must register the same
+ * classes in the same order.  All other objects are written using Java serialization.
+ * <p>
+ * Classes can be registered by subclassing this serializer and registering them in the subclass constructor, the
+ * subclass can then be configured as a cache's serializer.
+ */
+public class CompactSerializer implements Serializer {
+
+    private static final long serialVersionUID = 6093218815617207431L;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int NULL = 0;
+    private static final int JAVA = 1;
+    private static final int STRING = 2;
+    private static final int BYTES = 3;
+    private static final int INTEGER = 4;
+    private static final int LONG = 5;
+    private static final int SHORT = 6;
+    private static final int BYTE = 7;
+    private static final int CHARACTER = 8;
+    private static final int BOOLEAN = 9;
+    private static final int FLOAT = 10;
+    private static final int DOUBLE = 11;
+    private static final int REGISTERED = 12;
+
+    private static final Map<Class<?>, Integer> BUILT_IN_TAGS = new HashMap<Class<?>, Integer>();
+
+    static {
+        BUILT_IN_TAGS.put(String.class, STRING);
+        BUILT_IN_TAGS.put(byte[].class, BYTES);
+        BUILT_IN_TAGS.put(Integer.class, INTEGER);
+        BUILT_IN_TAGS.put(Long.class, LONG);
+        BUILT_IN_TAGS.put(Short.class, SHORT);
+        BUILT_IN_TAGS.put(Byte.class, BYTE);
+        BUILT_IN_TAGS.put(Character.class, CHARACTER);
+        BUILT_IN_TAGS.put(Boolean.class, BOOLEAN);
+        BUILT_IN_TAGS.put(Float.class, FLOAT);
+        BUILT_IN_TAGS.put(Double.class, DOUBLE);
+    }
+
+    private volatile Map<Class<?>, Integer> registrationNumbers = new HashMap<Class<?>, Integer>();
+    private volatile List<Serializer> registeredSerializers = new ArrayList<Serializer>();
+
+    /**
+     * Register a class to be written with the given serializer.
+     * <p>
+     * Only instances of exactly the given class use the registration, instances of subclasses do not.
+     *
+     * @param type the class to register
+     * @param serializer the serializer used for instances of the class
+     * @throws IllegalArgumentException if the class is already registered or has a built-in encoding
+     */
+    public final synchronized void register(Class<?> type, Serializer serializer) throws IllegalArgumentException {
+        if (BUILT_IN_TAGS.containsKey(type) || registrationNumbers.containsKey(type)) {
+            throw new IllegalArgumentException("Class " + type.getName() + " is already registered");
+        }
+        Map<Class<?>, Integer> numbers = new HashMap<Class<?>, Integer>(registrationNumbers);
+        List<Serializer> serializers = new ArrayList<Serializer>(registeredSerializers);
+        numbers.put(type, serializers.size());
+        serializers.add(serializer);
+        registeredSerializers = serializers;
+        registrationNumbers = numbers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(Object object, DataOutput out) throws IOException {
+        if (object == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Integer tag = BUILT_IN_TAGS.get(object.getClass());
+        if (tag != null) {
+            out.writeByte(tag);
+            writeBuiltIn(tag, object, out);
+            return;
+        }
+
+        Integer number = registrationNumbers.get(object.getClass());
+        if (number != null) {
+            out.writeByte(REGISTERED);
+            out.writeInt(number);
+            registeredSerializers.get(number).write(object, out);
+        } else {
+            byte[] bytes = JavaSerializer.serialize(object);
+            out.writeByte(JAVA);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeBuiltIn(int tag, Object object, DataOutput out) throws IOException {
+        switch (tag) {
+            case STRING:
+                writeBytes(((String) object).getBytes(UTF8), out);
+                break;
+            case BYTES:
+                writeBytes((byte[]) object, out);
+                break;
+            case INTEGER:
+                out.writeInt((Integer) object);
+                break;
+            case LONG:
+                out.writeLong((Long) object);
+                break;
+            case SHORT:
+                out.writeShort((Short) object);
+                break;
+            case BYTE:
+                out.writeByte((Byte) object);
+                break;
+            case CHARACTER:
+                out.writeChar((Character) object);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) object);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) object);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) object);
+                break;
+            default:
+                throw new AssertionError(tag);
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object read(DataInput in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case JAVA:
+                byte[] serialized = readBytes(in);
+                return JavaSerializer.deserialize(serialized, 0, serialized.length, loader);
+            case REGISTERED:
+                int number = in.readInt();
+                List<Serializer> serializers = registeredSerializers;
+                if (number < 0 || number >= serializers.size()) {
+                    throw new IOException("No class registered under number " + number);
+                }
+                return serializers.get(number).read(in, loader);
+            default:
+                return readBuiltIn(tag, in);
+        }
+    }
+
+    private static Object readBuiltIn(int tag, DataInput in) throws IOException {
+        switch (tag) {
+            case STRING:
+                return new String(readBytes(in), UTF8);
+            case BYTES:
+                return readBytes(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case BOOLEAN:
+                return in.readBoolean();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            default:
+                throw new IOException("Unknown serialized type " + tag);
+        }
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
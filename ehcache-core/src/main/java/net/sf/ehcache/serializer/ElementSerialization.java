@@ -0,0 +1,164 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.ElementIdHelper;
+import net.sf.ehcache.util.MemoryEfficientByteArrayOutputStream;
+
+/**
+ * Writes whole elements using a {@link Serializer} for their key and value.
+ * <p>
+ * With a {@link JavaSerializer} elements are written as a plain Java serialization stream of the element, as in previous
+ * versions.  With any other serializer they are written as a format byte, the element metadata, then the key and
+ * value as written by the serializer.  Since a Java serialization stream always starts with {@code 0xACED} both forms
+ * can be told apart when reading.
+ */
+public final class ElementSerialization {
+
+    private static final int FORMAT = 1;
+
+    private static final int ESTIMATED_SIZE = 512;
+
+    private static final byte STREAM_MAGIC_HIGH = (byte) 0xAC;
+    private static final byte STREAM_MAGIC_LOW = (byte) 0xED;
+
+    private ElementSerialization() {
+        // static helper
+    }
+
+    /**
+     * Return {@code true} if the given serializer writes elements in the Java serialization form.
+     *
+     * @param serializer the serializer
+     * @return {@code true} for Java serialization
+     */
+    public static boolean isJavaSerialization(Serializer serializer) {
+        return serializer == null || serializer instanceof JavaSerializer;
+    }
+
+    /**
+     * Serialize the given element.
+     *
+     * @param element the element to serialize
+     * @param serializer the serializer for the element's key and value
+     * @return a stream holding the serialized element
+     * @throws IOException if the element cannot be serialized
+     */
+    public static MemoryEfficientByteArrayOutputStream serialize(Element element, Serializer serializer) throws IOException {
+        if (isJavaSerialization(serializer)) {
+            return MemoryEfficientByteArrayOutputStream.serialize(element);
+        }
+        MemoryEfficientByteArrayOutputStream bout = new MemoryEfficientByteArrayOutputStream(ESTIMATED_SIZE);
+        DataOutputStream out = new DataOutputStream(bout);
+        write(element, serializer, out);
+        out.flush();
+        return bout;
+    }
+
+    /**
+     * Deserialize an element from the given bytes, as written by {@link #serialize(Element, Serializer)}.
+     *
+     * @param bytes the serialized element
+     * @param serializer the serializer for the element's key and value
+     * @param loader the class loader used to resolve classes
+     * @return the element
+     * @throws IOException if the element cannot be read
+     * @throws ClassNotFoundException if a class cannot be resolved
+     */
+    public static Element deserialize(byte[] bytes, Serializer serializer, ClassLoader loader)
+            throws IOException, ClassNotFoundException {
+        if (bytes.length > 1 && bytes[0] == STREAM_MAGIC_HIGH && bytes[1] == STREAM_MAGIC_LOW) {
+            return (Element) JavaSerializer.deserialize(bytes, 0, bytes.length, loader);
+        }
+        return read(serializer, new DataInputStream(new ByteArrayInputStream(bytes)), loader);
+    }
+
+    /**
+     * Write the given element, its key and value being written by the given serializer.
+     *
+     * @param element the element to write
+     * @param serializer the serializer for the element's key and value
+     * @param out the output to write to
+     * @throws IOException if the element cannot be written
+     */
+    public static void write(Element element, Serializer serializer, DataOutput out) throws IOException {
+        out.writeByte(FORMAT);
+        out.writeLong(element.getVersion());
+        out.writeLong(element.getHitCount());
+        out.writeBoolean(element.usesCacheDefaultLifespan());
+        out.writeInt(element.getTimeToLive());
+        out.writeInt(element.getTimeToIdle());
+        out.writeLong(element.getCreationTime());
+        out.writeLong(element.getLastAccessTime());
+        out.writeLong(element.getLastUpdateTime());
+        out.writeBoolean(ElementIdHelper.hasId(element));
+        if (ElementIdHelper.hasId(element)) {
+            out.writeLong(ElementIdHelper.getId(element));
+        }
+        serializer.write(element.getObjectKey(), out);
+        serializer.write(element.getObjectValue(), out);
+    }
+
+    /**
+     * Read an element written by {@link #write(Element, Serializer, DataOutput)}.
+     *
+     * @param serializer the serializer for the element's key and value
+     * @param in the input to read from
+     * @param loader the class loader used to resolve classes
+     * @return the element
+     * @throws IOException if the element cannot be read
+     * @throws ClassNotFoundException if a class cannot be resolved
+     */
+    public static Element read(Serializer serializer, DataInput in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        int format = in.readUnsignedByte();
+        if (format != FORMAT) {
+            throw new IOException("Unknown serialized element format " + format);
+        }
+        long version = in.readLong();
+        long hitCount = in.readLong();
+        boolean cacheDefaultLifespan = in.readBoolean();
+        int timeToLive = in.readInt();
+        int timeToIdle = in.readInt();
+        long creationTime = in.readLong();
+        long lastAccessTime = in.readLong();
+        long lastUpdateTime = in.readLong();
+        long id = in.readBoolean() ? in.readLong() : 0;
+        Object key = serializer.read(in, loader);
+        Object value = serializer.read(in, loader);
+
+        Element element;
+        if (cacheDefaultLifespan) {
+            element = new Element(key, value, version, creationTime, lastAccessTime, hitCount, true,
+                    Integer.MIN_VALUE, Integer.MIN_VALUE, lastUpdateTime);
+        } else {
+            element = new Element(key, value, version, creationTime, lastAccessTime, hitCount, false,
+                    timeToLive, timeToIdle, lastUpdateTime);
+        }
+        if (id != 0) {
+            ElementIdHelper.setId(element, id);
+        }
+        return element;
+    }
+}
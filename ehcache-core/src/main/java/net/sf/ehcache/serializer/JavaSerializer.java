@@ -0,0 +1,96 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import net.sf.ehcache.util.MemoryEfficientByteArrayOutputStream;
+import net.sf.ehcache.util.PreferredLoaderObjectInputStream;
+
+/**
+ * The default serializer, writing objects with Java serialization.
+ * <p>
+ * Each object is written as a length prefixed Java serialization stream.  Caches using this serializer keep the disk
+ * store and RMI replication formats of previous versions.
+ */
+public final class JavaSerializer implements Serializer {
+
+    private static final long serialVersionUID = -4512479330232370335L;
+
+    private static final int ESTIMATED_SIZE = 128;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(Object object, DataOutput out) throws IOException {
+        byte[] bytes = serialize(object);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object read(DataInput in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return deserialize(bytes, 0, bytes.length, loader);
+    }
+
+    /**
+     * Serialize the given object to a Java serialization stream.
+     *
+     * @param object the object to serialize
+     * @return the serialized form
+     * @throws IOException if the object cannot be serialized
+     */
+    static byte[] serialize(Object object) throws IOException {
+        MemoryEfficientByteArrayOutputStream bout = new MemoryEfficientByteArrayOutputStream(ESTIMATED_SIZE);
+        ObjectOutputStream oos = new ObjectOutputStream(bout);
+        try {
+            oos.writeObject(object);
+        } finally {
+            oos.close();
+        }
+        return bout.getBytes();
+    }
+
+    /**
+     * Read an object from the given Java serialization stream.
+     *
+     * @param bytes the buffer holding the stream
+     * @param offset the offset of the stream in the buffer
+     * @param length the length of the stream
+     * @param loader the class loader used to resolve classes
+     * @return the deserialized object
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a class cannot be resolved
+     */
+    static Object deserialize(byte[] bytes, int offset, int length, ClassLoader loader) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new PreferredLoaderObjectInputStream(new ByteArrayInputStream(bytes, offset, length), loader);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Turns the keys and values of a cache into bytes and back.
+ * <p>
+ * A cache's serializer is used to write elements to the disk store, by the default serialization based copy strategy
+ * and to ship elements to RMI replication peers.  Implementations must be thread safe, must read back exactly the
+ * bytes they wrote, and must be able to write {@code null}.
+ *
+ * @see net.sf.ehcache.config.SerializerConfiguration
+ */
+public interface Serializer extends Serializable {
+
+    /**
+     * Write the given object.
+     *
+     * @param object the object to write, may be {@code null}
+     * @param out the output to write to
+     * @throws IOException if the object cannot be written
+     */
+    void write(Object object, DataOutput out) throws IOException;
+
+    /**
+     * Read back an object written by {@link #write(Object, DataOutput)}.
+     *
+     * @param in the input to read from
+     * @param loader the class loader used to resolve classes
+     * @return the object read
+     * @throws IOException if the object cannot be read
+     * @throws ClassNotFoundException if the class of the object cannot be resolved
+     */
+    Object read(DataInput in, ClassLoader loader) throws IOException, ClassNotFoundException;
+}
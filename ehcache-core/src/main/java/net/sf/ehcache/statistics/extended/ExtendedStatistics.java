@@ -448,6 +448,36 @@ public interface ExtendedStatistics {
          * @return Average observed latency. NULL if no operation was observed.
          */
         Statistic<Double> average();
+
+        /**
+         * Median observed latency.
+         * <p>
+         * Percentiles are computed over the same window as the average, and are accurate to within about 3%.
+         *
+         * @return Median observed latency. NULL if no operation was observed.
+         */
+        Statistic<Long> percentile50();
+
+        /**
+         * 90th percentile of the observed latencies.
+         *
+         * @return 90th percentile latency. NULL if no operation was observed.
+         */
+        Statistic<Long> percentile90();
+
+        /**
+         * 99th percentile of the observed latencies.
+         *
+         * @return 99th percentile latency. NULL if no operation was observed.
+         */
+        Statistic<Long> percentile99();
+
+        /**
+         * 99.9th percentile of the observed latencies.
+         *
+         * @return 99.9th percentile latency. NULL if no operation was observed.
+         */
+        Statistic<Long> percentile999();
     }
 
     /**
@@ -0,0 +1,182 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.statistics.extended;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.terracotta.statistics.Time;
+import org.terracotta.statistics.ValueStatistic;
+import org.terracotta.statistics.observer.ChainedEventObserver;
+
+/**
+ * A moving window histogram of latencies, answering percentile queries.
+ * <p>
+ * Latencies are counted in log-linear buckets: every power of two range is split into 32 equal buckets, so a reported
+ * percentile is at most about 3% above the actual latency.  Recording a latency is a single atomic increment.  The
+ * window is covered by two half window intervals, the older one being cleared and reused once a new interval starts.
+ *
+ * @author Ehcache
+ */
+class LatencyHistogram implements ChainedEventObserver {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_SHIFT = 40 - SUB_BUCKET_BITS;
+    private static final int BUCKETS = (MAXIMUM_SHIFT + 2) * SUB_BUCKETS;
+
+    private final Interval[] intervals = {new Interval(), new Interval()};
+    private volatile Interval current;
+    private volatile Interval previous;
+    private volatile long intervalNanos;
+
+    /**
+     * Create a histogram over the given window.
+     *
+     * @param window the window length
+     * @param unit the window unit
+     */
+    LatencyHistogram(long window, TimeUnit unit) {
+        setWindow(window, unit);
+    }
+
+    /**
+     * Sets the window.
+     *
+     * @param window the window length
+     * @param unit the window unit
+     */
+    void setWindow(long window, TimeUnit unit) {
+        this.intervalNanos = Math.max(1, unit.toNanos(window) / 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void event(long time, long... parameters) {
+        current(time).counts.incrementAndGet(index(parameters[0]));
+    }
+
+    /**
+     * Return the latency below which the given fraction of the latencies in the window fall.
+     *
+     * @param quantile the fraction, between 0 and 1
+     * @return the latency, or {@code null} if no latency was recorded in the window
+     */
+    Long percentile(double quantile) {
+        Interval latest = current(Time.time());
+        Interval older = previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latest.counts.get(i) + (older == null ? 0 : older.counts.get(i));
+            total += counts[i];
+        }
+        if (total == 0) {
+            return null;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(BUCKETS - 1);
+    }
+
+    /**
+     * Return a statistic reading the given percentile of this histogram.
+     *
+     * @param quantile the fraction, between 0 and 1
+     * @return the percentile statistic
+     */
+    ValueStatistic<Long> percentileStatistic(final double quantile) {
+        return new ValueStatistic<Long>() {
+            @Override
+            public Long value() {
+                return percentile(quantile);
+            }
+        };
+    }
+
+    private Interval current(long time) {
+        Interval interval = current;
+        if (interval != null && time - interval.start < intervalNanos) {
+            return interval;
+        }
+        synchronized (this) {
+            interval = current;
+            if (interval != null && time - interval.start < intervalNanos) {
+                return interval;
+            }
+            Interval next = interval == intervals[0] ? intervals[1] : intervals[0];
+            if (interval != null && time - interval.start < 2 * intervalNanos) {
+                previous = interval;
+            } else {
+                previous = null;
+            }
+            next.reset(time);
+            current = next;
+            return next;
+        }
+    }
+
+    /**
+     * Return the bucket counting the given latency.
+     */
+    static int index(long latency) {
+        if (latency < SUB_BUCKETS) {
+            return (int) Math.max(0, latency);
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(latency) - SUB_BUCKET_BITS;
+        if (shift > MAXIMUM_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((latency >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Return the highest latency counted by the given bucket.
+     */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * The latencies recorded over half a window.
+     */
+    private static final class Interval {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private volatile long start;
+
+        void reset(long time) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            start = time;
+        }
+    }
+}
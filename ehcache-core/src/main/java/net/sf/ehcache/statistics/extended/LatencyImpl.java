@@ -42,9 +42,14 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
     private final SourceStatistic<ChainedOperationObserver<T>> source;
     private final LatencySampling<T> latencySampler;
     private final EventParameterSimpleMovingAverage average;
+    private final LatencyHistogram histogram;
     private final StatisticImpl<Long> minimumStatistic;
     private final StatisticImpl<Long> maximumStatistic;
     private final StatisticImpl<Double> averageStatistic;
+    private final StatisticImpl<Long> percentile50Statistic;
+    private final StatisticImpl<Long> percentile90Statistic;
+    private final StatisticImpl<Long> percentile99Statistic;
+    private final StatisticImpl<Long> percentile999Statistic;
 
     private boolean active = false;
     private long touchTimestamp = -1;
@@ -65,8 +70,14 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
         this.minimumStatistic = new StatisticImpl<Long>(average.minimumStatistic(), executor, historySize, historyNanos);
         this.maximumStatistic = new StatisticImpl<Long>(average.maximumStatistic(), executor, historySize, historyNanos);
         this.averageStatistic = new StatisticImpl<Double>(average.averageStatistic(), executor, historySize, historyNanos);
+        this.histogram = new LatencyHistogram(averageNanos, TimeUnit.NANOSECONDS);
+        this.percentile50Statistic = new StatisticImpl<Long>(histogram.percentileStatistic(0.5), executor, historySize, historyNanos);
+        this.percentile90Statistic = new StatisticImpl<Long>(histogram.percentileStatistic(0.9), executor, historySize, historyNanos);
+        this.percentile99Statistic = new StatisticImpl<Long>(histogram.percentileStatistic(0.99), executor, historySize, historyNanos);
+        this.percentile999Statistic = new StatisticImpl<Long>(histogram.percentileStatistic(0.999), executor, historySize, historyNanos);
         this.latencySampler = new LatencySampling(targets, 1.0);
         latencySampler.addDerivedStatistic(average);
+        latencySampler.addDerivedStatistic(histogram);
         this.source = statistic;
     }
 
@@ -79,6 +90,10 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
             minimumStatistic.startSampling();
             maximumStatistic.startSampling();
             averageStatistic.startSampling();
+            percentile50Statistic.startSampling();
+            percentile90Statistic.startSampling();
+            percentile99Statistic.startSampling();
+            percentile999Statistic.startSampling();
             active = true;
         }
     }
@@ -106,6 +121,38 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
         return averageStatistic;
     }
 
+    /**
+     * Get the median.
+     */
+    @Override
+    public Statistic<Long> percentile50() {
+        return percentile50Statistic;
+    }
+
+    /**
+     * Get the 90th percentile.
+     */
+    @Override
+    public Statistic<Long> percentile90() {
+        return percentile90Statistic;
+    }
+
+    /**
+     * Get the 99th percentile.
+     */
+    @Override
+    public Statistic<Long> percentile99() {
+        return percentile99Statistic;
+    }
+
+    /**
+     * Get the 99.9th percentile.
+     */
+    @Override
+    public Statistic<Long> percentile999() {
+        return percentile999Statistic;
+    }
+
     private synchronized void touch() {
         touchTimestamp = Time.absoluteTime();
         start();
@@ -124,6 +171,10 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
                 minimumStatistic.stopSampling();
                 maximumStatistic.stopSampling();
                 averageStatistic.stopSampling();
+                percentile50Statistic.stopSampling();
+                percentile90Statistic.stopSampling();
+                percentile99Statistic.stopSampling();
+                percentile999Statistic.stopSampling();
                 active = false;
             }
             return true;
@@ -139,6 +190,7 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
      */
     void setWindow(long averageNanos) {
         average.setWindow(averageNanos, TimeUnit.NANOSECONDS);
+        histogram.setWindow(averageNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -151,6 +203,10 @@ class LatencyImpl<T extends Enum<T>> implements Latency {
         minimumStatistic.setHistory(historySize, historyNanos);
         maximumStatistic.setHistory(historySize, historyNanos);
         averageStatistic.setHistory(historySize, historyNanos);
+        percentile50Statistic.setHistory(historySize, historyNanos);
+        percentile90Statistic.setHistory(historySize, historyNanos);
+        percentile99Statistic.setHistory(historySize, historyNanos);
+        percentile999Statistic.setHistory(historySize, historyNanos);
     }
 
     /**
@@ -248,6 +248,38 @@ final class NullLatency implements Latency {
     public Statistic<Double> average() {
         return NullStatistic.instance(Double.NaN);
     }
+
+    /**
+     * median
+     */
+    @Override
+    public Statistic<Long> percentile50() {
+        return NullStatistic.instance(null);
+    }
+
+    /**
+     * 90th percentile
+     */
+    @Override
+    public Statistic<Long> percentile90() {
+        return NullStatistic.instance(null);
+    }
+
+    /**
+     * 99th percentile
+     */
+    @Override
+    public Statistic<Long> percentile99() {
+        return NullStatistic.instance(null);
+    }
+
+    /**
+     * 99.9th percentile
+     */
+    @Override
+    public Statistic<Long> percentile999() {
+        return NullStatistic.instance(null);
+    }
 }
 
 /**
@@ -0,0 +1,314 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.search.attribute.AttributeExtractor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A secondary index of the elements of a {@link MemoryStore} by the value of one search attribute.
+ * <p>
+ * The index maps each attribute value to the elements having it, by key, and is only ever used to find candidate
+ * elements: queries still evaluate their criteria against every candidate.  An entry is only a candidate while its
+ * element is the one mapped in the store, so entries left behind by a missed removal or a racing update are harmless,
+ * and are dropped when next found.
+ * <p>
+ * String values are indexed case insensitively, as the search criteria compare them.  A sorted index is only used for
+ * ranges of non string values, strings being ordered by the criteria in their own way.  An index seeing values of more
+ * than one type, or failing to extract a value, disables itself and queries go back to scanning the store.
+ *
+ * @author Ehcache
+ */
+final class AttributeIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AttributeIndex.class.getName());
+
+    private final String attributeName;
+    private final boolean sorted;
+    private final ConcurrentMap<Object, Bucket> buckets;
+
+    private volatile Class<?> valueType;
+    private volatile boolean disabled;
+
+    /**
+     * Create an empty index.
+     *
+     * @param attributeName the indexed attribute
+     * @param sorted whether the index is sorted, and so usable for ranges
+     */
+    AttributeIndex(String attributeName, boolean sorted) {
+        this.attributeName = attributeName;
+        this.sorted = sorted;
+        if (sorted) {
+            this.buckets = new ConcurrentSkipListMap<Object, Bucket>();
+        } else {
+            this.buckets = new ConcurrentHashMap<Object, Bucket>();
+        }
+    }
+
+    /**
+     * Gets the indexed attribute
+     *
+     * @return the attribute name
+     */
+    String getAttributeName() {
+        return attributeName;
+    }
+
+    /**
+     * Index an element now mapped in the store.
+     *
+     * @param key the key
+     * @param stored the element as mapped in the store
+     * @param searchable the element as seen by the attribute extractor
+     * @param extractor the attribute extractor
+     */
+    void add(Object key, Element stored, Element searchable, AttributeExtractor extractor) {
+        if (disabled) {
+            return;
+        }
+        Object value;
+        try {
+            value = extractor.attributeFor(searchable, attributeName);
+        } catch (RuntimeException e) {
+            disable("failed to extract the attribute value of key " + key + ": " + e.getMessage());
+            return;
+        }
+        if (value == null) {
+            return;
+        }
+
+        Class<?> type = typeOf(value);
+        if (valueType == null) {
+            synchronized (this) {
+                if (valueType == null) {
+                    valueType = type;
+                }
+            }
+        }
+        if (valueType != type) {
+            disable("found values of type " + valueType.getName() + " and " + type.getName());
+            return;
+        }
+
+        Object indexKey = indexKey(value);
+        while (true) {
+            Bucket bucket = buckets.get(indexKey);
+            if (bucket == null) {
+                bucket = new Bucket();
+                Bucket racer;
+                try {
+                    racer = buckets.putIfAbsent(indexKey, bucket);
+                } catch (ClassCastException e) {
+                    disable("values of type " + type.getName() + " can't be sorted");
+                    return;
+                }
+                if (racer != null) {
+                    bucket = racer;
+                }
+            }
+            if (bucket.add(key, stored)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unindex an element removed from the store.
+     *
+     * @param key the key
+     * @param stored the element as it was mapped in the store
+     * @param searchable the element as seen by the attribute extractor
+     * @param extractor the attribute extractor
+     */
+    void remove(Object key, Element stored, Element searchable, AttributeExtractor extractor) {
+        if (disabled) {
+            return;
+        }
+        Object value;
+        try {
+            value = extractor.attributeFor(searchable, attributeName);
+        } catch (RuntimeException e) {
+            // the entry, if any, will be dropped when next found
+            return;
+        }
+        if (value != null && typeOf(value) == valueType) {
+            Object indexKey = indexKey(value);
+            Bucket bucket = buckets.get(indexKey);
+            if (bucket != null) {
+                bucket.remove(indexKey, key, stored);
+            }
+        }
+    }
+
+    /**
+     * Find the elements whose attribute value is equal to the given one.
+     *
+     * @param value the value
+     * @param store the indexed store
+     * @return the candidate elements by key, or {@code null} if the index can't be used for this value
+     */
+    Map<Object, Element> equalTo(Object value, MemoryStore store) {
+        if (!isUsableFor(value)) {
+            return null;
+        }
+        Map<Object, Element> candidates = new HashMap<Object, Element>();
+        if (valueType != null) {
+            Object indexKey = indexKey(value);
+            Bucket bucket = buckets.get(indexKey);
+            if (bucket != null) {
+                bucket.collect(indexKey, store, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Find the elements whose attribute value is within the given range.
+     *
+     * @param from the lower bound, {@code null} for none
+     * @param fromInclusive whether the lower bound is in the range
+     * @param to the upper bound, {@code null} for none
+     * @param toInclusive whether the upper bound is in the range
+     * @param store the indexed store
+     * @return the candidate elements by key, or {@code null} if the index can't be used for this range
+     */
+    Map<Object, Element> range(Object from, boolean fromInclusive, Object to, boolean toInclusive, MemoryStore store) {
+        Object bound = from == null ? to : from;
+        if (!sorted || bound instanceof String || !isUsableFor(bound) || (to != null && !isUsableFor(to))) {
+            return null;
+        }
+        Map<Object, Element> candidates = new HashMap<Object, Element>();
+        if (valueType != null) {
+            ConcurrentNavigableMap<Object, Bucket> range = (ConcurrentNavigableMap<Object, Bucket>) buckets;
+            if (from != null && to != null) {
+                if (((Comparable) from).compareTo(to) > 0) {
+                    return candidates;
+                }
+                range = range.subMap(from, fromInclusive, to, toInclusive);
+            } else if (from != null) {
+                range = range.tailMap(from, fromInclusive);
+            } else {
+                range = range.headMap(to, toInclusive);
+            }
+            for (Map.Entry<Object, Bucket> entry : range.entrySet()) {
+                entry.getValue().collect(entry.getKey(), store, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Return the number of elements in the index, including those not yet found to be stale.
+     *
+     * @return the number of indexed elements
+     */
+    int size() {
+        int size = 0;
+        for (Bucket bucket : buckets.values()) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private boolean isUsableFor(Object value) {
+        return !disabled && value != null && (valueType == null || valueType == typeOf(value));
+    }
+
+    private void disable(String reason) {
+        if (!disabled) {
+            disabled = true;
+            LOG.warn("Disabling the search index of attribute " + attributeName + ", " + reason);
+        }
+        buckets.clear();
+    }
+
+    private static Class<?> typeOf(Object value) {
+        if (value instanceof Enum) {
+            return ((Enum) value).getDeclaringClass();
+        }
+        return value.getClass();
+    }
+
+    private static Object indexKey(Object value) {
+        if (value instanceof String) {
+            String string = (String) value;
+            char[] folded = new char[string.length()];
+            for (int i = 0; i < folded.length; i++) {
+                folded[i] = Character.toLowerCase(Character.toUpperCase(string.charAt(i)));
+            }
+            return new String(folded);
+        }
+        return value;
+    }
+
+    /**
+     * The elements having one attribute value, by key.  A bucket emptied is retired from the index, and no longer
+     * accepts elements.
+     */
+    private final class Bucket {
+
+        private final Map<Object, Element> elements = new HashMap<Object, Element>();
+        private boolean retired;
+
+        synchronized boolean add(Object key, Element stored) {
+            if (retired) {
+                return false;
+            }
+            elements.put(key, stored);
+            return true;
+        }
+
+        synchronized int size() {
+            return elements.size();
+        }
+
+        synchronized void remove(Object indexKey, Object key, Element stored) {
+            if (elements.get(key) == stored) {
+                elements.remove(key);
+                if (elements.isEmpty()) {
+                    retired = true;
+                    buckets.remove(indexKey, this);
+                }
+            }
+        }
+
+        void collect(Object indexKey, MemoryStore store, Map<Object, Element> candidates) {
+            Map<Object, Element> snapshot;
+            synchronized (this) {
+                snapshot = new HashMap<Object, Element>(elements);
+            }
+            for (Map.Entry<Object, Element> entry : snapshot.entrySet()) {
+                if (store.getQuiet(entry.getKey()) == entry.getValue()) {
+                    candidates.put(entry.getKey(), entry.getValue());
+                } else {
+                    remove(indexKey, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -23,19 +23,33 @@ import net.sf.ehcache.config.ConfigurationHelper;
 import net.sf.ehcache.config.SearchAttribute;
 import net.sf.ehcache.config.Searchable;
 import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.search.ExecutionHints;
+import net.sf.ehcache.search.Result;
 import net.sf.ehcache.search.Results;
 import net.sf.ehcache.search.SearchException;
 import net.sf.ehcache.search.aggregator.AggregatorInstance;
+import net.sf.ehcache.search.aggregator.MergeableAggregatorInstance;
 import net.sf.ehcache.search.attribute.AttributeExtractor;
 import net.sf.ehcache.search.attribute.AttributeExtractorException;
 import net.sf.ehcache.search.attribute.AttributeType;
 import net.sf.ehcache.search.attribute.DynamicAttributesExtractor;
+import net.sf.ehcache.search.expression.And;
+import net.sf.ehcache.search.expression.Between;
+import net.sf.ehcache.search.expression.ComparableValue;
 import net.sf.ehcache.search.expression.Criteria;
+import net.sf.ehcache.search.expression.EqualTo;
+import net.sf.ehcache.search.expression.GreaterThan;
+import net.sf.ehcache.search.expression.GreaterThanOrEqual;
+import net.sf.ehcache.search.expression.InCollection;
+import net.sf.ehcache.search.expression.LessThan;
+import net.sf.ehcache.search.expression.LessThanOrEqual;
+import net.sf.ehcache.search.expression.Or;
 import net.sf.ehcache.search.impl.AggregateOnlyResult;
 import net.sf.ehcache.search.impl.BaseResult;
 import net.sf.ehcache.search.impl.DynamicSearchChecker;
 import net.sf.ehcache.search.impl.GroupedResultImpl;
 import net.sf.ehcache.search.impl.OrderComparator;
+import net.sf.ehcache.search.impl.PagedResultsImpl;
 import net.sf.ehcache.search.impl.ResultImpl;
 import net.sf.ehcache.search.impl.ResultsImpl;
 import net.sf.ehcache.search.impl.SearchManager;
@@ -46,16 +60,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static net.sf.ehcache.search.expression.BaseCriteria.getExtractor;
 
 /**
  * Brute force search implementation
+ * <p>
+ * Queries evaluate their criteria against every element of the source, unless the criteria can be answered from the
+ * secondary indexes declared on the search attributes, in which case they are only evaluated against the candidate
+ * elements found in the indexes.
  *
  * @author teck
  */
@@ -63,12 +88,19 @@ public class BruteForceSearchManager implements SearchManager {
 
     private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
 
+    /**
+     * The number of elements evaluated by each task of a parallel query
+     */
+    private static final int PARTITION_SIZE = 1024;
+
     /**
      * account for all search attributes
      */
     private final Set<Attribute> searchAttributes = new CopyOnWriteArraySet<Attribute>();
     private final Ehcache cache;
     private BruteForceSource bruteForceSource;
+    private volatile MemoryStore indexedStore;
+    private volatile Map<String, AttributeIndex> indexes = Collections.emptyMap();
 
 
     /**
@@ -115,49 +147,34 @@ public class BruteForceSearchManager implements SearchManager {
         final Map<Set<?>, ResultHolder> groupByResults = new HashMap<Set<?>, ResultHolder>();
         final Map<Set, List<AggregatorInstance<?>>> groupByAggregators = new HashMap<Set, List<AggregatorInstance<?>>>();
 
-        Collection<Element> matches = new LinkedList<Element>();
-        Map<Object, Map<String, AttributeExtractor>> eltExtractors = new HashMap<Object, Map<String, AttributeExtractor>>();
-
-        for (Element element : bruteForceSource.elements()) {
-
-            Map<String, AttributeExtractor> extractorSuperset = getCombinedExtractors(extractors, dynIndexer, element);
-            eltExtractors.put(element.getObjectKey(), extractorSuperset);
-
-            if (c.execute(element, extractorSuperset)) {
-                if (!isGroupBy && !hasOrder && query.maxResults() >= 0 && matches.size() == query.maxResults()) {
-                    break;
-                }
+        OrderComparator<BaseResult> comp = new OrderComparator<BaseResult>(query.getOrdering());
+        ExecutionHints hints = query.getExecutionHints();
+        int batchSize = hints == null ? ExecutionHints.DEFAULT_RESULT_BATCH_SIZE : hints.getResultBatchSize();
+        if (batchSize > 0 && includeResults && !isGroupBy && !hasOrder && aggregators.isEmpty()) {
+            // nothing needs all the matches at once: evaluate the query as the results are read
+            return new PagedResultsImpl(new ScanPages(query, extractors, dynIndexer, comp, batchSize), query.requestsKeys(),
+                    query.requestsValues(), !query.requestedAttributes().isEmpty());
+        }
 
-                matches.add(element);
-            }
+        Scan scan = new Scan(query, c, extractors, dynIndexer, comp);
+        List<Match> matches;
+        if (!includeResults && scan.topK < 0 && scan.limit < 0 && areMergeable(aggregators)) {
+            // only the aggregates of all the matches are needed: aggregate them partition by partition
+            scan.aggregate(elements(c), aggregators);
+            matches = Collections.emptyList();
+        } else {
+            matches = scan.execute(elements(c));
         }
 
         Collection<ResultHolder> results = isGroupBy ? groupByResults.values() : new ArrayList<ResultHolder>();
 
-        boolean anyMatches = !matches.isEmpty();
-        OrderComparator<BaseResult> comp = new OrderComparator<BaseResult>(query.getOrdering());
-        
-        for (Element element : matches) {
-            Map<String, AttributeExtractor> extractorSuperset = eltExtractors.get(element.getObjectKey());
-
-            List<Object> resultAggs = new ArrayList<Object>(aggregators.size());
-            for (AggregatorInstance<?> agg: aggregators) {
-                Attribute aggrAttr = agg.getAttribute();
-                // placeholder input for count
-                Object val = aggrAttr != null ? 
-                    getExtractor(aggrAttr.getAttributeName(), extractorSuperset).attributeFor(element, aggrAttr.getAttributeName()) : null;
-                resultAggs.add(val);
-            }
-            
-            Map<String, Object> attributes = getAttributeValues(query.requestedAttributes(), extractorSuperset, element);
-            Object[] sortAttributes = getSortAttributes(query, extractorSuperset, element);
+        boolean anyMatches = scan.limit >= 0 ? !matches.isEmpty() : scan.matched.get() > 0;
 
+        for (Match match : matches) {
             if (!isGroupBy) {
-                results.add(new ResultHolder(new ResultImpl(element.getObjectKey(), element.getObjectValue(), query, attributes, sortAttributes), 
-                            resultAggs, comp));
+                results.add(match.holder);
             } else {
-                Map<String, Object> groupByValues = getAttributeValues(groupByAttributes, extractorSuperset, element);
-                Set<?> groupId = new HashSet<Object>(groupByValues.values());
+                Set<?> groupId = new HashSet<Object>(match.groupByValues.values());
                 List<AggregatorInstance<?>> groupAggrs = groupByAggregators.get(groupId);
                 if (groupAggrs == null) {
                     groupAggrs = new ArrayList<AggregatorInstance<?>>(aggregators.size());
@@ -168,12 +185,12 @@ public class BruteForceSearchManager implements SearchManager {
                 }
                 int i = 0;
                 for (AggregatorInstance<?> inst: groupAggrs) {
-                    inst.accept(resultAggs.get(i++));
+                    inst.accept(match.aggregatorInputs.get(i++));
                 }
                 ResultHolder group = groupByResults.get(groupId);
                 if (group == null) {
-                    group = new ResultHolder(new GroupedResultImpl(query, attributes, sortAttributes, Collections.emptyList(),
-                            groupByValues), Collections.emptyList(), comp);
+                    group = new ResultHolder(new GroupedResultImpl(query, match.attributes, match.sortAttributes, Collections.emptyList(),
+                            match.groupByValues), Collections.emptyList(), comp);
                     groupByResults.put(groupId, group);
                 }
             }
@@ -234,6 +251,419 @@ public class BruteForceSearchManager implements SearchManager {
                 && !aggregators.isEmpty());
     }
 
+    private static boolean areMergeable(List<AggregatorInstance<?>> aggregators) {
+        if (aggregators.isEmpty()) {
+            return false;
+        }
+        for (AggregatorInstance<?> aggregator : aggregators) {
+            if (!(aggregator instanceof MergeableAggregatorInstance<?>)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the elements to evaluate the given criteria against: the candidates found in the indexes if the criteria
+     * can use them, otherwise all the elements of the source.
+     */
+    private Iterable<Element> elements(Criteria c) {
+        Map<Object, Element> candidates = findCandidates(c);
+        if (candidates == null) {
+            return bruteForceSource.elements();
+        }
+        List<Element> indexed = new ArrayList<Element>(candidates.size());
+        for (Element element : candidates.values()) {
+            indexed.add(bruteForceSource.transformForIndexing(element));
+        }
+        return indexed;
+    }
+
+    /**
+     * The evaluation of a query's criteria against the elements of the source.
+     * <p>
+     * The elements are evaluated by partitions, in parallel on the common fork-join pool when there is more than one
+     * partition.  When the query is ordered and limited, each partition only keeps its top results in a bounded heap,
+     * so that only those are sorted in the end.  When the query is limited but not ordered, the partitions are
+     * evaluated in turn until enough results are found.  When the query only needs the aggregates of all its matches,
+     * each partition aggregates its own matches, and these partial aggregates are merged in the end.
+     */
+    private final class Scan {
+
+        private final StoreQuery query;
+        private final Criteria criteria;
+        private final Map<String, AttributeExtractor> extractors;
+        private final DynamicAttributesExtractor dynIndexer;
+        private final OrderComparator<BaseResult> comp;
+        private final boolean isGroupBy;
+        private final int topK;
+        private final int limit;
+        private final AtomicLong matched = new AtomicLong();
+
+        private Scan(StoreQuery query, Criteria criteria, Map<String, AttributeExtractor> extractors,
+                     DynamicAttributesExtractor dynIndexer, OrderComparator<BaseResult> comp) {
+            this.query = query;
+            this.criteria = criteria;
+            this.extractors = extractors;
+            this.dynIndexer = dynIndexer;
+            this.comp = comp;
+            this.isGroupBy = !query.groupByAttributes().isEmpty();
+            boolean hasOrder = !query.getOrdering().isEmpty();
+            this.topK = !isGroupBy && hasOrder ? query.maxResults() : -1;
+            this.limit = !isGroupBy && !hasOrder ? query.maxResults() : -1;
+        }
+
+        List<Match> execute(Iterable<Element> elements) {
+            Iterator<Element> iterator = elements.iterator();
+            List<Element> partition = nextPartition(iterator);
+            List<Match> matches = new ArrayList<Match>();
+
+            if (limit >= 0 || !iterator.hasNext() || ForkJoinPool.getCommonPoolParallelism() < 2) {
+                while (!partition.isEmpty() && (limit < 0 || matches.size() < limit)) {
+                    matches.addAll(evaluate(partition, limit < 0 ? -1 : limit - matches.size()));
+                    partition = nextPartition(iterator);
+                }
+                return matches;
+            }
+
+            for (List<Match> partial : inParallel(partition, iterator, new PartitionTask<List<Match>>() {
+                @Override
+                public List<Match> evaluate(List<Element> partition) {
+                    return Scan.this.evaluate(partition, -1);
+                }
+            })) {
+                matches.addAll(partial);
+            }
+            return matches;
+        }
+
+        /**
+         * Accumulate the aggregator inputs of all the matches into the given aggregators, which must all be mergeable.
+         */
+        void aggregate(Iterable<Element> elements, final List<AggregatorInstance<?>> aggregators) {
+            Iterator<Element> iterator = elements.iterator();
+            List<Element> partition = nextPartition(iterator);
+
+            if (!iterator.hasNext() || ForkJoinPool.getCommonPoolParallelism() < 2) {
+                while (!partition.isEmpty()) {
+                    accumulate(partition, aggregators);
+                    partition = nextPartition(iterator);
+                }
+                return;
+            }
+
+            List<List<AggregatorInstance<?>>> partials = inParallel(partition, iterator, new PartitionTask<List<AggregatorInstance<?>>>() {
+                @Override
+                public List<AggregatorInstance<?>> evaluate(List<Element> partition) {
+                    List<AggregatorInstance<?>> partial = new ArrayList<AggregatorInstance<?>>(aggregators.size());
+                    for (AggregatorInstance<?> aggregator : aggregators) {
+                        partial.add(aggregator.createClone());
+                    }
+                    accumulate(partition, partial);
+                    return partial;
+                }
+            });
+            // merged in the order of the partitions, as the aggregators would have been given their inputs
+            for (List<AggregatorInstance<?>> partial : partials) {
+                for (int i = 0; i < aggregators.size(); i++) {
+                    ((MergeableAggregatorInstance) aggregators.get(i)).merge(partial.get(i));
+                }
+            }
+        }
+
+        /**
+         * Evaluate the given partition and the remaining ones on the common fork-join pool, returning the results of
+         * the partitions in order.
+         */
+        private <T> List<T> inParallel(List<Element> partition, Iterator<Element> iterator, final PartitionTask<T> task) {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            try {
+                while (!partition.isEmpty()) {
+                    final List<Element> submitted = partition;
+                    futures.add(ForkJoinPool.commonPool().submit(new Callable<T>() {
+                        @Override
+                        public T call() {
+                            return task.evaluate(submitted);
+                        }
+                    }));
+                    partition = nextPartition(iterator);
+                }
+                List<T> results = new ArrayList<T>(futures.size());
+                for (Future<T> future : futures) {
+                    results.add(future.get());
+                }
+                return results;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new SearchException(e.getCause());
+            } finally {
+                for (Future<T> future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * Evaluate the elements in turn until the given number of matches are found or there are no more elements.
+         */
+        List<Result> page(Iterator<Element> iterator, int size) {
+            List<Result> page = new ArrayList<Result>(size);
+            while (page.size() < size && iterator.hasNext()) {
+                Element element = iterator.next();
+                Map<String, AttributeExtractor> extractorSuperset = getCombinedExtractors(extractors, dynIndexer, element);
+                if (criteria.execute(element, extractorSuperset)) {
+                    matched.incrementAndGet();
+                    page.add(new Match(element, extractorSuperset, this).holder.result);
+                }
+            }
+            return page;
+        }
+
+        private List<Element> nextPartition(Iterator<Element> iterator) {
+            List<Element> partition = new ArrayList<Element>(PARTITION_SIZE);
+            while (partition.size() < PARTITION_SIZE && iterator.hasNext()) {
+                partition.add(iterator.next());
+            }
+            return partition;
+        }
+
+        private List<Match> evaluate(List<Element> partition, int max) {
+            Collection<Match> matches;
+            if (topK >= 0) {
+                matches = new PriorityQueue<Match>(topK + 1, Collections.reverseOrder());
+            } else {
+                matches = new ArrayList<Match>();
+            }
+
+            for (Element element : partition) {
+                Map<String, AttributeExtractor> extractorSuperset = getCombinedExtractors(extractors, dynIndexer, element);
+                if (criteria.execute(element, extractorSuperset)) {
+                    matched.incrementAndGet();
+                    if (max >= 0 && matches.size() == max) {
+                        break;
+                    }
+                    matches.add(new Match(element, extractorSuperset, this));
+                    if (matches.size() > topK && topK >= 0) {
+                        ((PriorityQueue<Match>) matches).poll();
+                    }
+                }
+            }
+            return new ArrayList<Match>(matches);
+        }
+
+        private void accumulate(List<Element> partition, List<AggregatorInstance<?>> aggregators) {
+            for (Element element : partition) {
+                Map<String, AttributeExtractor> extractorSuperset = getCombinedExtractors(extractors, dynIndexer, element);
+                if (criteria.execute(element, extractorSuperset)) {
+                    matched.incrementAndGet();
+                    int i = 0;
+                    for (Object input : getAggregatorInputs(aggregators, extractorSuperset, element)) {
+                        aggregators.get(i++).accept(input);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The evaluation of one partition of the elements
+     */
+    private interface PartitionTask<T> {
+
+        T evaluate(List<Element> partition);
+    }
+
+    /**
+     * The pages of results of an unordered query without aggregators, evaluated from the start for each traversal.
+     */
+    private final class ScanPages implements PagedResultsImpl.PageSource {
+
+        private final StoreQuery query;
+        private final Map<String, AttributeExtractor> extractors;
+        private final DynamicAttributesExtractor dynIndexer;
+        private final OrderComparator<BaseResult> comp;
+        private final int batchSize;
+
+        private ScanPages(StoreQuery query, Map<String, AttributeExtractor> extractors, DynamicAttributesExtractor dynIndexer,
+                          OrderComparator<BaseResult> comp, int batchSize) {
+            this.query = query;
+            this.extractors = extractors;
+            this.dynIndexer = dynIndexer;
+            this.comp = comp;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public Iterator<List<Result>> pages() {
+            Criteria c = query.getCriteria();
+            return new PageIterator(new Scan(query, c, extractors, dynIndexer, comp), elements(c).iterator(), batchSize,
+                    query.maxResults());
+        }
+    }
+
+    /**
+     * An iterator over the pages of results of a scan, evaluating each page when it is asked for.
+     */
+    private static final class PageIterator implements Iterator<List<Result>> {
+
+        private final Scan scan;
+        private final Iterator<Element> elements;
+        private final int batchSize;
+        private int remaining;
+        private List<Result> next;
+
+        private PageIterator(Scan scan, Iterator<Element> elements, int batchSize, int maxResults) {
+            this.scan = scan;
+            this.elements = elements;
+            this.batchSize = batchSize;
+            this.remaining = maxResults < 0 ? Integer.MAX_VALUE : maxResults;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0) {
+                List<Result> page = scan.page(elements, Math.min(batchSize, remaining));
+                if (!page.isEmpty()) {
+                    remaining -= page.size();
+                    next = page;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public List<Result> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<Result> page = next;
+            next = null;
+            return page;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * An element matching a query's criteria, with the values the query needs from it
+     */
+    private final class Match implements Comparable<Match> {
+
+        private final List<Object> aggregatorInputs;
+        private final Map<String, Object> attributes;
+        private final Object[] sortAttributes;
+        private final Map<String, Object> groupByValues;
+        private final ResultHolder holder;
+
+        private Match(Element element, Map<String, AttributeExtractor> extractorSuperset, Scan scan) {
+            aggregatorInputs = getAggregatorInputs(scan.query.getAggregatorInstances(), extractorSuperset, element);
+
+            attributes = getAttributeValues(scan.query.requestedAttributes(), extractorSuperset, element);
+            sortAttributes = getSortAttributes(scan.query, extractorSuperset, element);
+
+            if (scan.isGroupBy) {
+                groupByValues = getAttributeValues(scan.query.groupByAttributes(), extractorSuperset, element);
+                holder = null;
+            } else {
+                groupByValues = null;
+                holder = new ResultHolder(new ResultImpl(element.getObjectKey(), element.getObjectValue(), scan.query, attributes,
+                        sortAttributes), aggregatorInputs, scan.comp);
+            }
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            return holder.compareTo(other.holder);
+        }
+    }
+
+    /**
+     * Find the elements that may match the given criteria using the attribute indexes.
+     *
+     * @param c the criteria
+     * @return the candidate elements by key, as mapped in the store, or {@code null} if the criteria can't be answered
+     *         from the indexes
+     */
+    private Map<Object, Element> findCandidates(Criteria c) {
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        if (c instanceof EqualTo) {
+            EqualTo equalTo = (EqualTo) c;
+            AttributeIndex index = indexes.get(equalTo.getAttributeName());
+            return index == null ? null : index.equalTo(equalTo.getValue(), indexedStore);
+        } else if (c instanceof InCollection) {
+            InCollection in = (InCollection) c;
+            AttributeIndex index = indexes.get(in.getAttributeName());
+            if (index == null) {
+                return null;
+            }
+            Map<Object, Element> candidates = new HashMap<Object, Element>();
+            for (Object value : in.values()) {
+                Map<Object, Element> matches = index.equalTo(value, indexedStore);
+                if (matches == null) {
+                    return null;
+                }
+                candidates.putAll(matches);
+            }
+            return candidates;
+        } else if (c instanceof ComparableValue) {
+            return findRangeCandidates((ComparableValue) c);
+        } else if (c instanceof And) {
+            Map<Object, Element> smallest = null;
+            for (Criteria criteria : ((And) c).getCriterion()) {
+                Map<Object, Element> candidates = findCandidates(criteria);
+                if (candidates != null && (smallest == null || candidates.size() < smallest.size())) {
+                    smallest = candidates;
+                }
+            }
+            return smallest;
+        } else if (c instanceof Or) {
+            Map<Object, Element> union = new HashMap<Object, Element>();
+            for (Criteria criteria : ((Or) c).getCriterion()) {
+                Map<Object, Element> candidates = findCandidates(criteria);
+                if (candidates == null) {
+                    return null;
+                }
+                union.putAll(candidates);
+            }
+            return union;
+        } else {
+            return null;
+        }
+    }
+
+    private Map<Object, Element> findRangeCandidates(ComparableValue c) {
+        AttributeIndex index = indexes.get(c.getAttributeName());
+        if (index == null) {
+            return null;
+        }
+        if (c instanceof Between) {
+            Between between = (Between) c;
+            return index.range(between.getMin(), between.isMinInclusive(), between.getMax(), between.isMaxInclusive(), indexedStore);
+        } else if (c instanceof GreaterThan) {
+            return index.range(((GreaterThan) c).getComparableValue(), false, null, false, indexedStore);
+        } else if (c instanceof GreaterThanOrEqual) {
+            return index.range(((GreaterThanOrEqual) c).getComparableValue(), true, null, false, indexedStore);
+        } else if (c instanceof LessThan) {
+            return index.range(null, false, ((LessThan) c).getComparableValue(), false, indexedStore);
+        } else if (c instanceof LessThanOrEqual) {
+            return index.range(null, false, ((LessThanOrEqual) c).getComparableValue(), true, indexedStore);
+        } else {
+            return null;
+        }
+    }
+
     private void setResultAggregators(List<AggregatorInstance<?>> aggregators, BaseResult result)
     {
         List<Object> aggregateResults = new ArrayList<Object>();
@@ -246,6 +676,19 @@ public class BruteForceSearchManager implements SearchManager {
         }
     }
 
+    private List<Object> getAggregatorInputs(List<AggregatorInstance<?>> aggregators, Map<String, AttributeExtractor> extractors,
+                                             Element element) {
+        List<Object> inputs = new ArrayList<Object>(aggregators.size());
+        for (AggregatorInstance<?> agg: aggregators) {
+            Attribute aggrAttr = agg.getAttribute();
+            // placeholder input for count
+            Object val = aggrAttr != null ?
+                getExtractor(aggrAttr.getAttributeName(), extractors).attributeFor(element, aggrAttr.getAttributeName()) : null;
+            inputs.add(val);
+        }
+        return inputs;
+    }
+
     private Map<String, Object> getAttributeValues(Set<Attribute<?>> attributes, Map<String, AttributeExtractor> extractors, Element element) {
         final Map<String, Object> values;
         if (attributes.isEmpty()) {
@@ -387,6 +830,77 @@ public class BruteForceSearchManager implements SearchManager {
         this.bruteForceSource = bruteForceSource;
     }
 
+    /**
+     * Sets the store whose elements are indexed, creating the indexes declared by the searchable configuration.
+     * <p>
+     * The store must then report the elements it maps and unmaps through {@link #index(Element, Map)} and
+     * {@link #unindex(Object, Element, Map)}.
+     *
+     * @param store the indexed store
+     * @param searchable the searchable configuration
+     */
+    void setIndexedStore(MemoryStore store, Searchable searchable) {
+        Map<String, AttributeIndex> declared = new HashMap<String, AttributeIndex>();
+        for (SearchAttribute attribute : searchable.getSearchAttributes().values()) {
+            if (attribute.getIndex() != SearchAttribute.IndexType.NONE) {
+                declared.put(attribute.getName(),
+                        new AttributeIndex(attribute.getName(), attribute.getIndex() == SearchAttribute.IndexType.SORTED));
+            }
+        }
+        this.indexedStore = store;
+        this.indexes = declared;
+    }
+
+    /**
+     * Index an element just mapped in the store.
+     *
+     * @param element the element, as mapped in the store
+     * @param extractors the attribute extractors
+     */
+    void index(Element element, Map<String, AttributeExtractor> extractors) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        Element searchable = bruteForceSource.transformForIndexing(element);
+        for (AttributeIndex index : indexes.values()) {
+            AttributeExtractor extractor = extractors.get(index.getAttributeName());
+            if (extractor != null) {
+                index.add(element.getObjectKey(), element, searchable, extractor);
+            }
+        }
+    }
+
+    /**
+     * Unindex an element just unmapped from the store.
+     *
+     * @param key the key
+     * @param element the element, as it was mapped in the store, or {@code null}
+     * @param extractors the attribute extractors
+     */
+    void unindex(Object key, Element element, Map<String, AttributeExtractor> extractors) {
+        if (element == null || indexes.isEmpty()) {
+            return;
+        }
+        Element searchable = bruteForceSource.transformForIndexing(element);
+        for (AttributeIndex index : indexes.values()) {
+            AttributeExtractor extractor = extractors.get(index.getAttributeName());
+            if (extractor != null) {
+                index.remove(key, element, searchable, extractor);
+            }
+        }
+    }
+
+    /**
+     * Return the number of elements in the index of the given attribute.
+     *
+     * @param attributeName the attribute
+     * @return the number of indexed elements, or {@code -1} if the attribute isn't indexed
+     */
+    int getIndexSize(String attributeName) {
+        AttributeIndex index = indexes.get(attributeName);
+        return index == null ? -1 : index.size();
+    }
+
     /**
      * Add search attributes
      *
@@ -25,6 +25,7 @@ import net.sf.ehcache.search.Attribute;
 import net.sf.ehcache.search.Results;
 import net.sf.ehcache.search.SearchException;
 import net.sf.ehcache.search.attribute.AttributeExtractor;
+import net.sf.ehcache.store.cachingtier.OnHeapCachingTier;
 import net.sf.ehcache.store.disk.DiskStore;
 import net.sf.ehcache.terracotta.TerracottaNotRunningException;
 import net.sf.ehcache.writer.CacheWriterManager;
@@ -423,6 +424,9 @@ public class CacheStore implements Store {
 
     @Override
     public void expireElements() {
+        if (cachingTier instanceof OnHeapCachingTier) {
+            ((OnHeapCachingTier)cachingTier).expireElements();
+        }
         authoritativeTier.expireElements();
     }
 
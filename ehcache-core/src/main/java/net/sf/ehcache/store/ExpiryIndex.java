@@ -0,0 +1,276 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.sf.ehcache.Element;
+
+/**
+ * An index of the keys of a heap store by the expiration time of their elements, so that expiring elements only
+ * touches the elements that are due.
+ * <p>
+ * The index is a hierarchical timing wheel: level 0 has one slot per tick of about a second, each higher level has
+ * slots 64 times as long as the level below, and an element is indexed in the slot of the lowest level that holds its
+ * expiration time.  As time passes the slots of the higher levels are cascaded into the lower ones, so that indexing and
+ * expiring an element are both constant time operations.
+ * <p>
+ * The index holds keys, not elements.  An entry whose element was replaced is dropped when it comes due, the new
+ * element having been indexed when it was put.  An entry whose element is not expired yet when it comes due, because it
+ * was accessed since being indexed and has a time to idle, is indexed again at the element's new expiration time.
+ * Indexing may be done concurrently with any other operation, expiring is done by one thread at a time.
+ * <p>
+ * As elements are expired only when the store is asked to, the entries of replaced or removed elements would pile up
+ * in a store that is never asked to.  Indexing therefore sweeps such entries out of the index whenever it has doubled
+ * in size since the last sweep, which keeps the index in proportion to the number of elements in the store.
+ *
+ * @author Ehcache
+ */
+public final class ExpiryIndex {
+
+    private static final int TICK_SHIFT = 10;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+
+    private final ExpirableStore store;
+    private final Queue<Entry>[][] wheels;
+    private final Queue<Entry> due = new ConcurrentLinkedQueue<Entry>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+    private volatile long cursor;
+
+    /**
+     * Create an empty index of the elements of the given store.
+     *
+     * @param store the store holding the indexed elements
+     */
+    public ExpiryIndex(ExpirableStore store) {
+        this(store, System.currentTimeMillis());
+    }
+
+    /**
+     * Create an empty index of the elements of the given store, time starting at {@code now}.
+     *
+     * @param store the store holding the indexed elements
+     * @param now the current time in milliseconds
+     */
+    ExpiryIndex(ExpirableStore store, long now) {
+        this.store = store;
+        wheels = new Queue[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new ConcurrentLinkedQueue<Entry>();
+            }
+        }
+        cursor = tick(now);
+    }
+
+    /**
+     * Index the given element, if it can expire.
+     *
+     * @param key the key the element is mapped to
+     * @param element the element
+     */
+    public void add(Object key, Element element) {
+        long expirationTime = element.getExpirationTime();
+        if (expirationTime != Long.MAX_VALUE) {
+            add(new Entry(key, expirationTime, System.identityHashCode(element)));
+            if (size.get() > sweepThreshold && lock.tryLock()) {
+                try {
+                    sweep();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Remove every entry from the index.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (Queue<Entry>[] wheel : wheels) {
+                for (Queue<Entry> slot : wheel) {
+                    slot.clear();
+                }
+            }
+            due.clear();
+            size.set(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Expire the indexed elements that are due.
+     *
+     * @param now the current time in milliseconds
+     */
+    public void expire(long now) {
+        lock.lock();
+        try {
+            long target = tick(now);
+            for (long tick = cursor + 1; tick <= target; tick++) {
+                cursor = tick;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((tick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                        cascade(wheels[level][slot(tick, level)]);
+                    }
+                }
+                cascade(wheels[0][slot(tick, 0)]);
+            }
+
+            for (int pending = due.size(); pending > 0; pending--) {
+                Entry entry = due.poll();
+                if (entry == null) {
+                    break;
+                }
+                size.decrementAndGet();
+                Element element = store.getQuiet(entry.key);
+                if (element == null || System.identityHashCode(element) != entry.identity) {
+                    continue;
+                }
+                long expirationTime = element.getExpirationTime();
+                if (expirationTime < now) {
+                    store.expire(entry.key, element);
+                } else if (expirationTime != Long.MAX_VALUE) {
+                    add(new Entry(entry.key, expirationTime, entry.identity));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cascade(Queue<Entry> slot) {
+        for (Entry entry = slot.poll(); entry != null; entry = slot.poll()) {
+            size.decrementAndGet();
+            add(entry);
+        }
+    }
+
+    /**
+     * Drop the entries of the elements no longer in the store, then let the index double in size before the next sweep.
+     */
+    private void sweep() {
+        for (Queue<Entry>[] wheel : wheels) {
+            for (Queue<Entry> slot : wheel) {
+                sweep(slot);
+            }
+        }
+        sweep(due);
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, size.get() * 2);
+    }
+
+    private void sweep(Queue<Entry> slot) {
+        for (Iterator<Entry> it = slot.iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            Element element = store.getQuiet(entry.key);
+            if (element == null || System.identityHashCode(element) != entry.identity) {
+                it.remove();
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private void add(Entry entry) {
+        size.incrementAndGet();
+        long tick = tick(entry.expirationTime);
+        long current = cursor;
+        if (tick <= current) {
+            due.add(entry);
+            return;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && (tick >>> ((level + 1) * SLOT_BITS)) != (current >>> ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+        wheels[level][slot(tick, level)].add(entry);
+
+        // the slot may have been drained while this entry was being added, in which case it must not wait for the next
+        // turn of the wheel
+        if (cursor != current) {
+            size.incrementAndGet();
+            due.add(entry);
+        }
+    }
+
+    private static long tick(long time) {
+        return time >>> TICK_SHIFT;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+    }
+
+    /**
+     * The store whose elements are indexed.
+     */
+    public interface ExpirableStore {
+
+        /**
+         * Return the element mapped to the given key, without updating any statistic.
+         *
+         * @param key the key
+         * @return the element, or {@code null}
+         */
+        Element getQuiet(Object key);
+
+        /**
+         * Expire the given element, if still mapped to the given key.
+         *
+         * @param key the key
+         * @param element the expired element
+         */
+        void expire(Object key, Element element);
+    }
+
+    /**
+     * An indexed key.
+     */
+    private static final class Entry {
+        private final Object key;
+        private final long expirationTime;
+        private final int identity;
+
+        Entry(Object key, long expirationTime, int identity) {
+            this.key = key;
+            this.expirationTime = expirationTime;
+            this.identity = identity;
+        }
+    }
+}
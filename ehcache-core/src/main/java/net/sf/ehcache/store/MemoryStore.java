@@ -85,9 +85,9 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
     static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
     /**
-     * Set optimisation for 100 concurrent threads.
+     * Set optimisation for 100 concurrent threads, or four writers per processor on larger machines.
      */
-    private static final int CONCURRENCY_LEVEL = 100;
+    private static final int CONCURRENCY_LEVEL = Math.max(100, 4 * Runtime.getRuntime().availableProcessors());
 
     private static final int MAX_EVICTION_RATIO = 5;
 
@@ -139,6 +139,29 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
 
     private volatile CacheLockProvider lockProvider;
 
+    private final ExpiryIndex.ExpirableStore expirableStore = new ExpiryIndex.ExpirableStore() {
+        public Element getQuiet(Object key) {
+            return map.get(key);
+        }
+
+        public void expire(Object key, Element element) {
+            if (element.isExpired() && map.remove(key, element)) {
+                unindexForSearch(key, element);
+                notifyExpiry(element);
+            }
+        }
+    };
+
+    /**
+     * The keys of the elements that can expire, by expiration time
+     */
+    private final ExpiryIndex expiryIndex = new ExpiryIndex(expirableStore);
+
+    /**
+     * Whether the expiry index may be out of date, following a change of the cache's time to live or idle
+     */
+    private volatile boolean expiryIndexStale;
+
     /**
      * Constructs things that all MemoryStores have in common.
      *
@@ -173,6 +196,11 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         } else {
             this.map = factory.newBackingMap(poolAccessor, CONCURRENCY_LEVEL, maximumCapacity, eventListener);
         }
+        this.map.setEvictionListener(new SelectableConcurrentHashMap.EvictionListener() {
+            public void evicted(Object key, Element element) {
+                unindexForSearch(key, element);
+            }
+        });
 
         this.status = Status.STATUS_ALIVE;
 
@@ -241,6 +269,9 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         MemoryStore memoryStore = new MemoryStore(cache, pool, new BasicBackingFactory(), searchManager);
         cacheConfiguration.addConfigurationListener(memoryStore);
         searchManager.setBruteForceSource(createBruteForceSource(memoryStore, cache.getCacheConfiguration()));
+        if (cacheConfiguration.isSearchable() && !cacheConfiguration.getTransactionalMode().isTransactional()) {
+            searchManager.setIndexedStore(memoryStore, cacheConfiguration.getSearchable());
+        }
         return memoryStore;
     }
 
@@ -281,7 +312,9 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         long delta = poolAccessor.add(element.getObjectKey(), element.getObjectValue(), map.storedObject(element), storePinned);
         if (delta > -1) {
             Element old = map.put(element.getObjectKey(), element, delta);
-            checkCapacity(element);
+            expiryIndex.add(element.getObjectKey(), element);
+            indexForSearch(old, element);
+            checkCapacity(element, old == null);
             if (old == null) {
                 putObserver.end(PutOutcome.ADDED);
                 return true;
@@ -309,6 +342,8 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             lock.writeLock().lock();
             try {
                 Element old = map.put(element.getObjectKey(), element, delta);
+                expiryIndex.add(element.getObjectKey(), element);
+                indexForSearch(old, element);
                 if (writerManager != null) {
                     try {
                         writerManager.put(element);
@@ -316,7 +351,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
                         throw new StoreUpdateException(e, old != null);
                     }
                 }
-                checkCapacity(element);
+                checkCapacity(element, old == null);
                 return old == null;
             } finally {
                 lock.writeLock().unlock();
@@ -341,6 +376,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             getObserver.end(GetOutcome.MISS);
             return null;
         } else {
+            recordAccess(key);
             final Element e = map.get(key);
             if (e == null) {
                 getObserver.end(GetOutcome.MISS);
@@ -374,7 +410,9 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         }
         removeObserver.begin();
         try {
-            return map.remove(key);
+            Element removed = map.remove(key);
+            unindexForSearch(key, removed);
+            return removed;
         } finally {
             removeObserver.end(RemoveOutcome.SUCCESS);
         }
@@ -394,6 +432,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         writeLock.lock();
         try {
             element = map.remove(key);
+            unindexForSearch(key, element);
             if (writerManager != null) {
                 writerManager.remove(new CacheEntry(key, element));
             }
@@ -416,15 +455,26 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
     /**
      * Expire all elements.
      * <p>
-     * This is a default implementation which does nothing. Expiration on demand is only implemented for disk stores.
+     * Only the elements due according to the expiry index are checked, unless the cache's time to live or idle changed
+     * since the last expiry in which case every element is checked and the index rebuilt.
      */
     public void expireElements() {
-        for (Object key : keySet()) {
-            final Element element = expireElement(key);
-            if (element != null) {
-                cache.getCacheEventNotificationService()
-                    .notifyElementExpiry(copyStrategyHandler.copyElementForReadIfNeeded(element), false);
+        if (expiryIndexStale) {
+            expiryIndexStale = false;
+            expiryIndex.clear();
+            for (Object key : keySet()) {
+                final Element element = expireElement(key);
+                if (element != null) {
+                    notifyExpiry(element);
+                } else {
+                    Element live = map.get(key);
+                    if (live != null) {
+                        expiryIndex.add(key, live);
+                    }
+                }
             }
+        } else {
+            expiryIndex.expire(System.currentTimeMillis());
         }
     }
 
@@ -435,7 +485,40 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
      */
     protected Element expireElement(final Object key) {
         Element value = get(key);
-        return value != null && value.isExpired() && map.remove(key, value) ? value : null;
+        if (value != null && value.isExpired() && map.remove(key, value)) {
+            unindexForSearch(key, value);
+            return value;
+        }
+        return null;
+    }
+
+    /**
+     * Updates the search indexes, if any, for an element just mapped in the store
+     *
+     * @param old the element previously mapped, or {@code null}
+     * @param element the element now mapped
+     */
+    private void indexForSearch(Element old, Element element) {
+        if (searchManager instanceof BruteForceSearchManager) {
+            ((BruteForceSearchManager) searchManager).unindex(element.getObjectKey(), old, attributeExtractors);
+            ((BruteForceSearchManager) searchManager).index(element, attributeExtractors);
+            // the put mapping the element may have evicted it again before it got indexed
+            if (map.get(element.getObjectKey()) != element) {
+                unindexForSearch(element.getObjectKey(), element);
+            }
+        }
+    }
+
+    /**
+     * Updates the search indexes, if any, for an element just unmapped from the store
+     *
+     * @param key the key
+     * @param element the element unmapped, or {@code null}
+     */
+    private void unindexForSearch(Object key, Element element) {
+        if (searchManager instanceof BruteForceSearchManager) {
+            ((BruteForceSearchManager) searchManager).unindex(key, element, attributeExtractors);
+        }
     }
 
     /**
@@ -454,6 +537,8 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             return new LfuPolicy();
         } else if (policySelection.equals(MemoryStoreEvictionPolicy.CLOCK)) {
             return null;
+        } else if (policySelection.equals(MemoryStoreEvictionPolicy.TINYLFU)) {
+            return new TinyLfuPolicy((int) cache.getCacheConfiguration().getMaxEntriesLocalHeap());
         }
 
         throw new IllegalArgumentException(policySelection + " isn't a valid eviction policy");
@@ -466,6 +551,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         for (Object key : map.keySet()) {
             remove(key);
         }
+        expiryIndex.clear();
     }
 
     /**
@@ -585,12 +671,20 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
      * If the store is over capacity, evict elements until capacity is reached
      *
      * @param elementJustAdded the element added by the action calling this check
+     * @param newKey whether the element was added under a key that wasn't mapped, rather than replacing a mapping
      */
-    private void checkCapacity(final Element elementJustAdded) {
+    private void checkCapacity(final Element elementJustAdded, final boolean newKey) {
+        recordAccess(elementJustAdded.getObjectKey());
         if (maximumSize > 0 && !isClockEviction()) {
-            int evict = Math.min(map.quickSize() - maximumSize, MAX_EVICTION_RATIO);
-            for (int i = 0; i < evict; i++) {
-                removeElementChosenByEvictionPolicy(elementJustAdded);
+            Element justAdded = elementJustAdded;
+            boolean admission = newKey && policy instanceof TinyLfuPolicy;
+            for (int i = 0; i < MAX_EVICTION_RATIO && map.quickSize() > maximumSize; i++) {
+                removeElementChosenByEvictionPolicy(justAdded, admission);
+                if (admission && map.get(justAdded.getObjectKey()) != justAdded) {
+                    // the element just added was rejected, the other evictions needed are of other elements
+                    justAdded = null;
+                    admission = false;
+                }
             }
         }
     }
@@ -599,9 +693,10 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
      * Removes the element chosen by the eviction policy
      *
      * @param elementJustAdded it is possible for this to be null
+     * @param newKey whether the element just added is under a new key, and so subject to admission
      * @return true if an element was removed, false otherwise.
      */
-    private boolean removeElementChosenByEvictionPolicy(final Element elementJustAdded) {
+    private boolean removeElementChosenByEvictionPolicy(final Element elementJustAdded, final boolean newKey) {
 
         if (policy == null) {
             return map.evict();
@@ -624,9 +719,25 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             return false;
         }
 
+        Policy currentPolicy = policy;
+        // an element replacing a mapping was admitted along with its key, so only the elements of new keys are filtered
+        if (newKey && elementJustAdded != null && currentPolicy instanceof TinyLfuPolicy
+            && !((TinyLfuPolicy) currentPolicy).admit(elementJustAdded.getObjectKey(), element.getObjectKey())) {
+            return evict(elementJustAdded);
+        }
         return evict(element);
     }
 
+    /**
+     * Records an access to the given key, for the policies that track key frequencies.
+     */
+    private void recordAccess(final Object key) {
+        Policy currentPolicy = policy;
+        if (currentPolicy instanceof TinyLfuPolicy) {
+            ((TinyLfuPolicy) currentPolicy).recordAccess(key);
+        }
+    }
+
     /**
      * Find a "relatively" unused element.
      *
@@ -676,14 +787,14 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
      * {@inheritDoc}
      */
     public void timeToIdleChanged(long oldTti, long newTti) {
-        // no-op
+        expiryIndexStale = true;
     }
 
     /**
      * {@inheritDoc}
      */
     public void timeToLiveChanged(long oldTtl, long newTtl) {
-        // no-op
+        expiryIndexStale = true;
     }
 
     /**
@@ -705,6 +816,10 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
      */
     public void memoryCapacityChanged(int oldCapacity, int newCapacity) {
         maximumSize = newCapacity;
+        Policy currentPolicy = policy;
+        if (currentPolicy instanceof TinyLfuPolicy) {
+            ((TinyLfuPolicy) currentPolicy).setCapacity(newCapacity);
+        }
         if (isClockEviction() && !storePinned) {
             map.setMaxSize(maximumSize);
         }
@@ -876,7 +991,9 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
         if (delta > -1) {
             Element old = map.putIfAbsent(element.getObjectKey(), element, delta);
             if (old == null) {
-              checkCapacity(element);
+              expiryIndex.add(element.getObjectKey(), element);
+              indexForSearch(null, element);
+              checkCapacity(element, true);
             } else {
               poolAccessor.delete(delta);
             }
@@ -927,6 +1044,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             Element toRemove = map.get(key);
             if (comparator.equals(element, toRemove)) {
                 map.remove(key);
+                unindexForSearch(key, toRemove);
                 return toRemove;
             } else {
                 return null;
@@ -958,6 +1076,8 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
                 Element toRemove = map.get(key);
                 if (comparator.equals(old, toRemove)) {
                     map.put(key, element, delta);
+                    expiryIndex.add(key, element);
+                    indexForSearch(toRemove, element);
                     return true;
                 } else {
                     poolAccessor.delete(delta);
@@ -992,6 +1112,8 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
                 Element toRemove = map.get(key);
                 if (toRemove != null) {
                     map.put(key, element, delta);
+                    expiryIndex.add(key, element);
+                    indexForSearch(toRemove, element);
                     return toRemove;
                 } else {
                     poolAccessor.delete(delta);
@@ -1074,7 +1196,7 @@ public class MemoryStore extends AbstractStore implements CacheConfigurationList
             }
 
             for (int i = 0; i < count; i++) {
-                boolean removed = removeElementChosenByEvictionPolicy(null);
+                boolean removed = removeElementChosenByEvictionPolicy(null, false);
                 if (!removed) {
                     return false;
                 }
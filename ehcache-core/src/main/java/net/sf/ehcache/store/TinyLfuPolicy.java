@@ -0,0 +1,84 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+/**
+ * An LRU policy with a frequency based admission filter.
+ * <p>
+ * Accesses to keys are recorded in a compact frequency sketch.  When a store bounded by entry count is full, the element
+ * just added is only kept if its key was accessed more often recently than the key of the element the LRU policy
+ * selected for eviction, otherwise the element just added is evicted instead.  One-off accesses, as done by a scan, then
+ * do not displace the frequently used elements.
+ *
+ * @author Ehcache
+ */
+public class TinyLfuPolicy extends LruPolicy {
+
+    /**
+     * The name of this policy as a string literal
+     */
+    public static final String NAME = "TINYLFU";
+
+    private volatile FrequencySketch sketch;
+
+    /**
+     * Create a policy for a store of the given capacity.
+     *
+     * @param capacity the maximum number of entries of the store
+     */
+    public TinyLfuPolicy(int capacity) {
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * @return the name of the Policy. Inbuilt examples are LRU, LFU and FIFO.
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Record an access to the given key.
+     *
+     * @param key the key accessed, whether or not it was found
+     */
+    public void recordAccess(Object key) {
+        sketch.increment(key);
+    }
+
+    /**
+     * Decides whether a new element is to be kept at the expense of the selected victim.
+     *
+     * @param candidateKey the key of the element just added
+     * @param victimKey the key of the element selected for eviction
+     * @return true if the victim is to be evicted, false if the element just added is to be evicted instead
+     */
+    public boolean admit(Object candidateKey, Object victimKey) {
+        FrequencySketch current = sketch;
+        return current.frequency(candidateKey) > current.frequency(victimKey);
+    }
+
+    /**
+     * Resizes the frequency sketch for a store of the given capacity, forgetting the recorded accesses.
+     *
+     * @param capacity the new maximum number of entries of the store
+     */
+    public void setCapacity(int capacity) {
+        this.sketch = new FrequencySketch(capacity);
+    }
+}
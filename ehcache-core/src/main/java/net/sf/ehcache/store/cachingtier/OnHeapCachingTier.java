@@ -27,6 +27,7 @@ import net.sf.ehcache.pool.SizeOfEngine;
 import net.sf.ehcache.pool.SizeOfEngineLoader;
 import net.sf.ehcache.pool.sizeof.annotations.IgnoreSizeOf;
 import net.sf.ehcache.store.CachingTier;
+import net.sf.ehcache.store.ExpiryIndex;
 import net.sf.ehcache.store.FifoPolicy;
 import net.sf.ehcache.store.LfuPolicy;
 import net.sf.ehcache.store.LruPolicy;
@@ -71,6 +72,24 @@ public class OnHeapCachingTier<K, V> implements CachingTier<K, V> {
 
     private volatile List<Listener<K, V>> listeners = new CopyOnWriteArrayList<Listener<K, V>>();
 
+    private final ExpiryIndex.ExpirableStore expirableStore = new ExpiryIndex.ExpirableStore() {
+        @Override
+        public Element getQuiet(final Object key) {
+            Object value = backEnd.get((K)key);
+            return value instanceof Element ? (Element)value : null;
+        }
+
+        @Override
+        public void expire(final Object key, final Element element) {
+            if (element.isExpired() && backEnd.remove((K)key, element)) {
+                for (Listener<K, V> listener : listeners) {
+                    listener.evicted((K)key, (V)element);
+                }
+            }
+        }
+    };
+    private final ExpiryIndex expiryIndex = new ExpiryIndex(expirableStore);
+
     /**
      * A Constructor
      *
@@ -144,6 +163,8 @@ public class OnHeapCachingTier<K, V> implements CachingTier<K, V> {
             return new LfuPolicy();
         } else if (policySelection.equals(MemoryStoreEvictionPolicy.CLOCK)) {
             return new LruPolicy();
+        } else if (policySelection.equals(MemoryStoreEvictionPolicy.TINYLFU)) {
+            return new LruPolicy();
         }
 
         throw new IllegalArgumentException(policySelection + " isn't a valid eviction policy");
@@ -178,6 +199,9 @@ public class OnHeapCachingTier<K, V> implements CachingTier<K, V> {
                     if (value == null) {
                         backEnd.remove(key, f);
                     } else if (backEnd.replace(key, f, value)) {
+                        if (value instanceof Element) {
+                            expiryIndex.add(key, (Element)value);
+                        }
                         putObserver.end(PutOutcome.ADDED);
                     } else {
                         V p =  getValue(backEnd.remove(key));
@@ -213,11 +237,22 @@ public class OnHeapCachingTier<K, V> implements CachingTier<K, V> {
     @Override
     public void clear() {
         backEnd.clear(false);
+        expiryIndex.clear();
     }
 
     @Override
     public void clearAndNotify() {
         backEnd.clear(true);
+        expiryIndex.clear();
+    }
+
+    /**
+     * Evicts the expired elements from this tier, as if they had been evicted for lack of space.
+     * <p>
+     * Only the elements due according to the expiry index are checked.
+     */
+    public void expireElements() {
+        expiryIndex.expire(System.currentTimeMillis());
     }
 
     @Override
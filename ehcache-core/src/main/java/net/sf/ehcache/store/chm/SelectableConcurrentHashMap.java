@@ -104,6 +104,7 @@ public class SelectableConcurrentHashMap {
     private final PoolAccessor poolAccessor;
     private volatile long maxSize;
     private final RegisteredEventListeners cacheEventNotificationService;
+    private volatile EvictionListener evictionListener;
 
     private Set<Object> keySet;
     private Set<Map.Entry<Object,Element>> entrySet;
@@ -154,6 +155,16 @@ public class SelectableConcurrentHashMap {
         this.maxSize = maxSize;
     }
 
+    /**
+     * Sets the listener told of the elements this map evicts by itself, either to stay within its maximum size or on
+     * {@link #evict()}.
+     *
+     * @param evictionListener the listener, or {@code null}
+     */
+    public void setEvictionListener(final EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
     public Element[] getRandomValues(final int size, Object keyHint) {
         ArrayList<Element> sampled = new ArrayList<Element>(size * 2);
 
@@ -707,6 +718,10 @@ public class SelectableConcurrentHashMap {
         }
 
         private void notifyEvictionOrExpiry(final Element element) {
+            EvictionListener listener = evictionListener;
+            if (element != null && listener != null) {
+                listener.evicted(element.getObjectKey(), element);
+            }
             if(element != null && cacheEventNotificationService != null) {
                 if (element.isExpired()) {
                     cacheEventNotificationService.notifyElementExpiry(element, false);
@@ -716,60 +731,124 @@ public class SelectableConcurrentHashMap {
             }
         }
 
+        /*
+         * Reads are lock free: entries are published by a write-volatile of count after being linked in, their key, hash
+         * and next fields are final and their value volatile, and removals and rehashes clone the entries whose next
+         * field would change instead of mutating them.  A reader racing with the publication of an entry can still see
+         * its value as null, in which case it is read again under the lock.
+         *
+         * The segment's write lock is also handed out through lockFor(), to explicit key locks and to puts and removes
+         * coordinated with a cache writer, and a reader must not see what such a holder is in the middle of changing.
+         * So a read that finds the write lock held by another thread once it is done is done again under the read lock,
+         * which waits for the holder to be done.
+         */
+
         Element get(final Object key, final int hash) {
-            final ReadLock readLock = readLock();
-            readLock.lock();
-            try {
-                if (count != 0) { // read-volatile
-                    HashEntry e = getFirst(hash);
-                    while (e != null) {
-                        if (e.hash == hash && key.equals(e.key)) {
+            Element value = getLockFree(key, hash);
+            if (isWriteLockedElsewhere()) {
+                final ReadLock readLock = readLock();
+                readLock.lock();
+                try {
+                    return getLockFree(key, hash);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+            return value;
+        }
+
+        boolean containsKey(final Object key, final int hash) {
+            boolean contains = containsKeyLockFree(key, hash);
+            if (isWriteLockedElsewhere()) {
+                final ReadLock readLock = readLock();
+                readLock.lock();
+                try {
+                    return containsKeyLockFree(key, hash);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+            return contains;
+        }
+
+        boolean containsValue(Object value) {
+            boolean contains = containsValueLockFree(value);
+            if (isWriteLockedElsewhere()) {
+                final ReadLock readLock = readLock();
+                readLock.lock();
+                try {
+                    return containsValueLockFree(value);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+            return contains;
+        }
+
+        private boolean isWriteLockedElsewhere() {
+            return isWriteLocked() && !isWriteLockedByCurrentThread();
+        }
+
+        private Element getLockFree(final Object key, final int hash) {
+            if (count != 0) { // read-volatile
+                HashEntry e = getFirst(hash);
+                while (e != null) {
+                    if (e.hash == hash && key.equals(e.key)) {
+                        // only write when needed, so that readers of a hot entry don't contend on its cache line
+                        if (!e.accessed) {
                             e.accessed = true;
-                            return e.value;
                         }
-                        e = e.next;
+                        Element v = e.value;
+                        if (v != null) {
+                            return v;
+                        }
+                        return readValueUnderLock(e); // recheck
                     }
+                    e = e.next;
                 }
-                return null;
-            } finally {
-                readLock.unlock();
             }
+            return null;
         }
 
-        boolean containsKey(final Object key, final int hash) {
-            final ReadLock readLock = readLock();
-            readLock.lock();
-            try {
-                if (count != 0) { // read-volatile
-                    HashEntry e = getFirst(hash);
-                    while (e != null) {
-                        if (e.hash == hash && key.equals(e.key))
+        private boolean containsKeyLockFree(final Object key, final int hash) {
+            if (count != 0) { // read-volatile
+                HashEntry e = getFirst(hash);
+                while (e != null) {
+                    if (e.hash == hash && key.equals(e.key))
+                        return true;
+                    e = e.next;
+                }
+            }
+            return false;
+        }
+
+        private boolean containsValueLockFree(Object value) {
+            if (count != 0) { // read-volatile
+                HashEntry[] tab = table;
+                int len = tab.length;
+                for (int i = 0 ; i < len; i++) {
+                    for (HashEntry e = tab[i]; e != null; e = e.next) {
+                        Element v = e.value;
+                        if (v == null) // recheck
+                            v = readValueUnderLock(e);
+                        if (value.equals(v))
                             return true;
-                        e = e.next;
                     }
                 }
-                return false;
-            } finally {
-                readLock.unlock();
             }
+            return false;
         }
 
-        boolean containsValue(Object value) {
+        /**
+         * Reads value field of an entry under lock. Called if value
+         * field ever appears to be null, which is only possible if a
+         * reader raced with the publication of the entry.
+         */
+        Element readValueUnderLock(HashEntry e) {
             final ReadLock readLock = readLock();
             readLock.lock();
             try {
-                if (count != 0) { // read-volatile
-                    HashEntry[] tab = table;
-                    int len = tab.length;
-                    for (int i = 0 ; i < len; i++) {
-                        for (HashEntry e = tab[i]; e != null; e = e.next) {
-                            Element v = e.value;
-                            if (value.equals(v))
-                                return true;
-                        }
-                    }
-                }
-                return false;
+                return e.value;
             } finally {
                 readLock.unlock();
             }
@@ -1256,4 +1335,18 @@ public class SelectableConcurrentHashMap {
         h += (h <<   2) + (h << 14);
         return h ^ (h >>> 16);
     }
+
+    /**
+     * Told of the elements a map evicts by itself.
+     */
+    public interface EvictionListener {
+
+        /**
+         * Called once an element was evicted, outside of any lock of the map.
+         *
+         * @param key the key of the element
+         * @param element the evicted element
+         */
+        void evicted(Object key, Element element);
+    }
 }
@@ -18,16 +18,22 @@ package net.sf.ehcache.store.compound;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.ElementIdHelper;
+import net.sf.ehcache.serializer.JavaSerializer;
+import net.sf.ehcache.serializer.Serializer;
 import net.sf.ehcache.util.PreferredLoaderObjectInputStream;
 
 /**
  * A copy strategy that can use partial (if both copy on read and copy on write are set) or full Serialization to copy the object graph
+ * <p>
+ * Values are serialized with Java serialization unless the strategy is created with another {@link Serializer}.
  *
  * @author Alex Snaps
  * @author Ludovic Orban
@@ -36,6 +42,24 @@ public class ReadWriteSerializationCopyStrategy implements ReadWriteCopyStrategy
 
     private static final long serialVersionUID = 2659269742281205622L;
 
+    private final Serializer serializer;
+
+    /**
+     * Create a copy strategy using Java serialization.
+     */
+    public ReadWriteSerializationCopyStrategy() {
+        this(null);
+    }
+
+    /**
+     * Create a copy strategy serializing values with the given serializer.
+     *
+     * @param serializer the serializer, or {@code null} for Java serialization
+     */
+    public ReadWriteSerializationCopyStrategy(Serializer serializer) {
+        this.serializer = serializer instanceof JavaSerializer ? null : serializer;
+    }
+
     /**
      * Deep copies some object and returns an internal storage-ready copy
      *
@@ -53,6 +77,15 @@ public class ReadWriteSerializationCopyStrategy implements ReadWriteCopyStrategy
                 return duplicateElementWithNewValue(value, null);
             }
 
+            if (serializer != null) {
+                try {
+                    serializer.write(value.getObjectValue(), new DataOutputStream(bout));
+                } catch (Exception e) {
+                    throw new CacheException("Failed to serialize value using " + serializer, e);
+                }
+                return duplicateElementWithNewValue(value, bout.toByteArray());
+            }
+
             try {
                 oos = new ObjectOutputStream(bout);
                 oos.writeObject(value.getObjectValue());
@@ -87,6 +120,14 @@ public class ReadWriteSerializationCopyStrategy implements ReadWriteCopyStrategy
             }
 
             ByteArrayInputStream bin = new ByteArrayInputStream((byte[]) storedValue.getObjectValue());
+            if (serializer != null) {
+                try {
+                    return duplicateElementWithNewValue(storedValue, serializer.read(new DataInputStream(bin), loader));
+                } catch (Exception e) {
+                    throw new CacheException("Failed to deserialize value using " + serializer, e);
+                }
+            }
+
             ObjectInputStream ois = null;
             try {
                 ois = new PreferredLoaderObjectInputStream(bin, loader);
@@ -0,0 +1,160 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compresses the serialized elements written to a disk store, and keeps statistics about the compression.
+ * <p>
+ * Elements smaller than the threshold, or which do not get smaller, are written as they are.  Compressed elements are
+ * recognised by their first byte, so they are decompressed when read whether compression is enabled or not.
+ *
+ * @author Ehcache
+ */
+public final class DiskCompression {
+
+    private final boolean enabled;
+    private final int threshold;
+
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong uncompressed = new AtomicLong();
+    private final AtomicLong decompressed = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    /**
+     * Create a compression for a disk store.
+     *
+     * @param enabled whether the elements written are compressed
+     * @param threshold the size in bytes below which elements are written uncompressed
+     */
+    DiskCompression(boolean enabled, int threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Return the bytes to write to disk for the given serialized element.
+     *
+     * @param serialized the serialized element
+     * @return the compressed element, or the serialized element itself
+     */
+    byte[] encode(byte[] serialized) {
+        if (!enabled || serialized.length < threshold) {
+            return serialized;
+        }
+        long start = System.nanoTime();
+        byte[] block = LZBlockCodec.compress(serialized);
+        compressionNanos.addAndGet(System.nanoTime() - start);
+        if (block == null) {
+            uncompressed.incrementAndGet();
+            return serialized;
+        }
+        compressed.incrementAndGet();
+        originalBytes.addAndGet(serialized.length);
+        compressedBytes.addAndGet(block.length);
+        return block;
+    }
+
+    /**
+     * Return the serialized element for the given bytes read from disk.
+     *
+     * @param data the bytes read
+     * @return the serialized element
+     * @throws IOException if the bytes are a corrupt compressed block
+     */
+    byte[] decode(byte[] data) throws IOException {
+        if (!LZBlockCodec.isCompressed(data)) {
+            return data;
+        }
+        long start = System.nanoTime();
+        byte[] serialized = LZBlockCodec.decompress(data);
+        decompressionNanos.addAndGet(System.nanoTime() - start);
+        decompressed.incrementAndGet();
+        return serialized;
+    }
+
+    /**
+     * Return whether the elements written are compressed.
+     *
+     * @return {@code true} if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the number of elements written compressed.
+     *
+     * @return the compressed element count
+     */
+    public long getCompressedCount() {
+        return compressed.get();
+    }
+
+    /**
+     * Return the number of elements above the threshold written uncompressed because they did not get smaller.
+     *
+     * @return the incompressible element count
+     */
+    public long getIncompressibleCount() {
+        return uncompressed.get();
+    }
+
+    /**
+     * Return the number of elements decompressed.
+     *
+     * @return the decompressed element count
+     */
+    public long getDecompressedCount() {
+        return decompressed.get();
+    }
+
+    /**
+     * Return the ratio of the serialized size of the elements written compressed to their compressed size.
+     *
+     * @return the compression ratio, 1 if no element was compressed
+     */
+    public double getCompressionRatio() {
+        long written = compressedBytes.get();
+        return written == 0 ? 1 : (double) originalBytes.get() / written;
+    }
+
+    /**
+     * Return the average time spent compressing an element, incompressible elements included, in nanoseconds.
+     *
+     * @return the average compression time
+     */
+    public long getAverageCompressionNanos() {
+        long count = compressed.get() + uncompressed.get();
+        return count == 0 ? 0 : compressionNanos.get() / count;
+    }
+
+    /**
+     * Return the average time spent decompressing an element, in nanoseconds.
+     *
+     * @return the average decompression time
+     */
+    public long getAverageDecompressionNanos() {
+        long count = decompressed.get();
+        return count == 0 ? 0 : decompressionNanos.get() / count;
+    }
+}
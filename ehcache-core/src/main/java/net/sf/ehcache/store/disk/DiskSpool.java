@@ -0,0 +1,187 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The queue of placeholders waiting to be written to disk, served by a number of writer threads.
+ * <p>
+ * Placeholders are spread over the writer threads by key, so that the placeholders for a given key are written in the
+ * order they were spooled.  Each writer drains as many placeholders as are waiting, up to a maximum, and hands them to
+ * the {@link BatchWriter} at once, so that a writer falling behind writes fewer, larger batches.
+ *
+ * @param <T> the type of the placeholders
+ */
+final class DiskSpool<T extends DiskStorageFactory.DiskSubstitute> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiskSpool.class);
+
+    private final List<Lane> lanes;
+    private final int maximumBatchSize;
+    private final BatchWriter<T> writer;
+
+    /**
+     * Create a spool and start its writer threads.
+     *
+     * @param name the name of the disk store, used to name the writer threads
+     * @param threads the number of writer threads
+     * @param maximumBatchSize the maximum number of placeholders handed to the writer at once
+     * @param writer the writer of the batches
+     */
+    DiskSpool(String name, int threads, int maximumBatchSize, BatchWriter<T> writer) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.maximumBatchSize = maximumBatchSize;
+        this.writer = writer;
+        this.lanes = new ArrayList<Lane>(threads);
+        for (int i = 0; i < threads; i++) {
+            Lane lane = new Lane();
+            Thread thread = new Thread(lane, threads == 1 ? name : name + " writer " + i);
+            thread.setDaemon(false);
+            lane.thread = thread;
+            lanes.add(lane);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue the given placeholder to be written.
+     *
+     * @param placeholder the placeholder
+     */
+    void spool(T placeholder) {
+        int hash = placeholder.getKey().hashCode();
+        hash ^= (hash >>> 16);
+        lanes.get((hash & Integer.MAX_VALUE) % lanes.size()).add(placeholder);
+    }
+
+    /**
+     * Return the number of placeholders waiting to be written.
+     *
+     * @return the spool depth
+     */
+    int size() {
+        int size = 0;
+        for (Lane lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    /**
+     * Write the placeholders still waiting, then stop the writer threads, waiting at most the given time for them.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if every writer thread stopped in time
+     */
+    boolean shutdown(long timeout, TimeUnit unit) {
+        for (Lane lane : lanes) {
+            lane.close();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (lane.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes batches of placeholders to disk.
+     *
+     * @param <T> the type of the placeholders
+     */
+    interface BatchWriter<T> {
+
+        /**
+         * Write the elements of the given placeholders.
+         *
+         * @param batch the placeholders, the ones for a given key in the order they were spooled
+         */
+        void write(List<T> batch);
+    }
+
+    /**
+     * A queue of placeholders served by a single writer thread.
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<T> queue = new ArrayDeque<T>();
+        private Thread thread;
+        private boolean closed;
+
+        synchronized void add(T placeholder) {
+            queue.add(placeholder);
+            notifyAll();
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private synchronized List<T> take() throws InterruptedException {
+            while (queue.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                wait();
+            }
+            List<T> batch = new ArrayList<T>(Math.min(queue.size(), maximumBatchSize));
+            while (!queue.isEmpty() && batch.size() < maximumBatchSize) {
+                batch.add(queue.remove());
+            }
+            return batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (List<T> batch = take(); batch != null; batch = take()) {
+                    try {
+                        writer.write(batch);
+                    } catch (RuntimeException e) {
+                        LOG.error("Disk write of " + batch.size() + " elements failed", e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
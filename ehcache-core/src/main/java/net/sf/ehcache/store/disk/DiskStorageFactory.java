@@ -16,7 +16,6 @@
 
 package net.sf.ehcache.store.disk;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -27,10 +26,18 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
@@ -47,6 +54,8 @@ import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.PinningConfiguration;
 import net.sf.ehcache.event.RegisteredEventListeners;
 import net.sf.ehcache.pool.sizeof.annotations.IgnoreSizeOf;
+import net.sf.ehcache.serializer.ElementSerialization;
+import net.sf.ehcache.serializer.Serializer;
 import net.sf.ehcache.store.disk.ods.FileAllocationTree;
 import net.sf.ehcache.store.disk.ods.Region;
 import net.sf.ehcache.util.MemoryEfficientByteArrayOutputStream;
@@ -73,6 +82,12 @@ public class DiskStorageFactory {
     private static final int MEGABYTE = 1024 * 1024;
     private static final int MAX_EVICT = 5;
     private static final int SAMPLE_SIZE = 30;
+    private static final int JOURNAL_COMPACTION_RATIO = 2;
+    private static final int JOURNAL_COMPACTION_MINIMUM = 1024;
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final int MAX_BATCH_BYTES = MEGABYTE;
+    private static final int COMPACTION_MINIMUM_FILE_SIZE = MEGABYTE;
+    private static final int PERCENT = 100;
 
     private static final Logger LOG = LoggerFactory.getLogger(DiskStorageFactory.class.getName());
 
@@ -81,16 +96,21 @@ public class DiskStorageFactory {
      */
     protected volatile DiskStore                  store;
 
-    private final BlockingQueue<Runnable> diskQueue;
     /**
-     * Executor service used to write elements to disk
+     * Executor service used to expire and free elements on disk, and to write the index
      */
     private final ScheduledThreadPoolExecutor diskWriter;
 
+    /**
+     * Queue of the elements waiting to be written to disk
+     */
+    private final DiskSpool<Placeholder> spool;
+
     private final long queueCapacity;
 
     private final File             file;
     private final RandomAccessFile[] dataAccess;
+    private final MappedDataFile mappedData;
 
     private final FileAllocationTree allocator;
 
@@ -106,6 +126,18 @@ public class DiskStorageFactory {
 
     private final IndexWriteTask flushTask;
 
+    private final IndexJournal journal;
+
+    private final boolean indexLoadedLazily;
+
+    private final int compactionThreshold;
+
+    private final long compactionBatchSize;
+
+    private volatile ConcurrentMap<Object, DiskMarker> pendingIndex;
+
+    private volatile IndexLoader indexLoader;
+
     private volatile int diskCapacity;
 
     private volatile boolean pinningEnabled;
@@ -115,6 +147,10 @@ public class DiskStorageFactory {
     private final DiskStorePathManager diskStorePathManager;
     
     private final ClassLoader classLoader;
+
+    private final Serializer serializer;
+
+    private final DiskCompression compression;
    
     /**
      * Constructs an disk persistent factory for the given cache and disk path.
@@ -122,13 +158,20 @@ public class DiskStorageFactory {
      * @param cache cache that fronts this factory
      */
     public DiskStorageFactory(Ehcache cache, RegisteredEventListeners cacheEventNotificationService) {
-        this.classLoader = cache.getCacheConfiguration().getClassLoader();       
+        this.classLoader = cache.getCacheConfiguration().getClassLoader();
+        this.serializer = cache.getCacheConfiguration().getSerializer();
+        this.compression = new DiskCompression(cache.getCacheConfiguration().isDiskCompression(),
+                cache.getCacheConfiguration().getDiskCompressionThreshold());
         this.diskStorePathManager = cache.getCacheManager().getDiskStorePathManager();
         this.file = diskStorePathManager.getFile(cache.getName(), ".data");
 
         this.indexFile = diskStorePathManager.getFile(cache.getName(), ".index");
         this.pinningEnabled = determineCachePinned(cache.getCacheConfiguration());
         this.diskPersistent = cache.getCacheConfiguration().isDiskPersistent();
+        this.journal = diskPersistent ? new IndexJournal(indexFile, classLoader) : null;
+        this.indexLoadedLazily = cache.getCacheConfiguration().isDiskIndexLoadedLazily();
+        this.compactionThreshold = cache.getCacheConfiguration().getDiskCompactionThreshold();
+        this.compactionBatchSize = (long) cache.getCacheConfiguration().getDiskCompactionBatchSizeMB() * MEGABYTE;
 
         if (diskPersistent && diskStorePathManager.isAutoCreated()) {
             LOG.warn("Data in persistent disk stores is ignored for stores from automatically created directories.\n"
@@ -140,12 +183,14 @@ public class DiskStorageFactory {
             deleteFile(indexFile);
         }
 
+        boolean memoryMapped = cache.getCacheConfiguration().isDiskAccessMemoryMapped();
         try {
-            dataAccess = allocateRandomAccessFiles(file, cache.getCacheConfiguration().getDiskAccessStripes());
-        } catch (FileNotFoundException e) {
+            dataAccess = allocateRandomAccessFiles(file, memoryMapped ? 1 : cache.getCacheConfiguration().getDiskAccessStripes());
+            mappedData = memoryMapped ? new MappedDataFile(dataAccess[0]) : null;
+        } catch (IOException e) {
             throw new CacheException(e);
         }
-        this.allocator = new FileAllocationTree(Long.MAX_VALUE, dataAccess[0]);
+        this.allocator = new FileAllocationTree(Long.MAX_VALUE, memoryMapped ? null : dataAccess[0]);
 
         diskWriter = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
             public Thread newThread(Runnable r) {
@@ -154,7 +199,12 @@ public class DiskStorageFactory {
                 return t;
             }
         });
-        this.diskQueue = diskWriter.getQueue();
+        this.spool = new DiskSpool<Placeholder>(file.getName(), cache.getCacheConfiguration().getDiskWriterThreads(),
+                MAX_BATCH_SIZE, new DiskSpool.BatchWriter<Placeholder>() {
+                    public void write(List<Placeholder> batch) {
+                        writeBatch(batch);
+                    }
+                });
         this.eventService = cache.getCacheEventNotificationService();
         this.queueCapacity = cache.getCacheConfiguration().getDiskSpoolBufferSizeMB() * MEGABYTE;
         this.diskCapacity = cache.getCacheConfiguration().getMaxElementsOnDisk();
@@ -163,14 +213,22 @@ public class DiskStorageFactory {
         diskWriter.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
         long expiryInterval = cache.getCacheConfiguration().getDiskExpiryThreadIntervalSeconds();
         diskWriter.scheduleWithFixedDelay(new DiskExpiryTask(), expiryInterval, expiryInterval, TimeUnit.SECONDS);
+        if (compactionThreshold > 0) {
+            diskWriter.scheduleWithFixedDelay(new DiskCompactionTask(), expiryInterval, expiryInterval, TimeUnit.SECONDS);
+        }
 
         flushTask = new IndexWriteTask(indexFile, cache.getCacheConfiguration().isClearOnFlush());
 
+        deleteStaleIndex();
+    }
+
+    private void deleteStaleIndex() {
         if (!getDataFile().exists() || (getDataFile().length() == 0)) {
             LOG.debug("Matching data file missing (or empty) for index file. Deleting index file " + indexFile);
             deleteFile(indexFile);
         } else if (getDataFile().exists() && indexFile.exists()) {
-            if (getDataFile().lastModified() > (indexFile.lastModified() + TimeUnit.SECONDS.toMillis(1))) {
+            if (getDataFile().lastModified() > (indexFile.lastModified() + TimeUnit.SECONDS.toMillis(1))
+                    && !IndexJournal.isJournal(indexFile)) {
                 LOG.warn("The index for data file {} is out of date, probably due to an unclean shutdown. "
                         + "Deleting index file {}", getDataFile(), indexFile);
                 deleteFile(indexFile);
@@ -214,12 +272,25 @@ public class DiskStorageFactory {
         return this.dataAccess[ConcurrencyUtil.selectLock(key, dataAccess.length)];
     }
 
+    /**
+     * Return the compression of the elements written by this factory, and its statistics.
+     *
+     * @return the disk compression
+     */
+    public DiskCompression getCompression() {
+        return compression;
+    }
+
     /**
      * Return this size in bytes of this factory
      *
      * @return this size in bytes of this factory
      */
     public long getOnDiskSizeInBytes() {
+        if (mappedData != null) {
+            // the mapped file is extended a whole segment at a time, so its length overstates what the store uses
+            return allocator.getFileSize();
+        }
         synchronized (dataAccess[0]) {
             try {
                 return dataAccess[0].length();
@@ -289,6 +360,10 @@ public class DiskStorageFactory {
      * Shrink this store's data file down to a minimal size for its contents.
      */
     protected void shrinkDataFile() {
+        if (mappedData != null) {
+            mappedData.shrink(allocator.getFileSize());
+            return;
+        }
         synchronized (dataAccess[0]) {
             try {
                 dataAccess[0].setLength(allocator.getFileSize());
@@ -300,10 +375,17 @@ public class DiskStorageFactory {
     /**
      * Shuts down this disk factory.
      * <p>
-     * This shuts down the executor and then waits for its termination, before closing the data file.
+     * This shuts down the spool and the executor and then waits for their termination, before closing the data file.
      * @throws java.io.IOException if an IO error occurred
      */
     protected void shutdown() throws IOException {
+        IndexLoader loader = indexLoader;
+        if (loader != null) {
+            loader.shutdown();
+        }
+        if (!spool.shutdown(SHUTDOWN_GRACE_PERIOD, TimeUnit.SECONDS)) {
+            LOG.warn("Gave up waiting for the disk writers of [" + file.getName() + "]");
+        }
         diskWriter.shutdown();
         for (int i = 0; i < SHUTDOWN_GRACE_PERIOD; i++) {
             try {
@@ -317,12 +399,23 @@ public class DiskStorageFactory {
             }
         }
 
+        if (mappedData != null) {
+            mappedData.force();
+        }
         for (final RandomAccessFile raf : dataAccess) {
             synchronized (raf) {
                 raf.close();
             }
         }
 
+        if (journal != null) {
+            try {
+                journal.compact(this);
+            } finally {
+                journal.close();
+            }
+        }
+
         if (!diskPersistent) {
             deleteFile(file);
             deleteFile(indexFile);
@@ -357,21 +450,22 @@ public class DiskStorageFactory {
      * @throws ClassNotFoundException on deserialization error
      */
     protected Element read(DiskMarker marker) throws IOException, ClassNotFoundException {
-        final byte[] buffer = new byte[marker.getSize()];
-        final RandomAccessFile data = getDataAccess(marker.getKey());
-        synchronized (data) {
-            // Load the element
-            data.seek(marker.getPosition());
-            data.readFully(buffer);
-        }
-
-        ObjectInputStream objstr = new PreferredLoaderObjectInputStream(new ByteArrayInputStream(buffer), classLoader);
+        return ElementSerialization.deserialize(compression.decode(readBytes(marker)), serializer, classLoader);
+    }
 
-        try {
-            return (Element) objstr.readObject();
-        } finally {
-            objstr.close();
+    private byte[] readBytes(DiskMarker marker) throws IOException {
+        final byte[] buffer = new byte[marker.getSize()];
+        if (mappedData != null) {
+            mappedData.read(marker.getPosition(), buffer);
+        } else {
+            final RandomAccessFile data = getDataAccess(marker.getKey());
+            synchronized (data) {
+                // Load the element
+                data.seek(marker.getPosition());
+                data.readFully(buffer);
+            }
         }
+        return buffer;
     }
 
     /**
@@ -382,25 +476,139 @@ public class DiskStorageFactory {
      * @throws java.io.IOException on write error
      */
     protected DiskMarker write(Element element) throws IOException {
-        MemoryEfficientByteArrayOutputStream buffer = serializeElement(element);
-        int bufferLength = buffer.size();
+        byte[] buffer = compression.encode(serializeElement(element).getBytes());
+        int bufferLength = buffer.length;
         elementSize = bufferLength;
         DiskMarker marker = alloc(element, bufferLength);
         // Write the record
-        final RandomAccessFile data = getDataAccess(element.getObjectKey());
-        synchronized (data) {
-            data.seek(marker.getPosition());
-            data.write(buffer.toByteArray(), 0, bufferLength);
+        if (mappedData != null) {
+            mappedData.write(marker.getPosition(), buffer, bufferLength);
+        } else {
+            final RandomAccessFile data = getDataAccess(element.getObjectKey());
+            synchronized (data) {
+                data.seek(marker.getPosition());
+                data.write(buffer, 0, bufferLength);
+            }
+        }
+        if (journal != null) {
+            journal.put(marker);
         }
         return marker;
     }
 
+    /**
+     * Write the elements of the given placeholders still installed in the store, and fault in the resulting markers.
+     * <p>
+     * The elements are serialized, and compressed if enabled, first, then written in runs of up to {@code MAX_BATCH_BYTES}, each run to a single
+     * region of the data file with one gathering write.
+     *
+     * @param batch the placeholders to write
+     */
+    void writeBatch(List<Placeholder> batch) {
+        List<Placeholder> run = new ArrayList<Placeholder>(batch.size());
+        List<byte[]> serialized = new ArrayList<byte[]>(batch.size());
+        long runBytes = 0;
+        for (Placeholder placeholder : batch) {
+            if (store.unretrievedGet(placeholder.getKey()) != placeholder) {
+                // removed, or replaced by a placeholder further on in the spool
+                continue;
+            }
+            byte[] data;
+            try {
+                data = compression.encode(serializeElement(placeholder.getElement()).getBytes());
+            } catch (Throwable e) {
+                writeFailed(placeholder, e);
+                continue;
+            }
+            run.add(placeholder);
+            serialized.add(data);
+            runBytes += data.length;
+            if (runBytes >= MAX_BATCH_BYTES) {
+                writeRun(run, serialized, runBytes);
+                run.clear();
+                serialized.clear();
+                runBytes = 0;
+            }
+        }
+        if (!run.isEmpty()) {
+            writeRun(run, serialized, runBytes);
+        }
+    }
+
+    private void writeRun(List<Placeholder> run, List<byte[]> serialized, long runBytes) {
+        DiskMarker[] markers = new DiskMarker[run.size()];
+        Region region = null;
+        try {
+            region = allocator.alloc(runBytes);
+            long position = region.start();
+            for (int i = 0; i < markers.length; i++) {
+                int size = serialized.get(i).length;
+                markers[i] = createMarker(position, size, run.get(i).getElement());
+                position += size;
+            }
+            writeContiguous(region.start(), serialized, run.get(0).getKey());
+            if (journal != null) {
+                for (DiskMarker marker : markers) {
+                    journal.put(marker);
+                }
+            }
+        } catch (Throwable e) {
+            if (region != null) {
+                allocator.free(region);
+            }
+            for (Placeholder placeholder : run) {
+                writeFailed(placeholder, e);
+            }
+            return;
+        }
+
+        elementSize = (int) (runBytes / markers.length);
+        for (int i = 0; i < markers.length; i++) {
+            Object key = run.get(i).getKey();
+            if (store.fault(key, run.get(i), markers[i])) {
+                int disk = onDisk.incrementAndGet();
+                onDiskEvict(disk, key);
+            }
+        }
+    }
+
+    private void writeContiguous(long position, List<byte[]> serialized, Object key) throws IOException {
+        if (mappedData != null) {
+            long pos = position;
+            for (byte[] data : serialized) {
+                mappedData.write(pos, data, data.length);
+                pos += data.length;
+            }
+            return;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[serialized.size()];
+        long remaining = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(serialized.get(i));
+            remaining += buffers[i].remaining();
+        }
+        final RandomAccessFile data = getDataAccess(key);
+        synchronized (data) {
+            FileChannel channel = data.getChannel();
+            channel.position(position);
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+
+    private void writeFailed(Placeholder placeholder, Throwable e) {
+        LOG.error("Disk Write of " + placeholder.getKey() + " failed: ", e);
+        store.evict(placeholder.getKey(), placeholder);
+    }
+
     private MemoryEfficientByteArrayOutputStream serializeElement(Element element) throws IOException {
         // A ConcurrentModificationException can occur because Java's serialization
         // mechanism is not threadsafe and POJOs are seldom implemented in a threadsafe way.
         // e.g. we are serializing an ArrayList field while another thread somewhere in the application is appending to it.
         try {
-            return MemoryEfficientByteArrayOutputStream.serialize(element);
+            return ElementSerialization.serialize(element, serializer);
         } catch (ConcurrentModificationException e) {
             throw new CacheException("Failed to serialize element due to ConcurrentModificationException. " +
                                      "This is frequently the result of inappropriately sharing thread unsafe object " +
@@ -420,6 +628,13 @@ public class DiskStorageFactory {
      * @param marker marker to be free'd
      */
     protected void free(DiskMarker marker) {
+        if (journal != null) {
+            try {
+                journal.remove(marker);
+            } catch (IOException e) {
+                LOG.error("Failed to record release of " + marker.getKey() + " in index journal " + indexFile, e);
+            }
+        }
         allocator.free(new Region(marker.getPosition(), marker.getPosition() + marker.getSize() - 1));
     }
 
@@ -429,7 +644,7 @@ public class DiskStorageFactory {
      * @return {@code true} if the disk write queue is full.
      */
     public boolean bufferFull() {
-        return (diskQueue.size() * elementSize) > queueCapacity;
+        return ((long) spool.size() * elementSize) > queueCapacity;
     }
 
     /**
@@ -637,7 +852,7 @@ public class DiskStorageFactory {
          */
         @Override
         public void installed() {
-            DiskStorageFactory.this.schedule(new PersistentDiskWriteTask(this));
+            spool.spool(this);
         }
 
         /**
@@ -712,14 +927,16 @@ public class DiskStorageFactory {
          * @param size size of the serialized element
          * @param key key to which this element is mapped
          * @param hits hit count for this element
+         * @param expiry expiration time of this element
          */
-        DiskMarker(DiskStorageFactory factory, long position, int size, Object key, long hits) {
+        DiskMarker(DiskStorageFactory factory, long position, int size, Object key, long hits, long expiry) {
             super(factory);
             this.position = position;
             this.size = size;
 
             this.key = key;
             this.hitCount = hits;
+            this.expiry = expiry;
         }
 
         /**
@@ -745,7 +962,7 @@ public class DiskStorageFactory {
          *
          * @return disk offset
          */
-        private long getPosition() {
+        long getPosition() {
             return position;
         }
 
@@ -794,6 +1011,15 @@ public class DiskStorageFactory {
             hitCount = e.getHitCount();
             expiry = e.getExpirationTime();
         }
+
+        /**
+         * Updates the stats from the marker this one replaces
+         * @param marker the replaced marker
+         */
+        void updateStats(DiskMarker marker) {
+            hitCount = marker.hitCount;
+            expiry = marker.expiry;
+        }
     }
 
 
@@ -829,6 +1055,111 @@ public class DiskStorageFactory {
         }
     }
 
+    /**
+     * Compact the data file if enough of it is free space, moving the elements at the end of the file into the free
+     * space before them.  As the end of the file is freed the file is truncated.
+     *
+     * @param maxBytes the maximum number of bytes to move
+     * @return the number of elements moved
+     */
+    int compact(long maxBytes) {
+        long fileSize = allocator.getFileSize();
+        if (fileSize < COMPACTION_MINIMUM_FILE_SIZE
+                || (fileSize - allocator.getAllocatedSize()) * PERCENT < compactionThreshold * fileSize) {
+            return 0;
+        }
+
+        List<DiskMarker> markers = new ArrayList<DiskMarker>();
+        for (Object key : store.keySet()) {
+            Object o = store.unretrievedGet(key);
+            if (o instanceof DiskMarker && created(o)) {
+                markers.add((DiskMarker) o);
+            }
+        }
+        Collections.sort(markers, new Comparator<DiskMarker>() {
+            public int compare(DiskMarker a, DiskMarker b) {
+                return a.getPosition() > b.getPosition() ? -1 : (a.getPosition() == b.getPosition() ? 0 : 1);
+            }
+        });
+
+        int moved = 0;
+        long movedBytes = 0;
+        for (DiskMarker marker : markers) {
+            if (movedBytes >= maxBytes) {
+                break;
+            }
+            if (relocate(marker)) {
+                moved++;
+                movedBytes += marker.getSize();
+            }
+        }
+        if (moved > 0) {
+            shrinkDataFile();
+            LOG.debug("Compaction moved {} elements ({} bytes) of {}, now {} bytes long",
+                    new Object[] {moved, movedBytes, file.getName(), allocator.getFileSize()});
+        }
+        return moved;
+    }
+
+    private boolean relocate(DiskMarker marker) {
+        Region region = allocator.allocBelow(marker.getSize(), marker.getPosition());
+        if (region == null) {
+            return false;
+        }
+        try {
+            writeContiguous(region.start(), Collections.singletonList(readBytes(marker)), marker.getKey());
+        } catch (IOException e) {
+            LOG.warn("Failed to move " + marker.getKey() + " within " + file, e);
+            allocator.free(region);
+            return false;
+        }
+        DiskMarker replacement = new DiskMarker(this, region.start(), marker.getSize(), marker.getKey(),
+                marker.getHitCount(), marker.getExpirationTime());
+        if (store.relocate(marker.getKey(), marker, replacement)) {
+            return true;
+        } else {
+            // removed or updated meanwhile
+            allocator.free(region);
+            return false;
+        }
+    }
+
+    /**
+     * Record the move of an element to the given replacement marker, then free the marker it replaced.
+     * <p>
+     * Must be called under the write lock of the element's segment, once the replacement is installed.
+     *
+     * @param replaced the marker replaced
+     * @param replacement the marker installed
+     */
+    void relocated(DiskMarker replaced, DiskMarker replacement) {
+        if (journal != null) {
+            try {
+                journal.put(replacement);
+            } catch (IOException e) {
+                LOG.error("Failed to record move of " + replacement.getKey() + " in index journal " + indexFile, e);
+            }
+        }
+        free(replaced);
+    }
+
+    /**
+     * Compacts the data file, if enough of it is free space.
+     */
+    private final class DiskCompactionTask implements Runnable {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run() {
+            try {
+                compact(compactionBatchSize);
+            } catch (RuntimeException e) {
+                LOG.warn("Compaction of " + file.getName() + " failed", e);
+            }
+        }
+    }
+
     /**
      * Attempt to delete the corresponding file and log an error on failure.
      * @param f the file to delete
@@ -1098,38 +1429,214 @@ public class DiskStorageFactory {
 
         /**
          * {@inheritDoc}
+         * <p>
+         * When the index is journaled only the pending placeholders are written and the journal synced, the journal
+         * being compacted once it holds more than twice as many records as there are elements on disk.
          */
         public synchronized Void call() throws IOException, InterruptedException {
+            if (journal == null) {
+                writeIndex();
+                return null;
+            }
+            for (Object key : store.keySet()) {
+                flushPlaceholder(key);
+            }
+            if (mappedData != null) {
+                mappedData.force();
+            }
+            long records = journal.getRecordCount();
+            if (records > JOURNAL_COMPACTION_MINIMUM && records > (long) JOURNAL_COMPACTION_RATIO * onDisk.get()) {
+                journal.compact(DiskStorageFactory.this);
+            } else {
+                journal.sync();
+            }
+            return null;
+        }
+
+        private void writeIndex() throws IOException {
             ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(index));
             try {
                 for (Object key : store.keySet()) {
-                    Object o = store.unretrievedGet(key);
-                    if (o instanceof Placeholder && !((Placeholder)o).failedToFlush) {
-                        o = new PersistentDiskWriteTask((Placeholder) o).call();
-                        if (o == null) {
-                            o = store.unretrievedGet(key);
-                        }
-                    }
-
+                    Object o = flushPlaceholder(key);
                     if (o instanceof DiskMarker) {
                         DiskMarker marker = (DiskMarker) o;
                         oos.writeObject(key);
                         oos.writeObject(marker);
                     }
                 }
+                if (mappedData != null) {
+                    mappedData.force();
+                }
             } finally {
                 oos.close();
             }
-            return null;
         }
 
+        private Object flushPlaceholder(Object key) {
+            Object o = store.unretrievedGet(key);
+            if (o instanceof Placeholder && !((Placeholder) o).failedToFlush) {
+                o = new PersistentDiskWriteTask((Placeholder) o).call();
+                if (o == null) {
+                    o = store.unretrievedGet(key);
+                }
+            }
+            return o;
+        }
+    }
+
+    /**
+     * Return the markers currently installed in the bound store, along with those still waiting to be loaded.
+     *
+     * @return the live markers
+     */
+    List<DiskMarker> liveMarkers() {
+        List<DiskMarker> markers = new ArrayList<DiskMarker>();
+        // pending markers first: a marker loaded concurrently is then still seen in the store
+        Map<Object, DiskMarker> pending = pendingIndex;
+        if (pending != null) {
+            markers.addAll(pending.values());
+        }
+        for (Object key : store.keySet()) {
+            Object o = store.unretrievedGet(key);
+            if (o instanceof DiskMarker && created(o)) {
+                markers.add((DiskMarker) o);
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Return {@code true} while index entries are still being loaded into the bound store.
+     *
+     * @return {@code true} if the index is loading
+     */
+    boolean isIndexLoading() {
+        return pendingIndex != null;
+    }
+
+    /**
+     * Load the pending index entry for the given key, if it has not been loaded already.
+     * <p>
+     * Must be called under the write lock of the key's segment.
+     *
+     * @param key the key to load
+     */
+    void loadIndexEntry(Object key) {
+        Map<Object, DiskMarker> pending = pendingIndex;
+        DiskMarker marker = pending == null ? null : pending.remove(key);
+        if (marker != null) {
+            install(key, marker);
+        }
+    }
+
+    /**
+     * Discard all index entries that have not been loaded yet.
+     */
+    void discardPendingIndex() {
+        Map<Object, DiskMarker> pending = pendingIndex;
+        if (pending != null) {
+            for (Object key : pending.keySet()) {
+                DiskMarker marker = pending.remove(key);
+                if (marker != null) {
+                    free(marker);
+                }
+            }
+        }
+    }
+
+    private void install(Object key, DiskMarker marker) {
+        boolean installed;
+        try {
+            installed = store.putRawIfAbsent(key, marker);
+        } catch (IllegalArgumentException e) {
+            installed = false;
+        }
+        if (installed) {
+            onDisk.incrementAndGet();
+        } else {
+            // the disk pool is full
+            free(marker);
+        }
     }
 
     private void loadIndex() {
-        if (!indexFile.exists()) {
+        if (indexFile.exists()) {
+            if (journal != null && IndexJournal.isJournal(indexFile)) {
+                loadJournal();
+                return;
+            } else {
+                loadLegacyIndex();
+            }
+        }
+
+        if (openJournal()) {
+            compactJournalIfStale();
+        }
+    }
+
+    private boolean openJournal() {
+        if (journal != null) {
+            try {
+                journal.open();
+                return true;
+            } catch (IOException e) {
+                LOG.error("Failed to open index journal " + indexFile, e);
+            }
+        }
+        return false;
+    }
+
+    private void compactJournalIfStale() {
+        try {
+            if (journal.getRecordCount() != onDisk.get()) {
+                journal.compact(this);
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to compact index journal " + indexFile, e);
+        }
+    }
+
+    private void loadJournal() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        IndexLoader loader = new IndexLoader(file.getName(), threads);
+        Map<Object, DiskMarker> live;
+        try {
+            live = journal.replay(this, loader.getExecutor(), threads);
+        } catch (Exception e) {
+            loader.shutdown();
+            LOG.warn("Index journal {} is unreadable, deleting and ignoring it : {}", indexFile, e);
+            deleteFile(indexFile);
+            shrinkDataFile();
+            openJournal();
             return;
         }
 
+        for (Iterator<Map.Entry<Object, DiskMarker>> it = live.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Object, DiskMarker> entry = it.next();
+            try {
+                markUsed(entry.getValue());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Ignoring journaled entry for key {} overlapping another entry in {}", entry.getKey(), file);
+                it.remove();
+            }
+        }
+        shrinkDataFile();
+
+        final boolean opened = openJournal();
+        pendingIndex = new ConcurrentHashMap<Object, DiskMarker>(live);
+        indexLoader = loader;
+        loader.load(store, live.keySet(), indexLoadedLazily, new Runnable() {
+            public void run() {
+                pendingIndex = null;
+                indexLoader = null;
+                if (opened) {
+                    compactJournalIfStale();
+                }
+            }
+        });
+    }
+
+    private void loadLegacyIndex() {
         try {
             ObjectInputStream ois = new PreferredLoaderObjectInputStream(new FileInputStream(indexFile), classLoader);
             try {
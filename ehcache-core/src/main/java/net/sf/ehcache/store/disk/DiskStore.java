@@ -207,6 +207,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
             return null;
         } else {
             int hash = hash(key.hashCode());
+            loadIndexEntry(key, hash);
             Element e = segmentFor(hash).get(key, hash, true);
             if (e == null) {
                 getObserver.end(GetOutcome.MISS);
@@ -226,6 +227,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
             putObserver.begin();
             Object key = element.getObjectKey();
             int hash = hash(key.hashCode());
+            loadIndexEntry(key, hash);
             Element oldElement = segmentFor(hash).put(key, hash, element, false, true);
             if (oldElement == null) {
                 putObserver.end(PutOutcome.ADDED);
@@ -455,6 +457,25 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
         }
     }
 
+    /**
+     * Return the compression of the elements written to disk, and its statistics.
+     *
+     * @return the disk compression
+     */
+    public DiskCompression getDiskCompression() {
+        return disk.getCompression();
+    }
+
+    /**
+     * Return the ratio of the serialized size of the elements written compressed to their size on disk.
+     *
+     * @return the compression ratio
+     */
+    @Statistic(name = "compression-ratio", tags = "local-disk")
+    public double getDiskCompressionRatio() {
+        return disk.getCompression().getCompressionRatio();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -503,6 +524,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
             putObserver.begin();
             Object key = element.getObjectKey();
             int hash = hash(key.hashCode());
+            loadIndexEntry(key, hash);
             Element oldElement = segmentFor(hash).put(key, hash, element, false, false);
             if (oldElement == null) {
                 putObserver.end(PutOutcome.ADDED);
@@ -560,6 +582,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
             return null;
         } else {
             int hash = hash(key.hashCode());
+            loadIndexEntry(key, hash);
             return segmentFor(hash).get(key, hash, false);
         }
     }
@@ -623,6 +646,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
         removeObserver.begin();
         try {
             int hash = hash(key.hashCode());
+            loadIndexEntry(key, hash);
             return segmentFor(hash).remove(key, hash, null, null);
         } finally {
             removeObserver.end(RemoveOutcome.SUCCESS);
@@ -651,6 +675,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
      * {@inheritDoc}
      */
     public void removeAll() {
+        disk.discardPendingIndex();
         for (Segment s : segments) {
             s.clear();
         }
@@ -754,6 +779,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
      */
     public boolean containsKey(Object key) {
         int hash = hash(key.hashCode());
+        loadIndexEntry(key, hash);
         return segmentFor(hash).containsKey(key, hash);
     }
 
@@ -775,6 +801,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
     public Element putIfAbsent(Element element) throws NullPointerException {
         Object key = element.getObjectKey();
         int hash = hash(key.hashCode());
+        loadIndexEntry(key, hash);
         return segmentFor(hash).put(key, hash, element, true, false);
     }
 
@@ -784,6 +811,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
     public Element removeElement(Element element, ElementValueComparator comparator) throws NullPointerException {
         Object key = element.getObjectKey();
         int hash = hash(key.hashCode());
+        loadIndexEntry(key, hash);
         return segmentFor(hash).remove(key, hash, element, comparator);
     }
 
@@ -794,6 +822,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
             throws NullPointerException, IllegalArgumentException {
         Object key = element.getObjectKey();
         int hash = hash(key.hashCode());
+        loadIndexEntry(key, hash);
         return segmentFor(hash).replace(key, hash, old, element, comparator);
     }
 
@@ -803,6 +832,7 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
     public Element replace(Element element) throws NullPointerException {
         Object key = element.getObjectKey();
         int hash = hash(key.hashCode());
+        loadIndexEntry(key, hash);
         return segmentFor(hash).replace(key, hash, element);
     }
 
@@ -824,6 +854,24 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
         return segmentFor(hash).fault(key, hash, expect, fault, status.get() == Status.STATUS_SHUTDOWN);
     }
 
+    /**
+     * Atomically switch the <code>expect</code> marker of this element for the <code>replacement</code> marker, which
+     * points at a copy of the same data elsewhere in the data file.
+     * <p>
+     * A successful switch will return <code>true</code>, record the replacement in the index journal and free the
+     * replaced marker.  A failed switch will return <code>false</code> and leave the freeing of the replacement to the
+     * caller.
+     *
+     * @param key key to which this element is mapped
+     * @param expect marker expected
+     * @param replacement marker to install
+     * @return <code>true</code> if <code>replacement</code> was installed
+     */
+    boolean relocate(Object key, DiskMarker expect, DiskMarker replacement) {
+        int hash = hash(key.hashCode());
+        return segmentFor(hash).relocate(key, hash, expect, replacement);
+    }
+
     /**
      * Remove the matching mapping. The evict method does referential comparison
      * of the unretrieved substitute against the argument value.
@@ -898,6 +946,42 @@ public final class DiskStore extends AbstractStore implements StripedReadWriteLo
         return segments[hash >>> segmentShift];
     }
 
+    /**
+     * Return the index of the segment the given key maps to.
+     *
+     * @param key the key
+     * @return the segment index
+     */
+    int segmentIndexFor(Object key) {
+        return hash(key.hashCode()) >>> segmentShift;
+    }
+
+    /**
+     * Load the pending disk index entry for the given key, if the index is still being loaded.
+     *
+     * @param key the key to load
+     */
+    void loadIndexEntry(Object key) {
+        if (disk.isIndexLoading()) {
+            loadIndexEntry(key, hash(key.hashCode()));
+        }
+    }
+
+    private void loadIndexEntry(Object key, int hash) {
+        if (disk.isIndexLoading()) {
+            Segment segment = segmentFor(hash);
+            // a read lock held by this thread cannot be upgraded, so the entry is left to the background load
+            if (segment.getReadHoldCount() == 0) {
+                segment.writeLock().lock();
+                try {
+                    disk.loadIndexEntry(key);
+                } finally {
+                    segment.writeLock().unlock();
+                }
+            }
+        }
+    }
+
     /**
      * Key set implementation for the DiskStore
      */
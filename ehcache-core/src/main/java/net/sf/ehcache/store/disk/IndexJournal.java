@@ -0,0 +1,476 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.store.disk.DiskStorageFactory.DiskMarker;
+import net.sf.ehcache.util.PreferredLoaderObjectInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only, checksummed journal of the disk markers held by a persistent disk store.
+ * <p>
+ * Every marker installed in the store is recorded as a put record, and every marker freed is recorded as a remove
+ * record carrying the position it occupied, so flushing the index only has to sync the journal.  Each record is
+ * protected by a CRC32 checksum: on replay a torn or corrupt tail (as left by a crash) is truncated and every record
+ * before it is recovered.  The journal is periodically compacted by rewriting it with one put record per live marker.
+ * <p>
+ * Record layout: {@code type (1 byte) | payload length (int) | payload | crc32 of type and payload (int)}
+ */
+final class IndexJournal {
+
+    /**
+     * Magic number identifying a journal formatted index file.
+     */
+    static final int MAGIC = 0xEC1D0001;
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexJournal.class);
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_OVERHEAD = 9;
+    private static final int PUT_FIXED_SIZE = 28;
+    private static final int REMOVE_FIXED_SIZE = 8;
+    private static final int MINIMUM_PARTITION_SIZE = 1024;
+
+    private final File file;
+    private final ClassLoader classLoader;
+
+    private FileOutputStream stream;
+    private DataOutputStream out;
+    private long recordCount;
+    private List<byte[]> compactionBacklog;
+
+    /**
+     * Create a journal backed by the given file.
+     *
+     * @param file the journal file
+     * @param classLoader the loader used to resolve key classes on replay
+     */
+    IndexJournal(File file, ClassLoader classLoader) {
+        this.file = file;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Return {@code true} if the given file exists and starts with the journal magic number.
+     *
+     * @param f file to check
+     * @return {@code true} if the file is a journal
+     */
+    static boolean isJournal(File f) {
+        if (!f.isFile() || f.length() < HEADER_SIZE) {
+            return false;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(f));
+            try {
+                return in.readInt() == MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Open the journal for appending, creating it if it does not already exist.
+     *
+     * @throws IOException on failure to open the file
+     */
+    synchronized void open() throws IOException {
+        boolean fresh = !isJournal(file);
+        stream = new FileOutputStream(file, !fresh);
+        out = new DataOutputStream(new BufferedOutputStream(stream));
+        if (fresh) {
+            out.writeInt(MAGIC);
+            recordCount = 0;
+        }
+    }
+
+    /**
+     * Record the installation of the given marker.
+     *
+     * @param marker the installed marker
+     * @throws IOException on serialization or write failure
+     */
+    void put(DiskMarker marker) throws IOException {
+        append(encode(PUT, marker));
+    }
+
+    /**
+     * Record the release of the given marker.
+     *
+     * @param marker the freed marker
+     * @throws IOException on serialization or write failure
+     */
+    void remove(DiskMarker marker) throws IOException {
+        append(encode(REMOVE, marker));
+    }
+
+    private synchronized void append(byte[] record) throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.write(record);
+        recordCount++;
+        if (compactionBacklog != null) {
+            compactionBacklog.add(record);
+        }
+    }
+
+    /**
+     * Flush all appended records through to the storage device.
+     *
+     * @throws IOException on write failure
+     */
+    synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    /**
+     * Sync and close this journal.
+     *
+     * @throws IOException on write failure
+     */
+    synchronized void close() throws IOException {
+        if (out != null) {
+            try {
+                sync();
+            } finally {
+                out.close();
+                out = null;
+                stream = null;
+            }
+        }
+    }
+
+    /**
+     * Return the number of records in the journal.
+     *
+     * @return the record count
+     */
+    synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Rewrite the journal so that it holds exactly one put record per given marker.
+     * <p>
+     * Markers are encoded without holding the journal lock; records appended concurrently are also captured and
+     * replayed onto the compacted journal before it atomically replaces the current one.
+     *
+     * @param factory the factory whose currently installed markers are written
+     * @throws IOException on write failure
+     */
+    void compact(DiskStorageFactory factory) throws IOException {
+        synchronized (this) {
+            if (out == null || compactionBacklog != null) {
+                return;
+            }
+            compactionBacklog = new ArrayList<byte[]>();
+        }
+        File compacted = new File(file.getPath() + ".compact");
+        FileOutputStream compactedStream = new FileOutputStream(compacted);
+        try {
+            DataOutputStream compactedOut = new DataOutputStream(new BufferedOutputStream(compactedStream));
+            compactedOut.writeInt(MAGIC);
+            long count = 0;
+            for (DiskMarker marker : factory.liveMarkers()) {
+                compactedOut.write(encode(PUT, marker));
+                count++;
+            }
+            synchronized (this) {
+                for (byte[] record : compactionBacklog) {
+                    compactedOut.write(record);
+                    count++;
+                }
+                compactedOut.flush();
+                compactedStream.getFD().sync();
+                compactedOut.close();
+                out.close();
+                boolean replaced = file.delete() && compacted.renameTo(file);
+                open();
+                if (!replaced) {
+                    throw new IOException("Failed to replace index journal " + file + " with " + compacted);
+                }
+                recordCount = count;
+            }
+        } finally {
+            synchronized (this) {
+                compactionBacklog = null;
+            }
+            compactedStream.close();
+            DiskStorageFactory.deleteFile(compacted);
+        }
+    }
+
+    /**
+     * Replay the journal, returning the markers it describes in the order they were installed.
+     * <p>
+     * A torn or corrupt tail is logged and truncated, the records before it are retained.
+     *
+     * @param factory the factory the returned markers are bound to
+     * @return the live markers keyed by element key
+     * @throws IOException if the file is not a journal or cannot be read
+     * @throws ClassNotFoundException if a key class cannot be resolved
+     */
+    Map<Object, DiskMarker> replay(DiskStorageFactory factory) throws IOException, ClassNotFoundException {
+        return replay(factory, null, 1);
+    }
+
+    /**
+     * Replay the journal, decoding its records in parallel.
+     * <p>
+     * The records are read sequentially, then split into {@code partitions} contiguous runs whose keys are
+     * deserialized on the given executor, and finally applied in journal order.
+     *
+     * @param factory the factory the returned markers are bound to
+     * @param executor the executor used to decode records, or {@code null} to decode on the calling thread
+     * @param partitions the number of runs the records are split into
+     * @return the live markers keyed by element key
+     * @throws IOException if the file is not a journal or cannot be read
+     * @throws ClassNotFoundException if a key class cannot be resolved
+     */
+    Map<Object, DiskMarker> replay(final DiskStorageFactory factory, ExecutorService executor, int partitions)
+            throws IOException, ClassNotFoundException {
+        final List<byte[]> records = readRecords();
+        final DiskMarker[] markers = new DiskMarker[records.size()];
+        int runs = executor == null ? 1 : Math.max(1, Math.min(partitions, records.size() / MINIMUM_PARTITION_SIZE));
+        if (runs == 1) {
+            decode(records, markers, 0, records.size(), factory);
+        } else {
+            int runLength = (records.size() + runs - 1) / runs;
+            List<Future<Void>> decodes = new ArrayList<Future<Void>>(runs);
+            for (int i = 0; i < runs; i++) {
+                final int from = i * runLength;
+                final int to = Math.min(records.size(), from + runLength);
+                decodes.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws IOException, ClassNotFoundException {
+                        decode(records, markers, from, to, factory);
+                        return null;
+                    }
+                }));
+            }
+            awaitDecodes(decodes);
+        }
+
+        Map<Object, DiskMarker> live = new LinkedHashMap<Object, DiskMarker>();
+        for (int i = 0; i < markers.length; i++) {
+            DiskMarker marker = markers[i];
+            if (records.get(i)[0] == PUT) {
+                live.put(marker.getKey(), marker);
+            } else {
+                DiskMarker current = live.get(marker.getKey());
+                if (current != null && current.getPosition() == marker.getPosition()) {
+                    live.remove(marker.getKey());
+                }
+            }
+        }
+        return live;
+    }
+
+    private static void awaitDecodes(List<Future<Void>> decodes) throws IOException, ClassNotFoundException {
+        try {
+            for (Future<Void> decode : decodes) {
+                try {
+                    decode.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof ClassNotFoundException) {
+                        throw (ClassNotFoundException) cause;
+                    } else {
+                        throw new CacheException(cause);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying index journal");
+        } finally {
+            for (Future<Void> decode : decodes) {
+                decode.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Read every intact record of the journal, truncating any torn or corrupt tail.
+     */
+    private List<byte[]> readRecords() throws IOException {
+        List<byte[]> records = new ArrayList<byte[]>();
+        long length = file.length();
+        long valid = HEADER_SIZE;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + file + " is not an index journal");
+            }
+            while (true) {
+                byte[] record = readRecord(in, length - valid);
+                if (record == null) {
+                    break;
+                }
+                records.add(record);
+                valid += RECORD_OVERHEAD + record.length - 1;
+            }
+        } finally {
+            in.close();
+        }
+        if (valid < length) {
+            LOG.warn("Index journal {} has a torn or corrupt tail, recovering {} records and discarding {} bytes",
+                    new Object[] {file, records.size(), length - valid});
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(valid);
+            } finally {
+                raf.close();
+            }
+        }
+        synchronized (this) {
+            recordCount = records.size();
+        }
+        return records;
+    }
+
+    /**
+     * Read a record, returning the type byte followed by the payload, or {@code null} at end of journal or on the
+     * first record that is incomplete or fails its checksum.
+     */
+    private static byte[] readRecord(DataInputStream in, long remaining) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > remaining - RECORD_OVERHEAD) {
+                return null;
+            }
+            byte[] record = new byte[length + 1];
+            record[0] = (byte) type;
+            in.readFully(record, 1, length);
+            int checksum = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, record.length);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void decode(List<byte[]> records, DiskMarker[] markers, int from, int to, DiskStorageFactory factory)
+            throws IOException, ClassNotFoundException {
+        for (int i = from; i < to; i++) {
+            markers[i] = decode(records.get(i), factory);
+        }
+    }
+
+    /**
+     * Decode a record into a marker, the marker of a remove record only carrying the key and freed position.
+     */
+    private DiskMarker decode(byte[] record, DiskStorageFactory factory) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        long position = in.readLong();
+        if (type == PUT) {
+            int size = in.readInt();
+            long hits = in.readLong();
+            long expiry = in.readLong();
+            return new DiskMarker(factory, position, size, readKey(record, 1 + PUT_FIXED_SIZE), hits, expiry);
+        } else if (type == REMOVE) {
+            return new DiskMarker(factory, position, 0, readKey(record, 1 + REMOVE_FIXED_SIZE), 0, 0);
+        } else {
+            throw new IOException("Unknown index journal record type " + type);
+        }
+    }
+
+    private Object readKey(byte[] record, int offset) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new PreferredLoaderObjectInputStream(
+                new ByteArrayInputStream(record, offset, record.length - offset), classLoader);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    private static byte[] encode(byte type, DiskMarker marker) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(type);
+        data.writeLong(marker.getPosition());
+        if (type == PUT) {
+            data.writeInt(marker.getSize());
+            data.writeLong(marker.getHitCount());
+            data.writeLong(marker.getExpirationTime());
+        }
+        ObjectOutputStream oos = new ObjectOutputStream(data);
+        oos.writeObject(marker.getKey());
+        oos.close();
+
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(body.length + RECORD_OVERHEAD - 1);
+        DataOutputStream recordOut = new DataOutputStream(record);
+        recordOut.writeByte(type);
+        recordOut.writeInt(body.length - 1);
+        recordOut.write(body, 1, body.length - 1);
+        recordOut.writeInt((int) crc.getValue());
+        recordOut.close();
+        return record.toByteArray();
+    }
+}
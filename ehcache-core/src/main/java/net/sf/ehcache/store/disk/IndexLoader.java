@@ -0,0 +1,166 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.ehcache.CacheException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of threads loading the replayed index of a persistent disk store.
+ * <p>
+ * The keys to load are partitioned by the store segment they hash to, so each loader thread only contends for its
+ * own segments' locks.  Loading can either block the caller until every key is installed, or run in the background
+ * while the store is already in use.
+ */
+final class IndexLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexLoader.class);
+
+    private final ExecutorService executor;
+    private final int threads;
+
+    /**
+     * Create a loader with the given number of threads.
+     *
+     * @param name the name of the disk store, used to name the loader threads
+     * @param threads the number of loader threads
+     */
+    IndexLoader(final String name, int threads) {
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + " index loader " + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Return the executor backing this loader.
+     *
+     * @return the loader executor
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Return the number of threads of this loader.
+     *
+     * @return the thread count
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Load the index entries for the given keys into the store.
+     * <p>
+     * Once every key has been loaded the completion callback is run and the loader shuts down.  If the loader is shut
+     * down first the callback is not run.
+     *
+     * @param store the store to load
+     * @param keys the keys whose entries are loaded
+     * @param background {@code true} to return immediately rather than once every key has been loaded
+     * @param completion callback run once loading completes
+     */
+    void load(final DiskStore store, Collection<Object> keys, boolean background, final Runnable completion) {
+        List<List<Object>> partitions = new ArrayList<List<Object>>(threads);
+        for (int i = 0; i < threads; i++) {
+            partitions.add(new ArrayList<Object>());
+        }
+        for (Object key : keys) {
+            partitions.get(store.segmentIndexFor(key) % threads).add(key);
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(threads);
+        List<Future<?>> loads = new ArrayList<Future<?>>(threads);
+        for (final List<Object> partition : partitions) {
+            loads.add(executor.submit(new Runnable() {
+                public void run() {
+                    boolean interrupted = false;
+                    for (Object key : partition) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            interrupted = true;
+                            break;
+                        }
+                        try {
+                            store.loadIndexEntry(key);
+                        } catch (RuntimeException e) {
+                            LOG.warn("Failed to load index entry for key " + key, e);
+                        }
+                    }
+                    if (remaining.decrementAndGet() == 0 && !interrupted && !executor.isShutdown()) {
+                        try {
+                            completion.run();
+                        } finally {
+                            executor.shutdown();
+                        }
+                    }
+                }
+            }));
+        }
+
+        if (!background) {
+            awaitLoads(loads);
+        }
+    }
+
+    private void awaitLoads(List<Future<?>> loads) {
+        boolean interrupted = false;
+        try {
+            for (Future<?> load : loads) {
+                while (true) {
+                    try {
+                        load.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        throw new CacheException(e.getCause());
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop loading, leaving any keys not yet loaded pending.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
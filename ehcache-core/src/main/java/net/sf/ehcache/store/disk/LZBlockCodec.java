@@ -0,0 +1,252 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 block codec, in the style of LZ4, used to compress serialized elements written to disk.
+ * <p>
+ * A compressed block is made of a header, the {@code MAGIC} byte followed by the uncompressed length as a big endian
+ * int, and of a sequence of literal runs each followed by a back reference.  Each run starts with a token byte holding
+ * the literal length in its high nibble and the back reference length, less {@code MIN_MATCH}, in its low nibble, a
+ * nibble of 15 meaning the length goes on in the following bytes, 255 at a time.  The literals come next, then the back
+ * reference offset as a little endian short and the rest of its length.  The last run has literals only.
+ * <p>
+ * Serialized elements start with either the Java serialization stream magic or the element format number, neither of
+ * which is {@code MAGIC}, so compressed and uncompressed blocks can be told apart by their first byte.
+ *
+ * @author Ehcache
+ */
+final class LZBlockCodec {
+
+    /**
+     * The first byte of a compressed block.
+     */
+    static final byte MAGIC = (byte) 0xEC;
+
+    private static final int HEADER_SIZE = 5;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int RUN_MASK = 0x0F;
+    private static final int HASH_LOG = 12;
+    private static final int HASH_MULTIPLIER = -1640531535;
+    private static final int SKIP_TRIGGER = 6;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private LZBlockCodec() {
+        // static helper
+    }
+
+    /**
+     * Return {@code true} if the given bytes are a compressed block.
+     *
+     * @param data the bytes
+     * @return {@code true} if compressed
+     */
+    static boolean isCompressed(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC;
+    }
+
+    /**
+     * Compress the given bytes.
+     *
+     * @param src the bytes to compress
+     * @return the compressed block, or {@code null} if it would not be smaller than the given bytes
+     */
+    static byte[] compress(byte[] src) {
+        final int length = src.length;
+        byte[] dst = new byte[HEADER_SIZE + length + length / BYTE_MASK + 1];
+        dst[0] = MAGIC;
+        writeInt(dst, 1, length);
+        int op = HEADER_SIZE;
+
+        int[] table = new int[1 << HASH_LOG];
+        Arrays.fill(table, -1);
+        int anchor = 0;
+        int ip = 0;
+        int misses = 0;
+        while (ip <= length - MIN_MATCH) {
+            int sequence = readInt(src, ip);
+            int slot = hash(sequence);
+            int ref = table[slot];
+            table[slot] = ip;
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                // step faster over incompressible data
+                ip += 1 + (misses++ >>> SKIP_TRIGGER);
+                continue;
+            }
+            misses = 0;
+
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < length && src[ref + matchLength] == src[ip + matchLength]) {
+                matchLength++;
+            }
+            op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+            if (op < 0) {
+                return null;
+            }
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        op = writeSequence(src, anchor, length - anchor, dst, op, 0, 0);
+        if (op < 0 || op >= length) {
+            return null;
+        }
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * Decompress the given compressed block.
+     *
+     * @param src the compressed block
+     * @return the uncompressed bytes
+     * @throws IOException if the block is corrupt
+     */
+    static byte[] decompress(byte[] src) throws IOException {
+        if (!isCompressed(src)) {
+            throw new IOException("Not a compressed block");
+        }
+        int length = readInt(src, 1);
+        // no byte of a block stands for more uncompressed bytes than a length byte of 255 does
+        if (length < 0 || length > MAX_LENGTH || length > (long) (src.length - HEADER_SIZE) * BYTE_MASK) {
+            throw new IOException("Corrupt compressed block: uncompressed length " + length + " for a block of " + src.length + " bytes");
+        }
+        byte[] dst = new byte[length];
+        int ip = HEADER_SIZE;
+        int op = 0;
+        try {
+            while (true) {
+                int token = src[ip++] & BYTE_MASK;
+                int literals = token >>> 4;
+                if (literals == RUN_MASK) {
+                    int extra = readLength(src, ip);
+                    ip += extra / BYTE_MASK + 1;
+                    literals += extra;
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip == src.length) {
+                    break;
+                }
+
+                int offset = (src[ip++] & BYTE_MASK) | ((src[ip++] & BYTE_MASK) << 8);
+                if (offset == 0 || offset > op) {
+                    throw new IOException("Corrupt compressed block: offset " + offset + " at " + op);
+                }
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int extra = readLength(src, ip);
+                    ip += extra / BYTE_MASK + 1;
+                    matchLength += extra;
+                }
+                matchLength += MIN_MATCH;
+                if (op + matchLength > dst.length) {
+                    throw new IOException("Corrupt compressed block: match overruns the uncompressed length");
+                }
+                // byte by byte, the match may overlap the bytes it produces
+                int ref = op - offset;
+                int end = op + matchLength;
+                while (op < end) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt compressed block", e);
+        }
+        if (op != dst.length) {
+            throw new IOException("Corrupt compressed block: " + op + " bytes instead of " + dst.length);
+        }
+        return dst;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int position, int offset,
+                                     int matchLength) {
+        int op = position;
+        int matchRun = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+        // token, literal length bytes, literals, offset and match length bytes
+        int required = 1 + literals / BYTE_MASK + 1 + literals + 2 + matchRun / BYTE_MASK + 1;
+        if (op + required > dst.length) {
+            return -1;
+        }
+        int tokenPosition = op++;
+        int token;
+        if (literals >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            op = writeLength(dst, op, literals - RUN_MASK);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+
+        if (matchLength != 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            if (matchRun >= RUN_MASK) {
+                token |= RUN_MASK;
+                op = writeLength(dst, op, matchRun - RUN_MASK);
+            } else {
+                token |= matchRun;
+            }
+        }
+        dst[tokenPosition] = (byte) token;
+        return op;
+    }
+
+    private static int writeLength(byte[] dst, int position, int length) {
+        int op = position;
+        int remaining = length;
+        while (remaining >= BYTE_MASK) {
+            dst[op++] = (byte) BYTE_MASK;
+            remaining -= BYTE_MASK;
+        }
+        dst[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readLength(byte[] src, int position) {
+        int length = 0;
+        int ip = position;
+        int b;
+        do {
+            b = src[ip++] & BYTE_MASK;
+            length += b;
+        } while (b == BYTE_MASK);
+        return length;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * HASH_MULTIPLIER) >>> (Integer.SIZE - HASH_LOG);
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return ((data[position] & BYTE_MASK) << 24) | ((data[position + 1] & BYTE_MASK) << 16)
+                | ((data[position + 2] & BYTE_MASK) << 8) | (data[position + 3] & BYTE_MASK);
+    }
+
+    private static void writeInt(byte[] data, int position, int value) {
+        data[position] = (byte) (value >>> 24);
+        data[position + 1] = (byte) (value >>> 16);
+        data[position + 2] = (byte) (value >>> 8);
+        data[position + 3] = (byte) value;
+    }
+}
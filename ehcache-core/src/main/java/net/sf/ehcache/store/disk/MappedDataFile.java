@@ -0,0 +1,229 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A memory-mapped view of a disk store data file.
+ * <p>
+ * The file is mapped in fixed size segments that are added as the allocated region of the file grows.  Reads and writes
+ * are performed against duplicates of the mapped buffers, so concurrent access to disjoint regions of the file only
+ * shares a read lock and requires no system calls once the relevant pages are resident.  Growing and shrinking the
+ * mapping take the write lock, so that the file is never truncated under a read or a write.
+ */
+final class MappedDataFile {
+
+    /**
+     * Default size of each mapped segment (64MB).
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedDataFile.class);
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * Create a mapped view over the given file using the default segment size.
+     *
+     * @param file the data file
+     * @throws IOException if the existing file content cannot be mapped
+     */
+    MappedDataFile(RandomAccessFile file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Create a mapped view over the given file using the given segment size.
+     *
+     * @param file the data file
+     * @param segmentSize the size of each mapped segment
+     * @throws IOException if the existing file content cannot be mapped
+     */
+    MappedDataFile(RandomAccessFile file, int segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.file = file;
+        this.channel = file.getChannel();
+        this.segmentSize = segmentSize;
+        lock.readLock().lock();
+        try {
+            ensureCapacity(channel.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read {@code buffer.length} bytes starting at the given file position.
+     *
+     * @param position file offset to read from
+     * @param buffer destination array
+     */
+    void read(long position, byte[] buffer) {
+        lock.readLock().lock();
+        try {
+            MappedByteBuffer[] current = segments;
+            int offset = 0;
+            long pos = position;
+            while (offset < buffer.length) {
+                ByteBuffer segment = current[segmentIndex(pos)].duplicate();
+                segment.position(segmentOffset(pos));
+                int length = Math.min(buffer.length - offset, segment.remaining());
+                segment.get(buffer, offset, length);
+                offset += length;
+                pos += length;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write {@code length} bytes from the given array at the given file position, growing the mapping as required.
+     *
+     * @param position file offset to write at
+     * @param buffer source array
+     * @param length number of bytes to write
+     * @throws IOException if the mapping needs to grow and the file cannot be extended
+     */
+    void write(long position, byte[] buffer, int length) throws IOException {
+        lock.readLock().lock();
+        try {
+            MappedByteBuffer[] current = ensureCapacity(position + length);
+            int offset = 0;
+            long pos = position;
+            while (offset < length) {
+                ByteBuffer segment = current[segmentIndex(pos)].duplicate();
+                segment.position(segmentOffset(pos));
+                int chunk = Math.min(length - offset, segment.remaining());
+                segment.put(buffer, offset, chunk);
+                offset += chunk;
+                pos += chunk;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flush all modified pages of the mapping to the underlying storage device.
+     */
+    void force() {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Shrink the mapping (and the file) to the smallest number of segments able to hold {@code size} bytes.
+     * <p>
+     * Trailing segments are dropped from the mapping before the file is truncated.  The underlying mappings are
+     * released by the garbage collector, so platforms that refuse to truncate mapped files will simply log and keep
+     * the current file length.
+     *
+     * @param size the number of bytes that must remain mapped
+     */
+    void shrink(long size) {
+        lock.writeLock().lock();
+        try {
+            int required = segmentsFor(size);
+            if (required < segments.length) {
+                MappedByteBuffer[] shrunk = new MappedByteBuffer[required];
+                System.arraycopy(segments, 0, shrunk, 0, required);
+                segments = shrunk;
+                try {
+                    file.setLength((long) required * segmentSize);
+                } catch (IOException e) {
+                    LOG.info("Exception while trying to shrink mapped file", e);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the current length of the mapped file.
+     *
+     * @return the file length in bytes
+     * @throws IOException on failure to read the file length
+     */
+    long length() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Grow the mapping to hold {@code size} bytes.  Must be called holding the read lock, which is held again on return.
+     */
+    private MappedByteBuffer[] ensureCapacity(long size) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (segmentsFor(size) <= current.length) {
+            return current;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            int required = segmentsFor(size);
+            if (required > segments.length) {
+                MappedByteBuffer[] grown = new MappedByteBuffer[required];
+                System.arraycopy(segments, 0, grown, 0, segments.length);
+                for (int i = segments.length; i < required; i++) {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+                }
+                segments = grown;
+            }
+            return segments;
+        } finally {
+            // downgrade, so that the mapping can't shrink before the caller is done with it
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int segmentsFor(long size) {
+        return (int) ((size + segmentSize - 1) / segmentSize);
+    }
+
+    private int segmentIndex(long position) {
+        return (int) (position / segmentSize);
+    }
+
+    private int segmentOffset(long position) {
+        return (int) (position % segmentSize);
+    }
+}
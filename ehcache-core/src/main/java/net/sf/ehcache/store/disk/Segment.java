@@ -793,6 +793,34 @@ public class Segment extends ReentrantReadWriteLock {
         return false;
     }
 
+    /**
+     * Switch the marker of the given key for one pointing at a copy of its data, if it is still mapped to it.
+     *
+     * @param key key to which the marker is mapped
+     * @param hash spread-hash for the key
+     * @param expect marker expected
+     * @param replacement marker to install
+     * @return <code>true</code> if <code>replacement</code> was installed and <code>expect</code> freed
+     */
+    boolean relocate(Object key, int hash, DiskMarker expect, DiskMarker replacement) {
+        writeLock().lock();
+        try {
+            for (HashEntry e = getFirst(hash); e != null; e = e.next) {
+                if (e.hash == hash && key.equals(e.key) && e.element == expect) {
+                    replacement.updateStats(expect);
+                    replacement.onHeapSize = expect.onHeapSize;
+                    e.element = replacement;
+                    // no reader can hold the old marker while the write lock is held
+                    disk.relocated(expect, replacement);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
     private boolean findAndFree(final Object key, final int hash, final Placeholder expect, final DiskMarker fault) {
         for (HashEntry e = getFirst(hash); e != null; e = e.next) {
             if (e.hash == hash && key.equals(e.key)) {
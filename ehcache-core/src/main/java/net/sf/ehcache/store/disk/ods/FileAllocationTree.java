@@ -31,6 +31,7 @@ public final class FileAllocationTree extends RegionSet {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileAllocationTree.class);
     
     private long fileSize;
+    private long allocatedSize;
     private final RandomAccessFile data;
 
     /**
@@ -50,6 +51,20 @@ public final class FileAllocationTree extends RegionSet {
         return r;
     }
 
+    /**
+     * Allocate the lowest region of the given size, provided it ends before the given limit.
+     *
+     * @return the allocated region, or {@code null} if there is no free area that large below the limit
+     */
+    public synchronized Region allocBelow(long size, long limit) {
+        Region r = findLowest(size);
+        if (r == null || r.end() >= limit) {
+            return null;
+        }
+        mark(r);
+        return r;
+    }
+
     /**
      * Mark this region as used
      */
@@ -65,6 +80,7 @@ public final class FileAllocationTree extends RegionSet {
         } else if (!current.isNull()) {
             add(current);
         }
+        allocatedSize += r.size();
         checkGrow(r);
     }
 
@@ -72,6 +88,7 @@ public final class FileAllocationTree extends RegionSet {
      * Mark this region as free.
      */
     public synchronized void free(Region r) {
+        allocatedSize -= r.size();
         // Step 1 : Check if the previous number is present, if so add to the same Range.
         Region prev = removeAndReturn(Long.valueOf(r.start() - 1));
         if (prev != null) {
@@ -105,6 +122,7 @@ public final class FileAllocationTree extends RegionSet {
     @Override
     public synchronized void clear() {
         super.clear();
+        allocatedSize = 0;
     }
 
     private void checkGrow(Region alloc) {
@@ -145,4 +163,11 @@ public final class FileAllocationTree extends RegionSet {
     public synchronized long getFileSize() {
         return fileSize;
     }
+
+    /**
+     * Return the number of bytes currently allocated in this file.
+     */
+    public synchronized long getAllocatedSize() {
+        return allocatedSize;
+    }
 }
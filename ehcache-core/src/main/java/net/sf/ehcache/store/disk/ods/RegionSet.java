@@ -82,4 +82,26 @@ class RegionSet extends AATreeSet<Region> {
             }
         }
     }
+
+    /**
+     * Find the lowest region of the given size, or {@code null} if there is no free area that large.
+     */
+    public Region findLowest(long size) {
+        Node<Region> currentNode = getRoot();
+        Region currentRegion = currentNode.getPayload();
+        if (currentRegion == null || size > currentRegion.contiguous()) {
+            return null;
+        }
+        while (true) {
+            Region left = currentNode.getLeft().getPayload();
+            if (left != null && left.contiguous() >= size) {
+                currentNode = currentNode.getLeft();
+            } else if (currentRegion.size() >= size) {
+                return new Region(currentRegion.start(), currentRegion.start() + size - 1);
+            } else {
+                currentNode = currentNode.getRight();
+            }
+            currentRegion = currentNode.getPayload();
+        }
+    }
 }
@@ -0,0 +1,786 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import static net.sf.ehcache.statistics.StatisticBuilder.operation;
+import static net.sf.ehcache.store.offheap.PageAllocator.NO_PAGE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.sf.ehcache.CacheEntry;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheOperationOutcomes.EvictionOutcome;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.concurrent.CacheLockProvider;
+import net.sf.ehcache.concurrent.ReadWriteLockSync;
+import net.sf.ehcache.concurrent.Sync;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.PinningConfiguration;
+import net.sf.ehcache.event.RegisteredEventListeners;
+import net.sf.ehcache.pool.Pool;
+import net.sf.ehcache.pool.PoolAccessor;
+import net.sf.ehcache.pool.PoolParticipant;
+import net.sf.ehcache.store.AbstractStore;
+import net.sf.ehcache.store.AuthoritativeTier;
+import net.sf.ehcache.store.CacheStore;
+import net.sf.ehcache.store.ElementValueComparator;
+import net.sf.ehcache.store.Policy;
+import net.sf.ehcache.store.Store;
+import net.sf.ehcache.store.StoreOperationOutcomes.GetOutcome;
+import net.sf.ehcache.store.StoreOperationOutcomes.PutOutcome;
+import net.sf.ehcache.store.StoreOperationOutcomes.RemoveOutcome;
+import net.sf.ehcache.store.cachingtier.OnHeapCachingTier;
+import net.sf.ehcache.store.disk.StoreUpdateException;
+import net.sf.ehcache.store.offheap.Segment.Candidate;
+import net.sf.ehcache.store.offheap.Segment.Mode;
+import net.sf.ehcache.writer.CacheWriterManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.statistics.OperationStatistic;
+import org.terracotta.statistics.Statistic;
+import org.terracotta.statistics.StatisticsManager;
+import org.terracotta.statistics.derived.EventRateSimpleMovingAverage;
+import org.terracotta.statistics.derived.OperationResultFilter;
+import org.terracotta.statistics.observer.OperationObserver;
+
+/**
+ * A store keeping serialized elements outside of the Java heap, in direct byte buffers.
+ * <p>
+ * Keys and elements are serialized with the serializer of the cache and stored in chains of fixed size pages, so that
+ * the memory does not fragment whatever the mix of element sizes.  The store is split in segments, each indexing its
+ * records in an open addressing hash table also held outside the heap, so that the store adds next to nothing to the
+ * work of the garbage collector however many elements it holds.
+ * <p>
+ * The memory used is accounted for in the off-heap pool: when the pool is full the store evicts, out of a small random
+ * sample, the elements with the fewest hits.  Direct memory is reserved from the VM as needed, up to the size of the
+ * pool, and is bounded by the {@code -XX:MaxDirectMemorySize} option of the VM.
+ *
+ * @author Ehcache
+ */
+public final class OffHeapStore extends AbstractStore implements AuthoritativeTier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapStore.class.getName());
+
+    private static final int FFFFCD7D = 0xffffcd7d;
+    private static final int FIFTEEN = 15;
+    private static final int TEN = 10;
+    private static final int THREE = 3;
+    private static final int SIX = 6;
+    private static final int FOURTEEN = 14;
+    private static final int SIXTEEN = 16;
+
+    private static final int DEFAULT_SEGMENT_COUNT = 64;
+    private static final int SAMPLE_SIZE = 30;
+    private static final int MAXIMUM_ALLOCATION_ATTEMPTS = 8;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final PageAllocator pages;
+    private final RecordCodec codec;
+    private final RegisteredEventListeners eventService;
+    private final PoolAccessor offHeapPoolAccessor;
+    private final boolean cachePinned;
+    private final Random random = new Random();
+    private final AtomicReference<Status> status = new AtomicReference<Status>(Status.STATUS_UNINITIALISED);
+    private final OperationObserver<GetOutcome> getObserver = operation(GetOutcome.class).of(this).named("get").tag("local-offheap").build();
+    private final OperationObserver<PutOutcome> putObserver = operation(PutOutcome.class).of(this).named("put").tag("local-offheap").build();
+    private final OperationObserver<RemoveOutcome> removeObserver = operation(RemoveOutcome.class).of(this).named("remove").tag("local-offheap").build();
+    private final OperationObserver<EvictionOutcome> evictionObserver = operation(EvictionOutcome.class).named("eviction").of(this).build();
+
+    private volatile CacheLockProvider lockProvider;
+
+    private OffHeapStore(Ehcache cache, long capacity, Pool offHeapPool) {
+        CacheConfiguration config = cache.getCacheConfiguration();
+        this.pages = new PageAllocator(capacity);
+        this.codec = new RecordCodec(config.getSerializer(), config.getClassLoader());
+        this.eventService = cache.getCacheEventNotificationService();
+        PinningConfiguration pinning = config.getPinningConfiguration();
+        this.cachePinned = pinning != null && pinning.getStore() == PinningConfiguration.Store.INCACHE;
+
+        EventRateSimpleMovingAverage hitRate = new EventRateSimpleMovingAverage(1, TimeUnit.SECONDS);
+        EventRateSimpleMovingAverage missRate = new EventRateSimpleMovingAverage(1, TimeUnit.SECONDS);
+        OperationStatistic<GetOutcome> getStatistic = StatisticsManager.getOperationStatisticFor(getObserver);
+        getStatistic.addDerivedStatistic(new OperationResultFilter<GetOutcome>(EnumSet.of(GetOutcome.HIT), hitRate));
+        getStatistic.addDerivedStatistic(new OperationResultFilter<GetOutcome>(EnumSet.of(GetOutcome.MISS), missRate));
+        this.offHeapPoolAccessor = offHeapPool.createPoolAccessor(new OffHeapStorePoolParticipant(hitRate, missRate),
+                new OffHeapSizeOfEngine());
+
+        this.segments = new Segment[DEFAULT_SEGMENT_COUNT];
+        this.segmentShift = Integer.numberOfLeadingZeros(segments.length - 1);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(pages, codec, offHeapPoolAccessor);
+        }
+        this.status.set(Status.STATUS_ALIVE);
+    }
+
+    /**
+     * Creates an off-heap store for the given cache.
+     * <p>
+     * The store reserves at most the size of the pool, or the {@code maxBytesLocalOffHeap} of the cache if the pool is
+     * unbounded.
+     *
+     * @param cache cache that fronts this store
+     * @param offHeapPool pool to track off-heap usage
+     * @return a fully initialized store
+     */
+    public static OffHeapStore create(Ehcache cache, Pool offHeapPool) {
+        long capacity = offHeapPool.getMaxSize();
+        if (capacity <= 0) {
+            capacity = cache.getCacheConfiguration().getMaxBytesLocalOffHeap();
+        }
+        if (capacity <= 0) {
+            throw new CacheException("Cache " + cache.getName() + " cannot overflow to off-heap without a maxBytesLocalOffHeap");
+        }
+        return new OffHeapStore(cache, capacity, offHeapPool);
+    }
+
+    /**
+     * Create a store caching the elements of an off-heap store on heap.
+     *
+     * @param cache the cache
+     * @param onHeapPool the pool tracking on-heap usage
+     * @param offHeapPool the pool tracking off-heap usage
+     * @return a store backed by an off-heap store
+     */
+    public static Store createCacheStore(Ehcache cache, Pool onHeapPool, Pool offHeapPool) {
+        CacheConfiguration config = cache.getCacheConfiguration();
+        if (!config.isOverflowToOffHeap()) {
+            throw new CacheException("An off-heap store can only be used for cache overflowing to off-heap");
+        }
+        OffHeapStore offHeapStore = create(cache, offHeapPool);
+        OnHeapCachingTier<Object, Element> onHeapCache = OnHeapCachingTier.createOnHeapCache(cache, onHeapPool);
+        return new CacheStore(onHeapCache, offHeapStore, config);
+    }
+
+    @Override
+    public Element fault(final Object key, final boolean updateStats) {
+        getObserver.begin();
+        Element element = key == null ? null : get(key, true, updateStats);
+        if (element == null) {
+            getObserver.end(GetOutcome.MISS);
+        } else {
+            getObserver.end(GetOutcome.HIT);
+        }
+        return element;
+    }
+
+    @Override
+    public boolean putFaulted(final Element element) {
+        if (element == null) {
+            return false;
+        }
+        putObserver.begin();
+        if (install(element, Mode.ALWAYS, true, false) == null) {
+            putObserver.end(PutOutcome.ADDED);
+            return true;
+        } else {
+            putObserver.end(PutOutcome.UPDATED);
+            return false;
+        }
+    }
+
+    @Override
+    public void flush(final Element element) {
+        Object key = element.getObjectKey();
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes != null) {
+            int hash = hash(key.hashCode());
+            int hits = (int) Math.min(element.getHitCount(), Integer.MAX_VALUE);
+            segmentFor(hash).flush(hash, keyBytes, key, hits, element.getExpirationTime());
+        }
+    }
+
+    /**
+     * Verifies if the mapping for a key is marked as faulted
+     * @param key the key to check the mapping for
+     * @return true if faulted, false otherwise (including no mapping)
+     */
+    public boolean isFaulted(final Object key) {
+        if (key == null) {
+            return false;
+        }
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(key.hashCode());
+        return keyBytes != null && segmentFor(hash).isFaulted(hash, keyBytes, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean put(Element element) {
+        if (element == null) {
+            return false;
+        }
+        putObserver.begin();
+        if (install(element, Mode.ALWAYS, false, false) == null) {
+            putObserver.end(PutOutcome.ADDED);
+            return true;
+        } else {
+            putObserver.end(PutOutcome.UPDATED);
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean putWithWriter(Element element, CacheWriterManager writerManager) {
+        ReentrantReadWriteLock.WriteLock writeLock = segmentFor(hash(element.getObjectKey().hashCode())).writeLock();
+        writeLock.lock();
+        try {
+            boolean newPut = put(element);
+            if (writerManager != null) {
+                try {
+                    writerManager.put(element);
+                } catch (RuntimeException e) {
+                    throw new StoreUpdateException(e, !newPut);
+                }
+            }
+            return newPut;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element get(Object key) {
+        getObserver.begin();
+        Element element = key == null ? null : get(key, false, true);
+        if (element == null) {
+            getObserver.end(GetOutcome.MISS);
+        } else {
+            getObserver.end(GetOutcome.HIT);
+        }
+        return element;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element getQuiet(Object key) {
+        return key == null ? null : get(key, false, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List getKeys() {
+        List<Object> keys = new ArrayList<Object>(getSize());
+        for (Segment segment : segments) {
+            segment.addKeysTo(keys);
+        }
+        return keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        removeObserver.begin();
+        try {
+            return remove(key, null, null);
+        } finally {
+            removeObserver.end(RemoveOutcome.SUCCESS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element removeWithWriter(Object key, CacheWriterManager writerManager) {
+        ReentrantReadWriteLock.WriteLock writeLock = segmentFor(hash(key.hashCode())).writeLock();
+        writeLock.lock();
+        try {
+            Element removed = remove(key);
+            if (writerManager != null) {
+                writerManager.remove(new CacheEntry(key, removed));
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element putIfAbsent(Element element) throws NullPointerException {
+        return decode(install(element, Mode.IF_ABSENT, false, true));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element removeElement(Element element, ElementValueComparator comparator) throws NullPointerException {
+        return remove(element.getObjectKey(), element, comparator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean replace(Element old, Element element, ElementValueComparator comparator)
+            throws NullPointerException, IllegalArgumentException {
+        Object key = element.getObjectKey();
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null) {
+            return false;
+        }
+        int hash = hash(key.hashCode());
+        int page = write(keyBytes, element, false);
+        if (page == NO_PAGE) {
+            if (remove(key, old, comparator) == null) {
+                return false;
+            }
+            notifyEvicted(element);
+            return true;
+        }
+        return segmentFor(hash).replace(hash, keyBytes, key, page, old, comparator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Element replace(Element element) throws NullPointerException {
+        return decode(install(element, Mode.IF_PRESENT, false, true));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void dispose() {
+        if (status.compareAndSet(Status.STATUS_ALIVE, Status.STATUS_SHUTDOWN)) {
+            offHeapPoolAccessor.unlink();
+            pages.destroy();
+        }
+    }
+
+    /**
+     * Marks all entries has flushed (i.e. not faulted)
+     */
+    public void clearFaultedBit() {
+        for (Segment segment : segments) {
+            segment.clearFaultedBit();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getInMemorySize() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getInMemorySizeInBytes() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Statistic(name = "size", tags = "local-offheap")
+    public int getOffHeapSize() {
+        return getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Statistic(name = "size-in-bytes", tags = "local-offheap")
+    public long getOffHeapSizeInBytes() {
+        long size = offHeapPoolAccessor.getSize();
+        if (size < 0) {
+            return pages.getAllocatedBytes();
+        } else {
+            return size;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getOnDiskSize() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getOnDiskSizeInBytes() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getTerracottaClusteredSize() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Status getStatus() {
+        return status.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        if (key == null) {
+            return false;
+        }
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(key.hashCode());
+        return keyBytes != null && segmentFor(hash).containsKey(hash, keyBytes, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKeyInMemory(Object key) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKeyOffHeap(Object key) {
+        return containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKeyOnDisk(Object key) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void expireElements() {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            for (Candidate candidate : segment.expired(now)) {
+                evict(candidate);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void flush() throws IOException {
+        // nothing to flush, the store does not outlive the VM
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean bufferFull() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Policy getInMemoryEvictionPolicy() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setInMemoryEvictionPolicy(Policy policy) {
+        // the store evicts the least hit elements of a sample
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object getInternalContext() {
+        if (lockProvider != null) {
+            return lockProvider;
+        } else {
+            lockProvider = new LockProvider();
+            return lockProvider;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object getMBean() {
+        return null;
+    }
+
+    /**
+     * Evict up to the given number of elements, each being the least hit of a random sample of elements that are not
+     * faulted.
+     *
+     * @param count the number of elements to evict
+     * @return the number of elements evicted
+     */
+    int evict(int count) {
+        int evicted = 0;
+        while (evicted < count && evictOne()) {
+            evicted++;
+        }
+        return evicted;
+    }
+
+    private boolean evictOne() {
+        List<Candidate> sample = new ArrayList<Candidate>(SAMPLE_SIZE);
+        int start = random.nextInt(segments.length);
+        for (int i = 0; i < segments.length && sample.size() < SAMPLE_SIZE; i++) {
+            segments[(start + i) & (segments.length - 1)].sample(random.nextInt(), SAMPLE_SIZE - sample.size(), sample);
+        }
+        while (!sample.isEmpty()) {
+            int least = 0;
+            for (int i = 1; i < sample.size(); i++) {
+                if (sample.get(i).getHits() < sample.get(least).getHits()) {
+                    least = i;
+                }
+            }
+            if (evict(sample.remove(least))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean evict(Candidate candidate) {
+        byte[] evicted = candidate.getSegment().evict(candidate);
+        if (evicted == null) {
+            return false;
+        }
+        Element element = codec.decodeElement(evicted);
+        if (element.isExpired()) {
+            eventService.notifyElementExpiry(element, false);
+        } else {
+            notifyEvicted(element);
+        }
+        return true;
+    }
+
+    private Element get(Object key, boolean fault, boolean hit) {
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null) {
+            return null;
+        }
+        int hash = hash(key.hashCode());
+        return decode(segmentFor(hash).get(hash, keyBytes, key, fault, hit));
+    }
+
+    private Element remove(Object key, Element expected, ElementValueComparator comparator) {
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null) {
+            return null;
+        }
+        int hash = hash(key.hashCode());
+        return decode(segmentFor(hash).remove(hash, keyBytes, key, expected, comparator, true));
+    }
+
+    /**
+     * Store an element, and map its key to it according to the given mode.
+     * <p>
+     * An element that cannot be stored, for lack of memory or because it cannot be serialized, is evicted right away,
+     * and any previous mapping it would have replaced is removed: the store must never hold a stale element.
+     */
+    private byte[] install(Element element, Mode mode, boolean faulted, boolean copyPrevious) {
+        Object key = element.getObjectKey();
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null) {
+            if (mode != Mode.IF_PRESENT) {
+                notifyEvicted(element);
+            }
+            return null;
+        }
+        int hash = hash(key.hashCode());
+        Segment segment = segmentFor(hash);
+        int page = write(keyBytes, element, faulted);
+        if (page != NO_PAGE) {
+            int hits = (int) Math.min(element.getHitCount(), Integer.MAX_VALUE);
+            return segment.put(hash, keyBytes, key, page, faulted, hits, mode, copyPrevious);
+        }
+
+        byte[] previous;
+        if (mode == Mode.IF_ABSENT) {
+            previous = segment.get(hash, keyBytes, key, false, false);
+        } else {
+            previous = segment.remove(hash, keyBytes, key, null, null, copyPrevious);
+        }
+        if (previous == null ? mode != Mode.IF_PRESENT : mode != Mode.IF_ABSENT) {
+            notifyEvicted(element);
+        }
+        return previous;
+    }
+
+    /**
+     * Serialize an element and its key into a newly allocated record, evicting elements to make room if needed.
+     *
+     * @return the first page of the record, or {@link PageAllocator#NO_PAGE} if the element could not be stored
+     */
+    private int write(byte[] keyBytes, Element element, boolean faulted) {
+        byte[] elementBytes;
+        try {
+            elementBytes = codec.encodeElement(element);
+        } catch (IOException e) {
+            LOG.warn("Could not store the element for key {} off-heap: {}", element.getObjectKey(), e.getMessage());
+            return NO_PAGE;
+        }
+        int recordSize = Segment.recordSize(keyBytes.length, elementBytes.length);
+        Long size = Long.valueOf(Segment.sizeOf(recordSize));
+        if (offHeapPoolAccessor.add(element.getObjectKey(), element, size, faulted || cachePinned) < 0) {
+            return NO_PAGE;
+        }
+        int page = pages.allocate(recordSize);
+        for (int attempt = 1; page == NO_PAGE && attempt < MAXIMUM_ALLOCATION_ATTEMPTS && evictOne(); attempt++) {
+            page = pages.allocate(recordSize);
+        }
+        if (page == NO_PAGE) {
+            offHeapPoolAccessor.delete(size);
+            return NO_PAGE;
+        }
+        Segment.writeRecord(pages, page, keyBytes, elementBytes, element.getExpirationTime());
+        return page;
+    }
+
+    private byte[] encodeKey(Object key) {
+        try {
+            return codec.encodeKey(key);
+        } catch (IOException e) {
+            LOG.debug("Key {} cannot be stored off-heap: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Element decode(byte[] bytes) {
+        if (bytes == null || bytes == Segment.NOT_COPIED) {
+            return null;
+        } else {
+            return codec.decodeElement(bytes);
+        }
+    }
+
+    private void notifyEvicted(Element element) {
+        evictionObserver.begin();
+        evictionObserver.end(EvictionOutcome.SUCCESS);
+        eventService.notifyElementEvicted(element, false);
+    }
+
+    private static int hash(int hash) {
+        int spread = hash;
+        spread += (spread << FIFTEEN ^ FFFFCD7D);
+        spread ^= spread >>> TEN;
+        spread += (spread << THREE);
+        spread ^= spread >>> SIX;
+        spread += (spread << 2) + (spread << FOURTEEN);
+        return (spread ^ spread >>> SIXTEEN);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    /**
+     * LockProvider implementation that uses the segment locks.
+     */
+    private class LockProvider implements CacheLockProvider {
+
+        /**
+         * {@inheritDoc}
+         */
+        public Sync getSyncForKey(Object key) {
+            int hash = key == null ? 0 : hash(key.hashCode());
+            return new ReadWriteLockSync(segmentFor(hash));
+        }
+    }
+
+    /**
+     * PoolParticipant evicting from the off-heap store.
+     */
+    private final class OffHeapStorePoolParticipant implements PoolParticipant {
+
+        private final EventRateSimpleMovingAverage hitRate;
+        private final EventRateSimpleMovingAverage missRate;
+
+        OffHeapStorePoolParticipant(EventRateSimpleMovingAverage hitRate, EventRateSimpleMovingAverage missRate) {
+            this.hitRate = hitRate;
+            this.missRate = missRate;
+        }
+
+        @Override
+        public boolean evict(int count, long size) {
+            return OffHeapStore.this.evict(count) == count;
+        }
+
+        @Override
+        public float getApproximateHitRate() {
+            return hitRate.rate(TimeUnit.SECONDS).floatValue();
+        }
+
+        @Override
+        public float getApproximateMissRate() {
+            return missRate.rate(TimeUnit.SECONDS).floatValue();
+        }
+
+        @Override
+        public long getApproximateCountSize() {
+            return getOffHeapSize();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates fixed size pages of memory out of direct byte buffers.
+ * <p>
+ * Memory is reserved from the VM one slab at a time, up to the capacity of the allocator, and is cut into pages.  Data
+ * larger than a page is stored in a chain of pages, the first bytes of every page holding the number of the next page
+ * in the chain.  Since any freed page can be reused for any chain the memory does not fragment, whatever the mix of
+ * sizes stored.  Pages are numbered from 1, {@link #NO_PAGE} standing for the end of a chain.
+ * <p>
+ * Allocating and freeing chains is thread safe.  Reading and writing the contents of a chain is not: callers must make
+ * sure a chain is not read while it is being written or freed.
+ *
+ * @author Ehcache
+ */
+final class PageAllocator {
+
+    /**
+     * The page number standing for no page.
+     */
+    static final int NO_PAGE = 0;
+
+    /**
+     * The size of a page, in bytes.
+     */
+    static final int PAGE_SIZE = 128;
+
+    /**
+     * The number of bytes of data a page holds.
+     */
+    static final int PAGE_PAYLOAD = PAGE_SIZE - (Integer.SIZE / Byte.SIZE);
+
+    /**
+     * The size of the buffers reserved from the VM, in bytes.
+     */
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PageAllocator.class.getName());
+
+    private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(PAGE_SIZE);
+    private static final int NEXT_OFFSET = 0;
+    private static final int DATA_OFFSET = PAGE_SIZE - PAGE_PAYLOAD;
+
+    private final long capacity;
+    private final int slabSize;
+    private final int slabShift;
+    private final int pageMask;
+
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int freeHead = NO_PAGE;
+    private long freePages;
+    private long nextUnusedPage = 1;
+    private long allocatedPages;
+    private boolean exhausted;
+
+    /**
+     * Create an allocator reserving at most the given number of bytes.
+     *
+     * @param capacity the maximum number of bytes reserved
+     */
+    PageAllocator(long capacity) {
+        this(capacity, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Create an allocator reserving at most the given number of bytes, in slabs of the given size.
+     *
+     * @param capacity the maximum number of bytes reserved
+     * @param slabSize the size of the slabs, a power of two
+     */
+    PageAllocator(long capacity, int slabSize) {
+        if (Integer.bitCount(slabSize) != 1 || slabSize < PAGE_SIZE) {
+            throw new IllegalArgumentException("Slab size must be a power of two of at least " + PAGE_SIZE + ": " + slabSize);
+        }
+        if (capacity < PAGE_SIZE) {
+            throw new IllegalArgumentException("Capacity must be at least " + PAGE_SIZE + " bytes: " + capacity);
+        }
+        int size = slabSize;
+        while (size > capacity) {
+            size >>>= 1;
+        }
+        this.slabSize = size;
+        this.slabShift = Integer.numberOfTrailingZeros(size) - PAGE_SHIFT;
+        this.pageMask = (size >>> PAGE_SHIFT) - 1;
+        // page numbers are ints
+        this.capacity = Math.min(capacity, ((long) Integer.MAX_VALUE + 1) << PAGE_SHIFT);
+    }
+
+    /**
+     * Return the number of pages needed to hold the given number of bytes.
+     *
+     * @param bytes the number of bytes
+     * @return the number of pages
+     */
+    static int pagesFor(int bytes) {
+        return Math.max(1, (bytes + PAGE_PAYLOAD - 1) / PAGE_PAYLOAD);
+    }
+
+    /**
+     * Allocate a chain of pages able to hold the given number of bytes.
+     *
+     * @param bytes the number of bytes
+     * @return the first page of the chain, or {@link #NO_PAGE} if not enough memory is left
+     */
+    synchronized int allocate(int bytes) {
+        int count = pagesFor(bytes);
+        while (freePages + unusedPages() < count) {
+            if (!reserveSlab()) {
+                return NO_PAGE;
+            }
+        }
+
+        int first = NO_PAGE;
+        int last = NO_PAGE;
+        for (int i = 0; i < count; i++) {
+            int page;
+            if (freeHead != NO_PAGE) {
+                page = freeHead;
+                freeHead = next(page);
+                freePages--;
+            } else {
+                page = (int) nextUnusedPage++;
+            }
+            if (last == NO_PAGE) {
+                first = page;
+            } else {
+                setNext(last, page);
+            }
+            last = page;
+        }
+        setNext(last, NO_PAGE);
+        allocatedPages += count;
+        return first;
+    }
+
+    /**
+     * Free the given chain of pages.
+     *
+     * @param first the first page of the chain
+     */
+    void free(int first) {
+        int count = 1;
+        int last = first;
+        for (int page = next(first); page != NO_PAGE; page = next(page)) {
+            last = page;
+            count++;
+        }
+        synchronized (this) {
+            setNext(last, freeHead);
+            freeHead = first;
+            freePages += count;
+            allocatedPages -= count;
+        }
+    }
+
+    /**
+     * Copy the given bytes into a chain.
+     *
+     * @param first the first page of the chain
+     * @param position the position in the chain to copy the bytes to
+     * @param source the bytes to copy
+     */
+    void write(int first, int position, byte[] source) {
+        int page = first;
+        int offset = position;
+        while (offset >= PAGE_PAYLOAD) {
+            page = next(page);
+            offset -= PAGE_PAYLOAD;
+        }
+        int copied = 0;
+        while (copied < source.length) {
+            int length = Math.min(source.length - copied, PAGE_PAYLOAD - offset);
+            ByteBuffer buffer = slabFor(page).duplicate();
+            buffer.position(offsetOf(page) + DATA_OFFSET + offset);
+            buffer.put(source, copied, length);
+            copied += length;
+            offset = 0;
+            page = next(page);
+        }
+    }
+
+    /**
+     * Copy bytes out of a chain.
+     *
+     * @param first the first page of the chain
+     * @param position the position in the chain to copy the bytes from
+     * @param length the number of bytes to copy
+     * @return the bytes
+     */
+    byte[] read(int first, int position, int length) {
+        byte[] target = new byte[length];
+        int page = first;
+        int offset = position;
+        while (offset >= PAGE_PAYLOAD) {
+            page = next(page);
+            offset -= PAGE_PAYLOAD;
+        }
+        int copied = 0;
+        while (copied < length) {
+            int chunk = Math.min(length - copied, PAGE_PAYLOAD - offset);
+            ByteBuffer buffer = slabFor(page).duplicate();
+            buffer.position(offsetOf(page) + DATA_OFFSET + offset);
+            buffer.get(target, copied, chunk);
+            copied += chunk;
+            offset = 0;
+            page = next(page);
+        }
+        return target;
+    }
+
+    /**
+     * Read an int from the first page of a chain.
+     *
+     * @param page the first page of the chain
+     * @param position the position of the int in the page
+     * @return the int
+     */
+    int getInt(int page, int position) {
+        return slabFor(page).getInt(offsetOf(page) + DATA_OFFSET + position);
+    }
+
+    /**
+     * Read a long from the first page of a chain.
+     *
+     * @param page the first page of the chain
+     * @param position the position of the long in the page
+     * @return the long
+     */
+    long getLong(int page, int position) {
+        return slabFor(page).getLong(offsetOf(page) + DATA_OFFSET + position);
+    }
+
+    /**
+     * Write an int to the first page of a chain.
+     *
+     * @param page the first page of the chain
+     * @param position the position of the int in the page
+     * @param value the int
+     */
+    void putInt(int page, int position, int value) {
+        slabFor(page).putInt(offsetOf(page) + DATA_OFFSET + position, value);
+    }
+
+    /**
+     * Write a long to the first page of a chain.
+     *
+     * @param page the first page of the chain
+     * @param position the position of the long in the page
+     * @param value the long
+     */
+    void putLong(int page, int position, long value) {
+        slabFor(page).putLong(offsetOf(page) + DATA_OFFSET + position, value);
+    }
+
+    /**
+     * Return the number of bytes reserved from the VM.
+     *
+     * @return the reserved bytes
+     */
+    long getReservedBytes() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * Return the number of bytes held by allocated pages.
+     *
+     * @return the allocated bytes
+     */
+    synchronized long getAllocatedBytes() {
+        return allocatedPages << PAGE_SHIFT;
+    }
+
+    /**
+     * Free every page and release the reserved memory to the VM.
+     */
+    synchronized void destroy() {
+        slabs = new ByteBuffer[0];
+        freeHead = NO_PAGE;
+        freePages = 0;
+        nextUnusedPage = 1;
+        allocatedPages = 0;
+    }
+
+    private long unusedPages() {
+        return ((long) slabs.length << slabShift) - nextUnusedPage;
+    }
+
+    private boolean reserveSlab() {
+        ByteBuffer[] current = slabs;
+        if (exhausted || (long) (current.length + 1) * slabSize > capacity) {
+            return false;
+        }
+        ByteBuffer slab;
+        try {
+            slab = ByteBuffer.allocateDirect(slabSize);
+        } catch (OutOfMemoryError e) {
+            exhausted = true;
+            LOG.warn("Could not reserve more than {} bytes of direct memory for the off-heap store, consider raising "
+                    + "-XX:MaxDirectMemorySize: {}", getReservedBytes(), e.getMessage());
+            return false;
+        }
+        ByteBuffer[] grown = new ByteBuffer[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = slab;
+        slabs = grown;
+        return true;
+    }
+
+    private int next(int page) {
+        return slabFor(page).getInt(offsetOf(page) + NEXT_OFFSET);
+    }
+
+    private void setNext(int page, int next) {
+        slabFor(page).putInt(offsetOf(page) + NEXT_OFFSET, next);
+    }
+
+    private ByteBuffer slabFor(int page) {
+        return slabs[page >>> slabShift];
+    }
+
+    private int offsetOf(int page) {
+        return (page & pageMask) << PAGE_SHIFT;
+    }
+}
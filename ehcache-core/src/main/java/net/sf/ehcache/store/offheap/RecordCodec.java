@@ -0,0 +1,110 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.serializer.ElementSerialization;
+import net.sf.ehcache.serializer.Serializer;
+import net.sf.ehcache.util.MemoryEfficientByteArrayOutputStream;
+
+/**
+ * Converts keys and elements to and from the bytes stored off-heap, using the serializer of the cache.
+ *
+ * @author Ehcache
+ */
+final class RecordCodec {
+
+    private static final int ESTIMATED_KEY_SIZE = 64;
+
+    private final Serializer serializer;
+    private final ClassLoader loader;
+
+    /**
+     * Create a codec.
+     *
+     * @param serializer the serializer of the cache
+     * @param loader the class loader used to resolve classes
+     */
+    RecordCodec(Serializer serializer, ClassLoader loader) {
+        this.serializer = serializer;
+        this.loader = loader;
+    }
+
+    /**
+     * Serialize a key.
+     *
+     * @param key the key
+     * @return the serialized key
+     * @throws IOException if the key cannot be serialized
+     */
+    byte[] encodeKey(Object key) throws IOException {
+        MemoryEfficientByteArrayOutputStream bout = new MemoryEfficientByteArrayOutputStream(ESTIMATED_KEY_SIZE);
+        DataOutputStream out = new DataOutputStream(bout);
+        serializer.write(key, out);
+        out.flush();
+        return bout.getBytes();
+    }
+
+    /**
+     * Serialize an element.
+     *
+     * @param element the element
+     * @return the serialized element
+     * @throws IOException if the element cannot be serialized
+     */
+    byte[] encodeElement(Element element) throws IOException {
+        return ElementSerialization.serialize(element, serializer).getBytes();
+    }
+
+    /**
+     * Deserialize a key.
+     *
+     * @param bytes the serialized key
+     * @return the key
+     */
+    Object decodeKey(byte[] bytes) {
+        try {
+            return serializer.read(new DataInputStream(new ByteArrayInputStream(bytes)), loader);
+        } catch (IOException e) {
+            throw new CacheException("Could not read a key from the off-heap store", e);
+        } catch (ClassNotFoundException e) {
+            throw new CacheException("Could not read a key from the off-heap store", e);
+        }
+    }
+
+    /**
+     * Deserialize an element.
+     *
+     * @param bytes the serialized element
+     * @return the element
+     */
+    Element decodeElement(byte[] bytes) {
+        try {
+            return ElementSerialization.deserialize(bytes, serializer, loader);
+        } catch (IOException e) {
+            throw new CacheException("Could not read an element from the off-heap store", e);
+        } catch (ClassNotFoundException e) {
+            throw new CacheException("Could not read an element from the off-heap store", e);
+        }
+    }
+}
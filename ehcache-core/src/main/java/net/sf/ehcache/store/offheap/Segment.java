@@ -0,0 +1,686 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import static net.sf.ehcache.store.offheap.PageAllocator.NO_PAGE;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.pool.PoolAccessor;
+import net.sf.ehcache.store.ElementValueComparator;
+
+/**
+ * A segment of the off-heap store.
+ * <p>
+ * The segment maps keys to records held in chains of pages of the {@link PageAllocator}.  A record is a header made of
+ * the lengths of the serialized key and element and of the expiration time of the element, followed by the serialized
+ * key and element.  The mappings are held in an open addressing hash table, itself in a direct byte buffer, each slot
+ * holding the first page of the record, the spread hash of the key, and the faulted flag and hit count of the entry.
+ * Collisions are resolved by linear probing, and removals shift the following entries back so that no tombstone is
+ * ever left in the table.
+ * <p>
+ * The segment extends ReentrantReadWriteLock to allow read locking on read operations.  Records are only read and
+ * written under the segment lock, but are allocated before and freed after taking it.
+ *
+ * @author Ehcache
+ */
+final class Segment extends ReentrantReadWriteLock {
+
+    /**
+     * Marker returned in place of the previous element when it was not asked for.
+     */
+    static final byte[] NOT_COPIED = new byte[0];
+
+    /**
+     * The size of the record header, in bytes.
+     */
+    static final int HEADER_SIZE = 16;
+
+    private static final int KEY_LENGTH = 0;
+    private static final int ELEMENT_LENGTH = 4;
+    private static final int EXPIRATION_TIME = 8;
+
+    private static final int SLOT_SIZE = 12;
+    private static final int SLOT_PAGE = 0;
+    private static final int SLOT_HASH = 4;
+    private static final int SLOT_META = 8;
+
+    private static final int FAULTED = Integer.MIN_VALUE;
+    private static final int HITS = Integer.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 26;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * How an entry is installed by {@link Segment#put}.
+     */
+    static enum Mode {
+        /**
+         * Install the entry, replacing any existing mapping.
+         */
+        ALWAYS,
+
+        /**
+         * Install the entry if the key is not mapped yet.
+         */
+        IF_ABSENT,
+
+        /**
+         * Install the entry if the key is already mapped.
+         */
+        IF_PRESENT
+    }
+
+    private final PageAllocator pages;
+    private final RecordCodec codec;
+    private final PoolAccessor poolAccessor;
+
+    private ByteBuffer table;
+    private int mask;
+    private int threshold;
+
+    /**
+     * Count of mappings in this segment.
+     */
+    volatile int count;
+
+    /**
+     * Create an empty segment.
+     *
+     * @param pages the allocator holding the records
+     * @param codec the codec used to compare keys and elements
+     * @param poolAccessor the accessor tracking the memory used by the records
+     */
+    Segment(PageAllocator pages, RecordCodec codec, PoolAccessor poolAccessor) {
+        this.pages = pages;
+        this.codec = codec;
+        this.poolAccessor = poolAccessor;
+        allocateTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Return the size of a record holding the given key and element.
+     *
+     * @param keyLength the length of the serialized key
+     * @param elementLength the length of the serialized element
+     * @return the size of the record, in bytes
+     */
+    static int recordSize(int keyLength, int elementLength) {
+        return HEADER_SIZE + keyLength + elementLength;
+    }
+
+    /**
+     * Return the memory accounted for a record of the given size, including its share of the hash table.
+     *
+     * @param recordSize the size of the record, in bytes
+     * @return the accounted size, in bytes
+     */
+    static long sizeOf(int recordSize) {
+        return (long) PageAllocator.pagesFor(recordSize) * PageAllocator.PAGE_SIZE + 2 * SLOT_SIZE;
+    }
+
+    /**
+     * Write a record to the given chain of pages.
+     *
+     * @param pages the allocator the chain comes from
+     * @param page the first page of the chain
+     * @param key the serialized key
+     * @param element the serialized element
+     * @param expirationTime the expiration time of the element
+     */
+    static void writeRecord(PageAllocator pages, int page, byte[] key, byte[] element, long expirationTime) {
+        pages.putInt(page, KEY_LENGTH, key.length);
+        pages.putInt(page, ELEMENT_LENGTH, element.length);
+        pages.putLong(page, EXPIRATION_TIME, expirationTime);
+        pages.write(page, HEADER_SIZE, key);
+        pages.write(page, HEADER_SIZE + key.length, element);
+    }
+
+    /**
+     * Return the serialized element mapped to the given key.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @param fault whether to mark the entry as faulted
+     * @param hit whether to count a hit on the entry
+     * @return the serialized element, or {@code null} if the key is not mapped
+     */
+    byte[] get(int hash, byte[] key, Object objectKey, boolean fault, boolean hit) {
+        Lock lock = fault || hit ? writeLock() : readLock();
+        lock.lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            if (slot < 0) {
+                return null;
+            }
+            if (fault || hit) {
+                int meta = meta(slot);
+                if (fault) {
+                    meta |= FAULTED;
+                }
+                if (hit && (meta & HITS) != HITS) {
+                    meta++;
+                }
+                table.putInt(slot + SLOT_META, meta);
+            }
+            return readElement(page(slot));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return whether the given key is mapped.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @return {@code true} if the key is mapped
+     */
+    boolean containsKey(int hash, byte[] key, Object objectKey) {
+        readLock().lock();
+        try {
+            return find(hash, key, objectKey) >= 0;
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * Return whether the entry for the given key is marked as faulted.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @return {@code true} if the key is mapped and faulted
+     */
+    boolean isFaulted(int hash, byte[] key, Object objectKey) {
+        readLock().lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            return slot >= 0 && (meta(slot) & FAULTED) != 0;
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * Map a key to a record.
+     * <p>
+     * The segment takes ownership of the record, which is freed right away if not installed.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @param page the first page of the record
+     * @param faulted whether the entry is faulted
+     * @param hits the hit count of the entry
+     * @param mode how to install the entry
+     * @param copyPrevious whether to return the replaced element
+     * @return the serialized element previously mapped to the key, {@link #NOT_COPIED} if it was not asked for, or
+     *         {@code null} if the key was not mapped
+     */
+    byte[] put(int hash, byte[] key, Object objectKey, int page, boolean faulted, int hits, Mode mode, boolean copyPrevious) {
+        int freed = NO_PAGE;
+        long freedSize = 0;
+        byte[] previous = null;
+        writeLock().lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            if (slot < 0) {
+                if (mode == Mode.IF_PRESENT) {
+                    freed = page;
+                } else {
+                    insert(hash, page, meta(faulted, hits));
+                }
+            } else if (mode == Mode.IF_ABSENT) {
+                previous = readElement(page(slot));
+                freed = page;
+            } else {
+                freed = page(slot);
+                previous = copyPrevious ? readElement(freed) : NOT_COPIED;
+                table.putInt(slot + SLOT_PAGE, page);
+                table.putInt(slot + SLOT_META, meta(faulted, hits));
+            }
+            if (freed != NO_PAGE) {
+                freedSize = accountedSize(freed);
+            }
+        } finally {
+            writeLock().unlock();
+        }
+        release(freed, freedSize);
+        return previous;
+    }
+
+    /**
+     * Replace the element mapped to a key, if it is equal to the given element.
+     * <p>
+     * The segment takes ownership of the record, which is freed right away if not installed.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @param page the first page of the record
+     * @param expected the element expected to be mapped
+     * @param comparator the comparator used to compare elements
+     * @return {@code true} if the element was replaced
+     */
+    boolean replace(int hash, byte[] key, Object objectKey, int page, Element expected, ElementValueComparator comparator) {
+        int freed = page;
+        long freedSize = 0;
+        writeLock().lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            if (slot >= 0 && comparator.equals(expected, codec.decodeElement(readElement(page(slot))))) {
+                freed = page(slot);
+                table.putInt(slot + SLOT_PAGE, page);
+                table.putInt(slot + SLOT_META, 0);
+            }
+            freedSize = accountedSize(freed);
+        } finally {
+            writeLock().unlock();
+        }
+        release(freed, freedSize);
+        return freed != page;
+    }
+
+    /**
+     * Remove the mapping for a key, if its element is equal to the given element.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @param expected the element expected to be mapped, or {@code null} to remove any element
+     * @param comparator the comparator used to compare elements
+     * @param copyPrevious whether to return the removed element
+     * @return the removed serialized element, {@link #NOT_COPIED} if it was not asked for, or {@code null} if nothing
+     *         was removed
+     */
+    byte[] remove(int hash, byte[] key, Object objectKey, Element expected, ElementValueComparator comparator, boolean copyPrevious) {
+        int freed = NO_PAGE;
+        long freedSize = 0;
+        byte[] previous = null;
+        writeLock().lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            if (slot >= 0) {
+                int page = page(slot);
+                if (expected == null) {
+                    previous = copyPrevious ? readElement(page) : NOT_COPIED;
+                } else {
+                    byte[] current = readElement(page);
+                    if (comparator.equals(expected, codec.decodeElement(current))) {
+                        previous = current;
+                    }
+                }
+                if (previous != null) {
+                    freed = page;
+                    freedSize = accountedSize(page);
+                    removeSlot(slot);
+                }
+            }
+        } finally {
+            writeLock().unlock();
+        }
+        release(freed, freedSize);
+        return previous;
+    }
+
+    /**
+     * Clear the faulted flag of the entry for a key, and update its hit count and expiration time.
+     *
+     * @param hash the spread hash of the key
+     * @param key the serialized key
+     * @param objectKey the key
+     * @param hits the hit count of the element
+     * @param expirationTime the expiration time of the element
+     * @return {@code true} if the key is mapped
+     */
+    boolean flush(int hash, byte[] key, Object objectKey, int hits, long expirationTime) {
+        writeLock().lock();
+        try {
+            int slot = find(hash, key, objectKey);
+            if (slot < 0) {
+                return false;
+            }
+            table.putInt(slot + SLOT_META, meta(false, hits));
+            pages.putLong(page(slot), EXPIRATION_TIME, expirationTime);
+            return true;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the given entry, unless it was faulted or replaced since it was sampled.
+     * <p>
+     * Gives up if the segment lock cannot be acquired right away, so that evicting on behalf of a thread holding the lock
+     * of another segment cannot dead lock.
+     *
+     * @param candidate the sampled entry
+     * @return the removed serialized element, or {@code null} if nothing was removed
+     */
+    byte[] evict(Candidate candidate) {
+        if (!writeLock().tryLock()) {
+            return null;
+        }
+        int freed = NO_PAGE;
+        long freedSize = 0;
+        byte[] evicted = null;
+        try {
+            for (int slot = index(candidate.hash); page(slot) != NO_PAGE; slot = nextSlot(slot)) {
+                if (page(slot) == candidate.page) {
+                    if ((meta(slot) & FAULTED) == 0) {
+                        freed = candidate.page;
+                        freedSize = accountedSize(freed);
+                        evicted = readElement(freed);
+                        removeSlot(slot);
+                    }
+                    break;
+                }
+            }
+        } finally {
+            writeLock().unlock();
+        }
+        release(freed, freedSize);
+        return evicted;
+    }
+
+    /**
+     * Add entries that are not faulted to the given sample, starting from a random point of the table.
+     * <p>
+     * Samples nothing if the segment lock cannot be acquired right away.
+     *
+     * @param seed the random point to start from
+     * @param maximum the maximum number of entries to add
+     * @param sample the sample to add the entries to
+     */
+    void sample(int seed, int maximum, Collection<Candidate> sample) {
+        if (!readLock().tryLock()) {
+            return;
+        }
+        try {
+            int capacity = mask + 1;
+            int added = 0;
+            for (int i = 0, slot = index(seed); i < capacity && added < maximum; i++, slot = nextSlot(slot)) {
+                int page = page(slot);
+                int meta = meta(slot);
+                if (page != NO_PAGE && (meta & FAULTED) == 0) {
+                    sample.add(new Candidate(this, table.getInt(slot + SLOT_HASH), page, meta & HITS));
+                    added++;
+                }
+            }
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the entries, not faulted, whose element expired before the given time.
+     *
+     * @param now the current time in milliseconds
+     * @return the expired entries
+     */
+    List<Candidate> expired(long now) {
+        List<Candidate> expired = new ArrayList<Candidate>();
+        readLock().lock();
+        try {
+            for (int slot = 0; slot < table.capacity(); slot += SLOT_SIZE) {
+                int page = page(slot);
+                int meta = meta(slot);
+                if (page != NO_PAGE && (meta & FAULTED) == 0 && pages.getLong(page, EXPIRATION_TIME) < now) {
+                    expired.add(new Candidate(this, table.getInt(slot + SLOT_HASH), page, meta & HITS));
+                }
+            }
+        } finally {
+            readLock().unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * Add the keys mapped in this segment to the given collection.
+     *
+     * @param keys the collection to add the keys to
+     */
+    void addKeysTo(Collection<Object> keys) {
+        readLock().lock();
+        try {
+            for (int slot = 0; slot < table.capacity(); slot += SLOT_SIZE) {
+                int page = page(slot);
+                if (page != NO_PAGE) {
+                    keys.add(codec.decodeKey(readKey(page)));
+                }
+            }
+        } finally {
+            readLock().unlock();
+        }
+    }
+
+    /**
+     * Clear the faulted flag of every entry.
+     */
+    void clearFaultedBit() {
+        writeLock().lock();
+        try {
+            for (int slot = 0; slot < table.capacity(); slot += SLOT_SIZE) {
+                table.putInt(slot + SLOT_META, meta(slot) & HITS);
+            }
+        } finally {
+            writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every mapping of this segment.
+     */
+    void clear() {
+        int[] freed;
+        long freedSize = 0;
+        writeLock().lock();
+        try {
+            freed = new int[count];
+            int i = 0;
+            for (int slot = 0; slot < table.capacity(); slot += SLOT_SIZE) {
+                int page = page(slot);
+                if (page != NO_PAGE) {
+                    freed[i++] = page;
+                    freedSize += accountedSize(page);
+                }
+            }
+            allocateTable(INITIAL_CAPACITY);
+            count = 0;
+        } finally {
+            writeLock().unlock();
+        }
+        for (int page : freed) {
+            pages.free(page);
+        }
+        poolAccessor.delete(freedSize);
+    }
+
+    private int find(int hash, byte[] key, Object objectKey) {
+        for (int slot = index(hash); ; slot = nextSlot(slot)) {
+            int page = page(slot);
+            if (page == NO_PAGE) {
+                return -1;
+            }
+            if (table.getInt(slot + SLOT_HASH) == hash && keyEquals(page, key, objectKey)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals(int page, byte[] key, Object objectKey) {
+        byte[] stored = readKey(page);
+        // equal keys may serialize differently, the serialized form of a hash map for instance depends on its history
+        return Arrays.equals(stored, key) || objectKey.equals(codec.decodeKey(stored));
+    }
+
+    private void insert(int hash, int page, int meta) {
+        if (count + 1 > threshold) {
+            grow();
+        }
+        int slot = index(hash);
+        while (page(slot) != NO_PAGE) {
+            slot = nextSlot(slot);
+        }
+        table.putInt(slot + SLOT_PAGE, page);
+        table.putInt(slot + SLOT_HASH, hash);
+        table.putInt(slot + SLOT_META, meta);
+        // write-volatile
+        count = count + 1;
+    }
+
+    private void removeSlot(int slot) {
+        int hole = slot;
+        for (int next = nextSlot(hole); page(next) != NO_PAGE; next = nextSlot(next)) {
+            int home = index(table.getInt(next + SLOT_HASH));
+            // the entry can move into the hole unless its home slot lies cyclically between the hole and itself
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                table.putInt(hole + SLOT_PAGE, page(next));
+                table.putInt(hole + SLOT_HASH, table.getInt(next + SLOT_HASH));
+                table.putInt(hole + SLOT_META, meta(next));
+                hole = next;
+            }
+        }
+        table.putInt(hole + SLOT_PAGE, NO_PAGE);
+        table.putInt(hole + SLOT_HASH, 0);
+        table.putInt(hole + SLOT_META, 0);
+        // write-volatile
+        count = count - 1;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAXIMUM_CAPACITY) {
+            if (count + 1 >= capacity) {
+                throw new CacheException("Off-heap store segment is full: " + count + " mappings");
+            }
+            return;
+        }
+        ByteBuffer old = table;
+        allocateTable(capacity << 1);
+        for (int slot = 0; slot < old.capacity(); slot += SLOT_SIZE) {
+            int page = old.getInt(slot + SLOT_PAGE);
+            if (page != NO_PAGE) {
+                int hash = old.getInt(slot + SLOT_HASH);
+                int target = index(hash);
+                while (page(target) != NO_PAGE) {
+                    target = nextSlot(target);
+                }
+                table.putInt(target + SLOT_PAGE, page);
+                table.putInt(target + SLOT_HASH, hash);
+                table.putInt(target + SLOT_META, old.getInt(slot + SLOT_META));
+            }
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void release(int page, long size) {
+        if (page != NO_PAGE) {
+            pages.free(page);
+            poolAccessor.delete(size);
+        }
+    }
+
+    private long accountedSize(int page) {
+        return sizeOf(recordSize(pages.getInt(page, KEY_LENGTH), pages.getInt(page, ELEMENT_LENGTH)));
+    }
+
+    private byte[] readKey(int page) {
+        return pages.read(page, HEADER_SIZE, pages.getInt(page, KEY_LENGTH));
+    }
+
+    private byte[] readElement(int page) {
+        int keyLength = pages.getInt(page, KEY_LENGTH);
+        return pages.read(page, HEADER_SIZE + keyLength, pages.getInt(page, ELEMENT_LENGTH));
+    }
+
+    private int index(int hash) {
+        return (hash & mask) * SLOT_SIZE;
+    }
+
+    private int nextSlot(int slot) {
+        int next = slot + SLOT_SIZE;
+        return next == table.capacity() ? 0 : next;
+    }
+
+    private int page(int slot) {
+        return table.getInt(slot + SLOT_PAGE);
+    }
+
+    private int meta(int slot) {
+        return table.getInt(slot + SLOT_META);
+    }
+
+    private static int meta(boolean faulted, int hits) {
+        return (faulted ? FAULTED : 0) | (hits & HITS);
+    }
+
+    /**
+     * An entry sampled for eviction or expiry.
+     */
+    static final class Candidate {
+
+        private final Segment segment;
+        private final int hash;
+        private final int page;
+        private final int hits;
+
+        Candidate(Segment segment, int hash, int page, int hits) {
+            this.segment = segment;
+            this.hash = hash;
+            this.page = page;
+            this.hits = hits;
+        }
+
+        /**
+         * Return the segment holding the entry.
+         *
+         * @return the segment
+         */
+        Segment getSegment() {
+            return segment;
+        }
+
+        /**
+         * Return the hit count of the entry when it was sampled.
+         *
+         * @return the hit count
+         */
+        int getHits() {
+            return hits;
+        }
+    }
+}
@@ -59,6 +59,7 @@ public abstract class AbstractWriteBehindQueue implements WriteBehind {
   private final int retryAttempts;
   private final int retryAttemptDelaySeconds;
   private final Thread processingThread;
+  private final WriteBehindRateLimiter rateLimiter;
 
   private final ReentrantReadWriteLock queueLock = new ReentrantReadWriteLock();
   private final ReentrantReadWriteLock.ReadLock queueReadLock = queueLock.readLock();
@@ -83,6 +84,19 @@ public abstract class AbstractWriteBehindQueue implements WriteBehind {
    * @param config the configuration for the queue
    */
   public AbstractWriteBehindQueue(CacheConfiguration config) {
+      this(config, config.getName() + " write-behind", new WriteBehindRateLimiter(
+              config.getCacheWriterConfiguration().getRateLimitPerSecond(),
+              config.getCacheWriterConfiguration().getWriteBatchSize()));
+  }
+
+  /**
+   * Create a new write behind queue, sharing its rate limit with the other queues of the cache.
+   *
+   * @param config the configuration for the queue
+   * @param threadName the name of the processing thread
+   * @param rateLimiter the rate limiter shared by the queues of the cache
+   */
+  AbstractWriteBehindQueue(CacheConfiguration config, String threadName, WriteBehindRateLimiter rateLimiter) {
       this.stopping = false;
       this.stopped = true;
 
@@ -99,7 +113,9 @@ public abstract class AbstractWriteBehindQueue implements WriteBehind {
       this.retryAttempts = cacheWriterConfig.getRetryAttempts();
       this.retryAttemptDelaySeconds = cacheWriterConfig.getRetryAttemptDelaySeconds();
 
-      this.processingThread = new Thread(new ProcessingThread(), cacheName + " write-behind");
+      this.rateLimiter = rateLimiter;
+
+      this.processingThread = new Thread(new ProcessingThread(), threadName);
       this.processingThread.setDaemon(true);
   }
 
@@ -279,14 +295,12 @@ public abstract class AbstractWriteBehindQueue implements WriteBehind {
                       waitUntilEnoughWorkItemsAvailable(quarantined, workSize);
                       return;
                   }
-                  // enforce the rate limit and wait for another round if too much would be processed compared to
-                  // the last time when a batch was executed
+                  // enforce the rate limit, shared with the other queues of the cache, and wait for another round if
+                  // too much would be processed
                   if (rateLimitPerSecond > 0) {
-                      final long secondsSinceLastWorkDone = (System.currentTimeMillis() - lastWorkDone.get()) / MS_IN_SEC;
-                      final long maxBatchSizeSinceLastWorkDone = rateLimitPerSecond * secondsSinceLastWorkDone;
                       final int batchSize = determineBatchSize(quarantined);
-                      if (batchSize > maxBatchSizeSinceLastWorkDone) {
-                          waitUntilEnoughTimeHasPassed(quarantined, batchSize, secondsSinceLastWorkDone);
+                      if (!rateLimiter.tryAcquire(batchSize)) {
+                          waitUntilEnoughTimeHasPassed(quarantined, batchSize);
                           return;
                       }
                   }
@@ -325,11 +339,10 @@ public abstract class AbstractWriteBehindQueue implements WriteBehind {
       reassemble(quarantined);
   }
 
-  private void waitUntilEnoughTimeHasPassed(List<SingleOperation> quarantined, int batchSize, long secondsSinceLastWorkDone) {
+  private void waitUntilEnoughTimeHasPassed(List<SingleOperation> quarantined, int batchSize) {
       if (LOGGER.isLoggable(Level.FINER)) {
-          LOGGER.finer(getThreadName() + " : processItems() : last work was done " + secondsSinceLastWorkDone
-                  + " seconds ago, processing " + batchSize + " batch items would exceed the rate limit of "
-                  + rateLimitPerSecond + ", waiting for a while.");
+          LOGGER.finer(getThreadName() + " : processItems() : processing " + batchSize
+                  + " batch items would exceed the rate limit of " + rateLimitPerSecond + ", waiting for a while.");
       }
       reassemble(quarantined);
   }
@@ -40,6 +40,17 @@ class WriteBehindQueue extends AbstractWriteBehindQueue {
         super(config);
     }
 
+    /**
+     * Construct a simple list backed write behind queue, one of the stripes of a cache.
+     *
+     * @param config
+     * @param index the index of the stripe
+     * @param rateLimiter the rate limiter shared by the stripes of the cache
+     */
+    WriteBehindQueue(CacheConfiguration config, int index, WriteBehindRateLimiter rateLimiter) {
+        super(config, config.getName() + " write-behind-" + index, rateLimiter);
+    }
+
     @Override
     protected List<SingleOperation> quarantineItems() {
         List<SingleOperation> quarantined = waiting;
@@ -89,7 +89,9 @@ public class WriteBehindQueueManager implements WriteBehind {
     }
 
     private WriteBehind getQueue(final Object key) {
-        return queues.get(Math.abs(key.hashCode() % queues.size()));
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return queues.get((hash & Integer.MAX_VALUE) % queues.size());
     }
 
     /**
@@ -152,6 +154,9 @@ public class WriteBehindQueueManager implements WriteBehind {
      * Factory used to create write behind queues.
      */
     protected static class WriteBehindQueueFactory {
+
+      private WriteBehindRateLimiter rateLimiter;
+
       /**
        * Create a write behind queue stripe.
        *
@@ -160,7 +165,12 @@ public class WriteBehindQueueManager implements WriteBehind {
        * @return a write behind queue
        */
       protected WriteBehind createQueue(int index, CacheConfiguration config) {
-        return new WriteBehindQueue(config);
+        if (rateLimiter == null) {
+          CacheWriterConfiguration cacheWriterConfiguration = config.getCacheWriterConfiguration();
+          rateLimiter = new WriteBehindRateLimiter(cacheWriterConfiguration.getRateLimitPerSecond(),
+                  cacheWriterConfiguration.getWriteBatchSize());
+        }
+        return new WriteBehindQueue(config, index, rateLimiter);
       }
     }
 }
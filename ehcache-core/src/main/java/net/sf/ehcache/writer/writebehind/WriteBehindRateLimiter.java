@@ -0,0 +1,69 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.ehcache.writer.writebehind;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which the write-behind queues of a cache hand operations to the cache writer.
+ * <p>
+ * The limiter is shared by all the queues of a cache, so that the configured rate limit applies to the cache as a whole
+ * however many queues it has.  Permits accrue at the configured rate, up to one second's worth or one batch, whichever
+ * is larger.
+ *
+ * @author Ehcache
+ */
+final class WriteBehindRateLimiter {
+
+    private final int ratePerSecond;
+    private final double maximumPermits;
+
+    private double permits;
+    private long lastRefill;
+
+    /**
+     * Create a rate limiter.
+     *
+     * @param ratePerSecond the maximum number of operations per second, 0 for no limit
+     * @param batchSize the largest number of operations acquired at once
+     */
+    WriteBehindRateLimiter(int ratePerSecond, int batchSize) {
+        this.ratePerSecond = ratePerSecond;
+        this.maximumPermits = Math.max(ratePerSecond, batchSize);
+        this.permits = maximumPermits;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Acquire the permits to hand the given number of operations to the cache writer, if available.
+     *
+     * @param operations the number of operations
+     * @return {@code true} if the operations may be handed to the writer now
+     */
+    synchronized boolean tryAcquire(int operations) {
+        if (ratePerSecond <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        permits = Math.min(maximumPermits, permits + (now - lastRefill) * ratePerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+        if (permits < operations) {
+            return false;
+        }
+        permits -= operations;
+        return true;
+    }
+}
@@ -70,6 +70,7 @@ import net.sf.ehcache.bootstrap.BootstrapCacheLoaderFactory;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.CacheConfiguration.BootstrapCacheLoaderFactoryConfiguration;
 import net.sf.ehcache.config.CacheConfiguration.CacheEventListenerFactoryConfiguration;
+import net.sf.ehcache.config.CacheConfiguration.CacheExtensionFactoryConfiguration;
 import net.sf.ehcache.config.Configuration;
 import net.sf.ehcache.config.ConfigurationFactory;
 import net.sf.ehcache.config.ConfigurationHelper;
@@ -87,6 +88,8 @@ import net.sf.ehcache.event.CacheEventListener;
 import net.sf.ehcache.event.CountingCacheEventListener;
 import net.sf.ehcache.event.CountingCacheEventListenerFactory;
 import net.sf.ehcache.event.RegisteredEventListeners;
+import net.sf.ehcache.extension.CacheExtension;
+import net.sf.ehcache.extension.CacheExtensionFactory;
 import net.sf.ehcache.store.Store;
 import net.sf.ehcache.terracotta.TerracottaClient;
 import net.sf.ehcache.util.MemorySizeParser;
@@ -240,6 +243,132 @@ public class CacheManagerTest {
         }
     }
 
+    @Test
+    public void testCachesInitialisedInParallel() {
+        Configuration configuration = new Configuration().name("parallelInitialisation").cacheInitialisationThreads(4);
+        for (int i = 0; i < 8; i++) {
+            configuration.cache(new CacheConfiguration("cache" + i, 100));
+        }
+        CacheManager cacheManager = new CacheManager(configuration);
+        try {
+            assertThat(cacheManager.getCacheNames().length, is(8));
+            for (int i = 0; i < 8; i++) {
+                assertThat(cacheManager.getCache("cache" + i).getStatus(), is(Status.STATUS_ALIVE));
+                assertThat(cacheManager.getCacheInitialisationTimes().containsKey("cache" + i), is(true));
+            }
+        } finally {
+            cacheManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testCacheInitialisedAsynchronously() throws Exception {
+        Configuration configuration = new Configuration().name("asynchronousInitialisation")
+            .cache(new CacheConfiguration("critical", 100))
+            .cache(new CacheConfiguration("background", 100).initialisedAsynchronously(true));
+        CacheManager cacheManager = new CacheManager(configuration);
+        try {
+            assertThat(cacheManager.getCache("critical").getStatus(), is(Status.STATUS_ALIVE));
+            Ehcache background = cacheManager.awaitCache("background", 10, TimeUnit.SECONDS);
+            assertThat(background, notNullValue());
+            assertThat(background.getStatus(), is(Status.STATUS_ALIVE));
+            assertThat(cacheManager.isCacheInitialising("background"), is(false));
+            assertThat(cacheManager.getEhcache("background"), sameInstance(background));
+        } finally {
+            cacheManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedParallelInitialisationDisposesTheCachesNotAdded() throws Exception {
+        Configuration configuration = new Configuration().name("failedParallelInitialisation").cacheInitialisationThreads(4);
+        configuration.cache(recordedCache("failing", true));
+        for (int i = 0; i < 8; i++) {
+            configuration.cache(recordedCache("cache" + i, false));
+        }
+        configuration.cache(recordedCache("background", false).initialisedAsynchronously(true));
+        RecordingCacheExtension.INITIALISED.clear();
+        RecordingCacheExtension.DISPOSED.clear();
+
+        try {
+            new CacheManager(configuration);
+            fail("Expected CacheException");
+        } catch (CacheException e) {
+            // expected
+        }
+        // none of the caches was added, so every one initialised has to be disposed of
+        assertBy(10, TimeUnit.SECONDS, new Callable<Set<String>>() {
+            @Override
+            public Set<String> call() {
+                return new HashSet<String>(RecordingCacheExtension.DISPOSED);
+            }
+        }, equalTo((Set<String>) new HashSet<String>(RecordingCacheExtension.INITIALISED)));
+        assertThat(RecordingCacheExtension.INITIALISED.contains("failing"), is(false));
+    }
+
+    private static CacheConfiguration recordedCache(String name, boolean failing) {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration(name, 100);
+        cacheConfiguration.addCacheExtensionFactory(new CacheExtensionFactoryConfiguration()
+                .className(RecordingCacheExtensionFactory.class.getName()).properties("failing=" + failing));
+        return cacheConfiguration;
+    }
+
+    public static class RecordingCacheExtensionFactory extends CacheExtensionFactory {
+
+        @Override
+        public CacheExtension createCacheExtension(Ehcache cache, Properties properties) {
+            return new RecordingCacheExtension(cache, Boolean.parseBoolean(properties.getProperty("failing")));
+        }
+    }
+
+    /**
+     * Records the caches initialised and disposed of, failing to initialise the failing ones once the others had time to
+     */
+    static class RecordingCacheExtension implements CacheExtension {
+
+        static final Set<String> INITIALISED = Collections.synchronizedSet(new HashSet<String>());
+        static final Set<String> DISPOSED = Collections.synchronizedSet(new HashSet<String>());
+
+        private final Ehcache cache;
+        private final boolean failing;
+        private volatile Status status = Status.STATUS_UNINITIALISED;
+
+        RecordingCacheExtension(Ehcache cache, boolean failing) {
+            this.cache = cache;
+            this.failing = failing;
+        }
+
+        @Override
+        public void init() {
+            if (failing) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new CacheException("Cache " + cache.getName() + " failing to initialise");
+            }
+            INITIALISED.add(cache.getName());
+            status = Status.STATUS_ALIVE;
+        }
+
+        @Override
+        public void dispose() throws CacheException {
+            DISPOSED.add(cache.getName());
+            status = Status.STATUS_SHUTDOWN;
+        }
+
+        @Override
+        public CacheExtension clone(Ehcache cache) throws CloneNotSupportedException {
+            return new RecordingCacheExtension(cache, failing);
+        }
+
+        @Override
+        public Status getStatus() {
+            return status;
+        }
+    }
+
     @Test
     public void testMaxBytesOnCacheDynamicChangesReflectOnPercentBasedCaches() throws Exception {
         CacheConfiguration configuration1 = new CacheConfiguration("one", 0);
@@ -2232,6 +2232,21 @@ public class CacheTest extends AbstractCacheTest {
         }
     }
 
+    /**
+     * Tests that a loader failing to load some keys is logged rather than thrown, the keys mapping to null
+     */
+    @Test
+    public void testGetAllWithLoaderException() {
+        Cache cache = manager.getCache("sampleCache1");
+        cache.registerCacheLoader(new ExceptionThrowingLoader());
+        cache.put(new Element("key1", "value1"));
+
+        Map values = cache.getAllWithLoader(Arrays.asList("key1", "key2"), null);
+        assertEquals("value1", values.get("key1"));
+        assertTrue(values.containsKey("key2"));
+        assertNull(values.get("key2"));
+    }
+
     /**
      * Tests the async load with a timeout
      */
@@ -0,0 +1,116 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.constructs.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.loader.CountingCacheLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncEhcacheTest {
+
+    private CacheManager manager;
+    private Cache cache;
+    private CountingExecutor executor;
+    private AsyncEhcache asyncCache;
+
+    @Before
+    public void setUp() {
+        manager = new CacheManager(new Configuration().name("asyncEhcacheTest"));
+        cache = new Cache(new CacheConfiguration("asyncCache", 100));
+        manager.addCache(cache);
+        executor = new CountingExecutor();
+        asyncCache = new AsyncEhcache(cache, executor);
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void testHeapHitCompletesInline() throws Exception {
+        cache.put(new Element("key", "value"));
+        CompletableFuture<Element> future = asyncCache.getAsync("key");
+        assertTrue(future.isDone());
+        assertEquals("value", future.get().getObjectValue());
+        assertEquals(0, executor.tasks.get());
+    }
+
+    @Test
+    public void testMissCompletesInline() throws Exception {
+        CompletableFuture<Element> future = asyncCache.getAsync("key");
+        assertTrue(future.isDone());
+        assertNull(future.get());
+        assertEquals(0, executor.tasks.get());
+    }
+
+    @Test
+    public void testPutAndGetAll() throws Exception {
+        asyncCache.putAsync(new Element("a", 1)).get();
+        asyncCache.putAsync(new Element("b", 2)).get();
+        Map<Object, Element> elements = asyncCache.getAllAsync(Arrays.asList("a", "b", "c")).get();
+        assertEquals(1, elements.get("a").getObjectValue());
+        assertEquals(2, elements.get("b").getObjectValue());
+        assertNull(elements.get("c"));
+        assertEquals(0, executor.tasks.get());
+    }
+
+    @Test
+    public void testLoadRunsOnExecutor() throws Exception {
+        CompletableFuture<Element> future = asyncCache.getWithLoaderAsync("key", new CountingCacheLoader(), null);
+        assertEquals(0, future.get().getObjectValue());
+        assertEquals(1, executor.tasks.get());
+
+        future = asyncCache.getWithLoaderAsync("key", new CountingCacheLoader(), null);
+        assertTrue(future.isDone());
+        assertEquals(0, future.get().getObjectValue());
+        assertEquals(1, executor.tasks.get());
+    }
+
+    @Test
+    public void testFailuresAreReportedThroughTheFuture() {
+        manager.removeCache("asyncCache");
+        CompletableFuture<Element> future = asyncCache.getAsync("key");
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    private static final class CountingExecutor implements Executor {
+        private final AtomicInteger tasks = new AtomicInteger();
+
+        public void execute(Runnable command) {
+            tasks.incrementAndGet();
+            command.run();
+        }
+    }
+}
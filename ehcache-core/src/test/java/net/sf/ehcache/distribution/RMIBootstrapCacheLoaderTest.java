@@ -0,0 +1,182 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.distribution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RMIBootstrapCacheLoaderTest {
+
+    private static final int ELEMENTS = 2000;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private Map<Serializable, Element> source;
+
+    @Before
+    public void setUp() {
+        cacheManager = new CacheManager(new Configuration().name("RMIBootstrapCacheLoaderTest")
+                .cache(new CacheConfiguration("bootstrapped", 0)));
+        cache = cacheManager.getCache("bootstrapped");
+        source = new ConcurrentHashMap<Serializable, Element>();
+        for (int i = 0; i < ELEMENTS; i++) {
+            source.put(i, new Element(i, "value-" + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void testLoadsFromSeveralPeersInParallel() {
+        FakePeer[] peers = {new FakePeer(false), new FakePeer(false), new FakePeer(false)};
+        new TestLoader(5000, 3, peers).doLoad(cache);
+
+        assertEquals(ELEMENTS, cache.getSize());
+        int fetchingPeers = 0;
+        for (FakePeer peer : peers) {
+            if (peer.elementsRequested.get() > 0) {
+                fetchingPeers++;
+            }
+        }
+        assertTrue(fetchingPeers > 1);
+    }
+
+    @Test
+    public void testChunksOfAFailingPeerAreFetchedFromOthers() {
+        FakePeer[] peers = {new FakePeer(true), new FakePeer(false), new FakePeer(true)};
+        new TestLoader(5000, 3, peers).doLoad(cache);
+
+        assertEquals(ELEMENTS, cache.getSize());
+    }
+
+    @Test
+    public void testSinglePeerLoaderUsesOnePeer() {
+        FakePeer[] peers = {new FakePeer(false), new FakePeer(false)};
+        new TestLoader(5000, 1, peers).doLoad(cache);
+
+        assertEquals(ELEMENTS, cache.getSize());
+        assertEquals(ELEMENTS, peers[0].elementsRequested.get() + peers[1].elementsRequested.get());
+        assertTrue(peers[0].elementsRequested.get() == 0 || peers[1].elementsRequested.get() == 0);
+    }
+
+    /**
+     * A loader bootstrapping from the given peers.
+     */
+    private static final class TestLoader extends RMIBootstrapCacheLoader {
+
+        private final List<CachePeer> peers;
+
+        TestLoader(int maximumChunkSize, int maximumPeers, CachePeer... peers) {
+            super(false, maximumChunkSize, maximumPeers);
+            this.peers = Arrays.asList(peers);
+        }
+
+        @Override
+        protected List listRemoteCachePeers(Ehcache cache) {
+            return new ArrayList<CachePeer>(peers);
+        }
+    }
+
+    /**
+     * A peer serving the source elements, optionally failing every other chunk.
+     */
+    private final class FakePeer implements CachePeer {
+
+        private final boolean failing;
+        private final AtomicInteger elementsRequested = new AtomicInteger();
+        private final AtomicInteger chunksRequested = new AtomicInteger();
+
+        FakePeer(boolean failing) {
+            this.failing = failing;
+        }
+
+        public List getElements(List keys) throws RemoteException {
+            if (failing && chunksRequested.incrementAndGet() % 2 == 0) {
+                throw new RemoteException("peer failure");
+            }
+            elementsRequested.addAndGet(keys.size());
+            List<Element> elements = new ArrayList<Element>();
+            for (Object key : keys) {
+                elements.add(source.get((Serializable) key));
+            }
+            return elements;
+        }
+
+        public List getKeys() {
+            return new ArrayList<Serializable>(source.keySet());
+        }
+
+        public Element getQuiet(Serializable key) {
+            return source.get(key);
+        }
+
+        public void put(Element element) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean remove(Serializable key) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void removeAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        public void send(List eventMessages) {
+            throw new UnsupportedOperationException();
+        }
+
+        public String getName() {
+            return "bootstrapped";
+        }
+
+        public String getGuid() {
+            return null;
+        }
+
+        public String getUrl() {
+            return "//localhost:40001/bootstrapped";
+        }
+
+        public String getUrlBase() {
+            return "//localhost:40001";
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.distribution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.distribution.RmiEventMessage.RmiEventType;
+
+import org.junit.Test;
+
+public class ReplicationQueueTest {
+
+    @Test
+    public void testMessagesAreKeptInOrderWithoutCoalescing() throws InterruptedException {
+        ReplicationQueue queue = new ReplicationQueue(0, false);
+        RmiEventMessage put = put("a", "1");
+        RmiEventMessage update = put("a", "2");
+        RmiEventMessage remove = remove("a");
+        queue.add(put);
+        queue.add(update);
+        queue.add(remove);
+
+        List<EventMessage> messages = queue.poll(10);
+        assertEquals(3, messages.size());
+        assertSame(put, messages.get(0));
+        assertSame(update, messages.get(1));
+        assertSame(remove, messages.get(2));
+        assertEquals(0, queue.getCoalescedCount());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testLatestMessageForAKeyReplacesQueuedOne() throws InterruptedException {
+        ReplicationQueue queue = new ReplicationQueue(0, true);
+        queue.add(put("a", "1"));
+        queue.add(put("b", "1"));
+        RmiEventMessage update = put("a", "2");
+        queue.add(update);
+        RmiEventMessage remove = remove("b");
+        queue.add(remove);
+
+        List<EventMessage> messages = queue.poll(10);
+        assertEquals(2, messages.size());
+        assertSame(update, messages.get(0));
+        assertSame(remove, messages.get(1));
+        assertEquals(2, queue.getCoalescedCount());
+    }
+
+    @Test
+    public void testRemoveAllDiscardsEarlierMessagesWhenCoalescing() throws InterruptedException {
+        ReplicationQueue queue = new ReplicationQueue(0, true);
+        queue.add(put("a", "1"));
+        queue.add(remove("b"));
+        RmiEventMessage removeAll = new RmiEventMessage(null, RmiEventType.REMOVE_ALL, null, null);
+        queue.add(removeAll);
+        RmiEventMessage put = put("a", "2");
+        queue.add(put);
+
+        List<EventMessage> messages = queue.poll(10);
+        assertEquals(2, messages.size());
+        assertSame(removeAll, messages.get(0));
+        assertSame(put, messages.get(1));
+    }
+
+    @Test
+    public void testPollHonoursLimit() throws InterruptedException {
+        ReplicationQueue queue = new ReplicationQueue(0, false);
+        for (int i = 0; i < 5; i++) {
+            queue.add(put("k" + i, "v"));
+        }
+        assertEquals(3, queue.poll(3).size());
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.poll(3).size());
+    }
+
+    @Test
+    public void testFullQueueBlocksUntilPolled() throws InterruptedException {
+        final ReplicationQueue queue = new ReplicationQueue(2, true);
+        queue.add(put("a", "1"));
+        queue.add(put("b", "1"));
+        queue.add(put("a", "2"));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.add(put("c", "1"));
+                    added.countDown();
+                } catch (InterruptedException e) {
+                    // test fails on the latch
+                }
+            }
+        };
+        producer.start();
+        assertFalse(added.await(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(1, queue.poll(1).size());
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+        assertEquals(1, queue.getBackPressureCount());
+        assertTrue(queue.getBackPressureNanos() > 0);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testCloseReleasesBlockedProducers() throws InterruptedException {
+        final ReplicationQueue queue = new ReplicationQueue(1, false);
+        queue.add(put("a", "1"));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.add(put("b", "1"));
+                    added.countDown();
+                } catch (InterruptedException e) {
+                    // test fails on the latch
+                }
+            }
+        };
+        producer.start();
+        assertFalse(added.await(100, TimeUnit.MILLISECONDS));
+        queue.close();
+        assertTrue(added.await(10, TimeUnit.SECONDS));
+        assertEquals(2, queue.size());
+    }
+
+    private static RmiEventMessage put(String key, String value) {
+        return new RmiEventMessage(null, RmiEventType.PUT, null, new Element(key, value));
+    }
+
+    private static RmiEventMessage remove(String key) {
+        return new RmiEventMessage(null, RmiEventType.REMOVE, key, null);
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.event.AsynchronousEventDispatcher.OverflowPolicy;
+
+import org.junit.Test;
+
+public class AsynchronousEventDispatcherTest {
+
+    @Test
+    public void testEventsOfAKeyAreDeliveredInOrder() {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 4, 100, OverflowPolicy.BLOCK);
+        List<List<Integer>> delivered = new ArrayList<List<Integer>>();
+        for (int key = 0; key < 8; key++) {
+            delivered.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            for (int key = 0; key < 8; key++) {
+                dispatcher.dispatch(key, new Record(delivered.get(key), i));
+            }
+        }
+        dispatcher.dispose();
+
+        for (List<Integer> events : delivered) {
+            assertEquals(1000, events.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, events.get(i).intValue());
+            }
+        }
+        assertEquals(8000, dispatcher.getDeliveredCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void testDropPolicyDiscardsEventsOfAFullLane() throws InterruptedException {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 1, 2, OverflowPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        dispatcher.dispatch("blocker", new Await(release));
+        waitForEmptyQueue(dispatcher);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch("key", new Record(events, i));
+        }
+        assertEquals(2, dispatcher.getQueueDepth());
+        release.countDown();
+        dispatcher.dispose();
+
+        assertEquals(3, dispatcher.getDroppedCount());
+        assertEquals(2, events.size());
+        assertEquals(0, events.get(0).intValue());
+        assertEquals(1, events.get(1).intValue());
+    }
+
+    @Test
+    public void testCoalescePolicyKeepsTheLatestEventOfAKeyOnceTheLaneIsFull() throws InterruptedException {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 1, 3, OverflowPolicy.COALESCE);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        dispatcher.dispatch("blocker", new Await(release));
+        waitForEmptyQueue(dispatcher);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch("key", new Record(events, i));
+        }
+        assertEquals(3, dispatcher.getQueueDepth());
+        release.countDown();
+        dispatcher.dispose();
+
+        assertEquals(2, dispatcher.getCoalescedCount());
+        assertEquals(Arrays.asList(0, 1, 4), events);
+    }
+
+    @Test
+    public void testCoalescePolicyKeepsEveryEventWhileTheLaneHasRoom() throws InterruptedException {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 1, 10, OverflowPolicy.COALESCE);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        dispatcher.dispatch("blocker", new Await(release));
+        waitForEmptyQueue(dispatcher);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch("key", new Record(events, i));
+        }
+        assertEquals(5, dispatcher.getQueueDepth());
+        release.countDown();
+        dispatcher.dispose();
+
+        assertEquals(0, dispatcher.getCoalescedCount());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), events);
+    }
+
+    @Test
+    public void testEventsAreNotCoalescedAcrossARemoveAll() throws InterruptedException {
+        final AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 1, 2, OverflowPolicy.COALESCE);
+        CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        dispatcher.dispatch("blocker", new Await(release));
+        waitForEmptyQueue(dispatcher);
+        dispatcher.dispatch("key", new Record(events, 0));
+        dispatcher.dispatch(null, new Record(events, 1));
+        // the lane is full, so this waits for room rather than replacing the event queued before the remove all
+        Thread dispatching = new Thread() {
+            @Override
+            public void run() {
+                dispatcher.dispatch("key", new Record(events, 2));
+            }
+        };
+        dispatching.start();
+        dispatching.join(100);
+        release.countDown();
+        dispatching.join();
+        dispatcher.dispose();
+
+        assertEquals(0, dispatcher.getCoalescedCount());
+        assertEquals(3, events.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, events.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testRemoveAllIsDeliveredAfterEveryEarlierEvent() {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 4, 1000, OverflowPolicy.BLOCK);
+        List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int key = 0; key < 100; key++) {
+            dispatcher.dispatch(key, new Record(events, 0));
+        }
+        dispatcher.dispatch(null, new Record(events, 1));
+        for (int key = 0; key < 100; key++) {
+            dispatcher.dispatch(key, new Record(events, 2));
+        }
+        dispatcher.dispose();
+
+        assertEquals(201, events.size());
+        for (int i = 0; i < 201; i++) {
+            assertEquals(i < 100 ? 0 : i == 100 ? 1 : 2, events.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testConcurrentRemoveAllsDoNotDeadlock() throws InterruptedException {
+        final AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 8, 10, OverflowPolicy.BLOCK);
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final int event = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        dispatcher.dispatch(null, new Record(events, event));
+                        dispatcher.dispatch(i, new Record(events, event));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(thread.isAlive());
+        }
+        dispatcher.dispose();
+
+        assertEquals(4000, events.size());
+    }
+
+    @Test
+    public void testListenerFailureDoesNotStopDelivery() {
+        AsynchronousEventDispatcher dispatcher = new AsynchronousEventDispatcher("test", 1, 10, OverflowPolicy.BLOCK);
+        List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+        dispatcher.dispatch("key", new Runnable() {
+            public void run() {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+        dispatcher.dispatch("key", new Record(events, 1));
+        dispatcher.dispose();
+
+        assertEquals(1, dispatcher.getFailedCount());
+        assertEquals(2, dispatcher.getDeliveredCount());
+        assertEquals(Collections.singletonList(1), events);
+        assertTrue(dispatcher.getMaximumListenerLatencyNanos() >= dispatcher.getAverageListenerLatencyNanos());
+    }
+
+    private static void waitForEmptyQueue(AsynchronousEventDispatcher dispatcher) throws InterruptedException {
+        while (dispatcher.getQueueDepth() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records an event.
+     */
+    private static final class Record implements Runnable {
+        private final List<Integer> events;
+        private final int event;
+
+        Record(List<Integer> events, int event) {
+            this.events = events;
+            this.event = event;
+        }
+
+        public void run() {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Blocks its lane until released.
+     */
+    private static final class Await implements Runnable {
+        private final CountDownLatch release;
+
+        Await(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public void run() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -36,9 +36,20 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:gluck@gregluck.com">Greg Luck</a>
@@ -102,6 +113,89 @@ public class CacheLoaderTest {
         assertTrue(cachedObjects.containsKey(3));
     }
 
+    @Test
+    public void testGetAllWithLoaderLoadsMissingKeysInBatches() {
+        Cache cache = new Cache(new CacheConfiguration("batchLoaderCache", 100).cacheLoaderBatchSize(10).cacheLoaderThreads(4));
+        manager.addCache(cache);
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        cache.registerCacheLoader(new BaseComponentLoader() {
+            @Override
+            public Map loadAll(Collection keys, Object argument) {
+                batchSizes.add(keys.size());
+                Map<Object, Object> values = new HashMap<Object, Object>();
+                for (Object key : keys) {
+                    values.put(key, "loaded-" + key);
+                }
+                return values;
+            }
+        });
+
+        List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 0; i < 40; i++) {
+            keys.add(i);
+            if (i < 5) {
+                cache.put(new Element(i, "cached-" + i));
+            }
+        }
+
+        Map values = cache.getAllWithLoader(keys, null);
+        assertEquals(40, values.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals((i < 5 ? "cached-" : "loaded-") + i, values.get(i));
+            assertEquals(values.get(i), cache.get(i).getObjectValue());
+        }
+        Collections.sort(batchSizes);
+        assertEquals(Arrays.asList(5, 10, 10, 10), batchSizes);
+    }
+
+    @Test
+    public void testConcurrentGetAllWithLoaderLoadsEachKeyOnce() throws Exception {
+        final Cache cache = new Cache(new CacheConfiguration("sharedLoaderCache", 100).cacheLoaderThreads(2));
+        manager.addCache(cache);
+        final AtomicInteger loadedKeys = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        cache.registerCacheLoader(new BaseComponentLoader() {
+            @Override
+            public Map loadAll(Collection keys, Object argument) {
+                loadedKeys.addAndGet(keys.size());
+                loading.countDown();
+                try {
+                    proceed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                Map<Object, Object> values = new HashMap<Object, Object>();
+                for (Object key : keys) {
+                    values.put(key, "loaded-" + key);
+                }
+                return values;
+            }
+        });
+
+        final List<String> keys = Arrays.asList("a", "b", "c");
+        Callable<Map> getAll = new Callable<Map>() {
+            public Map call() {
+                return cache.getAllWithLoader(keys, null);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map> first = executor.submit(getAll);
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            Future<Map> second = executor.submit(getAll);
+            Thread.sleep(100);
+            proceed.countDown();
+
+            assertEquals("loaded-a", first.get().get("a"));
+            assertEquals("loaded-c", second.get().get("c"));
+            assertEquals(3, second.get().size());
+            assertEquals(3, loadedKeys.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testLoaderChainNullFirst() {
         Cache cache = manager.getCache("NullLoaderFirstCache");
@@ -3,11 +3,16 @@ package net.sf.ehcache.management.sampled;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.Searchable;
 import net.sf.ehcache.search.SearchException;
 import net.sf.ehcache.search.query.QueryManagerBuilder;
 import net.sf.ehcache.search.query.TestQueryManagerBuilder;
+import net.sf.ehcache.search.query.TestQueryManagerBuilder.ParseCountingQM;
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -41,4 +46,24 @@ public class CacheManagerSamplerImplTest {
     QueryManagerBuilder qmb = TestQueryManagerBuilder.getQueryManagerBuilder();
     cacheManagerSampler.executeQuery("bogus query", qmb);
   }
+
+  @Test
+  public void testExecuteQuery__repeated_query_is_parsed_once() throws Exception {
+    CacheManager cacheManager = new CacheManager(new Configuration().name("CacheManagerSamplerImplTest")
+        .cache(new CacheConfiguration("searchable", 0).searchable(new Searchable())));
+    try {
+      cacheManager.getCache("searchable").put(new Element(1, "one"));
+      CacheManagerSamplerImpl cacheManagerSampler = new CacheManagerSamplerImpl(cacheManager);
+
+      ParseCountingQM.PARSES.set(0);
+      for (int i = 0; i < 3; i++) {
+        QueryManagerBuilder qmb = TestQueryManagerBuilder.getParseCountingQueryManagerBuilder();
+        // the header row and the one key
+        assertEquals(2, cacheManagerSampler.executeQuery("select key from searchable", qmb).length);
+      }
+      assertEquals(1, ParseCountingQM.PARSES.get());
+    } finally {
+      cacheManager.shutdown();
+    }
+  }
 }
@@ -0,0 +1,136 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.pool.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.ehcache.pool.Size;
+import net.sf.ehcache.pool.SizeOfEngine;
+
+import org.junit.Test;
+
+public class SampledSizeOfEngineTest {
+
+    @Test
+    public void testWarmUpSizesEveryElement() {
+        CountingSizeOfEngine delegate = new CountingSizeOfEngine(100);
+        SizeOfEngine engine = new SampledSizeOfEngine(delegate, 10);
+
+        for (int i = 0; i < SampledSizeOfEngine.WARMUP_SAMPLES; i++) {
+            engine.sizeOf("key", "value", null);
+        }
+        assertEquals(SampledSizeOfEngine.WARMUP_SAMPLES, delegate.calls);
+    }
+
+    @Test
+    public void testOnlySamplesAreSizedOnceWarm() {
+        CountingSizeOfEngine delegate = new CountingSizeOfEngine(100);
+        SizeOfEngine engine = new SampledSizeOfEngine(delegate, 10);
+
+        for (int i = 0; i < SampledSizeOfEngine.WARMUP_SAMPLES + 1000; i++) {
+            engine.sizeOf("key", "value", null);
+        }
+        assertEquals(SampledSizeOfEngine.WARMUP_SAMPLES + 100, delegate.calls);
+    }
+
+    @Test
+    public void testEstimatesAreTheAverageOfTheSamples() {
+        CountingSizeOfEngine delegate = new CountingSizeOfEngine(100);
+        SizeOfEngine engine = new SampledSizeOfEngine(delegate, Integer.MAX_VALUE);
+
+        for (int i = 0; i < SampledSizeOfEngine.WARMUP_SAMPLES; i++) {
+            delegate.size = i % 2 == 0 ? 100 : 200;
+            engine.sizeOf("key", "value", null);
+        }
+        delegate.size = 1000;
+
+        Size size = engine.sizeOf("key", "value", null);
+        assertEquals(150, size.getCalculated());
+        assertTrue(size.isExact());
+    }
+
+    @Test
+    public void testEstimatesAreKeptPerValueClass() {
+        CountingSizeOfEngine delegate = new CountingSizeOfEngine(100);
+        SizeOfEngine engine = new SampledSizeOfEngine(delegate, Integer.MAX_VALUE);
+
+        for (int i = 0; i < SampledSizeOfEngine.WARMUP_SAMPLES; i++) {
+            engine.sizeOf("key", "value", null);
+        }
+        delegate.size = 500;
+
+        assertEquals(500, engine.sizeOf("key", 42, null).getCalculated());
+        assertEquals(100, engine.sizeOf("key", "value", null).getCalculated());
+    }
+
+    @Test
+    public void testSizeFullyBypassesSampling() {
+        final CountingSizeOfEngine delegate = new CountingSizeOfEngine(100);
+        final SizeOfEngine engine = new SampledSizeOfEngine(delegate, Integer.MAX_VALUE);
+
+        for (int i = 0; i < SampledSizeOfEngine.WARMUP_SAMPLES; i++) {
+            engine.sizeOf("key", "value", null);
+        }
+        delegate.size = 300;
+
+        final long[] sizes = new long[1];
+        SampledSizeOfEngine.sizeFully(new Runnable() {
+            public void run() {
+                sizes[0] = engine.sizeOf("key", "value", null).getCalculated();
+            }
+        });
+        assertEquals(300, sizes[0]);
+        assertEquals(SampledSizeOfEngine.WARMUP_SAMPLES + 1, delegate.calls);
+    }
+
+    @Test
+    public void testCopyKeepsSampleInterval() {
+        SampledSizeOfEngine engine = new SampledSizeOfEngine(new CountingSizeOfEngine(100), 7);
+        SizeOfEngine copy = engine.copyWith(100, false);
+
+        assertTrue(copy instanceof SampledSizeOfEngine);
+        assertEquals(7, ((SampledSizeOfEngine) copy).getSampleInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSampleIntervalMustBePositive() {
+        new SampledSizeOfEngine(new CountingSizeOfEngine(100), 0);
+    }
+
+    /**
+     * An engine sizing every value to the same size, counting its calls.
+     */
+    private static final class CountingSizeOfEngine implements SizeOfEngine {
+
+        private volatile long size;
+        private int calls;
+
+        CountingSizeOfEngine(long size) {
+            this.size = size;
+        }
+
+        public Size sizeOf(Object key, Object value, Object container) {
+            calls++;
+            return new Size(size, true);
+        }
+
+        public SizeOfEngine copyWith(int maxDepth, boolean abortWhenMaxDepthExceeded) {
+            return new CountingSizeOfEngine(size);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.Searchable;
+import net.sf.ehcache.search.Person.Gender;
+import net.sf.ehcache.search.expression.Criteria;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedSearchTest {
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private Attribute<Integer> age;
+    private Attribute<String> name;
+    private Attribute<Gender> gender;
+
+    @Before
+    public void setUp() {
+        CacheConfiguration config = new CacheConfiguration("indexed", 0).searchable(new Searchable()
+                .searchAttribute(new SearchAttribute().name("age").expression("value.getAge()").index("sorted"))
+                .searchAttribute(new SearchAttribute().name("name").expression("value.getName()").index("hash"))
+                .searchAttribute(new SearchAttribute().name("gender").expression("value.getGender()")));
+        cacheManager = new CacheManager(new Configuration().name("IndexedSearchTest").cache(config));
+        cache = cacheManager.getCache("indexed");
+        age = cache.getSearchAttribute("age");
+        name = cache.getSearchAttribute("name");
+        gender = cache.getSearchAttribute("gender");
+        for (int i = 0; i < 100; i++) {
+            cache.put(new Element(i, new Person("name-" + i, i, i % 2 == 0 ? Gender.MALE : Gender.FEMALE)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void testEqualityUsesCaseInsensitiveHashIndex() {
+        assertEquals(keys(42), query(name.eq("NAME-42")));
+        assertEquals(keys(1, 2, 3), query(name.in(Arrays.asList("name-1", "name-2", "name-3", "missing"))));
+        assertEquals(keys(), query(name.eq("missing")));
+    }
+
+    @Test
+    public void testRangesUseSortedIndex() {
+        assertEquals(keys(10, 11, 12), query(age.between(10, 12)));
+        assertEquals(keys(11), query(age.between(10, 12, false, false)));
+        assertEquals(keys(98, 99), query(age.gt(97)));
+        assertEquals(keys(97, 98, 99), query(age.ge(97)));
+        assertEquals(keys(0, 1), query(age.lt(2)));
+        assertEquals(keys(0, 1, 2), query(age.le(2)));
+    }
+
+    @Test
+    public void testCombinedCriteriaAreVerified() {
+        assertEquals(keys(10, 12), query(age.between(10, 12).and(gender.eq(Gender.MALE))));
+        assertEquals(keys(5, 42), query(age.eq(5).or(name.eq("name-42"))));
+        assertEquals(keys(11), query(gender.eq(Gender.FEMALE).and(age.between(10, 12))));
+    }
+
+    @Test
+    public void testIndexesFollowUpdatesAndRemovals() {
+        cache.put(new Element(42, new Person("renamed", 7, Gender.MALE)));
+        cache.remove(43);
+        cache.replace(new Element(44, new Person("name-44", 1000, Gender.MALE)));
+
+        assertEquals(keys(), query(name.eq("name-42")));
+        assertEquals(keys(42), query(name.eq("renamed")));
+        assertEquals(keys(7, 42), query(age.eq(7)));
+        assertEquals(keys(), query(name.eq("name-43")));
+        assertEquals(keys(44, 45), query(age.between(44, 45).or(age.gt(999))));
+
+        cache.removeAll();
+        assertEquals(keys(), query(age.ge(0)));
+    }
+
+    private Set<Object> query(Criteria criteria) {
+        Set<Object> keys = new HashSet<Object>();
+        for (Result result : cache.createQuery().includeKeys().addCriteria(criteria).execute().all()) {
+            keys.add(result.getKey());
+        }
+        return keys;
+    }
+
+    private static Set<Object> keys(Object... keys) {
+        return new HashSet<Object>(Arrays.asList(keys));
+    }
+}
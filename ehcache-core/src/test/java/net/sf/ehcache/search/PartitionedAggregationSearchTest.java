@@ -0,0 +1,118 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.Searchable;
+import net.sf.ehcache.search.Person.Gender;
+import net.sf.ehcache.search.aggregator.Aggregators;
+import net.sf.ehcache.search.aggregator.Average;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedAggregationSearchTest {
+
+    static {
+        // the partitions are only evaluated in parallel when the common pool has more than one thread
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
+    }
+
+    private static final int ELEMENTS = 10000;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private Attribute<Integer> age;
+
+    @Before
+    public void setUp() {
+        CacheConfiguration config = new CacheConfiguration("aggregated", 0).searchable(new Searchable()
+                .searchAttribute(new SearchAttribute().name("age").expression("value.getAge()")));
+        cacheManager = new CacheManager(new Configuration().name("PartitionedAggregationSearchTest").cache(config));
+        cache = cacheManager.getCache("aggregated");
+        age = cache.getSearchAttribute("age");
+        for (int i = 0; i < ELEMENTS; i++) {
+            cache.put(new Element(i, new Person("name-" + i, (i * 7919) % ELEMENTS, Gender.MALE)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void testPartitionedAggregatesEqualSerialAggregates() {
+        assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1);
+
+        // aggregates only, evaluated and aggregated by partition
+        Results partitioned = aggregateAges(cache.createQuery().addCriteria(age.ge(ELEMENTS / 4)));
+        // the same aggregates, of the matches collected along with their keys
+        Results serial = aggregateAges(cache.createQuery().addCriteria(age.ge(ELEMENTS / 4)).includeKeys());
+
+        List<Object> expected = serial.all().get(0).getAggregatorResults();
+        assertEquals(expected, partitioned.all().get(0).getAggregatorResults());
+
+        int matches = ELEMENTS - ELEMENTS / 4;
+        long sum = (long) (ELEMENTS - 1 + ELEMENTS / 4) * matches / 2;
+        assertEquals(matches, expected.get(0));
+        assertEquals(sum, expected.get(1));
+        assertEquals(ELEMENTS / 4, expected.get(2));
+        assertEquals(ELEMENTS - 1, expected.get(3));
+        assertEquals((float) sum / matches, expected.get(4));
+    }
+
+    @Test
+    public void testPartitionedAggregatesOfNoMatches() {
+        Results results = aggregateAges(cache.createQuery().addCriteria(age.lt(0)));
+
+        assertEquals(0, results.size());
+        assertEquals(false, results.hasAggregators());
+    }
+
+    @Test
+    public void testAverageMergesSumAndCount() {
+        Average average = new Average(age);
+        Average first = average.createClone();
+        Average second = average.createClone();
+        first.accept(1);
+        first.accept(2);
+        first.accept(3);
+        second.accept(10);
+
+        average.merge(first);
+        average.merge(second);
+        assertEquals(4.0f, average.aggregateResult());
+    }
+
+    private Results aggregateAges(Query query) {
+        return query.includeAggregator(Aggregators.count(), Aggregators.sum(age), Aggregators.min(age), Aggregators.max(age),
+                Aggregators.average(age)).execute();
+    }
+}
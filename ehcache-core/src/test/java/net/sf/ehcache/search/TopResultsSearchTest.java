@@ -0,0 +1,109 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.Searchable;
+import net.sf.ehcache.search.Person.Gender;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopResultsSearchTest {
+
+    private static final int ELEMENTS = 10000;
+
+    private CacheManager cacheManager;
+    private Cache cache;
+    private Attribute<Integer> age;
+
+    @Before
+    public void setUp() {
+        CacheConfiguration config = new CacheConfiguration("top", 0).searchable(new Searchable()
+                .searchAttribute(new SearchAttribute().name("age").expression("value.getAge()")));
+        cacheManager = new CacheManager(new Configuration().name("TopResultsSearchTest").cache(config));
+        cache = cacheManager.getCache("top");
+        age = cache.getSearchAttribute("age");
+        for (int i = 0; i < ELEMENTS; i++) {
+            cache.put(new Element(i, new Person("name-" + i, (i * 7919) % ELEMENTS, Gender.MALE)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void testOrderedLimitedQueryReturnsTopResults() {
+        List<Result> results = cache.createQuery().includeAttribute(age).addOrderBy(age, Direction.DESCENDING)
+                .maxResults(20).execute().all();
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ELEMENTS - 1 - i, results.get(i).getAttribute(age).intValue());
+        }
+    }
+
+    @Test
+    public void testOrderedQueryOverEveryPartition() {
+        List<Result> results = cache.createQuery().includeAttribute(age).addCriteria(age.ge(ELEMENTS / 2))
+                .addOrderBy(age, Direction.ASCENDING).execute().all();
+
+        assertEquals(ELEMENTS / 2, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(ELEMENTS / 2 + i, results.get(i).getAttribute(age).intValue());
+        }
+    }
+
+    @Test
+    public void testUnorderedLimitedQueryStopsAtLimit() {
+        assertEquals(5, cache.createQuery().includeKeys().maxResults(5).execute().size());
+        assertEquals(0, cache.createQuery().includeKeys().addCriteria(age.lt(0)).execute().size());
+    }
+
+    @Test
+    public void testBatchedQueryEvaluatesResultsAsTheyAreRead() {
+        ExecutionHints hints = new ExecutionHints().setResultBatchSize(100);
+        Results results = cache.createQuery().includeKeys().includeAttribute(age).addCriteria(age.ge(ELEMENTS / 2))
+                .execute(hints);
+
+        assertEquals(ELEMENTS / 2, results.size());
+        Set<Object> keys = new HashSet<Object>();
+        for (Result result : results.all()) {
+            assertTrue(result.getAttribute(age) >= ELEMENTS / 2);
+            keys.add(result.getKey());
+        }
+        assertEquals(ELEMENTS / 2, keys.size());
+        assertEquals(150, results.range(ELEMENTS / 2 - 150, 1000).size());
+
+        assertEquals(250, cache.createQuery().includeKeys().maxResults(250).execute(hints).all().size());
+    }
+}
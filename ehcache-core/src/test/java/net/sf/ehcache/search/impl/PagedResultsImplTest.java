@@ -0,0 +1,106 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.ehcache.search.Result;
+
+import org.junit.Test;
+
+public class PagedResultsImplTest {
+
+    @Test
+    public void testResultsAreReadPageByPage() {
+        CountingSource source = new CountingSource(25, 10);
+        PagedResultsImpl results = new PagedResultsImpl(source, true, false, false);
+
+        int i = 0;
+        for (Result result : results.all()) {
+            assertEquals(i++, key(result));
+        }
+        assertEquals(25, i);
+        assertEquals(1, source.traversals);
+
+        assertEquals(25, results.size());
+        assertEquals(25, results.size());
+        assertEquals(2, source.traversals);
+
+        assertEquals(12, key(results.all().get(12)));
+        assertEquals(24, key(results.all().get(24)));
+        assertTrue(results.hasKeys());
+        assertFalse(results.hasValues());
+    }
+
+    @Test
+    public void testRangeSpansPages() {
+        PagedResultsImpl results = new PagedResultsImpl(new CountingSource(25, 10), true, false, false);
+
+        List<Result> range = results.range(8, 5);
+        assertEquals(5, range.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(8 + i, key(range.get(i)));
+        }
+        assertEquals(5, results.range(20, 10).size());
+        assertEquals(0, results.range(30, 10).size());
+        assertEquals(0, results.range(0, 0).size());
+    }
+
+    @Test
+    public void testEmptyResults() {
+        PagedResultsImpl results = new PagedResultsImpl(new CountingSource(0, 10), true, true, true);
+        assertFalse(results.hasKeys());
+        assertFalse(results.all().iterator().hasNext());
+        assertEquals(0, results.size());
+    }
+
+    private static Object key(Result result) {
+        return ((ResultImpl) result).basicGetKey();
+    }
+
+    private static final class CountingSource implements PagedResultsImpl.PageSource {
+
+        private final int count;
+        private final int pageSize;
+        private int traversals;
+
+        CountingSource(int count, int pageSize) {
+            this.count = count;
+            this.pageSize = pageSize;
+        }
+
+        public Iterator<List<Result>> pages() {
+            traversals++;
+            List<List<Result>> pages = new ArrayList<List<Result>>();
+            for (int start = 0; start < count; start += pageSize) {
+                List<Result> page = new ArrayList<Result>();
+                for (int i = start; i < Math.min(count, start + pageSize); i++) {
+                    page.add(new ResultImpl(i, null, null, Collections.<String, Object>emptyMap(), null));
+                }
+                pages.add(page);
+            }
+            return pages.iterator();
+        }
+    }
+}
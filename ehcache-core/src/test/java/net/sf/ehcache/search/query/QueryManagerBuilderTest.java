@@ -138,4 +138,9 @@ class MockQueryManager implements QueryManager {
     public Query createQuery(final String statement) throws CacheException {
         throw new UnsupportedOperationException("Implement me!");
     }
+
+    @Override
+    public PreparedQuery prepareQuery(final String statement) throws CacheException {
+        throw new UnsupportedOperationException("Implement me!");
+    }
 }
@@ -1,7 +1,15 @@
 package net.sf.ehcache.search.query;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.search.Query;
+import net.sf.ehcache.store.StoreQuery;
 
 /**
  * @author Anthony Dahanne
@@ -11,10 +19,48 @@ public class TestQueryManagerBuilder {
         return new QueryManagerBuilder(QM.class);
     }
 
+    public static QueryManagerBuilder getParseCountingQueryManagerBuilder() {
+        return new QueryManagerBuilder(ParseCountingQM.class);
+    }
+
     public static class QM implements QueryManager {
         @Override
         public Query createQuery(String statement) throws CacheException {
             return null;
         }
+
+        @Override
+        public PreparedQuery prepareQuery(String statement) throws CacheException {
+            return null;
+        }
+    }
+
+    /**
+     * Counts the statements parsed, each instance parsing a statement only once, as the search parser's does
+     */
+    public static class ParseCountingQM implements QueryManager {
+        public static final AtomicInteger PARSES = new AtomicInteger();
+
+        private final Ehcache cache;
+        private final Set<String> parsed = Collections.synchronizedSet(new HashSet<String>());
+
+        public ParseCountingQM(Collection<Ehcache> caches) {
+            this.cache = caches.iterator().next();
+        }
+
+        @Override
+        public Query createQuery(String statement) throws CacheException {
+            if (parsed.add(statement)) {
+                PARSES.incrementAndGet();
+            }
+            Query query = cache.createQuery().includeKeys();
+            ((StoreQuery) query).targets(new String[] {Query.KEY.getAttributeName()});
+            return query;
+        }
+
+        @Override
+        public PreparedQuery prepareQuery(String statement) throws CacheException {
+            return null;
+        }
     }
 }
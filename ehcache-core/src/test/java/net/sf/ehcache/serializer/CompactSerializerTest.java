@@ -0,0 +1,139 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class CompactSerializerTest {
+
+    private static Object roundTrip(Serializer serializer, Object object) throws Exception {
+        return read(serializer, write(serializer, object));
+    }
+
+    private static byte[] write(Serializer serializer, Object object) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bout);
+        serializer.write(object, out);
+        out.flush();
+        return bout.toByteArray();
+    }
+
+    private static Object read(Serializer serializer, byte[] bytes) throws Exception {
+        return serializer.read(new DataInputStream(new ByteArrayInputStream(bytes)), CompactSerializerTest.class.getClassLoader());
+    }
+
+    @Test
+    public void testBuiltInTypesRoundTrip() throws Exception {
+        CompactSerializer serializer = new CompactSerializer();
+        Object[] values = {"héllo", 42, 42L, (short) 42, (byte) 42, 'x', true, 4.2f, 4.2d};
+        for (Object value : values) {
+            assertEquals(value, roundTrip(serializer, value));
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) roundTrip(serializer, new byte[] {1, 2, 3}));
+        assertNull(roundTrip(serializer, null));
+    }
+
+    @Test
+    public void testBuiltInTypesAreSmallerThanJavaSerialization() throws Exception {
+        assertTrue(write(new CompactSerializer(), 42L).length < write(new JavaSerializer(), 42L).length);
+        assertTrue(write(new CompactSerializer(), "key").length < write(new JavaSerializer(), "key").length);
+    }
+
+    @Test
+    public void testOtherTypesFallBackToJavaSerialization() throws Exception {
+        Date date = new Date();
+        assertEquals(date, roundTrip(new CompactSerializer(), date));
+    }
+
+    @Test
+    public void testRegisteredClassUsesItsSerializer() throws Exception {
+        CompactSerializer serializer = new CompactSerializer();
+        serializer.register(Point.class, new PointSerializer());
+
+        Point point = (Point) roundTrip(serializer, new Point(3, 4));
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+        assertEquals(1 + 4 + 8, write(serializer, new Point(3, 4)).length);
+    }
+
+    @Test
+    public void testDuplicateRegistrationIsRejected() {
+        CompactSerializer serializer = new CompactSerializer();
+        serializer.register(Point.class, new PointSerializer());
+        try {
+            serializer.register(Point.class, new PointSerializer());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            serializer.register(String.class, new PointSerializer());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownRegistrationNumberFails() throws Exception {
+        CompactSerializer writer = new CompactSerializer();
+        writer.register(Point.class, new PointSerializer());
+        byte[] bytes = write(writer, new Point(1, 2));
+        try {
+            read(new CompactSerializer(), bytes);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    static class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static class PointSerializer implements Serializer {
+        public void write(Object object, DataOutput out) throws IOException {
+            out.writeInt(((Point) object).x);
+            out.writeInt(((Point) object).y);
+        }
+
+        public Object read(DataInput in, ClassLoader loader) throws IOException {
+            return new Point(in.readInt(), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.ElementIdHelper;
+
+import org.junit.Test;
+
+public class ElementSerializationTest {
+
+    private final ClassLoader loader = ElementSerializationTest.class.getClassLoader();
+
+    @Test
+    public void testJavaSerializerKeepsLegacyFormat() throws Exception {
+        byte[] bytes = ElementSerialization.serialize(new Element("key", "value"), new JavaSerializer()).getBytes();
+        assertEquals((byte) 0xAC, bytes[0]);
+        assertEquals((byte) 0xED, bytes[1]);
+
+        Element element = ElementSerialization.deserialize(bytes, new CompactSerializer(), loader);
+        assertEquals("key", element.getObjectKey());
+        assertEquals("value", element.getObjectValue());
+    }
+
+    @Test
+    public void testCompactFormatPreservesMetadata() throws Exception {
+        Element original = new Element("key", 42L, 7L, 1000L, 2000L, 3L, false, 60, 30, 2500L);
+        ElementIdHelper.setId(original, 99L);
+
+        byte[] bytes = ElementSerialization.serialize(original, new CompactSerializer()).getBytes();
+        Element element = ElementSerialization.deserialize(bytes, new CompactSerializer(), loader);
+
+        assertEquals("key", element.getObjectKey());
+        assertEquals(42L, element.getObjectValue());
+        assertEquals(7L, element.getVersion());
+        assertEquals(1000L, element.getCreationTime());
+        assertEquals(2000L, element.getLastAccessTime());
+        assertEquals(3L, element.getHitCount());
+        assertEquals(60, element.getTimeToLive());
+        assertEquals(30, element.getTimeToIdle());
+        assertEquals(2500L, element.getLastUpdateTime());
+        assertFalse(element.usesCacheDefaultLifespan());
+        assertEquals(99L, ElementIdHelper.getId(element));
+    }
+
+    @Test
+    public void testCompactFormatPreservesDefaultLifespan() throws Exception {
+        Element original = new Element("key", "value");
+        byte[] bytes = ElementSerialization.serialize(original, new CompactSerializer()).getBytes();
+        Element element = ElementSerialization.deserialize(bytes, new CompactSerializer(), loader);
+        assertTrue(element.usesCacheDefaultLifespan());
+        assertFalse(ElementIdHelper.hasId(element));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.statistics.extended;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.terracotta.statistics.Time;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogramHasNoPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        assertNull(histogram.percentile(0.5));
+        assertNull(histogram.percentileStatistic(0.99).value());
+    }
+
+    @Test
+    public void testSmallLatenciesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        long now = Time.time();
+        for (long latency = 1; latency <= 10; latency++) {
+            histogram.event(now, latency);
+        }
+        assertEquals(Long.valueOf(5), histogram.percentile(0.5));
+        assertEquals(Long.valueOf(9), histogram.percentile(0.9));
+        assertEquals(Long.valueOf(10), histogram.percentile(0.999));
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        long now = Time.time();
+        for (long latency = 1; latency <= 100000; latency++) {
+            histogram.event(now, latency * 1000);
+        }
+        assertWithin(50000000L, histogram.percentile(0.5));
+        assertWithin(90000000L, histogram.percentile(0.9));
+        assertWithin(99000000L, histogram.percentile(0.99));
+        assertWithin(99900000L, histogram.percentile(0.999));
+    }
+
+    @Test
+    public void testTailIsNotHiddenByTheAverage() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        long now = Time.time();
+        for (int i = 0; i < 990; i++) {
+            histogram.event(now, 1000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.event(now, TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertWithin(1000L, histogram.percentile(0.5));
+        assertWithin(1000L, histogram.percentile(0.99));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(50), histogram.percentile(0.999));
+    }
+
+    @Test
+    public void testBucketsCoverEveryLatency() {
+        for (long latency = 0; latency < 1 << 20; latency++) {
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.index(latency));
+            assertTrue(latency <= highest);
+            assertTrue(highest - latency <= latency / 32);
+        }
+        long huge = LatencyHistogram.highestValueIn(LatencyHistogram.index(Long.MAX_VALUE));
+        assertTrue(huge > TimeUnit.MINUTES.toNanos(10));
+    }
+
+    @Test
+    public void testOldLatenciesLeaveTheWindow() {
+        LatencyHistogram histogram = new LatencyHistogram(10, TimeUnit.MILLISECONDS);
+        long past = Time.time() - TimeUnit.SECONDS.toNanos(1);
+        histogram.event(past, 1000L);
+        histogram.event(Time.time(), 10L);
+        assertEquals(Long.valueOf(10), histogram.percentile(0.999));
+    }
+
+    @Test
+    public void testReusedIntervalsStartEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram(2, TimeUnit.SECONDS);
+        long start = Time.time() - TimeUnit.SECONDS.toNanos(9);
+        for (int second = 0; second < 10; second++) {
+            histogram.event(start + TimeUnit.SECONDS.toNanos(second), 1000L * (second + 1));
+        }
+        // only the last two intervals, of one second each, are left in the window
+        assertWithin(9000L, histogram.percentile(0.5));
+        assertWithin(10000L, histogram.percentile(0.999));
+    }
+
+    private static void assertWithin(long expected, Long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 32);
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.SearchAttribute;
+import net.sf.ehcache.config.Searchable;
+import net.sf.ehcache.pool.impl.UnboundedPool;
+import net.sf.ehcache.search.attribute.AttributeExtractor;
+
+import org.junit.Test;
+
+public class AttributeIndexTest {
+
+    @Test
+    public void testEvictedElementsLeaveTheIndex() {
+        CacheConfiguration configuration = new CacheConfiguration("indexed", 100)
+            .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.CLOCK)
+            .searchable(new Searchable().searchAttribute(new SearchAttribute().name("group").index("hash")));
+        MemoryStore store = (MemoryStore) MemoryStore.create(new Cache(configuration), new UnboundedPool());
+        store.setAttributeExtractors(Collections.<String, AttributeExtractor>singletonMap("group", new AttributeExtractor() {
+            public Object attributeFor(Element element, String attributeName) {
+                return element.getObjectValue();
+            }
+        }));
+
+        for (int i = 0; i < 10000; i++) {
+            store.put(new Element(i, i % 50));
+        }
+        assertTrue(store.getSize() <= 100);
+        assertEquals(store.getSize(), ((BruteForceSearchManager) store.searchManager).getIndexSize("group"));
+    }
+}
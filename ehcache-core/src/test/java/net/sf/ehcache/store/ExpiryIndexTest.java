@@ -0,0 +1,178 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Element;
+
+import org.junit.Test;
+
+public class ExpiryIndexTest {
+
+    private static final long START = TimeUnit.DAYS.toMillis(10000);
+
+    private final FakeStore store = new FakeStore();
+
+    @Test
+    public void testElementExpiresOnceDue() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        store.put(index, element("a", START, 10, 0));
+
+        index.expire(START + seconds(5));
+        assertTrue(store.expired.isEmpty());
+
+        index.expire(START + seconds(12));
+        assertEquals(1, store.expired.size());
+        assertEquals("a", store.expired.get(0));
+    }
+
+    @Test
+    public void testDistantExpiryIsCascaded() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        store.put(index, element("a", START, (int) TimeUnit.DAYS.toSeconds(3), 0));
+        store.put(index, element("b", START, (int) TimeUnit.HOURS.toSeconds(2), 0));
+
+        index.expire(START + TimeUnit.HOURS.toMillis(1));
+        assertTrue(store.expired.isEmpty());
+
+        index.expire(START + TimeUnit.HOURS.toMillis(2) + seconds(2));
+        assertEquals(1, store.expired.size());
+        assertEquals("b", store.expired.get(0));
+
+        index.expire(START + TimeUnit.DAYS.toMillis(3) + seconds(2));
+        assertEquals(2, store.expired.size());
+        assertEquals("a", store.expired.get(1));
+    }
+
+    @Test
+    public void testReplacedElementIsOnlyExpiredOnItsOwnTime() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        store.put(index, element("a", START, 10, 0));
+        store.put(index, element("a", START, 100, 0));
+
+        index.expire(START + seconds(12));
+        assertTrue(store.expired.isEmpty());
+
+        index.expire(START + seconds(102));
+        assertEquals(1, store.expired.size());
+        assertEquals(2, store.lookups);
+    }
+
+    @Test
+    public void testAccessedElementIsIndexedAgain() {
+        long now = System.currentTimeMillis();
+        long start = now - seconds(100);
+        ExpiryIndex index = new ExpiryIndex(store, start);
+        Element element = element("a", start, 0, 10);
+        store.put(index, element);
+        element.updateAccessStatistics();
+
+        index.expire(start + seconds(20));
+        assertTrue(store.expired.isEmpty());
+
+        index.expire(element.getExpirationTime() + seconds(2));
+        assertEquals(1, store.expired.size());
+    }
+
+    @Test
+    public void testRemovedAndEternalElementsAreNotExpired() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        store.put(index, element("a", START, 10, 0));
+        store.put(index, new Element("b", "b", true));
+        store.elements.remove("a");
+
+        index.expire(START + seconds(3600));
+        assertTrue(store.expired.isEmpty());
+        assertEquals(1, store.lookups);
+    }
+
+    @Test
+    public void testClearDropsAllEntries() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        store.put(index, element("a", START, 10, 0));
+        store.put(index, element("b", START, 100000, 0));
+        index.clear();
+
+        index.expire(START + seconds(200000));
+        assertEquals(0, store.lookups);
+    }
+
+    @Test
+    public void testIndexStaysBoundedUnderRepeatedPutsToTheSameKey() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        for (int i = 0; i < 100000; i++) {
+            store.put(index, element("a", START, 60, 0));
+            assertTrue(index.size() <= 2048);
+        }
+
+        index.expire(START + seconds(62));
+        assertEquals(1, store.expired.size());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testIndexStaysBoundedWithoutExpiringRemovedElements() {
+        ExpiryIndex index = new ExpiryIndex(store, START);
+        for (int i = 0; i < 100000; i++) {
+            store.put(index, element("k" + i, START, 3600, 0));
+            store.elements.remove("k" + i);
+            assertTrue(index.size() <= 2048);
+        }
+    }
+
+    private static Element element(String key, long creationTime, int timeToLive, int timeToIdle) {
+        return new Element(key, key, 1, creationTime, creationTime, 0, false, timeToLive, timeToIdle, creationTime);
+    }
+
+    private static long seconds(long seconds) {
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * A store backed by a map, recording the keys it expires.
+     */
+    private static final class FakeStore implements ExpiryIndex.ExpirableStore {
+
+        private final Map<Object, Element> elements = new HashMap<Object, Element>();
+        private final List<Object> expired = new ArrayList<Object>();
+        private int lookups;
+
+        void put(ExpiryIndex index, Element element) {
+            elements.put(element.getObjectKey(), element);
+            index.add(element.getObjectKey(), element);
+        }
+
+        public Element getQuiet(Object key) {
+            lookups++;
+            return elements.get(key);
+        }
+
+        public void expire(Object key, Element element) {
+            if (elements.remove(key) == element) {
+                expired.add(key);
+            }
+        }
+    }
+}
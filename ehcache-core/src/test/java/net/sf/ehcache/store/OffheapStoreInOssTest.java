@@ -19,9 +19,12 @@ package net.sf.ehcache.store;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
 
 import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration.Strategy;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -37,6 +40,24 @@ public class OffheapStoreInOssTest {
         try {
             Cache cache = new Cache(new CacheConfiguration("test", 1).overflowToOffHeap(true).maxMemoryOffHeap("1M"));
             manager.addCache(cache);
+            cache.put(new Element("one", "1"));
+            cache.put(new Element("two", "2"));
+            Assert.assertEquals("1", cache.get("one").getObjectValue());
+            Assert.assertEquals("2", cache.get("two").getObjectValue());
+            Assert.assertEquals(2, cache.getSize());
+        } finally {
+          manager.shutdown();
+        }
+    }
+
+    @Test
+    public void testOffheapAndDiskInOss() throws Exception {
+      Configuration config =  new Configuration();
+      CacheManager manager = new CacheManager(config);
+        try {
+            Cache cache = new Cache(new CacheConfiguration("test", 1).overflowToOffHeap(true).maxMemoryOffHeap("1M")
+                .persistence(new PersistenceConfiguration().strategy(Strategy.LOCALTEMPSWAP)));
+            manager.addCache(cache);
             Assert.fail();
         } catch (CacheException e) {
             // expected
@@ -0,0 +1,129 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.pool.impl.UnboundedPool;
+
+import org.junit.Test;
+
+public class TinyLfuPolicyTest {
+
+    @Test
+    public void testFrequentKeyIsAdmittedOverRareOne() {
+        TinyLfuPolicy policy = new TinyLfuPolicy(1000);
+        for (int i = 0; i < 5; i++) {
+            policy.recordAccess("hot");
+        }
+        policy.recordAccess("cold");
+
+        assertTrue(policy.admit("hot", "cold"));
+        assertFalse(policy.admit("cold", "hot"));
+    }
+
+    @Test
+    public void testScannedKeysAreNotAdmittedOverHotOnes() {
+        TinyLfuPolicy policy = new TinyLfuPolicy(1000);
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 3; j++) {
+                policy.recordAccess("hot-" + i);
+            }
+        }
+
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.recordAccess("scan-" + i);
+            if (policy.admit("scan-" + i, "hot-" + (i % 100))) {
+                admitted++;
+            }
+        }
+        assertTrue("admitted " + admitted, admitted < 50);
+    }
+
+    @Test
+    public void testReplacedElementIsNotSubjectToAdmission() {
+        CacheConfiguration configuration = new CacheConfiguration("tinylfu", 10)
+            .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.TINYLFU);
+        MemoryStore store = (MemoryStore) MemoryStore.create(new Cache(configuration), new UnboundedPool());
+        for (int i = 0; i < 9; i++) {
+            store.put(new Element("hot-" + i, i));
+        }
+        store.put(new Element("cold", 0));
+
+        // leaves the store over capacity, so that the next put evicts
+        store.memoryCapacityChanged(10, 5);
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 5; j++) {
+                store.get("hot-" + i);
+            }
+        }
+        store.put(new Element("cold", 1));
+
+        assertEquals(1, store.get("cold").getObjectValue());
+        assertEquals(5, store.getSize());
+    }
+
+    @Test
+    public void testRejectedElementDoesNotStopTheEvictions() {
+        CacheConfiguration configuration = new CacheConfiguration("tinylfu", 10)
+            .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.TINYLFU);
+        MemoryStore store = (MemoryStore) MemoryStore.create(new Cache(configuration), new UnboundedPool());
+        for (int i = 0; i < 10; i++) {
+            store.put(new Element("hot-" + i, i));
+        }
+
+        // leaves the store over capacity by more than the element the next put evicts first
+        store.memoryCapacityChanged(10, 5);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 5; j++) {
+                store.get("hot-" + i);
+            }
+        }
+        store.put(new Element("cold", 0));
+
+        assertNull(store.get("cold"));
+        assertEquals(6, store.getSize());
+    }
+
+    @Test
+    public void testFrequenciesAreSaturatedAndAged() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(15, sketch.frequency("key"));
+
+        for (int i = 0; i < 160; i++) {
+            sketch.increment("other-" + i);
+        }
+        assertTrue(sketch.frequency("key") < 15);
+    }
+
+    @Test
+    public void testPolicyIsResolvedFromItsName() {
+        assertSame(MemoryStoreEvictionPolicy.TINYLFU, MemoryStoreEvictionPolicy.fromString("tinylfu"));
+        assertEquals(TinyLfuPolicy.NAME, MemoryStoreEvictionPolicy.TINYLFU.toString());
+    }
+}
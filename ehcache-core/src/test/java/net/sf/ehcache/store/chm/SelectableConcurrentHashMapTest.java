@@ -11,6 +11,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
@@ -87,6 +91,66 @@ public class SelectableConcurrentHashMapTest {
             not(sameInstance(evictionIterator.currentTable)));
     }
 
+    @Test
+    public void testReadsOfOtherSegmentsDoNotWaitForAHeldWriteLock() throws InterruptedException {
+        int other = 2;
+        while (map.lockFor(other) == map.lockFor(1)) {
+            other++;
+        }
+        final int key = other;
+        final AtomicReference<Element> read = new AtomicReference<Element>();
+        final AtomicBoolean contains = new AtomicBoolean();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                read.set(map.get(key));
+                contains.set(map.containsKey(key));
+            }
+        };
+
+        ReentrantReadWriteLock.WriteLock writeLock = map.lockFor(1).writeLock();
+        writeLock.lock();
+        try {
+            reader.start();
+            reader.join(TimeUnit.SECONDS.toMillis(10));
+            assertThat(reader.isAlive(), is(false));
+        } finally {
+            writeLock.unlock();
+        }
+        assertThat(read.get(), notNullValue());
+        assertThat(contains.get(), is(true));
+    }
+
+    @Test
+    public void testReadsDoNotSeeChangesUnderAHeldWriteLock() throws InterruptedException {
+        final Element updated = new Element(1, 2);
+        final AtomicReference<Element> read = new AtomicReference<Element>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                read.set(map.get(1));
+            }
+        };
+
+        // as a put coordinated with a cache writer does, or the holder of an explicit lock on the key
+        ReentrantReadWriteLock.WriteLock writeLock = map.lockFor(1).writeLock();
+        writeLock.lock();
+        try {
+            map.put(1, updated, 0);
+            assertThat(map.get(1), sameInstance(updated));
+            reader.start();
+            reader.join(200);
+            assertThat(reader.isAlive(), is(true));
+            map.put(1, new Element(1, 1), 0);
+        } finally {
+            writeLock.unlock();
+        }
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(reader.isAlive(), is(false));
+        assertThat(read.get(), not(sameInstance(updated)));
+        assertThat(read.get().getObjectValue(), is((Object) 1));
+    }
+
     private <T> Set<T> expectedSet(T... values) {
         final Set<T> set = new HashSet<T>();
         Collections.addAll(set, values);
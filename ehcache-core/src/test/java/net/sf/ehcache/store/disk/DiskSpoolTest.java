@@ -0,0 +1,90 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.store.disk.DiskStorageFactory.DiskMarker;
+
+import org.junit.Test;
+
+public class DiskSpoolTest {
+
+    @Test
+    public void testWritesForAKeyKeepTheirOrder() {
+        final List<DiskMarker> written = Collections.synchronizedList(new ArrayList<DiskMarker>());
+        DiskSpool<DiskMarker> spool = new DiskSpool<DiskMarker>("ordering", 4, 8, new DiskSpool.BatchWriter<DiskMarker>() {
+            public void write(List<DiskMarker> batch) {
+                written.addAll(batch);
+            }
+        });
+        for (int i = 0; i < 1000; i++) {
+            spool.spool(marker(i % 10, i));
+        }
+        assertTrue(spool.shutdown(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, written.size());
+        Map<Object, Long> last = new HashMap<Object, Long>();
+        for (DiskMarker marker : written) {
+            Long previous = last.put(marker.getKey(), marker.getPosition());
+            assertTrue(previous == null || previous < marker.getPosition());
+        }
+    }
+
+    @Test
+    public void testWaitingPlaceholdersAreWrittenTogether() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        DiskSpool<DiskMarker> spool = new DiskSpool<DiskMarker>("batching", 1, 8, new DiskSpool.BatchWriter<DiskMarker>() {
+            public void write(List<DiskMarker> batch) {
+                batchSizes.add(batch.size());
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        spool.spool(marker(0, 0));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 20; i++) {
+            spool.spool(marker(i, i));
+        }
+        assertEquals(20, spool.size());
+        release.countDown();
+        assertTrue(spool.shutdown(10, TimeUnit.SECONDS));
+
+        assertEquals(0, spool.size());
+        assertEquals(Arrays.asList(1, 8, 8, 4), batchSizes);
+    }
+
+    private static DiskMarker marker(Object key, long sequence) {
+        return new DiskMarker(null, sequence, 0, key, 0, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sf.ehcache.store.disk.DiskStorageFactory.DiskMarker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexJournalTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("journal", ".index");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testReplayOfPutsAndRemoves() throws Exception {
+        IndexJournal journal = new IndexJournal(file, getClass().getClassLoader());
+        journal.open();
+        journal.put(marker("a", 0, 10));
+        journal.put(marker("b", 10, 10));
+        journal.put(marker("a", 20, 10));
+        journal.remove(marker("a", 0, 10));
+        journal.remove(marker("b", 10, 10));
+        journal.close();
+
+        assertTrue(IndexJournal.isJournal(file));
+        IndexJournal reopened = new IndexJournal(file, getClass().getClassLoader());
+        Map<Object, DiskMarker> live = reopened.replay(null);
+        assertEquals(1, live.size());
+        assertEquals(20L, live.get("a").getPosition());
+        assertEquals(10, live.get("a").getSize());
+        assertEquals(5L, reopened.getRecordCount());
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws Exception {
+        IndexJournal journal = new IndexJournal(file, getClass().getClassLoader());
+        journal.open();
+        journal.put(marker("a", 0, 10));
+        journal.put(marker("b", 10, 10));
+        journal.close();
+
+        long intact = file.length();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(intact - 3);
+        } finally {
+            raf.close();
+        }
+
+        IndexJournal reopened = new IndexJournal(file, getClass().getClassLoader());
+        Map<Object, DiskMarker> live = reopened.replay(null);
+        assertEquals(1, live.size());
+        assertTrue(live.containsKey("a"));
+        assertTrue(file.length() < intact - 3);
+
+        reopened.open();
+        reopened.put(marker("c", 20, 10));
+        reopened.close();
+        assertEquals(2, new IndexJournal(file, getClass().getClassLoader()).replay(null).size());
+    }
+
+    @Test
+    public void testCorruptRecordStopsReplay() throws Exception {
+        IndexJournal journal = new IndexJournal(file, getClass().getClassLoader());
+        journal.open();
+        journal.put(marker("a", 0, 10));
+        journal.close();
+        long first = file.length();
+        journal.open();
+        journal.put(marker("b", 10, 10));
+        journal.put(marker("c", 20, 10));
+        journal.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(first + 7);
+            raf.write(raf.read() ^ 0xff);
+        } finally {
+            raf.close();
+        }
+
+        Map<Object, DiskMarker> live = new IndexJournal(file, getClass().getClassLoader()).replay(null);
+        assertEquals(1, live.size());
+        assertEquals(first, file.length());
+    }
+
+    @Test
+    public void testParallelReplayMatchesSequentialReplay() throws Exception {
+        IndexJournal journal = new IndexJournal(file, getClass().getClassLoader());
+        journal.open();
+        for (int i = 0; i < 10000; i++) {
+            journal.put(marker(i % 3000, i * 10L, 10));
+            if (i % 7 == 0) {
+                journal.remove(marker(i % 3000, i * 10L, 10));
+            }
+        }
+        journal.close();
+
+        Map<Object, DiskMarker> sequential = new IndexJournal(file, getClass().getClassLoader()).replay(null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<Object, DiskMarker> parallel = new IndexJournal(file, getClass().getClassLoader()).replay(null, executor, 4);
+            assertEquals(sequential.size(), parallel.size());
+            for (Map.Entry<Object, DiskMarker> entry : sequential.entrySet()) {
+                assertEquals(entry.getValue().getPosition(), parallel.get(entry.getKey()).getPosition());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLegacyIndexIsNotAJournal() throws IOException {
+        FileOutputStream fout = new FileOutputStream(file);
+        fout.write(new byte[] {'q', 'w', 'e', 'r', 't', 'y'});
+        fout.close();
+        assertFalse(IndexJournal.isJournal(file));
+    }
+
+    @Test
+    public void testCompactionRewritesLiveMarkers() throws Exception {
+        DiskStorageFactory factory = mock(DiskStorageFactory.class);
+        when(factory.liveMarkers()).thenReturn(Arrays.asList(marker("b", 10, 10)));
+
+        IndexJournal journal = new IndexJournal(file, getClass().getClassLoader());
+        journal.open();
+        for (int i = 0; i < 10; i++) {
+            journal.put(marker("a", i * 10, 10));
+        }
+        journal.put(marker("b", 10, 10));
+        journal.compact(factory);
+        assertEquals(1L, journal.getRecordCount());
+        journal.put(marker("c", 20, 10));
+        journal.close();
+
+        Map<Object, DiskMarker> live = new IndexJournal(file, getClass().getClassLoader()).replay(null);
+        assertEquals(2, live.size());
+        assertTrue(live.containsKey("b"));
+        assertTrue(live.containsKey("c"));
+    }
+
+    private static DiskMarker marker(Object key, long position, int size) {
+        return new DiskMarker(null, position, size, key, 0, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LZBlockCodecTest {
+
+    @Test
+    public void testRepetitiveDataRoundTrips() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("<entry key=\"").append(i % 37).append("\">value</entry>\n");
+        }
+        byte[] data = text.toString().getBytes("UTF-8");
+
+        byte[] block = LZBlockCodec.compress(data);
+        assertNotNull(block);
+        assertTrue(LZBlockCodec.isCompressed(block));
+        assertTrue(block.length < data.length / 4);
+        assertArrayEquals(data, LZBlockCodec.decompress(block));
+    }
+
+    @Test
+    public void testLongRunsRoundTrip() throws IOException {
+        Random random = new Random(42);
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; ) {
+            int run = random.nextInt(1000);
+            byte value = (byte) random.nextInt();
+            for (int j = 0; j < run && i < data.length; j++) {
+                data[i++] = random.nextInt(8) == 0 ? (byte) random.nextInt() : value;
+            }
+        }
+        assertArrayEquals(data, LZBlockCodec.decompress(LZBlockCodec.compress(data)));
+    }
+
+    @Test
+    public void testIncompressibleDataIsLeftAlone() {
+        byte[] data = new byte[4096];
+        new Random(7).nextBytes(data);
+        assertNull(LZBlockCodec.compress(data));
+        assertNull(LZBlockCodec.compress(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void testSerializedElementsAreNotMistakenForBlocks() {
+        assertFalse(LZBlockCodec.isCompressed(new byte[] {(byte) 0xAC, (byte) 0xED, 0, 5, 0x73}));
+        assertFalse(LZBlockCodec.isCompressed(new byte[] {1, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    public void testCorruptBlockIsRejected() {
+        byte[] data = new byte[1000];
+        byte[] block = LZBlockCodec.compress(data);
+        block[block.length - 3] = (byte) 0xFF;
+        block[block.length - 2] = (byte) 0xFF;
+        try {
+            LZBlockCodec.decompress(block);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testImplausibleLengthIsRejected() {
+        byte[] block = LZBlockCodec.compress(new byte[1000]);
+        for (int length : new int[] {-1, Integer.MAX_VALUE, block.length * 255}) {
+            block[1] = (byte) (length >>> 24);
+            block[2] = (byte) (length >>> 16);
+            block[3] = (byte) (length >>> 8);
+            block[4] = (byte) length;
+            try {
+                LZBlockCodec.decompress(block);
+                fail("Expected IOException for length " + length);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("uncompressed length"));
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionStatistics() throws IOException {
+        DiskCompression compression = new DiskCompression(true, 64);
+        byte[] small = new byte[16];
+        assertEquals(small, compression.encode(small));
+        byte[] large = new byte[1024];
+        byte[] encoded = compression.encode(large);
+        assertTrue(encoded.length < large.length);
+        assertArrayEquals(large, compression.decode(encoded));
+        assertEquals(small, compression.decode(small));
+
+        assertEquals(1, compression.getCompressedCount());
+        assertEquals(1, compression.getDecompressedCount());
+        assertTrue(compression.getCompressionRatio() > 10);
+    }
+}
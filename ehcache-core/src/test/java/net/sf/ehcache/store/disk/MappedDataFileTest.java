@@ -0,0 +1,156 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.disk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedDataFileTest {
+
+    private static final int SEGMENT_SIZE = 16;
+
+    private File file;
+    private RandomAccessFile raf;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("mapped", ".data");
+        raf = new RandomAccessFile(file, "rw");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        raf.close();
+        file.delete();
+    }
+
+    @Test
+    public void testWriteThenReadWithinSegment() throws IOException {
+        MappedDataFile mapped = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] data = bytes(10, 1);
+        mapped.write(3, data, data.length);
+
+        byte[] read = new byte[data.length];
+        mapped.read(3, read);
+        assertArrayEquals(data, read);
+        assertEquals(SEGMENT_SIZE, mapped.length());
+    }
+
+    @Test
+    public void testWriteThenReadAcrossSegments() throws IOException {
+        MappedDataFile mapped = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] data = bytes(SEGMENT_SIZE * 3 + 5, 7);
+        mapped.write(SEGMENT_SIZE - 2, data, data.length);
+
+        byte[] read = new byte[data.length];
+        mapped.read(SEGMENT_SIZE - 2, read);
+        assertArrayEquals(data, read);
+        assertEquals(SEGMENT_SIZE * 5, mapped.length());
+    }
+
+    @Test
+    public void testPartialBufferWrite() throws IOException {
+        MappedDataFile mapped = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] data = bytes(20, 3);
+        mapped.write(0, data, 4);
+
+        byte[] read = new byte[4];
+        mapped.read(0, read);
+        assertArrayEquals(new byte[] {3, 4, 5, 6}, read);
+    }
+
+    @Test
+    public void testShrinkDropsTrailingSegments() throws IOException {
+        MappedDataFile mapped = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] data = bytes(SEGMENT_SIZE * 4, 0);
+        mapped.write(0, data, data.length);
+        assertEquals(SEGMENT_SIZE * 4, mapped.length());
+
+        mapped.shrink(SEGMENT_SIZE + 1);
+        assertEquals(SEGMENT_SIZE * 2, mapped.length());
+
+        byte[] read = new byte[SEGMENT_SIZE + 1];
+        mapped.read(0, read);
+        for (int i = 0; i < read.length; i++) {
+            assertEquals(data[i], read[i]);
+        }
+    }
+
+    @Test
+    public void testExistingContentIsMapped() throws IOException {
+        MappedDataFile mapped = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] data = bytes(SEGMENT_SIZE * 2, 11);
+        mapped.write(0, data, data.length);
+        mapped.force();
+
+        MappedDataFile reopened = new MappedDataFile(raf, SEGMENT_SIZE);
+        byte[] read = new byte[data.length];
+        reopened.read(0, read);
+        assertArrayEquals(data, read);
+    }
+
+    @Test
+    public void testShrinkDoesNotTruncateUnderConcurrentWrites() throws Exception {
+        // segments must span whole pages, as accessing the part of a page past the end of the file doesn't fault
+        final int segmentSize = 64 * 1024;
+        final MappedDataFile mapped = new MappedDataFile(raf, segmentSize);
+        final byte[] data = bytes(segmentSize, 3);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                    while (System.nanoTime() < end) {
+                        mapped.write(segmentSize * 3, data, data.length);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        writer.start();
+        while (writer.isAlive()) {
+            mapped.shrink(segmentSize);
+        }
+        assertNull(failure.get());
+
+        mapped.write(segmentSize * 3, data, data.length);
+        byte[] read = new byte[data.length];
+        mapped.read(segmentSize * 3, read);
+        assertArrayEquals(data, read);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+        return data;
+    }
+}
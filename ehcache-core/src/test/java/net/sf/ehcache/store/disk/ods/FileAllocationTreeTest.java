@@ -72,6 +72,39 @@ public class FileAllocationTreeTest {
         }
     }
 
+    @Test
+    public void testAllocBelowTakesTheLowestHole() {
+        FileAllocationTree test = new FileAllocationTree(1000, null);
+        List<Region> regions = new ArrayList<Region>();
+        for (int i = 0; i < 10; i++) {
+            regions.add(test.alloc(10));
+        }
+        test.free(regions.get(7));
+        test.free(regions.get(2));
+        test.free(regions.get(5));
+
+        Region r = test.allocBelow(10, 90);
+        Assert.assertEquals(20, r.start());
+        Assert.assertEquals(50, test.allocBelow(10, 90).start());
+        Assert.assertNull(test.allocBelow(10, 75));
+        Assert.assertNull(test.allocBelow(20, 90));
+        Assert.assertEquals(90, test.getAllocatedSize());
+    }
+
+    @Test
+    public void testAllocatedSizeFollowsAllocAndFree() {
+        FileAllocationTree test = new FileAllocationTree(1000, null);
+        Region a = test.alloc(30);
+        Region b = test.alloc(20);
+        test.alloc(10);
+        Assert.assertEquals(60, test.getAllocatedSize());
+        test.free(a);
+        Assert.assertEquals(30, test.getAllocatedSize());
+        Assert.assertEquals(60, test.getFileSize());
+        test.free(new Region(b.start(), b.start() + 9));
+        Assert.assertEquals(20, test.getAllocatedSize());
+    }
+
     @Test
     public void testRandomAllocFree() {
         for (int n = 0; n < 100; n++) {
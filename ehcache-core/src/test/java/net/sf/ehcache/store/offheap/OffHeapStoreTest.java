@@ -0,0 +1,147 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.pool.Pool;
+import net.sf.ehcache.pool.impl.BoundedPool;
+import net.sf.ehcache.pool.impl.FromLargestCachePoolEvictor;
+import net.sf.ehcache.store.DefaultElementValueComparator;
+import net.sf.ehcache.store.ElementValueComparator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Ehcache
+ */
+public class OffHeapStoreTest {
+
+    private static final long POOL_SIZE = 1024 * 1024;
+
+    private CacheConfiguration configuration;
+    private Pool pool;
+    private OffHeapStore store;
+
+    @Before
+    public void setUp() {
+        configuration = new CacheConfiguration("offheap", 0).overflowToOffHeap(true);
+        pool = new BoundedPool(POOL_SIZE, new FromLargestCachePoolEvictor(), null);
+        store = OffHeapStore.create(new Cache(configuration), pool);
+    }
+
+    @After
+    public void tearDown() {
+        store.dispose();
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        assertTrue(store.put(new Element("key", "value")));
+        assertFalse(store.put(new Element("key", "other")));
+        assertEquals("other", store.get("key").getObjectValue());
+        assertTrue(store.containsKey("key"));
+        assertEquals(1, store.getSize());
+        assertTrue(store.getOffHeapSizeInBytes() > 0);
+
+        assertEquals("other", store.remove("key").getObjectValue());
+        assertNull(store.get("key"));
+        assertEquals(0, store.getSize());
+        assertEquals(0, store.getOffHeapSizeInBytes());
+    }
+
+    @Test
+    public void testNullKeyIsNeverPresent() {
+        assertFalse(store.containsKey(null));
+        assertFalse(store.isFaulted(null));
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        ElementValueComparator comparator = new DefaultElementValueComparator(configuration);
+        assertNull(store.putIfAbsent(new Element("key", "first")));
+        assertEquals("first", store.putIfAbsent(new Element("key", "second")).getObjectValue());
+        assertNull(store.replace(new Element("absent", "value")));
+        assertEquals("first", store.replace(new Element("key", "third")).getObjectValue());
+
+        assertFalse(store.replace(new Element("key", "first"), new Element("key", "fourth"), comparator));
+        assertTrue(store.replace(new Element("key", "third"), new Element("key", "fourth"), comparator));
+        assertNull(store.removeElement(new Element("key", "third"), comparator));
+        assertEquals("fourth", store.removeElement(new Element("key", "fourth"), comparator).getObjectValue());
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testKeysSurviveTableGrowth() {
+        for (int i = 0; i < 1000; i++) {
+            store.put(new Element(i, "value-" + i));
+        }
+        assertEquals(1000, store.getSize());
+        assertEquals(1000, new HashSet<Object>(store.getKeys()).size());
+        for (int i = 0; i < 1000; i += 2) {
+            store.remove(i);
+        }
+        for (int i = 1; i < 1000; i += 2) {
+            assertEquals("value-" + i, store.getQuiet(i).getObjectValue());
+        }
+        assertEquals(500, store.getSize());
+    }
+
+    @Test
+    public void testEvictsWithinPoolSize() {
+        for (int i = 0; i < 10000; i++) {
+            store.put(new Element(i, new byte[256]));
+        }
+        assertTrue(store.getSize() < 10000);
+        assertTrue(store.getOffHeapSizeInBytes() <= POOL_SIZE);
+    }
+
+    @Test
+    public void testFaultedElementsAreNotEvicted() {
+        store.putFaulted(new Element("faulted", new byte[256]));
+        for (int i = 0; i < 10000; i++) {
+            store.put(new Element(i, new byte[256]));
+        }
+        assertTrue(store.isFaulted("faulted"));
+        assertTrue(store.containsKey("faulted"));
+
+        store.flush(store.getQuiet("faulted"));
+        assertFalse(store.isFaulted("faulted"));
+    }
+
+    @Test
+    public void testExpiredElementsAreRemoved() throws InterruptedException {
+        Element element = new Element("key", "value");
+        element.setTimeToLive(1);
+        store.put(element);
+        store.put(new Element("eternal", "value"));
+        Thread.sleep(1100);
+        store.expireElements();
+        assertNull(store.get("key"));
+        assertEquals(1, store.getSize());
+    }
+}
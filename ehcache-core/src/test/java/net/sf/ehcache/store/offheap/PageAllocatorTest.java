@@ -0,0 +1,73 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.store.offheap;
+
+import static net.sf.ehcache.store.offheap.PageAllocator.NO_PAGE;
+import static net.sf.ehcache.store.offheap.PageAllocator.PAGE_SIZE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Ehcache
+ */
+public class PageAllocatorTest {
+
+    @Test
+    public void testChainRoundTrip() {
+        PageAllocator pages = new PageAllocator(1024 * 1024, 4096);
+        byte[] data = new byte[1000];
+        new Random(42).nextBytes(data);
+
+        int page = pages.allocate(data.length + 8);
+        assertTrue(page != NO_PAGE);
+        pages.putLong(page, 0, 0xCAFEBABEL);
+        pages.write(page, 8, data);
+
+        assertEquals(0xCAFEBABEL, pages.getLong(page, 0));
+        assertArrayEquals(data, pages.read(page, 8, data.length));
+        assertEquals(PageAllocator.pagesFor(data.length + 8) * PAGE_SIZE, pages.getAllocatedBytes());
+    }
+
+    @Test
+    public void testFreedPagesAreReused() {
+        PageAllocator pages = new PageAllocator(16 * PAGE_SIZE, 4 * PAGE_SIZE);
+        int first = pages.allocate(3 * PageAllocator.PAGE_PAYLOAD);
+        int second = pages.allocate(12 * PageAllocator.PAGE_PAYLOAD);
+        assertTrue(first != NO_PAGE);
+        assertTrue(second != NO_PAGE);
+        assertEquals(NO_PAGE, pages.allocate(2 * PageAllocator.PAGE_PAYLOAD));
+
+        pages.free(first);
+        int third = pages.allocate(2 * PageAllocator.PAGE_PAYLOAD);
+        assertTrue(third != NO_PAGE);
+        assertEquals(14 * PAGE_SIZE, pages.getAllocatedBytes());
+        assertEquals(16 * PAGE_SIZE, pages.getReservedBytes());
+    }
+
+    @Test
+    public void testSlabsAreReservedLazily() {
+        PageAllocator pages = new PageAllocator(1024 * 1024, 4096);
+        assertEquals(0, pages.getReservedBytes());
+        pages.allocate(100);
+        assertEquals(4096, pages.getReservedBytes());
+    }
+}
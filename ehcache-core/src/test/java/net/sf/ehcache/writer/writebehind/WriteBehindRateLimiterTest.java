@@ -0,0 +1,35 @@
+package net.sf.ehcache.writer.writebehind;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class WriteBehindRateLimiterTest {
+
+    @Test
+    public void testPermitsAreSharedAndReplenished() throws InterruptedException {
+        WriteBehindRateLimiter limiter = new WriteBehindRateLimiter(100, 10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(10));
+        }
+        assertFalse(limiter.tryAcquire(10));
+        Thread.sleep(200);
+        assertTrue(limiter.tryAcquire(10));
+    }
+
+    @Test
+    public void testBatchLargerThanRateIsEventuallyAllowed() {
+        WriteBehindRateLimiter limiter = new WriteBehindRateLimiter(10, 50);
+        assertTrue(limiter.tryAcquire(50));
+        assertFalse(limiter.tryAcquire(50));
+    }
+
+    @Test
+    public void testNoRateLimit() {
+        WriteBehindRateLimiter limiter = new WriteBehindRateLimiter(0, 10);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(10));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.parser;
+
+import net.sf.ehcache.search.SearchException;
+
+/**
+ * A parameter standing for a literal value, bound when a prepared query is executed.
+ */
+public final class MParameter implements ModelElement<Object> {
+
+    /**
+     * The position of a positional parameter, starting at 1, or 0 for a named parameter.
+     */
+    private final int index;
+
+    /**
+     * The name of a named parameter, or null for a positional parameter.
+     */
+    private final String name;
+
+    /**
+     * Instantiates a new positional parameter.
+     *
+     * @param index the position, starting at 1
+     */
+    public MParameter(int index) {
+        this.index = index;
+        this.name = null;
+    }
+
+    /**
+     * Instantiates a new named parameter.
+     *
+     * @param name the name
+     */
+    public MParameter(String name) {
+        this.index = 0;
+        this.name = name;
+    }
+
+    /**
+     * Checks if this parameter is named.
+     *
+     * @return true, if named
+     */
+    public boolean isNamed() {
+        return name != null;
+    }
+
+    /**
+     * Gets the position of a positional parameter.
+     *
+     * @return the position, starting at 1
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the name of a named parameter.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the element standing for the given value in place of this parameter.
+     *
+     * @param value the value bound to this parameter
+     * @return the bound element
+     */
+    public ModelElement<Object> bind(final Object value) {
+        return new Bound(this, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see net.sf.ehcache.search.parser.ModelElement#asEhcacheObject(java.lang.ClassLoader)
+     */
+    public Object asEhcacheObject(ClassLoader loader) {
+        throw new SearchException("No value bound to parameter " + this);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return isNamed() ? ":" + name : "?" + index;
+    }
+
+    @Override
+    public int hashCode() {
+        return isNamed() ? name.hashCode() : index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (getClass() != obj.getClass()) return false;
+        MParameter other = (MParameter)obj;
+        if (name == null) {
+            return other.name == null && index == other.index;
+        }
+        return name.equals(other.name);
+    }
+
+    /**
+     * A parameter with its bound value.
+     */
+    private static final class Bound implements ModelElement<Object> {
+
+        private final MParameter parameter;
+        private final Object value;
+
+        Bound(MParameter parameter, Object value) {
+            this.parameter = parameter;
+            this.value = value;
+        }
+
+        public Object asEhcacheObject(ClassLoader loader) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return parameter + "='" + value + "'";
+        }
+    }
+}
@@ -11,11 +11,14 @@ package net.sf.ehcache.search.parser;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.search.Attribute;
+import net.sf.ehcache.search.expression.Criteria;
 import net.sf.ehcache.search.Direction;
 import net.sf.ehcache.search.Query;
 import net.sf.ehcache.search.SearchException;
@@ -24,6 +27,9 @@ import net.sf.ehcache.store.StoreQuery;
 
 /**
  * The Class ParseModel.
+ * <p>
+ * A model is only populated by the parser; once parsed it is not modified (its getters return read only views and
+ * binding parameters builds new criteria), so a model may be shared between queries.
  */
 public class ParseModel {
 
@@ -75,6 +81,19 @@ public class ParseModel {
 
     private boolean cacheManagerNameWasAttempted = false;
 
+    /**
+     * The parameters, in the order they appear.
+     */
+    private List<MParameter> parameters = new ArrayList<MParameter>();
+
+    private int positionalParameterCount = 0;
+
+    /**
+     * The criteria compiled for the last class loader, when there are no parameters. This is only a memo of
+     * {@link #criteria} and does not change what the model describes.
+     */
+    private volatile CompiledCriteria compiledCriteria;
+
     /**
      * Instantiates a new query parse model.
      */
@@ -245,7 +264,7 @@ public class ParseModel {
      * @return the order by
      */
     public List<MOrderBy> getOrderBy() {
-        return orderBy;
+        return Collections.unmodifiableList(orderBy);
     }
 
     /**
@@ -254,7 +273,63 @@ public class ParseModel {
      * @return the group by
      */
     public List<MAttribute> getGroupBy() {
-        return groupBy;
+        return Collections.unmodifiableList(groupBy);
+    }
+
+    /**
+     * Adds a positional parameter.
+     *
+     * @return the parameter
+     */
+    public MParameter addPositionalParameter() {
+        MParameter param = new MParameter(++positionalParameterCount);
+        parameters.add(param);
+        return param;
+    }
+
+    /**
+     * Adds a named parameter.
+     *
+     * @param name the name
+     * @return the parameter
+     */
+    public MParameter addNamedParameter(String name) {
+        MParameter param = new MParameter(name);
+        parameters.add(param);
+        return param;
+    }
+
+    /**
+     * Gets the parameters, in the order they appear.
+     *
+     * @return the parameters
+     */
+    public List<MParameter> getParameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Gets the number of positional parameters.
+     *
+     * @return the positional parameter count
+     */
+    public int getPositionalParameterCount() {
+        return positionalParameterCount;
+    }
+
+    /**
+     * Gets the names of the named parameters.
+     *
+     * @return the parameter names
+     */
+    public Set<String> getParameterNames() {
+        Set<String> names = new LinkedHashSet<String>();
+        for (MParameter param : parameters) {
+            if (param.isNamed()) {
+                names.add(param.getName());
+            }
+        }
+        return names;
     }
 
     /**
@@ -263,15 +338,29 @@ public class ParseModel {
      * @param ehcache the ehcache
      * @return the query
      */
-    @SuppressWarnings("rawtypes")
     public Query getQuery(Ehcache ehcache) {
+        return getQuery(ehcache, criteria);
+    }
+
+    /**
+     * Gets the query as an instantiated ehcache query object, with the given criteria in place of this model's, such
+     * as this model's criteria with its parameters bound.
+     *
+     * @param ehcache the ehcache
+     * @param crit the criteria
+     * @return the query
+     */
+    @SuppressWarnings("rawtypes")
+    public Query getQuery(Ehcache ehcache, MCriteria crit) {
     	ClassLoader loader = ehcache.getCacheConfiguration().getClassLoader();    	
     	
         Query q = ehcache.createQuery();
 
         // single criteria
-        if (criteria != null) {
-            q.addCriteria(criteria.asEhcacheObject(loader));
+        if (crit == criteria && criteria != null) {
+            q.addCriteria(getCompiledCriteria(loader));
+        } else if (crit != null) {
+            q.addCriteria(crit.asEhcacheObject(loader));
         }
 
         // limit.
@@ -334,6 +423,22 @@ public class ParseModel {
         return q;
     }
 
+    /**
+     * Compiles this model's criteria, reusing the criteria compiled by the previous call for the same class loader when
+     * there are no parameters, ehcache criteria being immutable.
+     */
+    private Criteria getCompiledCriteria(ClassLoader loader) {
+        CompiledCriteria compiled = compiledCriteria;
+        if (compiled != null && compiled.loader == loader) {
+            return compiled.criteria;
+        }
+        Criteria crit = criteria.asEhcacheObject(loader);
+        if (parameters.isEmpty()) {
+            compiledCriteria = new CompiledCriteria(loader, crit);
+        }
+        return crit;
+    }
+
     private Collection<Attribute> getAttributesImpliedByStar(Ehcache cache) {
         return isIncludedTargetStar() ? cache.getSearchAttributes() : Collections.<Attribute>emptySet();
     }
@@ -358,4 +463,18 @@ public class ParseModel {
     public String getCacheManagerName() {
         return this.cacheManagerName;
     }
+
+    /**
+     * Criteria compiled with a class loader.
+     */
+    private static final class CompiledCriteria {
+
+        private final ClassLoader loader;
+        private final Criteria criteria;
+
+        CompiledCriteria(ClassLoader loader, Criteria criteria) {
+            this.loader = loader;
+            this.criteria = criteria;
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/**
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.sf.ehcache.search.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.search.Query;
+import net.sf.ehcache.search.SearchException;
+import net.sf.ehcache.search.query.PreparedQuery;
+
+/**
+ * Implementation of the PreparedQuery interface of ehcache-core.
+ * <p>
+ * The parse model is shared with every other prepared query for the same statement, so it is never modified: the
+ * parameters are bound to a copy of its criteria each time a query is created.
+ */
+class PreparedQueryImpl implements PreparedQuery {
+
+    private static final Object UNBOUND = new Object();
+
+    private final String statement;
+    private final Ehcache cache;
+    private final ParseModel model;
+    private final Object[] positionalValues;
+    private final Set<String> parameterNames;
+    private final Map<String, Object> namedValues = new HashMap<String, Object>();
+
+    PreparedQueryImpl(String statement, Ehcache cache, ParseModel model) {
+        this.statement = statement;
+        this.cache = cache;
+        this.model = model;
+        this.positionalValues = new Object[model.getPositionalParameterCount()];
+        this.parameterNames = model.getParameterNames();
+        clearParameters();
+    }
+
+    @Override
+    public String getStatement() {
+        return statement;
+    }
+
+    @Override
+    public int getParameterCount() {
+        return positionalValues.length;
+    }
+
+    @Override
+    public PreparedQuery setParameter(int index, Object value) throws SearchException {
+        if (index < 1 || index > positionalValues.length) {
+            throw new SearchException("No parameter at position " + index + " in statement: " + statement);
+        }
+        positionalValues[index - 1] = value;
+        return this;
+    }
+
+    @Override
+    public PreparedQuery setParameter(String name, Object value) throws SearchException {
+        if (!parameterNames.contains(name)) {
+            throw new SearchException("No parameter named '" + name + "' in statement: " + statement);
+        }
+        namedValues.put(name, value);
+        return this;
+    }
+
+    @Override
+    public PreparedQuery clearParameters() {
+        Arrays.fill(positionalValues, UNBOUND);
+        namedValues.clear();
+        return this;
+    }
+
+    @Override
+    public Query createQuery() throws SearchException {
+        if (model.getParameters().isEmpty()) {
+            return model.getQuery(cache);
+        }
+        return model.getQuery(cache, bind(model.getCriteria()));
+    }
+
+    private MCriteria bind(MCriteria crit) {
+        if (crit instanceof MCriteria.Simple) {
+            MCriteria.Simple simple = (MCriteria.Simple)crit;
+            return new MCriteria.Simple(simple.getAttribute(), simple.getOp(), bind(simple.getRhs()));
+        } else if (crit instanceof MCriteria.Between) {
+            MCriteria.Between between = (MCriteria.Between)crit;
+            return new MCriteria.Between(between.getAttribute(), bind(between.getMin()), between.isIncludeMin(),
+                bind(between.getMax()), between.isIncludeMax());
+        } else if (crit instanceof MCriteria.And) {
+            return new MCriteria.And(bind(((MCriteria.And)crit).getCriteria()));
+        } else if (crit instanceof MCriteria.Or) {
+            return new MCriteria.Or(bind(((MCriteria.Or)crit).getCrits()));
+        } else if (crit instanceof MCriteria.Not) {
+            return new MCriteria.Not(bind(((MCriteria.Not)crit).getCriterium()));
+        } else {
+            // like and ilike take no parameter
+            return crit;
+        }
+    }
+
+    private MCriteria[] bind(MCriteria[] crits) {
+        MCriteria[] bound = new MCriteria[crits.length];
+        for (int i = 0; i < crits.length; i++) {
+            bound[i] = bind(crits[i]);
+        }
+        return bound;
+    }
+
+    private ModelElement<?> bind(ModelElement<?> element) {
+        if (!(element instanceof MParameter)) {
+            return element;
+        }
+        MParameter param = (MParameter)element;
+        Object value;
+        if (param.isNamed()) {
+            value = namedValues.containsKey(param.getName()) ? namedValues.get(param.getName()) : UNBOUND;
+        } else {
+            value = positionalValues[param.getIndex() - 1];
+        }
+        if (value == UNBOUND) {
+            throw new SearchException("No value bound to parameter " + param + " in statement: " + statement);
+        }
+        return param.bind(value);
+    }
+}
@@ -18,8 +18,10 @@ package net.sf.ehcache.search.parser;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +31,7 @@ import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.search.Query;
 import net.sf.ehcache.search.Results;
 import net.sf.ehcache.search.SearchException;
+import net.sf.ehcache.search.query.PreparedQuery;
 import net.sf.ehcache.search.query.QueryManager;
 
 /**
@@ -36,8 +39,22 @@ import net.sf.ehcache.search.query.QueryManager;
  */
 public class QueryManagerImpl implements QueryManager {
 
+    private static final int MAX_CACHED_STATEMENTS = 256;
+
     private final Map<CacheManager, List<Ehcache>> cacheManagerEhcacheMap = new HashMap<CacheManager, List<Ehcache>>();
 
+    /**
+     * Parse models of the most recently used statements. Parse models are not modified once parsed, so they are shared
+     * by all the queries created for a statement.
+     */
+    private final Map<String, ParseModel> parsedStatements = Collections.synchronizedMap(
+        new LinkedHashMap<String, ParseModel>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParseModel> eldest) {
+                return size() > MAX_CACHED_STATEMENTS;
+            }
+        });
+
     public QueryManagerImpl(Collection<Ehcache> ehcaches) {
         CacheManager cm;
         for (Ehcache ehcache : ehcaches) {
@@ -58,27 +75,19 @@ public class QueryManagerImpl implements QueryManager {
 
     @Override
     public Query createQuery(String statement) throws SearchException {
-        Map<String, String> cacheManagerCacheNameMap = extractSearchCacheName(statement);
-        String cacheManagerName = cacheManagerCacheNameMap.values().iterator().next();
-        String cacheName = cacheManagerCacheNameMap.keySet().iterator().next();
-        if (cacheManagerCacheNameMap.size() == 0) {
-            throw new SearchException("Please specify the cache's name with the FROM clause.");
-        } else {
-            return createQuery(getCache(cacheName, cacheManagerName), statement);
-        }
+        ParseModel model = parse(statement);
+        return model.getQuery(getCache(model.getCacheName(), model.getCacheManagerName()));
+    }
+
+    @Override
+    public PreparedQuery prepareQuery(String statement) throws SearchException {
+        ParseModel model = parse(statement);
+        return new PreparedQueryImpl(statement, getCache(model.getCacheName(), model.getCacheManagerName()), model);
     }
 
     // returns a map of cache name and cache manager name
     Map<String, String> extractSearchCacheName(String statement) throws SearchException {
-        EhcacheSearchParser parser = new EhcacheSearchParser(new StringReader(statement));
-        ParseModel model = null;
-        try {
-            model = parser.QueryStatement();
-        } catch (ParseException p) {
-            throw new SearchException(p);
-        } catch (TokenMgrError e) {
-            throw new SearchException(e);   
-        }
+        ParseModel model = parse(statement);
         Map<String, String> retMap = new HashMap<String, String>();
         String cacheName = model.getCacheName();
         String cacheManagerName = model.getCacheManagerName();
@@ -87,8 +96,16 @@ public class QueryManagerImpl implements QueryManager {
     }
 
     private Query createQuery(Ehcache cache, String statement) throws SearchException {
+        return parse(statement).getQuery(cache);
+    }
+
+    private ParseModel parse(String statement) throws SearchException {
+        ParseModel model = parsedStatements.get(statement);
+        if (model != null) {
+            return model;
+        }
+
         EhcacheSearchParser parser = new EhcacheSearchParser(new StringReader(statement));
-        ParseModel model;
         try {
             model = parser.QueryStatement();
         } catch (ParseException p) {
@@ -96,8 +113,8 @@ public class QueryManagerImpl implements QueryManager {
         } catch (TokenMgrError e) {
             throw new SearchException(e);   
         }
-        
-        return model.getQuery(cache);
+        parsedStatements.put(statement, model);
+        return model;
     }
 
     private Ehcache getCache(String cacheName, String cacheManagerName) throws CacheException {
@@ -34,7 +34,9 @@ import net.sf.ehcache.config.Searchable;
 import net.sf.ehcache.search.Attribute;
 import net.sf.ehcache.search.Result;
 import net.sf.ehcache.search.Results;
+import net.sf.ehcache.search.SearchException;
 import net.sf.ehcache.search.expression.EqualTo;
+import net.sf.ehcache.search.query.PreparedQuery;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -392,6 +394,51 @@ public class EhcachSearchParseTest {
         }
     }
 
+    @Test
+    public void testPreparedQueryPositionalParameters() {
+        PreparedQuery prepared = new QueryManagerImpl(ehcaches).prepareQuery(
+            "select key from cache1 where (age > ? and age < ?)");
+        Assert.assertEquals(2, prepared.getParameterCount());
+
+        Results res = prepared.setParameter(1, 11).setParameter(2, 13).createQuery().end().execute();
+        Assert.assertEquals(1, res.size());
+        Assert.assertEquals(12, res.all().iterator().next().getKey());
+
+        res = prepared.setParameter(1, 19).setParameter(2, 30).createQuery().end().execute();
+        Assert.assertEquals(10, res.size());
+    }
+
+    @Test
+    public void testPreparedQueryNamedParameters() {
+        PreparedQuery prepared = new QueryManagerImpl(ehcaches).prepareQuery(
+            "select key from cache1 where (zip = :zip or (age between :low and :high))");
+        for (int i = 10; i < 30; i++) {
+            Results res = prepared.setParameter("zip", "210" + i).setParameter("low", 40).setParameter("high", 50)
+                .createQuery().end().execute();
+            Assert.assertEquals(1, res.size());
+            Assert.assertEquals(i, res.all().iterator().next().getKey());
+        }
+    }
+
+    @Test
+    public void testPreparedQueryUnboundParameter() {
+        PreparedQuery prepared = new QueryManagerImpl(ehcaches).prepareQuery("select key from cache1 where age in (?, :age)");
+        prepared.setParameter(1, 12);
+        try {
+            prepared.createQuery();
+            Assert.fail("Expected SearchException");
+        } catch (SearchException e) {
+            // expected
+        }
+        try {
+            prepared.setParameter("zip", "21012");
+            Assert.fail("Expected SearchException");
+        } catch (SearchException e) {
+            // expected
+        }
+        Assert.assertEquals(2, prepared.setParameter("age", 13).createQuery().end().execute().size());
+    }
+
     private Cache getCache(String st) {
         QueryManagerImpl queryParser = new QueryManagerImpl(ehcaches);
         Map<String, String> m = queryParser.extractSearchCacheName(st);